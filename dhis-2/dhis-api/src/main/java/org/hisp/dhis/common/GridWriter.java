@@ -0,0 +1,72 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer which writes the content of a grid row by row to an underlying
+ * output, without holding the rows in memory. Headers must be written before
+ * any rows, and the writer must be closed when all rows have been written.
+ */
+public interface GridWriter
+{
+    /**
+     * Writes the given headers.
+     *
+     * @param headers the list of {@link GridHeader}.
+     */
+    GridWriter writeHeaders( List<GridHeader> headers );
+
+    /**
+     * Writes the given row.
+     *
+     * @param row the row values.
+     */
+    GridWriter writeRow( List<Object> row );
+
+    /**
+     * Sets the meta data to write. Meta data is written when the writer is
+     * closed, if supported by the output format.
+     *
+     * @param metaData the meta data.
+     */
+    GridWriter writeMetaData( Map<String, Object> metaData );
+
+    /**
+     * Returns the number of rows written so far.
+     */
+    long getRowCount();
+
+    /**
+     * Completes the output and flushes the underlying output.
+     */
+    void close();
+}
@@ -52,6 +52,14 @@ public interface DataValueAuditService
      */
     void addDataValueAudit( DataValueAudit dataValueAudit );
 
+    /**
+     * Queues a DataValueAudit for asynchronous writing in batches. The audit
+     * is written outside of the current transaction.
+     *
+     * @param dataValueAudit the DataValueAudit to queue.
+     */
+    void queueDataValueAudit( DataValueAudit dataValueAudit );
+
     /**
      * Deletes all data value audits for the given organisation unit.
      *
@@ -192,6 +192,8 @@ public enum ErrorCode
     E7131( "Query failed, likely because the query timed out" ),
     E7132( "Query failed. An Indicator expression is resulting in invalid operation: division by zero" ),
     E7133( "This query cannot be executed, possibly because of invalid types or invalid operation" ),
+    E7134( "Query estimated cost exceeds the max allowed cost: `{0}`, `{1}`" ),
+    E7135( "Query could not be admitted within `{0}` seconds as the server is busy, estimated cost: `{1}`" ),
 
     /* Event analytics */
     E7200( "At least one organisation unit must be specified" ),
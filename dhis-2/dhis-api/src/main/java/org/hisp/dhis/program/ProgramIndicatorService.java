@@ -188,6 +188,12 @@ public interface ProgramIndicatorService
 
     String getAnalyticsSql( String expression, ProgramIndicator programIndicator, Date startDate, Date endDate, String tableAlias );
 
+    /**
+     * Invalidates the cached analytics SQL of all program indicators. To be
+     * called when meta-data which the generated SQL depends on changes.
+     */
+    void invalidateAnalyticsSqlCache();
+
     /**
      * Returns a SQL clause which matches any value for the data elements and
      * attributes in the given expression.
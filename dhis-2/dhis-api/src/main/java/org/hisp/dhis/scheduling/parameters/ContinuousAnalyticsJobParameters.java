@@ -69,6 +69,13 @@ public class ContinuousAnalyticsJobParameters
      */
     private Set<AnalyticsTableType> skipTableTypes = new HashSet<>();
 
+    /**
+     * Indicates whether to update the data value, event and enrollment analytics
+     * tables incrementally based on changed data instead of through the latest
+     * partition.
+     */
+    private boolean incrementalUpdate;
+
     public ContinuousAnalyticsJobParameters()
     {
     }
@@ -118,6 +125,18 @@ public class ContinuousAnalyticsJobParameters
         this.skipTableTypes = skipTableTypes;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
+    public void setIncrementalUpdate( boolean incrementalUpdate )
+    {
+        this.incrementalUpdate = incrementalUpdate;
+    }
+
     @Override
     public Optional<ErrorReport> validate()
     {
@@ -0,0 +1,245 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.analytics.AggregationType.AVERAGE;
+import static org.hisp.dhis.analytics.AggregationType.SUM;
+import static org.hisp.dhis.analytics.DataQueryParams.LEVEL_PREFIX;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.period.PeriodType;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Class representing a rollup of the data value analytics table, pre-aggregated
+ * to the organisation unit levels up to and including a given level and to
+ * the periods of a given period type and all less frequent period types.
+ * <p>
+ * A rollup can answer a query exactly if the query only refers to columns
+ * present in the rollup and uses an aggregation which can be computed from
+ * pre-aggregated sums.
+ */
+@Slf4j
+public class AnalyticsRollup
+{
+    public static final String ROLLUP_TABLE_PREFIX = "analytics_rollup_";
+
+    private static final String ENTRY_SEP = ",";
+
+    private static final String LEVEL_SEP = ":";
+
+    /**
+     * The columns which are aggregated by summing in the rollup.
+     */
+    public static final List<String> VALUE_COLUMNS = Lists.newArrayList( "daysxvalue", "daysno", "value" );
+
+    /**
+     * The highest organisation unit level included in the rollup.
+     */
+    private int orgUnitLevel;
+
+    /**
+     * The most frequent period type included in the rollup.
+     */
+    private PeriodType periodType;
+
+    /**
+     * @param orgUnitLevel the highest organisation unit level.
+     * @param periodType the most frequent period type.
+     */
+    public AnalyticsRollup( int orgUnitLevel, PeriodType periodType )
+    {
+        Preconditions.checkArgument( orgUnitLevel > 0, "Org unit level must be greater than zero" );
+        Preconditions.checkNotNull( periodType );
+
+        this.orgUnitLevel = orgUnitLevel;
+        this.periodType = periodType;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Parses a list of rollups from the given configuration string. Rollups are
+     * separated by comma, and each rollup is given as organisation unit level
+     * and period type name separated by colon, e.g. {@code 3:Monthly,2:Quarterly}.
+     * Invalid rollups are ignored.
+     *
+     * @param config the configuration string.
+     * @return a list of rollups.
+     */
+    public static List<AnalyticsRollup> getRollups( String config )
+    {
+        List<AnalyticsRollup> rollups = new ArrayList<>();
+
+        for ( String entry : StringUtils.split( StringUtils.trimToEmpty( config ), ENTRY_SEP ) )
+        {
+            String[] parts = StringUtils.split( entry.trim(), LEVEL_SEP );
+
+            String levelPart = parts.length == 2 ? parts[0].trim() : null;
+
+            Integer level = NumberUtils.isDigits( levelPart ) ? Integer.valueOf( levelPart ) : null;
+            PeriodType periodType = parts.length == 2 ? PeriodType.getByNameIgnoreCase( parts[1] ) : null;
+
+            if ( level == null || level < 1 || periodType == null )
+            {
+                log.warn( String.format( "Ignoring invalid analytics rollup: '%s'", entry ) );
+                continue;
+            }
+
+            rollups.add( new AnalyticsRollup( level, periodType ) );
+        }
+
+        return rollups;
+    }
+
+    /**
+     * Returns the name of the rollup table.
+     */
+    public String getTableName()
+    {
+        return ROLLUP_TABLE_PREFIX + "ou" + orgUnitLevel + "_" + periodType.getName().toLowerCase();
+    }
+
+    /**
+     * Returns the names of the dimension columns of the rollup, which are the
+     * data, category option combo and attribute option combo columns, the
+     * organisation unit level columns up to the rollup level, the period type
+     * columns from the rollup period type and less frequent, and the year.
+     */
+    public Set<String> getDimensionColumns()
+    {
+        Set<String> columns = new LinkedHashSet<>( Lists.newArrayList( "dx", "co", "ao" ) );
+
+        for ( int level = 1; level <= orgUnitLevel; level++ )
+        {
+            columns.add( LEVEL_PREFIX + level );
+        }
+
+        for ( PeriodType type : PeriodType.getAvailablePeriodTypes() )
+        {
+            if ( type.getFrequencyOrder() >= periodType.getFrequencyOrder() )
+            {
+                columns.add( type.getName().toLowerCase() );
+            }
+        }
+
+        columns.add( "year" );
+
+        return columns;
+    }
+
+    /**
+     * Indicates whether this rollup can answer the given query exactly. This
+     * requires numeric or boolean data aggregated by sum, or boolean data
+     * aggregated by average, and that all dimensions and filters of the query
+     * are columns of the rollup. Queries with data approval, disaggregation,
+     * start and end dates, date restrictions or pre-aggregate measure criteria
+     * are not eligible, as these depend on columns which are not present.
+     *
+     * @param params the {@link DataQueryParams}.
+     */
+    public boolean isAnswering( DataQueryParams params )
+    {
+        AnalyticsAggregationType aggType = params.getAggregationType();
+
+        if ( aggType == null || aggType.isFirstOrLastOrLastInPeriodAggregationType() || params.isDataType( DataType.TEXT ) )
+        {
+            return false;
+        }
+
+        boolean sumAggregation = aggType.isAggregationType( SUM ) ||
+            ( aggType.isAggregationType( AVERAGE ) && aggType.isBooleanDataType() );
+
+        if ( !sumAggregation || params.isDisaggregation() || params.isDataApproval() || params.hasStartEndDate() ||
+            params.isTimely() || params.hasPreAggregateMeasureCriteria() || params.isSkipPartitioning() )
+        {
+            return false;
+        }
+
+        if ( params.hasStartEndDateRestriction() &&
+            ( params.isRestrictByOrgUnitOpeningClosedDate() || params.isRestrictByCategoryOptionStartEndDate() ) )
+        {
+            return false;
+        }
+
+        Set<String> columns = getDimensionColumns();
+
+        for ( DimensionalObject dimension : params.getDimensions() )
+        {
+            if ( !dimension.isFixed() && !columns.contains( dimension.getDimensionName() ) )
+            {
+                return false;
+            }
+        }
+
+        for ( DimensionalObject filter : params.getFilters() )
+        {
+            if ( filter.hasItems() && !columns.contains( filter.getDimensionName() ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    public int getOrgUnitLevel()
+    {
+        return orgUnitLevel;
+    }
+
+    public PeriodType getPeriodType()
+    {
+        return periodType;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getTableName();
+    }
+}
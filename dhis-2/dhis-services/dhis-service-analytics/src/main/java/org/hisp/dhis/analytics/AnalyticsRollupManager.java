@@ -0,0 +1,77 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import java.util.List;
+import java.util.Optional;
+
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+
+/**
+ * Manager for the pre-aggregated rollup tables of the data value analytics
+ * table.
+ */
+public interface AnalyticsRollupManager
+{
+    /**
+     * Returns the configured {@link AnalyticsRollup}.
+     *
+     * @return a list of rollups, empty if none are configured.
+     */
+    List<AnalyticsRollup> getRollups();
+
+    /**
+     * Returns the smallest existing {@link AnalyticsRollup} which can answer
+     * the given query exactly.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return the rollup, or empty if no rollup can answer the query.
+     */
+    Optional<AnalyticsRollup> getRollup( DataQueryParams params );
+
+    /**
+     * Updates the rollup tables from the given data value analytics table after
+     * it has been swapped into place. For a full update the rollup tables are
+     * rebuilt, otherwise the rows for the years of the table partitions are
+     * replaced. For the "latest" partition, these are the years of the data
+     * values changed within the time span of the partition.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param table the data value {@link AnalyticsTable}.
+     */
+    void updateRollups( AnalyticsTableUpdateParams params, AnalyticsTable table );
+
+    /**
+     * Event handler for {@link ApplicationCacheClearedEvent}.
+     *
+     * @param event the {@link ApplicationCacheClearedEvent}.
+     */
+    void handleApplicationCachesCleared( ApplicationCacheClearedEvent event );
+}
@@ -30,6 +30,7 @@ package org.hisp.dhis.analytics;
 
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridWriter;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
 
@@ -132,6 +133,17 @@ public interface AnalyticsService
      */
     Grid getRawDataValues( DataQueryParams params );
 
+    /**
+     * Writes raw data values for the given query to the given writer. Rows
+     * are written as they are read from the database and are not held in
+     * memory, which makes this suitable for large exports. The writer is
+     * closed when all content has been written.
+     *
+     * @param params the data query parameters.
+     * @param writer the {@link GridWriter}.
+     */
+    void getRawDataValues( DataQueryParams params, GridWriter writer );
+
     /**
      * Generates a data value set for the given query. The query must contain
      * a data, period and organisation unit dimension.
@@ -0,0 +1,196 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Class representing a chunk of an analytics table partition. A partition
+ * can be split into a number of chunks which are populated concurrently, where
+ * each chunk covers a range of values of an indexed key column, so that each
+ * chunk reads only its own part of the source data.
+ */
+public class AnalyticsTableChunk
+{
+    /**
+     * The analytics table partition of this chunk.
+     */
+    private AnalyticsTablePartition partition;
+
+    /**
+     * The zero-based index of this chunk.
+     */
+    private int chunk;
+
+    /**
+     * The total number of chunks for the partition.
+     */
+    private int chunks;
+
+    /**
+     * The inclusive lower bound of the key range, null if not chunked.
+     */
+    private Long lowerBound;
+
+    /**
+     * The exclusive upper bound of the key range, null if not chunked.
+     */
+    private Long upperBound;
+
+    /**
+     * Creates a chunk covering the entire partition.
+     *
+     * @param partition the analytics table partition.
+     */
+    public AnalyticsTableChunk( AnalyticsTablePartition partition )
+    {
+        this.partition = partition;
+        this.chunk = 0;
+        this.chunks = 1;
+    }
+
+    /**
+     * @param partition the analytics table partition.
+     * @param chunk the zero-based index of the chunk.
+     * @param chunks the total number of chunks.
+     * @param lowerBound the inclusive lower bound of the key range.
+     * @param upperBound the exclusive upper bound of the key range.
+     */
+    public AnalyticsTableChunk( AnalyticsTablePartition partition, int chunk, int chunks, long lowerBound, long upperBound )
+    {
+        Preconditions.checkArgument( chunks > 0, "Number of chunks must be greater than zero" );
+        Preconditions.checkArgument( chunk >= 0 && chunk < chunks, "Chunk index must be within number of chunks" );
+        Preconditions.checkArgument( lowerBound < upperBound, "Lower bound must be less than upper bound" );
+
+        this.partition = partition;
+        this.chunk = chunk;
+        this.chunks = chunks;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a list of chunks covering the given partition, where the key
+     * range between the given min and max values is split into ranges of
+     * equal width. Returns a single chunk covering the entire partition if
+     * the number of chunks is one or less or if the partition has no rows,
+     * indicated by null min or max values.
+     *
+     * @param partition the analytics table partition.
+     * @param chunks the number of chunks.
+     * @param min the min key value of the partition, inclusive.
+     * @param max the max key value of the partition, inclusive.
+     */
+    public static List<AnalyticsTableChunk> getChunks( AnalyticsTablePartition partition, int chunks, Long min, Long max )
+    {
+        List<AnalyticsTableChunk> list = new ArrayList<>();
+
+        if ( chunks <= 1 || min == null || max == null || min >= max )
+        {
+            list.add( new AnalyticsTableChunk( partition ) );
+            return list;
+        }
+
+        long span = max - min + 1;
+        long width = ( span + chunks - 1 ) / chunks;
+        int chunkNo = (int) ( ( span + width - 1 ) / width );
+
+        for ( int i = 0; i < chunkNo; i++ )
+        {
+            long lower = min + i * width;
+            long upper = Math.min( lower + width, max + 1 );
+
+            list.add( new AnalyticsTableChunk( partition, i, chunkNo, lower, upper ) );
+        }
+
+        return list;
+    }
+
+    /**
+     * Indicates whether the partition is split into more than one chunk.
+     */
+    public boolean isChunked()
+    {
+        return lowerBound != null && upperBound != null;
+    }
+
+    /**
+     * Returns a SQL condition which restricts rows to the key range of this
+     * chunk based on the given integer key column, or an empty string if the
+     * partition is not split.
+     *
+     * @param column the key column.
+     */
+    public String getChunkClause( String column )
+    {
+        return isChunked() ? "and " + column + " >= " + lowerBound + " and " + column + " < " + upperBound + " " : "";
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    public AnalyticsTablePartition getPartition()
+    {
+        return partition;
+    }
+
+    public int getChunk()
+    {
+        return chunk;
+    }
+
+    public int getChunks()
+    {
+        return chunks;
+    }
+
+    public Long getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    public Long getUpperBound()
+    {
+        return upperBound;
+    }
+
+    @Override
+    public String toString()
+    {
+        return isChunked() ? partition.getTempTableName() + " chunk " + ( chunk + 1 ) + "/" + chunks : partition.getTempTableName();
+    }
+}
@@ -50,6 +50,35 @@ public interface AnalyticsTableManager
      */
     AnalyticsTableType getAnalyticsTableType();
 
+    /**
+     * Indicates whether this manager supports incremental update of analytics
+     * tables, where only rows affected by changed data are replaced in place.
+     *
+     * @return true if incremental update is supported.
+     */
+    boolean supportsIncrementalUpdate();
+
+    /**
+     * Indicates whether this manager supports populating a single analytics table
+     * partition in multiple chunks concurrently.
+     *
+     * @return true if chunked population is supported.
+     */
+    boolean supportsChunkedPopulation();
+
+    /**
+     * Returns the chunks covering the given analytics table partition, where
+     * each chunk covers a range of values of an indexed key column of the
+     * source data. Returns a single chunk if chunked population is not
+     * supported.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the analytics table partition.
+     * @param chunks the max number of chunks.
+     * @return a list of {@link AnalyticsTableChunk}.
+     */
+    List<AnalyticsTableChunk> getTableChunks( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition, int chunks );
+
     /**
      * Returns a {@link AnalyticsTable} with a list of yearly {@link AnalyticsTablePartition}.
      *
@@ -118,13 +147,14 @@ public interface AnalyticsTableManager
 
     /**
      * Copies and denormalizes rows from data value table into analytics table.
-     * The data range is based on the start date of the data value row.
+     * The data range is based on the start date of the data value row. Each
+     * chunk covers either a whole partition or a part of a partition.
      *
      * @param params the {@link AnalyticsTableUpdateParams}.
-     * @param tablePartitions the analytics table partitions.
+     * @param tableChunks the analytics table partition chunks.
      * @return a future representing the asynchronous task.
      */
-    Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTablePartition> tablePartitions );
+    Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTableChunk> tableChunks );
 
     /**
      * Invokes analytics table SQL hooks for the table type.
@@ -56,6 +56,19 @@ public class AnalyticsTableUpdateParams
      */
     private Integer lastYears;
 
+    /**
+     * Indicates whether to update tables incrementally based on the data
+     * value change log, replacing only the rows affected by changed data.
+     */
+    private boolean incrementalUpdate;
+
+    /**
+     * Indicates whether the data value change log used by incremental updates
+     * should be captured from the start of this full update. Null leaves the
+     * current capture state unchanged.
+     */
+    private Boolean captureChangeLog;
+
     /**
      * Indicates whether to skip update of resource tables.
      */
@@ -101,6 +114,16 @@ public class AnalyticsTableUpdateParams
         return lastYears;
     }
 
+    public boolean isIncrementalUpdate()
+    {
+        return incrementalUpdate;
+    }
+
+    public Boolean getCaptureChangeLog()
+    {
+        return captureChangeLog;
+    }
+
     public boolean isSkipResourceTables()
     {
         return skipResourceTables;
@@ -133,7 +156,7 @@ public class AnalyticsTableUpdateParams
      */
     public boolean isPartialUpdate()
     {
-        return lastYears != null || isLatestUpdate();
+        return lastYears != null || isLatestUpdate() || incrementalUpdate;
     }
 
     /**
@@ -153,6 +176,8 @@ public class AnalyticsTableUpdateParams
     {
         return MoreObjects.toStringHelper( this )
             .add( "last years", lastYears )
+            .add( "incremental update", incrementalUpdate )
+            .add( "capture change log", captureChangeLog )
             .add( "skip resource tables", skipResourceTables )
             .add( "skip table types", skipTableTypes )
             .add( "start time", DateUtils.getLongDateString( startTime ) )
@@ -195,6 +220,8 @@ public class AnalyticsTableUpdateParams
         AnalyticsTableUpdateParams params = new AnalyticsTableUpdateParams();
 
         params.lastYears = this.lastYears;
+        params.incrementalUpdate = this.incrementalUpdate;
+        params.captureChangeLog = this.captureChangeLog;
         params.skipResourceTables = this.skipResourceTables;
         params.skipTableTypes = new HashSet<>( this.skipTableTypes );
         params.jobId = this.jobId;
@@ -243,6 +270,18 @@ public class AnalyticsTableUpdateParams
             return this;
         }
 
+        public Builder withIncrementalUpdate()
+        {
+            this.params.incrementalUpdate = true;
+            return this;
+        }
+
+        public Builder withCaptureChangeLog( boolean captureChangeLog )
+        {
+            this.params.captureChangeLog = captureChangeLog;
+            return this;
+        }
+
         public Builder withSkipResourceTables( boolean skipResourceTables )
         {
             this.params.skipResourceTables = skipResourceTables;
@@ -53,6 +53,12 @@ public class DataQueryGroups
     
     private List<List<DataQueryParams>> sequentialQueries = new ArrayList<>();
 
+    private QueryCost cost = QueryCost.NONE;
+
+    private int partitionsScanned;
+
+    private int partitionsPruned;
+
     // -------------------------------------------------------------------------
     // Constructor
     // -------------------------------------------------------------------------
@@ -125,10 +131,44 @@ public class DataQueryGroups
         return max;
     }
     
+    /**
+     * Gets the estimated cost of all queries. Is {@link QueryCost#NONE} if
+     * the cost was not estimated during query planning.
+     *
+     * @return the estimated {@link QueryCost}.
+     */
+    public QueryCost getCost()
+    {
+        return cost;
+    }
+
+    /**
+     * Gets the number of distinct analytics table partitions scanned by the
+     * queries.
+     *
+     * @return the number of partitions scanned.
+     */
+    public int getPartitionsScanned()
+    {
+        return partitionsScanned;
+    }
+
+    /**
+     * Gets the number of existing analytics table partitions which are not
+     * scanned by any of the queries.
+     *
+     * @return the number of partitions pruned.
+     */
+    public int getPartitionsPruned()
+    {
+        return partitionsPruned;
+    }
+
     @Override
     public String toString()
     {
-        return "[Seq queries: " + sequentialQueries.size() + ", all queries: " + queries.size() + ", queries: " + queries + "]";        
+        return "[Seq queries: " + sequentialQueries.size() + ", all queries: " + queries.size() + ", cost: " + cost +
+            ", partitions scanned: " + partitionsScanned + ", pruned: " + partitionsPruned + ", queries: " + queries + "]";
     }
 
     // -------------------------------------------------------------------------
@@ -166,6 +206,19 @@ public class DataQueryGroups
             this.groups.sequentialQueries.addAll( getListMap( queries ).values() );
             return this;
         }
+
+        public Builder withCost( QueryCost cost )
+        {
+            this.groups.cost = cost;
+            return this;
+        }
+
+        public Builder withPartitionStatistics( int partitionsScanned, int partitionsPruned )
+        {
+            this.groups.partitionsScanned = partitionsScanned;
+            this.groups.partitionsPruned = partitionsPruned;
+            return this;
+        }
         
         public DataQueryGroups build()
         {
@@ -1625,18 +1625,20 @@ public class DataQueryParams
 
     /**
      * Retains only dimensions of type reporting rates and the given reporting
-     * rate metric.
+     * rate metrics.
      *
-     * @param metric the reporting rate metric.
+     * @param metrics the reporting rate metrics.
      */
-    private DataQueryParams retainDataDimensionReportingRates( ReportingRateMetric metric )
+    private DataQueryParams retainDataDimensionReportingRates( ReportingRateMetric... metrics )
     {
         DimensionalObject dimension = getDimensionOrFilter( DATA_X_DIM_ID );
 
+        Set<ReportingRateMetric> metricSet = ImmutableSet.copyOf( metrics );
+
         List<ReportingRate> items = DimensionalObjectUtils.asTypedList(
             AnalyticsUtils.getByDataDimensionItemType( DataDimensionItemType.REPORTING_RATE, dimension.getItems() ) );
 
-        items = items.stream().filter( r -> metric == r.getMetric() ).collect( Collectors.toList() );
+        items = items.stream().filter( r -> metricSet.contains( r.getMetric() ) ).collect( Collectors.toList() );
 
         dimension.getItems().clear();
         dimension.getItems().addAll( items );
@@ -2543,9 +2545,9 @@ public class DataQueryParams
             return this;
         }
 
-        public Builder retainDataDimensionReportingRates( ReportingRateMetric metric )
+        public Builder retainDataDimensionReportingRates( ReportingRateMetric... metrics )
         {
-            this.params.retainDataDimensionReportingRates( metric );
+            this.params.retainDataDimensionReportingRates( metrics );
             return this;
         }
 
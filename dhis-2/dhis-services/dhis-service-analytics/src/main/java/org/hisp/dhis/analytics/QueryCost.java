@@ -0,0 +1,94 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Immutable estimate of the cost of an analytics query, based on the number of
+ * analytics table rows which the query is expected to scan.
+ */
+public class QueryCost
+{
+    public static final QueryCost NONE = new QueryCost( 0, 0 );
+
+    /**
+     * The estimated number of analytics table rows scanned.
+     */
+    private final long estimatedRows;
+
+    /**
+     * The estimated max number of aggregated values returned.
+     */
+    private final long estimatedCells;
+
+    public QueryCost( long estimatedRows, long estimatedCells )
+    {
+        this.estimatedRows = estimatedRows;
+        this.estimatedCells = estimatedCells;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a cost which is the sum of this and the given cost.
+     *
+     * @param cost the {@link QueryCost} to add.
+     * @return a {@link QueryCost}.
+     */
+    public QueryCost add( QueryCost cost )
+    {
+        return new QueryCost( estimatedRows + cost.estimatedRows, estimatedCells + cost.estimatedCells );
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    public long getEstimatedRows()
+    {
+        return estimatedRows;
+    }
+
+    public long getEstimatedCells()
+    {
+        return estimatedCells;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "estimatedRows", estimatedRows )
+            .add( "estimatedCells", estimatedCells )
+            .toString();
+    }
+}
@@ -56,6 +56,8 @@ public class QueryPlannerParams
 
     private List<Function<DataQueryParams, List<DataQueryParams>>> queryGroupers = new ArrayList<>();
 
+    private boolean estimateCost;
+
     // -------------------------------------------------------------------------
     // Constructor
     // -------------------------------------------------------------------------
@@ -114,6 +116,17 @@ public class QueryPlannerParams
         return queryGroupers;
     }
 
+    /**
+     * Indicates whether the planner should estimate the cost of the planned
+     * queries, available through {@link DataQueryGroups#getCost()}.
+     *
+     * @return true if the cost should be estimated.
+     */
+    public boolean isEstimateCost()
+    {
+        return estimateCost;
+    }
+
     // -------------------------------------------------------------------------
     // Builder of immutable instances
     // -------------------------------------------------------------------------
@@ -148,6 +161,12 @@ public class QueryPlannerParams
             return this;
         }
 
+        public Builder withEstimateCost( boolean estimateCost )
+        {
+            this.params.estimateCost = estimateCost;
+            return this;
+        }
+
         public QueryPlannerParams build()
         {
             return params;
@@ -0,0 +1,211 @@
+package org.hisp.dhis.analytics.admission;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.analytics.util.AnalyticsUtils.throwIllegalQueryEx;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_ADMISSION_ENABLED;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_ADMISSION_TIMEOUT;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_COST_BUDGET;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_COST_MAX;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.analytics.QueryCost;
+import org.hisp.dhis.analytics.admission.QueryAdmission.Decision;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.feedback.ErrorCode;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Admission controller backed by a fair weighted semaphore. The cost budget,
+ * in estimated analytics table rows, is divided into permits of
+ * {@link #COST_UNIT} rows, and each query acquires permits in proportion to
+ * its estimated rows. A query which exceeds the whole budget acquires all
+ * permits and hence runs alone. Queries which cannot acquire their permits
+ * immediately are queued until the admission timeout, and then rejected.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.analytics.admission.QueryAdmissionController" )
+public class DefaultQueryAdmissionController
+    implements QueryAdmissionController
+{
+    /**
+     * Number of estimated rows represented by a single permit.
+     */
+    static final long COST_UNIT = 10_000;
+
+    private final boolean enabled;
+
+    private final long timeoutSeconds;
+
+    private final long maxCost;
+
+    private final int totalPermits;
+
+    private final Semaphore semaphore;
+
+    private final Map<Decision, AtomicLong> decisionCounts = new EnumMap<>( Decision.class );
+
+    private final AtomicLong estimatedRowsTotal = new AtomicLong();
+
+    public DefaultQueryAdmissionController( DhisConfigurationProvider config )
+    {
+        checkNotNull( config );
+
+        this.enabled = config.isEnabled( ANALYTICS_QUERY_ADMISSION_ENABLED );
+        this.timeoutSeconds = Math.max( 0, NumberUtils.toLong( config.getProperty( ANALYTICS_QUERY_ADMISSION_TIMEOUT ), 30 ) );
+        this.maxCost = Math.max( 0, NumberUtils.toLong( config.getProperty( ANALYTICS_QUERY_COST_MAX ), 0 ) );
+
+        long budget = Math.max( COST_UNIT, NumberUtils.toLong( config.getProperty( ANALYTICS_QUERY_COST_BUDGET ), 0 ) );
+
+        this.totalPermits = (int) Math.min( Integer.MAX_VALUE, budget / COST_UNIT );
+        this.semaphore = new Semaphore( totalPermits, true );
+
+        for ( Decision decision : Decision.values() )
+        {
+            decisionCounts.put( decision, new AtomicLong() );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // QueryAdmissionController implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public QueryAdmission admit( QueryCost cost )
+    {
+        if ( !enabled )
+        {
+            return count( QueryAdmission.uncontrolled( cost ) );
+        }
+
+        estimatedRowsTotal.addAndGet( cost.getEstimatedRows() );
+
+        if ( maxCost > 0 && cost.getEstimatedRows() > maxCost )
+        {
+            decisionCounts.get( Decision.REJECTED ).incrementAndGet();
+
+            log.warn( String.format( "Query rejected as cost exceeds max: %s", cost ) );
+
+            throwIllegalQueryEx( ErrorCode.E7134, cost.getEstimatedRows(), maxCost );
+        }
+
+        int permits = getPermits( cost );
+
+        if ( semaphore.tryAcquire( permits ) )
+        {
+            return count( new QueryAdmission( Decision.ADMITTED, cost, semaphore, permits, 0 ) );
+        }
+
+        long start = System.currentTimeMillis();
+
+        boolean acquired = false;
+
+        try
+        {
+            acquired = semaphore.tryAcquire( permits, timeoutSeconds, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        long waitMillis = System.currentTimeMillis() - start;
+
+        if ( !acquired )
+        {
+            decisionCounts.get( Decision.REJECTED ).incrementAndGet();
+
+            log.warn( String.format( "Query rejected after waiting %d ms for admission: %s", waitMillis, cost ) );
+
+            throwIllegalQueryEx( ErrorCode.E7135, timeoutSeconds, cost.getEstimatedRows() );
+        }
+
+        log.debug( String.format( "Query admitted after waiting %d ms: %s", waitMillis, cost ) );
+
+        return count( new QueryAdmission( Decision.QUEUED, cost, semaphore, permits, waitMillis ) );
+    }
+
+    @Override
+    public long getDecisionCount( Decision decision )
+    {
+        return decisionCounts.get( decision ).get();
+    }
+
+    @Override
+    public long getEstimatedRowsTotal()
+    {
+        return estimatedRowsTotal.get();
+    }
+
+    @Override
+    public double getUsedBudgetRatio()
+    {
+        return (double) (totalPermits - semaphore.availablePermits()) / totalPermits;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of permits for the given cost, at least one and at
+     * most the total number of permits.
+     *
+     * @param cost the {@link QueryCost}.
+     * @return the number of permits.
+     */
+    int getPermits( QueryCost cost )
+    {
+        long permits = (cost.getEstimatedRows() + COST_UNIT - 1) / COST_UNIT;
+
+        return (int) Math.min( totalPermits, Math.max( 1, permits ) );
+    }
+
+    private QueryAdmission count( QueryAdmission admission )
+    {
+        decisionCounts.get( admission.getDecision() ).incrementAndGet();
+
+        return admission;
+    }
+}
@@ -0,0 +1,130 @@
+package org.hisp.dhis.analytics.admission;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.concurrent.Semaphore;
+
+import org.hisp.dhis.analytics.QueryCost;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * The outcome of the admission of an analytics query. Holds the permits
+ * acquired for the query, which are released when the admission is closed.
+ */
+public class QueryAdmission
+    implements AutoCloseable
+{
+    public enum Decision
+    {
+        ADMITTED, QUEUED, REJECTED, UNCONTROLLED
+    }
+
+    private final Decision decision;
+
+    private final QueryCost cost;
+
+    private final Semaphore semaphore;
+
+    private final int permits;
+
+    private final long waitMillis;
+
+    private boolean released = false;
+
+    public QueryAdmission( Decision decision, QueryCost cost, Semaphore semaphore, int permits, long waitMillis )
+    {
+        this.decision = decision;
+        this.cost = cost;
+        this.semaphore = semaphore;
+        this.permits = permits;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Returns an admission for a query which is not subject to admission control.
+     *
+     * @param cost the {@link QueryCost}.
+     * @return a {@link QueryAdmission}.
+     */
+    public static QueryAdmission uncontrolled( QueryCost cost )
+    {
+        return new QueryAdmission( Decision.UNCONTROLLED, cost, null, 0, 0 );
+    }
+
+    /**
+     * Releases the permits held by this admission. Closing an admission more
+     * than once has no effect.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if ( !released && semaphore != null && permits > 0 )
+        {
+            semaphore.release( permits );
+        }
+
+        released = true;
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    public Decision getDecision()
+    {
+        return decision;
+    }
+
+    public QueryCost getCost()
+    {
+        return cost;
+    }
+
+    public int getPermits()
+    {
+        return permits;
+    }
+
+    public long getWaitMillis()
+    {
+        return waitMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "decision", decision )
+            .add( "cost", cost )
+            .add( "permits", permits )
+            .add( "waitMillis", waitMillis )
+            .toString();
+    }
+}
@@ -0,0 +1,83 @@
+package org.hisp.dhis.analytics.admission;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.analytics.QueryCost;
+
+/**
+ * Controls the admission of analytics queries to the database based on their
+ * estimated cost, so that a few expensive queries cannot exhaust the database
+ * connections used by interactive users.
+ */
+public interface QueryAdmissionController
+{
+    /**
+     * Indicates whether admission control is enabled. When disabled, queries
+     * are admitted without estimating their cost.
+     *
+     * @return true if admission control is enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Admits a query with the given cost. Blocks until the cost fits within
+     * the remaining budget, or the admission timeout elapses.
+     *
+     * @param cost the {@link QueryCost}.
+     * @return a {@link QueryAdmission} which must be closed when the query has
+     *         completed.
+     * @throws org.hisp.dhis.common.IllegalQueryException if the cost exceeds
+     *         the max allowed cost, or if the query could not be admitted
+     *         within the admission timeout.
+     */
+    QueryAdmission admit( QueryCost cost );
+
+    /**
+     * Returns the number of queries with the given admission decision.
+     *
+     * @param decision the {@link QueryAdmission.Decision}.
+     * @return the number of queries.
+     */
+    long getDecisionCount( QueryAdmission.Decision decision );
+
+    /**
+     * Returns the total estimated rows of all queries considered for admission.
+     *
+     * @return the total estimated rows.
+     */
+    long getEstimatedRowsTotal();
+
+    /**
+     * Returns the fraction of the cost budget used by currently running
+     * queries, between 0 and 1.
+     *
+     * @return the used budget ratio.
+     */
+    double getUsedBudgetRatio();
+}
@@ -0,0 +1,89 @@
+package org.hisp.dhis.analytics.admission;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.MONITORING_ANALYTICS_QUERY_ENABLED;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.monitoring.metrics.MetricsEnabler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Exposes the admission decisions, the estimated rows and the used cost
+ * budget of the {@link QueryAdmissionController} as metrics.
+ */
+@Configuration
+@Conditional( QueryAdmissionMetricsConfig.QueryAdmissionMetricsEnabledCondition.class )
+public class QueryAdmissionMetricsConfig
+{
+    private static final String ADMISSION_METRIC = "analytics.query.admission";
+
+    private static final String ESTIMATED_ROWS_METRIC = "analytics.query.cost.estimated.rows";
+
+    private static final String BUDGET_USED_METRIC = "analytics.query.cost.budget.used";
+
+    private static final String DECISION_TAG = "decision";
+
+    @Autowired
+    public void bindToRegistry( MeterRegistry registry, QueryAdmissionController admissionController )
+    {
+        for ( QueryAdmission.Decision decision : QueryAdmission.Decision.values() )
+        {
+            FunctionCounter.builder( ADMISSION_METRIC, admissionController, controller -> controller.getDecisionCount( decision ) )
+                .description( "Number of analytics queries by admission decision" )
+                .tag( DECISION_TAG, decision.name().toLowerCase() )
+                .register( registry );
+        }
+
+        FunctionCounter.builder( ESTIMATED_ROWS_METRIC, admissionController, QueryAdmissionController::getEstimatedRowsTotal )
+            .description( "Total estimated analytics table rows of admission controlled queries" )
+            .register( registry );
+
+        Gauge.builder( BUDGET_USED_METRIC, admissionController, QueryAdmissionController::getUsedBudgetRatio )
+            .description( "Ratio of the analytics query cost budget used by running queries" )
+            .register( registry );
+    }
+
+    static class QueryAdmissionMetricsEnabledCondition
+        extends
+        MetricsEnabler
+    {
+        @Override
+        protected ConfigurationKey getConfigKey()
+        {
+            return MONITORING_ANALYTICS_QUERY_ENABLED;
+        }
+    }
+}
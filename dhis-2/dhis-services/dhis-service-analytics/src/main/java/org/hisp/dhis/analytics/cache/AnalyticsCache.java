@@ -34,13 +34,19 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.commons.logging.LogFactory.getLog;
 import static org.hisp.dhis.commons.util.SystemUtils.isTestRun;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.logging.Log;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryKey;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.Grid;
@@ -51,6 +57,11 @@ import org.springframework.stereotype.Component;
  * This is just a wrapper class responsible for keeping and isolating all
  * caching definition related to the analytics caching, decoupling it from the
  * service layer.
+ * 
+ * The cache has two tiers, see {@link AnalyticsCacheTier}. The response tier
+ * caches complete grids, while the sub-query tier caches the aggregated values
+ * of each planned query, so that requests which overlap only partially can
+ * reuse the values of the sub-queries they have in common.
  */
 @Component
 public class AnalyticsCache
@@ -59,6 +70,12 @@ public class AnalyticsCache
 
     private Cache<Grid> queryCache;
 
+    private Cache<Map<String, Object>> subQueryCache;
+
+    private final Map<AnalyticsCacheTier, LongAdder> hits = new EnumMap<>( AnalyticsCacheTier.class );
+
+    private final Map<AnalyticsCacheTier, LongAdder> misses = new EnumMap<>( AnalyticsCacheTier.class );
+
     private final CacheProvider cacheProvider;
 
     private final Environment environment;
@@ -69,6 +86,8 @@ public class AnalyticsCache
 
     private static final String CACHE_REGION = "analyticsResponse";
 
+    private static final String SUB_QUERY_CACHE_REGION = "analyticsSubQuery";
+
     public AnalyticsCache( final CacheProvider cacheProvider, final Environment environment,
         final AnalyticsCacheSettings analyticsCacheSettings )
     {
@@ -78,6 +97,12 @@ public class AnalyticsCache
         this.cacheProvider = cacheProvider;
         this.environment = environment;
         this.analyticsCacheSettings = analyticsCacheSettings;
+
+        for ( AnalyticsCacheTier tier : AnalyticsCacheTier.values() )
+        {
+            hits.put( tier, new LongAdder() );
+            misses.put( tier, new LongAdder() );
+        }
     }
 
     public Optional<Grid> get( final String key )
@@ -104,10 +129,14 @@ public class AnalyticsCache
 
         if ( cachedGrid.isPresent() )
         {
+            hits.get( AnalyticsCacheTier.RESPONSE ).increment();
+
             return cachedGrid.get();
         }
         else
         {
+            misses.get( AnalyticsCacheTier.RESPONSE ).increment();
+
             final Grid grid = function.apply( params );
 
             put( params, grid );
@@ -128,16 +157,7 @@ public class AnalyticsCache
      */
     public void put( final DataQueryParams params, final Grid grid )
     {
-        if ( analyticsCacheSettings.isProgressiveCachingEnabled() )
-        {
-            // Uses the progressive TTL
-            put( params.getKey(), grid, analyticsCacheSettings.progressiveExpirationTimeOrDefault( params.getLatestEndDate() ) );
-        }
-        else
-        {
-            // Respects the fixed (predefined) caching TTL
-            put( params.getKey(), grid, analyticsCacheSettings.fixedExpirationTimeOrDefault() );
-        }
+        put( params.getKey(), grid, getExpirationTime( params ) );
     }
 
     /**
@@ -154,11 +174,75 @@ public class AnalyticsCache
     }
 
     /**
-     * Clean the current cache by removing all existing entries.
+     * Retrieves the aggregated values of the given planned sub-query from the
+     * sub-query tier, and records a hit or miss for the tier.
+     * 
+     * @param params the planned DataQueryParams.
+     * @param tableType the analytics table type.
+     * @param maxLimit the max number of records to retrieve.
+     * @return the cached aggregated values, or empty if not cached.
+     */
+    public Optional<Map<String, Object>> getSubQuery( final DataQueryParams params,
+        final AnalyticsTableType tableType, final int maxLimit )
+    {
+        final Optional<Map<String, Object>> values = subQueryCache.get( getSubQueryKey( params, tableType, maxLimit ) );
+
+        if ( values.isPresent() )
+        {
+            hits.get( AnalyticsCacheTier.SUB_QUERY ).increment();
+        }
+        else
+        {
+            misses.get( AnalyticsCacheTier.SUB_QUERY ).increment();
+        }
+
+        return values;
+    }
+
+    /**
+     * Caches the aggregated values of the given planned sub-query in the
+     * sub-query tier. The TTL is set in the same way as for grids.
+     * 
+     * @param params the planned DataQueryParams.
+     * @param tableType the analytics table type.
+     * @param maxLimit the max number of records to retrieve.
+     * @param values the aggregated values of the sub-query.
+     */
+    public void putSubQuery( final DataQueryParams params, final AnalyticsTableType tableType, final int maxLimit,
+        final Map<String, Object> values )
+    {
+        subQueryCache.put( getSubQueryKey( params, tableType, maxLimit ), values, getExpirationTime( params ) );
+    }
+
+    /**
+     * Returns the number of cache hits for the given tier since startup.
+     * 
+     * @param tier the cache tier.
+     * @return the number of cache hits.
+     */
+    public long getHitCount( final AnalyticsCacheTier tier )
+    {
+        return hits.get( tier ).sum();
+    }
+
+    /**
+     * Returns the number of cache misses for the given tier since startup.
+     * 
+     * @param tier the cache tier.
+     * @return the number of cache misses.
+     */
+    public long getMissCount( final AnalyticsCacheTier tier )
+    {
+        return misses.get( tier ).sum();
+    }
+
+    /**
+     * Clean the current cache by removing all existing entries of all tiers.
      */
     public void invalidateAll()
     {
         queryCache.invalidateAll();
+        subQueryCache.invalidateAll();
         log.info( "Analytics cache cleared" );
     }
 
@@ -180,7 +264,75 @@ public class AnalyticsCache
             .expireAfterWrite( initialExpirationTime, SECONDS ).withMaximumSize( nonTestEnv ? MAX_CACHE_ENTRIES : 0 )
             .build();
 
+        subQueryCache = cacheProvider.newCacheBuilder( String.class, Object.class ).forRegion( SUB_QUERY_CACHE_REGION )
+            .expireAfterWrite( initialExpirationTime, SECONDS ).withMaximumSize( nonTestEnv ? MAX_CACHE_ENTRIES : 0 )
+            .build();
+
         log.info( format( "Analytics server-side cache is enabled with expiration time (in seconds): %d",
             initialExpirationTime ) );
     }
+
+    /**
+     * Returns the key of the given planned sub-query. The key is based on the
+     * dimensions, filters and properties of the sub-query which affect the
+     * retrieved values only, not on the properties of the request it was
+     * planned from, so that requests which differ in parts planned into other
+     * sub-queries or in presentation options share the cached values. The
+     * key includes the analytics table and partitions, as the same dimensions
+     * are planned into separate sub-queries per partition and period type.
+     *
+     * @param params the planned DataQueryParams.
+     * @param tableType the analytics table type.
+     * @param maxLimit the max number of records to retrieve.
+     * @return the sub-query key.
+     */
+    String getSubQueryKey( final DataQueryParams params, final AnalyticsTableType tableType, final int maxLimit )
+    {
+        QueryKey key = new QueryKey();
+
+        params.getDimensions().forEach( e -> key.add( "dimension", "[" + e.getKey() + "]" ) );
+        params.getFilters().forEach( e -> key.add( "filter", "[" + e.getKey() + "]" ) );
+
+        params.getMeasureCriteria().forEach( ( k, v ) -> key.add( "measureCriteria", ( String.valueOf( k ) + v ) ) );
+        params.getPreAggregateMeasureCriteria().forEach( ( k, v ) -> key.add( "preAggregateMeasureCriteria", ( String.valueOf( k ) + v ) ) );
+
+        params.getDataApprovalLevels().entrySet().stream()
+            .map( e -> e.getKey().getUid() + ":" + e.getValue() )
+            .sorted()
+            .forEach( e -> key.add( "dataApprovalLevel", e ) );
+
+        return key
+            .add( "aggregationType", params.getAggregationType() )
+            .add( "startDate", params.getStartDate() )
+            .add( "endDate", params.getEndDate() )
+            .add( "timeField", params.getTimeField() )
+            .add( "orgUnitField", params.getOrgUnitField() )
+            .add( "timely", params.isTimely() )
+            .add( "restrictByOrgUnitOpeningClosedDate", params.isRestrictByOrgUnitOpeningClosedDate() )
+            .add( "restrictByCategoryOptionStartEndDate", params.isRestrictByCategoryOptionStartEndDate() )
+            .add( "skipPartitioning", params.isSkipPartitioning() )
+            .add( "tableType", tableType )
+            .add( "tableName", params.getTableName() )
+            .add( "partitions", params.hasPartitions() ? new TreeSet<>( params.getPartitions().getPartitions() ) : null )
+            .add( "periodType", params.getPeriodType() )
+            .add( "dataPeriodType", params.getDataPeriodType() )
+            .add( "dataType", params.getDataType() )
+            .add( "startDateRestriction", params.getStartDateRestriction() )
+            .add( "endDateRestriction", params.getEndDateRestriction() )
+            .add( "maxLimit", maxLimit ).build();
+    }
+
+    private long getExpirationTime( final DataQueryParams params )
+    {
+        if ( analyticsCacheSettings.isProgressiveCachingEnabled() )
+        {
+            // Uses the progressive TTL
+            return analyticsCacheSettings.progressiveExpirationTimeOrDefault( params.getLatestEndDate() );
+        }
+        else
+        {
+            // Respects the fixed (predefined) caching TTL
+            return analyticsCacheSettings.fixedExpirationTimeOrDefault();
+        }
+    }
 }
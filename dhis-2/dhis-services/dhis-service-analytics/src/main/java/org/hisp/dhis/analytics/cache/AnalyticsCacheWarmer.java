@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.common.DimensionalObject.DIMENSION_NAME_SEP;
+import static org.hisp.dhis.common.DimensionalObject.OPTION_SEP;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getDimensionalItemIds;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_CACHE_WARMUP_ENABLED;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_CACHE_WARMUP_QUERIES;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_CACHE_WARMUP_THREADS;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_CACHE_WARMUP_TIMEOUT;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.DataQueryService;
+import org.hisp.dhis.analytics.MeasureFilter;
+import org.hisp.dhis.analytics.data.handling.DataAggregator;
+import org.hisp.dhis.common.DataQueryRequest;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dashboard.Dashboard;
+import org.hisp.dhis.dashboard.DashboardItem;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.system.util.Clock;
+import org.hisp.dhis.visualization.Visualization;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warms up the {@link AnalyticsCache} after full analytics table generation,
+ * so that the first users after a table update do not wait for cold queries.
+ * <p>
+ * The queries to replay are the most frequently requested aggregate queries
+ * recorded from live traffic, followed by the visualizations of dashboards.
+ * Queries are recorded as {@link DataQueryRequest} with the identifiers of
+ * the dimension items only, and the query parameters are built again within
+ * a transaction when replayed. Queries are replayed in a bounded thread pool
+ * within a time budget, and the resulting grids are put in the cache,
+ * replacing any stale entries.
+ */
+@Slf4j
+@Component
+public class AnalyticsCacheWarmer
+{
+    /**
+     * Max number of distinct queries to record the frequency of.
+     */
+    private static final int MAX_RECORDED_QUERIES = 2000;
+
+    private final Map<String, RecordedQuery> recordedQueries = new ConcurrentHashMap<>();
+
+    private final AnalyticsCache analyticsCache;
+
+    private final DataAggregator dataAggregator;
+
+    private final DataQueryService dataQueryService;
+
+    private final IdentifiableObjectManager idObjectManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final DhisConfigurationProvider config;
+
+    public AnalyticsCacheWarmer( AnalyticsCache analyticsCache, DataAggregator dataAggregator,
+        DataQueryService dataQueryService, IdentifiableObjectManager idObjectManager,
+        TransactionTemplate transactionTemplate, DhisConfigurationProvider config )
+    {
+        checkNotNull( analyticsCache );
+        checkNotNull( dataAggregator );
+        checkNotNull( dataQueryService );
+        checkNotNull( idObjectManager );
+        checkNotNull( transactionTemplate );
+        checkNotNull( config );
+
+        this.analyticsCache = analyticsCache;
+        this.dataAggregator = dataAggregator;
+        this.dataQueryService = dataQueryService;
+        this.idObjectManager = idObjectManager;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+    }
+
+    /**
+     * Indicates whether cache warm-up is enabled. Requires the analytics cache
+     * to be enabled.
+     *
+     * @return true if cache warm-up is enabled.
+     */
+    public boolean isEnabled()
+    {
+        return analyticsCache.isEnabled() && config.isEnabled( ANALYTICS_CACHE_WARMUP_ENABLED );
+    }
+
+    /**
+     * Records a request for the given aggregate query. The query must have
+     * the security constraints of the requesting user applied, so that the
+     * constraints are part of the recorded dimensions and filters. The query
+     * parameters are not retained.
+     *
+     * @param params the {@link DataQueryParams}.
+     */
+    public void recordQuery( DataQueryParams params )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+
+        String key = params.getKey();
+
+        RecordedQuery query = recordedQueries.get( key );
+
+        if ( query == null )
+        {
+            if ( recordedQueries.size() >= MAX_RECORDED_QUERIES )
+            {
+                evictLeastFrequent();
+            }
+
+            query = recordedQueries.computeIfAbsent( key, k -> new RecordedQuery( getRequest( params ) ) );
+        }
+
+        query.count.increment();
+    }
+
+    /**
+     * Replays the most frequent recorded queries and the dashboard
+     * visualizations, and puts the resulting grids in the analytics cache.
+     * Returns when all queries are replayed or the time budget is spent.
+     *
+     * @return the number of queries replayed.
+     */
+    @Transactional( readOnly = true )
+    public int warmUp()
+    {
+        if ( !isEnabled() )
+        {
+            return 0;
+        }
+
+        final Clock clock = new Clock( log ).startClock();
+
+        int maxQueries = Math.max( 0, NumberUtils.toInt( config.getProperty( ANALYTICS_CACHE_WARMUP_QUERIES ), 100 ) );
+        int threads = Math.max( 1, NumberUtils.toInt( config.getProperty( ANALYTICS_CACHE_WARMUP_THREADS ), 2 ) );
+        long timeout = Math.max( 1, NumberUtils.toLong( config.getProperty( ANALYTICS_CACHE_WARMUP_TIMEOUT ), 900 ) );
+
+        List<DataQueryRequest> queries = getWarmUpQueries( maxQueries );
+
+        log.info( String.format( "Warming up analytics cache with %d queries using %d threads", queries.size(), threads ) );
+
+        AtomicInteger replayed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+
+        queries.forEach( request -> executor.execute( () -> replay( request, replayed ) ) );
+
+        executor.shutdown();
+
+        try
+        {
+            if ( !executor.awaitTermination( timeout, TimeUnit.SECONDS ) )
+            {
+                log.warn( String.format( "Analytics cache warm-up exceeded time budget of %d seconds", timeout ) );
+
+                executor.shutdownNow();
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            executor.shutdownNow();
+
+            Thread.currentThread().interrupt();
+        }
+
+        clock.logTime( String.format( "Analytics cache warmed up with %d of %d queries", replayed.get(), queries.size() ) );
+
+        return replayed.get();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the queries to replay, being the most frequently recorded
+     * queries, followed by the queries of dashboard visualizations, up to the
+     * given max number of queries. Duplicate queries are replayed once.
+     *
+     * @param maxQueries the max number of queries.
+     * @return a list of {@link DataQueryRequest}.
+     */
+    List<DataQueryRequest> getWarmUpQueries( int maxQueries )
+    {
+        Map<String, DataQueryRequest> queries = new LinkedHashMap<>();
+
+        recordedQueries.entrySet().stream()
+            .sorted( Comparator.comparingLong( ( Map.Entry<String, RecordedQuery> entry ) -> entry.getValue().getCount() ).reversed() )
+            .limit( maxQueries )
+            .forEach( entry -> queries.put( entry.getKey(), entry.getValue().request ) );
+
+        if ( queries.size() < maxQueries )
+        {
+            for ( Visualization visualization : getDashboardVisualizations() )
+            {
+                if ( queries.size() >= maxQueries )
+                {
+                    break;
+                }
+
+                try
+                {
+                    DataQueryParams params = dataQueryService.getFromAnalyticalObject( visualization );
+
+                    queries.computeIfAbsent( params.getKey(), key -> getRequest( params ) );
+                }
+                catch ( RuntimeException ex )
+                {
+                    log.debug( "Skipping visualization for cache warm-up: " + visualization.getUid(), ex );
+                }
+            }
+        }
+
+        return queries.values().stream()
+            .limit( maxQueries )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns a request for the given query, with the dimensions and filters
+     * given by the identifiers of their items.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return a {@link DataQueryRequest}.
+     */
+    static DataQueryRequest getRequest( DataQueryParams params )
+    {
+        AnalyticsAggregationType aggregationType = params.getAggregationType();
+
+        return DataQueryRequest.newBuilder()
+            .dimension( getDimensionParams( params.getDimensions() ) )
+            .filter( getDimensionParams( params.getFilters() ) )
+            .aggregationType( aggregationType != null ? aggregationType.getAggregationType() : null )
+            .measureCriteria( getMeasureCriteriaParam( params.getMeasureCriteria() ) )
+            .preAggregationMeasureCriteria( getMeasureCriteriaParam( params.getPreAggregateMeasureCriteria() ) )
+            .startDate( params.getStartDate() )
+            .endDate( params.getEndDate() )
+            .order( params.getOrder() )
+            .timeField( params.getTimeField() )
+            .orgUnitField( params.getOrgUnitField() )
+            .skipMeta( params.isSkipMeta() )
+            .skipData( params.isSkipData() )
+            .skipRounding( params.isSkipRounding() )
+            .completedOnly( params.isCompletedOnly() )
+            .hierarchyMeta( params.isHierarchyMeta() )
+            .ignoreLimit( params.isIgnoreLimit() )
+            .hideEmptyRows( params.isHideEmptyRows() )
+            .hideEmptyColumns( params.isHideEmptyColumns() )
+            .showHierarchy( params.isShowHierarchy() )
+            .includeNumDen( params.isIncludeNumDen() )
+            .includeMetadataDetails( params.isIncludeMetadataDetails() )
+            .displayProperty( params.getDisplayProperty() )
+            .outputIdScheme( params.getOutputIdScheme() )
+            .duplicatesOnly( params.isDuplicatesOnly() )
+            .apiVersion( params.getApiVersion() )
+            .build();
+    }
+
+    /**
+     * Returns dimension parameters on the format {@code <dimension>:<item>;<item>}
+     * for the given dimensions.
+     */
+    private static Set<String> getDimensionParams( List<DimensionalObject> dimensions )
+    {
+        Set<String> params = new LinkedHashSet<>();
+
+        for ( DimensionalObject dimension : dimensions )
+        {
+            List<String> items = getDimensionalItemIds( dimension.getItems() );
+
+            params.add( items.isEmpty() ? dimension.getDimension() :
+                dimension.getDimension() + DIMENSION_NAME_SEP + StringUtils.join( items, OPTION_SEP ) );
+        }
+
+        return params;
+    }
+
+    /**
+     * Returns a measure criteria parameter on the format
+     * {@code <filter>:<value>;<filter>:<value>}, or null if there are no
+     * criteria.
+     */
+    private static String getMeasureCriteriaParam( Map<MeasureFilter, Double> criteria )
+    {
+        if ( criteria == null || criteria.isEmpty() )
+        {
+            return null;
+        }
+
+        return criteria.entrySet().stream()
+            .map( entry -> entry.getKey().name() + DIMENSION_NAME_SEP + entry.getValue() )
+            .collect( Collectors.joining( OPTION_SEP ) );
+    }
+
+    /**
+     * Returns the distinct visualizations of all dashboards. Visualizations
+     * with user org units are skipped, as they resolve differently for each
+     * user.
+     *
+     * @return a list of {@link Visualization}.
+     */
+    private List<Visualization> getDashboardVisualizations()
+    {
+        return idObjectManager.getAllNoAcl( Dashboard.class ).stream()
+            .flatMap( dashboard -> dashboard.getItems().stream() )
+            .map( DashboardItem::getVisualization )
+            .filter( visualization -> visualization != null && !visualization.hasUserOrgUnit() )
+            .distinct()
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Builds the query parameters of the given request and puts the resulting
+     * grid in the cache. Runs in a transaction of its own, as replays run in
+     * threads of the warm-up executor.
+     */
+    private void replay( DataQueryRequest request, AtomicInteger replayed )
+    {
+        try
+        {
+            transactionTemplate.execute( status -> {
+                DataQueryParams params = dataQueryService.getFromRequest( request );
+
+                analyticsCache.put( params, dataAggregator.getAggregatedDataValueGrid( params ) );
+
+                return null;
+            } );
+
+            replayed.incrementAndGet();
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Analytics cache warm-up query failed: " + ex.getMessage() );
+        }
+    }
+
+    private void evictLeastFrequent()
+    {
+        recordedQueries.entrySet().stream()
+            .min( Comparator.comparingLong( entry -> entry.getValue().getCount() ) )
+            .ifPresent( entry -> recordedQueries.remove( entry.getKey() ) );
+    }
+
+    /**
+     * A recorded query with its number of requests.
+     */
+    private static class RecordedQuery
+    {
+        private final DataQueryRequest request;
+
+        private final LongAdder count = new LongAdder();
+
+        RecordedQuery( DataQueryRequest request )
+        {
+            this.request = request;
+        }
+
+        long getCount()
+        {
+            return count.sum();
+        }
+    }
+}
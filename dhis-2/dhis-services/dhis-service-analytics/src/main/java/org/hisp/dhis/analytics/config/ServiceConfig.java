@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.config;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.table.DefaultAnalyticsTableService;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SystemSettingManager;
@@ -49,69 +50,76 @@ public class ServiceConfig
     public DefaultAnalyticsTableService analyticsTableService(
         @Qualifier( "org.hisp.dhis.analytics.AnalyticsTableManager" ) AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+        DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-            resourceTableService, notifier, systemSettingManager );
+            resourceTableService, notifier, systemSettingManager, config );
     }
 
     @Bean( "org.hisp.dhis.analytics.CompletenessTableService" )
     public DefaultAnalyticsTableService completenessTableService(
             @Qualifier( "org.hisp.dhis.analytics.CompletenessTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, config );
     }
 
     @Bean( "org.hisp.dhis.analytics.CompletenessTargetTableService" )
     public DefaultAnalyticsTableService completenessTargetTableService(
             @Qualifier( "org.hisp.dhis.analytics.CompletenessTargetTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, config );
     }
 
     @Bean( "org.hisp.dhis.analytics.OrgUnitTargetTableService" )
     public DefaultAnalyticsTableService orgUnitTargetTableService(
             @Qualifier( "org.hisp.dhis.analytics.OrgUnitTargetTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, config );
     }
 
     @Bean( "org.hisp.dhis.analytics.EventAnalyticsTableService" )
     public DefaultAnalyticsTableService eventAnalyticsTableService(
             @Qualifier( "org.hisp.dhis.analytics.EventAnalyticsTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, config );
     }
 
     @Bean( "org.hisp.dhis.analytics.ValidationResultTableService" )
     public DefaultAnalyticsTableService validationResultTableService(
             @Qualifier( "org.hisp.dhis.analytics.ValidationResultAnalyticsTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, config );
     }
 
     @Bean( "org.hisp.dhis.analytics.EnrollmentAnalyticsTableService" )
     public DefaultAnalyticsTableService enrollmentAnalyticsTableManager(
             @Qualifier( "org.hisp.dhis.analytics.EnrollmentAnalyticsTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            DhisConfigurationProvider config )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, config );
     }
 }
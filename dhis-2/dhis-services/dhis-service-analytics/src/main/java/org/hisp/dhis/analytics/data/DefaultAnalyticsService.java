@@ -46,12 +46,14 @@ import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataQueryService;
 import org.hisp.dhis.analytics.QueryValidator;
 import org.hisp.dhis.analytics.cache.AnalyticsCache;
+import org.hisp.dhis.analytics.cache.AnalyticsCacheWarmer;
 import org.hisp.dhis.analytics.data.handling.DataAggregator;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.CombinationGenerator;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridWriter;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
@@ -78,25 +80,30 @@ public class DefaultAnalyticsService
 
     private final DataAggregator dataAggregator;
 
+    private final AnalyticsCacheWarmer cacheWarmer;
+
     // -------------------------------------------------------------------------
     // AnalyticsService implementation
     // -------------------------------------------------------------------------
 
     @Autowired
     public DefaultAnalyticsService( AnalyticsSecurityManager securityManager, QueryValidator queryValidator,
-        DataQueryService dataQueryService, AnalyticsCache analyticsCache, DataAggregator dataAggregator )
+        DataQueryService dataQueryService, AnalyticsCache analyticsCache, DataAggregator dataAggregator,
+        AnalyticsCacheWarmer cacheWarmer )
     {
         checkNotNull( securityManager );
         checkNotNull( queryValidator );
         checkNotNull( dataQueryService );
         checkNotNull( analyticsCache );
         checkNotNull( dataAggregator );
+        checkNotNull( cacheWarmer );
 
         this.securityManager = securityManager;
         this.queryValidator = queryValidator;
         this.dataQueryService = dataQueryService;
         this.analyticsCache = analyticsCache;
         this.dataAggregator = dataAggregator;
+        this.cacheWarmer = cacheWarmer;
     }
 
     @Override
@@ -110,6 +117,8 @@ public class DefaultAnalyticsService
         {
             final DataQueryParams immutableParams = newBuilder( params ).build();
 
+            cacheWarmer.recordQuery( immutableParams );
+
             return analyticsCache.getOrFetch( params,
                 p -> dataAggregator.getAggregatedDataValueGrid( immutableParams ) );
         }
@@ -135,6 +144,16 @@ public class DefaultAnalyticsService
         return dataAggregator.getRawDataGrid( params );
     }
 
+    @Override
+    public void getRawDataValues( DataQueryParams params, GridWriter writer )
+    {
+        params = checkSecurityConstraints( params );
+
+        queryValidator.validate( params );
+
+        dataAggregator.writeRawDataGrid( params, writer );
+    }
+
     @Override
     public DataValueSet getAggregatedDataValueSet( DataQueryParams params )
     {
@@ -37,20 +37,29 @@ import static org.hisp.dhis.analytics.util.AnalyticsUtils.throwIllegalQueryEx;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.DataQueryGroups;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.analytics.QueryCost;
+import org.hisp.dhis.analytics.QueryCostEstimator;
 import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.QueryValidator;
 import org.hisp.dhis.analytics.util.PeriodOffsetUtils;
 import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.partition.PartitionStatistics;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DataDimensionItemType;
@@ -70,6 +79,7 @@ import org.springframework.stereotype.Component;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -85,13 +95,26 @@ public class DefaultQueryPlanner
 
     private final PartitionManager partitionManager;
 
-    public DefaultQueryPlanner( QueryValidator queryValidator, PartitionManager partitionManager )
+    private final AnalyticsRollupManager rollupManager;
+
+    private final QueryCostEstimator costEstimator;
+
+    private final PartitionStatistics partitionStatistics;
+
+    public DefaultQueryPlanner( QueryValidator queryValidator, PartitionManager partitionManager,
+        AnalyticsRollupManager rollupManager, QueryCostEstimator costEstimator, PartitionStatistics partitionStatistics )
     {
         checkNotNull( queryValidator );
         checkNotNull( partitionManager );
+        checkNotNull( rollupManager );
+        checkNotNull( costEstimator );
+        checkNotNull( partitionStatistics );
 
         this.queryValidator = queryValidator;
         this.partitionManager = partitionManager;
+        this.rollupManager = rollupManager;
+        this.costEstimator = costEstimator;
+        this.partitionStatistics = partitionStatistics;
     }
 
     // -------------------------------------------------------------------------
@@ -132,11 +155,46 @@ public class DefaultQueryPlanner
             currentQueries.forEach( query -> queries.addAll( grouper.apply( query ) ) );
         }
 
+        // ---------------------------------------------------------------------
+        // Route queries to pre-aggregated rollup tables where possible
+        // ---------------------------------------------------------------------
+
+        if ( AnalyticsTableType.DATA_VALUE == plannerParams.getTableType() )
+        {
+            queries.replaceAll( this::withRollup );
+        }
+
+        // ---------------------------------------------------------------------
+        // Split queries spanning multiple partitions into one query per partition
+        // ---------------------------------------------------------------------
+
+        if ( AnalyticsTableType.DATA_VALUE == plannerParams.getTableType() )
+        {
+            List<DataQueryParams> currentQueries = Lists.newArrayList( queries );
+            queries.clear();
+
+            currentQueries.forEach( query -> queries.addAll( groupByPartition( query ) ) );
+        }
+
+        int partitionsScanned = getPartitionsScanned( queries );
+        int partitionsPruned = Math.max( 0, getExistingPartitionCount( plannerParams ) - partitionsScanned );
+
+        partitionStatistics.record( partitionsScanned, partitionsPruned );
+
+        // ---------------------------------------------------------------------
+        // Estimate cost of queries for admission control
+        // ---------------------------------------------------------------------
+
+        QueryCost cost = plannerParams.isEstimateCost() ? costEstimator.estimate( queries ) : QueryCost.NONE;
+
         // ---------------------------------------------------------------------
         // Split queries until optimal number
         // ---------------------------------------------------------------------
 
-        DataQueryGroups queryGroups = DataQueryGroups.newBuilder().withQueries( queries ).build();
+        DataQueryGroups queryGroups = DataQueryGroups.newBuilder()
+            .withQueries( queries )
+            .withCost( cost )
+            .withPartitionStatistics( partitionsScanned, partitionsPruned ).build();
 
         if ( queryGroups.isOptimal( plannerParams.getOptimalQueries() ) )
         {
@@ -235,7 +293,10 @@ public class DefaultQueryPlanner
             log.debug( String.format( "Split on dimension %s: %d", dimension, (subQueries.size() / queryGroups.getAllQueries().size()) ) );
         }
 
-        return DataQueryGroups.newBuilder().withQueries( subQueries ).build();
+        return DataQueryGroups.newBuilder()
+            .withQueries( subQueries )
+            .withCost( queryGroups.getCost() )
+            .withPartitionStatistics( queryGroups.getPartitionsScanned(), queryGroups.getPartitionsPruned() ).build();
     }
 
     // -------------------------------------------------------------------------
@@ -671,10 +732,155 @@ public class DefaultQueryPlanner
         return queries;
     }
 
+    /**
+     * If the query spans multiple yearly partitions and each period of the
+     * query falls within a single year, groups the query into sub queries with
+     * one yearly partition each, so that each sub query scans a single
+     * partition table and the sub queries can run in parallel. The latest
+     * partition, if present, is scanned by each sub query. Queries where values
+     * of one year could aggregate with values of another year are not grouped,
+     * which is the case for period filters, start and end dates, periods
+     * spanning multiple years and first and last period aggregation types.
+     * Periods in years without a yearly partition are grouped into a sub query
+     * which scans the latest partition only, as the latest partition can hold
+     * data for any year. If there is no latest partition, such periods are left
+     * out, as there is no data for them.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return a list of {@link DataQueryParams}.
+     */
+    private List<DataQueryParams> groupByPartition( DataQueryParams params )
+    {
+        List<DataQueryParams> queries = new ArrayList<>();
+
+        if ( isGroupableByPartition( params ) )
+        {
+            ListMap<Integer, DimensionalItemObject> partitionPeriodMap = new ListMap<>();
+
+            boolean latest = params.getPartitions().getPartitions().contains( AnalyticsTablePartition.LATEST_PARTITION );
+
+            for ( DimensionalItemObject period : params.getPeriods() )
+            {
+                Integer partition = PartitionUtils.getPartitions( (Period) period ).getAny();
+
+                if ( params.getPartitions().getPartitions().contains( partition ) )
+                {
+                    partitionPeriodMap.putValue( partition, period );
+                }
+                else if ( latest )
+                {
+                    partitionPeriodMap.putValue( AnalyticsTablePartition.LATEST_PARTITION, period );
+                }
+            }
+
+            for ( Map.Entry<Integer, List<DimensionalItemObject>> entry : partitionPeriodMap.entrySet() )
+            {
+                Partitions partitions = new Partitions( Sets.newHashSet( entry.getKey() ) );
+
+                if ( latest )
+                {
+                    partitions.add( AnalyticsTablePartition.LATEST_PARTITION );
+                }
+
+                DataQueryParams query = DataQueryParams.newBuilder( params )
+                    .withDimensionOptions( PERIOD_DIM_ID, entry.getValue() )
+                    .withPartitions( partitions ).build();
+
+                queries.add( query );
+            }
+        }
+        else
+        {
+            queries.add( params );
+        }
+
+        logQuerySplit( queries, "partition" );
+
+        return queries;
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Indicates whether the given query can be grouped into one query per
+     * partition, see {@link #groupByPartition(DataQueryParams)}.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return true if the query can be grouped by partition.
+     */
+    private boolean isGroupableByPartition( DataQueryParams params )
+    {
+        return !params.isSkipPartitioning() && params.hasPartitions() &&
+            params.getPartitions().getPartitions().stream()
+                .filter( partition -> !AnalyticsTablePartition.LATEST_PARTITION.equals( partition ) ).count() > 1 &&
+            !params.getPeriods().isEmpty() && params.getFilterPeriods().isEmpty() && !params.hasStartEndDate() &&
+            !params.getAggregationType().isFirstOrLastOrLastInPeriodAggregationType() &&
+            params.getPeriods().stream().allMatch( period -> PartitionUtils.getPartitions( (Period) period ).hasOne() );
+    }
+
+    /**
+     * Returns the number of distinct yearly partitions scanned by the given
+     * queries. The latest partition is not counted, as it is not counted among
+     * the existing partitions either. Queries which skip partitioning are not
+     * counted.
+     *
+     * @param queries the list of {@link DataQueryParams}.
+     * @return the number of distinct yearly partitions.
+     */
+    private int getPartitionsScanned( List<DataQueryParams> queries )
+    {
+        return (int) queries.stream()
+            .filter( query -> !query.isSkipPartitioning() && query.hasPartitions() )
+            .flatMap( query -> query.getPartitions().getPartitions().stream() )
+            .filter( partition -> !AnalyticsTablePartition.LATEST_PARTITION.equals( partition ) )
+            .distinct()
+            .count();
+    }
+
+    /**
+     * Returns the number of existing yearly partitions of the analytics table
+     * of the given planner parameters.
+     *
+     * @param plannerParams the {@link QueryPlannerParams}.
+     * @return the number of existing partitions.
+     */
+    private int getExistingPartitionCount( QueryPlannerParams plannerParams )
+    {
+        Pattern partitionPattern = Pattern.compile( Pattern.quote( plannerParams.getTableName() ) + "_\\d{4}" );
+
+        return (int) partitionManager.getAnalyticsPartitions( plannerParams.getTableType() ).stream()
+            .filter( table -> partitionPattern.matcher( table ).matches() )
+            .count();
+    }
+
+    /**
+     * Returns a query which targets the smallest rollup table which can answer
+     * the given query exactly, or the given query if no such rollup exists.
+     * Queries targeting a rollup table skip partitioning, as rollup tables are
+     * not partitioned.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return a {@link DataQueryParams}.
+     */
+    private DataQueryParams withRollup( DataQueryParams params )
+    {
+        Optional<AnalyticsRollup> rollup = rollupManager.getRollup( params );
+
+        if ( !rollup.isPresent() )
+        {
+            return params;
+        }
+
+        log.debug( String.format( "Query routed to analytics rollup: '%s'", rollup.get() ) );
+
+        return DataQueryParams.newBuilder( params )
+            .withTableName( rollup.get().getTableName() )
+            .withSkipPartitioning( true )
+            .build();
+    }
+
     /**
      * Log query split operation.
      *
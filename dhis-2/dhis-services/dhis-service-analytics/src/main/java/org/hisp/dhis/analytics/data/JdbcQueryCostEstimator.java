@@ -0,0 +1,289 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryCost;
+import org.hisp.dhis.analytics.QueryCostEstimator;
+import org.hisp.dhis.analytics.table.PartitionUtils;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Estimates the cost of analytics queries from the row estimates of the
+ * analytics tables in {@code pg_class} and the number of distinct values of
+ * the dimension columns in {@code pg_stats}. The estimated rows of a query is
+ * the row estimate of each table or partition queried, multiplied by the
+ * selectivity of each dimension and filter, being the number of items over
+ * the number of distinct values of the dimension column.
+ * <p>
+ * Statistics are cached and reloaded after {@link #STATISTICS_TTL_MINUTES}.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.analytics.QueryCostEstimator" )
+public class JdbcQueryCostEstimator
+    implements QueryCostEstimator
+{
+    private static final long STATISTICS_TTL_MINUTES = 10;
+
+    private static final Pattern PARTITION_SUFFIX = Pattern.compile( "_\\d{4}" );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Mapping of analytics table name and row estimate.
+     */
+    private volatile Map<String, Long> tableRows;
+
+    /**
+     * Mapping of analytics table name and mapping of column name and number of
+     * distinct values.
+     */
+    private final Map<String, Map<String, Double>> columnDistinctValues = new ConcurrentHashMap<>();
+
+    private volatile long statisticsLoaded = 0;
+
+    public JdbcQueryCostEstimator( @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate )
+    {
+        checkNotNull( jdbcTemplate );
+
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // -------------------------------------------------------------------------
+    // QueryCostEstimator implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public QueryCost estimate( List<DataQueryParams> queries )
+    {
+        QueryCost cost = QueryCost.NONE;
+
+        for ( DataQueryParams query : queries )
+        {
+            cost = cost.add( new QueryCost( getEstimatedRows( query ), getEstimatedCells( query ) ) );
+        }
+
+        log.debug( String.format( "Estimated cost of %d queries: %s", queries.size(), cost ) );
+
+        return cost;
+    }
+
+    @Override
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        statisticsLoaded = 0;
+        log.info( "Analytics query cost statistics cleared" );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the estimated number of rows scanned by the given query.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return the estimated number of rows.
+     */
+    private long getEstimatedRows( DataQueryParams params )
+    {
+        long rows = 0;
+
+        for ( String table : getTables( params ) )
+        {
+            long tableRows = getTableRows( table );
+
+            Map<String, Double> distinctValues = getColumnDistinctValues( table );
+
+            double selectivity = 1d;
+
+            for ( DimensionalObject dimension : params.getDimensionsAndFilters() )
+            {
+                Double distinct = distinctValues.get( dimension.getDimensionName() );
+
+                if ( distinct != null && dimension.hasItems() )
+                {
+                    // Negative number of distinct values is a fraction of rows
+
+                    double distinctCount = distinct < 0 ? -distinct * tableRows : distinct;
+
+                    if ( distinctCount > 0 )
+                    {
+                        selectivity *= Math.min( 1d, dimension.getItems().size() / distinctCount );
+                    }
+                }
+            }
+
+            rows += Math.round( tableRows * selectivity );
+        }
+
+        return rows;
+    }
+
+    /**
+     * Returns the max number of aggregated values returned by the given query,
+     * being the product of the number of items of each dimension.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return the estimated number of cells.
+     */
+    private long getEstimatedCells( DataQueryParams params )
+    {
+        double cells = 1d;
+
+        for ( DimensionalObject dimension : params.getDimensions() )
+        {
+            cells *= Math.max( 1, dimension.getItems().size() );
+        }
+
+        return (long) Math.min( cells, Long.MAX_VALUE );
+    }
+
+    /**
+     * Returns the names of the tables or partitions queried by the given query.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return a list of table names.
+     */
+    private List<String> getTables( DataQueryParams params )
+    {
+        List<String> tables = new ArrayList<>();
+
+        if ( !params.isSkipPartitioning() && params.hasPartitions() )
+        {
+            params.getPartitions().getPartitions()
+                .forEach( partition -> tables.add( PartitionUtils.getPartitionName( params.getTableName(), partition ) ) );
+        }
+        else
+        {
+            tables.add( params.getTableName() );
+        }
+
+        return tables;
+    }
+
+    /**
+     * Returns the row estimate of the given table. For a master table without
+     * a row estimate of its own, the sum of the row estimates of its
+     * partitions is returned.
+     *
+     * @param table the table name.
+     * @return the row estimate.
+     */
+    private long getTableRows( String table )
+    {
+        Map<String, Long> rows = getTableRows();
+
+        Long tableRows = rows.get( table );
+
+        if ( tableRows != null && tableRows > 0 )
+        {
+            return tableRows;
+        }
+
+        return rows.entrySet().stream()
+            .filter( entry -> entry.getKey().startsWith( table ) &&
+                PARTITION_SUFFIX.matcher( entry.getKey().substring( table.length() ) ).matches() )
+            .mapToLong( Map.Entry::getValue )
+            .sum();
+    }
+
+    private Map<String, Long> getTableRows()
+    {
+        if ( tableRows == null || System.currentTimeMillis() - statisticsLoaded > TimeUnit.MINUTES.toMillis( STATISTICS_TTL_MINUTES ) )
+        {
+            final String sql =
+                "select c.relname, c.reltuples " +
+                "from pg_class c " +
+                "where c.relname like 'analytics%' " +
+                "and c.relkind = 'r'";
+
+            log.debug( "Analytics table row estimate SQL: " + sql );
+
+            Map<String, Long> rows = new HashMap<>();
+
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+            while ( rowSet.next() )
+            {
+                rows.put( rowSet.getString( "relname" ), Math.max( 0L, rowSet.getLong( "reltuples" ) ) );
+            }
+
+            columnDistinctValues.clear();
+            tableRows = rows;
+            statisticsLoaded = System.currentTimeMillis();
+        }
+
+        return tableRows;
+    }
+
+    private Map<String, Double> getColumnDistinctValues( String table )
+    {
+        return columnDistinctValues.computeIfAbsent( table, this::loadColumnDistinctValues );
+    }
+
+    private Map<String, Double> loadColumnDistinctValues( String table )
+    {
+        final String sql =
+            "select s.attname, max(s.n_distinct) as n_distinct " +
+            "from pg_stats s " +
+            "where s.tablename = ? " +
+            "group by s.attname";
+
+        Map<String, Double> distinctValues = new HashMap<>();
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql, table );
+
+        while ( rowSet.next() )
+        {
+            distinctValues.put( rowSet.getString( "attname" ), rowSet.getDouble( "n_distinct" ) );
+        }
+
+        return distinctValues;
+    }
+}
@@ -37,12 +37,14 @@ import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.StringUtils;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.RawAnalyticsManager;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
+import org.hisp.dhis.analytics.util.StreamingQueryUtils;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.commons.util.SqlHelper;
 import org.hisp.dhis.commons.util.TextUtils;
@@ -51,7 +53,6 @@ import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
@@ -84,6 +85,14 @@ public class JdbcRawAnalyticsManager
 
     @Override
     public Grid getRawDataValues( DataQueryParams params, Grid grid )
+    {
+        getRawDataValues( params, row -> grid.addRow().addValuesAsList( row ) );
+
+        return grid;
+    }
+
+    @Override
+    public void getRawDataValues( DataQueryParams params, Consumer<List<Object>> rowHandler )
     {
         Assert.isTrue( params.hasStartEndDate(), "Start and end dates must be specified" );
 
@@ -101,21 +110,18 @@ public class JdbcRawAnalyticsManager
 
         log.debug( "Get raw data SQL: " + sql );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
-
-        while ( rowSet.next() )
-        {
-            grid.addRow();
+        StreamingQueryUtils.queryForEach( jdbcTemplate, sql, rowSet -> {
+            List<Object> row = new ArrayList<>( dimensions.size() + 1 );
 
             for ( DimensionalObject dim : dimensions )
             {
-                grid.addValue( rowSet.getString( dim.getDimensionName() ) );
+                row.add( rowSet.getString( dim.getDimensionName() ) );
             }
 
-            grid.addValue( rowSet.getDouble( "value" ) );
-        }
+            row.add( rowSet.getDouble( "value" ) );
 
-        return grid;
+            rowHandler.accept( row );
+        } );
     }
 
     // -------------------------------------------------------------------------
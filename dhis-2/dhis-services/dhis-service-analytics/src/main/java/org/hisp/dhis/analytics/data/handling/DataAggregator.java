@@ -35,12 +35,19 @@ import static org.hisp.dhis.analytics.DataQueryParams.newBuilder;
 import static org.hisp.dhis.analytics.ProcessingHint.SINGLE_INDICATOR_REPORTING_RATE_FILTER_ITEM;
 import static org.hisp.dhis.analytics.SortOrder.ASC;
 import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_COLUMNAR_GRID;
+
+import java.util.List;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridWriter;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.system.grid.ColumnarGrid;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.springframework.stereotype.Component;
 
@@ -58,15 +65,20 @@ public class DataAggregator
 
     private final DataHandler dataHandler;
 
-    public DataAggregator( HeaderHandler headerHandler, MetadataHandler metadataHandler, DataHandler dataHandler )
+    private final boolean columnarGrid;
+
+    public DataAggregator( HeaderHandler headerHandler, MetadataHandler metadataHandler, DataHandler dataHandler,
+        DhisConfigurationProvider config )
     {
         checkNotNull( headerHandler );
         checkNotNull( metadataHandler );
         checkNotNull( dataHandler );
+        checkNotNull( config );
 
         this.headerHandler = headerHandler;
         this.metaDataHandler = metadataHandler;
         this.dataHandler = dataHandler;
+        this.columnarGrid = config.isEnabled( ANALYTICS_QUERY_COLUMNAR_GRID );
     }
 
     /**
@@ -83,7 +95,7 @@ public class DataAggregator
         // Headers
         // ---------------------------------------------------------------------
 
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         headerHandler.addHeaders( params, grid );
 
@@ -128,7 +140,7 @@ public class DataAggregator
      */
     public Grid getRawDataGrid( DataQueryParams params )
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         params = dataHandler.prepareForRawDataQuery( params );
 
@@ -143,6 +155,42 @@ public class DataAggregator
         return grid;
     }
 
+    /**
+     * Writes headers, raw data and meta data to the given writer. Rows are
+     * written as they are read from the database and are not held in memory.
+     * The writer is closed when all content has been written.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param writer the {@link GridWriter}.
+     */
+    public void writeRawDataGrid( DataQueryParams params, GridWriter writer )
+    {
+        Grid grid = new ListGrid();
+
+        params = dataHandler.prepareForRawDataQuery( params );
+
+        headerHandler.addHeaders( params, grid );
+
+        metaDataHandler.addMetaData( params, grid );
+
+        final Map<String, String> idSchemeMap = metaDataHandler.getIdSchemeMap( params );
+
+        if ( idSchemeMap != null )
+        {
+            grid.substituteMetaData( idSchemeMap );
+        }
+
+        final List<Integer> metaColumns = grid.getMetaColumnIndexes();
+
+        writer.writeHeaders( grid.getHeaders() );
+
+        dataHandler.streamRawData( params, row -> writer.writeRow( substituteMetaData( row, metaColumns, idSchemeMap ) ) );
+
+        writer.writeMetaData( grid.getMetaData() );
+
+        writer.close();
+    }
+
     /**
      * Performs pre-handling of the given query and returns the immutable, handled
      * query. If the query has a single indicator as item for the data filter, the
@@ -199,4 +247,42 @@ public class DataAggregator
     {
         dataHandler.require( this );
     }
+
+    /**
+     * Returns a new grid for aggregated or raw data, which is a
+     * {@link ColumnarGrid} if enabled through configuration.
+     *
+     * @return a {@link Grid}.
+     */
+    private Grid newGrid()
+    {
+        return columnarGrid ? new ColumnarGrid() : new ListGrid();
+    }
+
+    /**
+     * Substitutes the values of the given meta columns of the given row with
+     * the corresponding values of the given map, if any.
+     *
+     * @param row the row.
+     * @param metaColumns the indexes of meta columns.
+     * @param metaDataMap the meta data map, may be null.
+     * @return the row.
+     */
+    private List<Object> substituteMetaData( List<Object> row, List<Integer> metaColumns, Map<String, String> metaDataMap )
+    {
+        if ( metaDataMap != null )
+        {
+            for ( Integer index : metaColumns )
+            {
+                String metaValue = metaDataMap.get( row.get( index ) );
+
+                if ( metaValue != null )
+                {
+                    row.set( index, metaValue );
+                }
+            }
+        }
+
+        return row;
+    }
 }
@@ -92,6 +92,7 @@ import static org.hisp.dhis.common.DimensionalObjectUtils.replaceOperandTotalsWi
 import static org.hisp.dhis.common.ReportingRateMetric.ACTUAL_REPORTS;
 import static org.hisp.dhis.common.ReportingRateMetric.ACTUAL_REPORTS_ON_TIME;
 import static org.hisp.dhis.common.ReportingRateMetric.EXPECTED_REPORTS;
+import static org.hisp.dhis.common.ReportingRateMetric.REPORTING_RATE;
 import static org.hisp.dhis.common.ReportingRateMetric.REPORTING_RATE_ON_TIME;
 import static org.hisp.dhis.commons.util.DebugUtils.getStackTrace;
 import static org.hisp.dhis.commons.util.SystemUtils.getCpuCores;
@@ -109,10 +110,13 @@ import static org.hisp.dhis.util.ObjectUtils.firstNonNull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -128,6 +132,9 @@ import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.QueryValidator;
 import org.hisp.dhis.analytics.RawAnalyticsManager;
+import org.hisp.dhis.analytics.admission.QueryAdmission;
+import org.hisp.dhis.analytics.admission.QueryAdmissionController;
+import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.event.EventAnalyticsService;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.resolver.ExpressionResolver;
@@ -136,6 +143,7 @@ import org.hisp.dhis.common.DimensionItemObjectValue;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.ReportingRate;
 import org.hisp.dhis.common.ReportingRateMetric;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
@@ -188,12 +196,17 @@ public class DataHandler
 
     private final OrganisationUnitService organisationUnitService;
 
+    private final AnalyticsCache analyticsCache;
+
+    private final QueryAdmissionController admissionController;
+
     private DataAggregator dataAggregator;
 
     public DataHandler( EventAnalyticsService eventAnalyticsService, RawAnalyticsManager rawAnalyticsManager,
         ConstantService constantService, ExpressionResolver resolver, ExpressionService expressionService,
         QueryPlanner queryPlanner, QueryValidator queryValidator, SystemSettingManager systemSettingManager,
-        AnalyticsManager analyticsManager, OrganisationUnitService organisationUnitService )
+        AnalyticsManager analyticsManager, OrganisationUnitService organisationUnitService,
+        AnalyticsCache analyticsCache, QueryAdmissionController admissionController )
     {
         checkNotNull( eventAnalyticsService );
         checkNotNull( rawAnalyticsManager );
@@ -205,6 +218,8 @@ public class DataHandler
         checkNotNull( systemSettingManager );
         checkNotNull( analyticsManager );
         checkNotNull( organisationUnitService );
+        checkNotNull( analyticsCache );
+        checkNotNull( admissionController );
 
         this.eventAnalyticsService = eventAnalyticsService;
         this.rawAnalyticsManager = rawAnalyticsManager;
@@ -216,6 +231,8 @@ public class DataHandler
         this.systemSettingManager = systemSettingManager;
         this.analyticsManager = analyticsManager;
         this.organisationUnitService = organisationUnitService;
+        this.analyticsCache = analyticsCache;
+        this.admissionController = admissionController;
     }
 
     /**
@@ -401,16 +418,12 @@ public class DataHandler
     {
         if ( !params.getReportingRates().isEmpty() && !params.isSkipData() )
         {
-            for ( ReportingRateMetric metric : ReportingRateMetric.values() )
-            {
-                DataQueryParams dataSourceParams = newBuilder( params )
-                    .retainDataDimensionReportingRates( metric )
-                    .ignoreDataApproval() // No approval for reporting rates
-                    .withAggregationType( COUNT )
-                    .withTimely( (REPORTING_RATE_ON_TIME == metric || ACTUAL_REPORTS_ON_TIME == metric) ).build();
+            DataQueryParams dataSourceParams = newBuilder( params )
+                .retainDataDimensionReportingRates( ReportingRateMetric.values() )
+                .ignoreDataApproval() // No approval for reporting rates
+                .withAggregationType( COUNT ).build();
 
-                addReportingRates( dataSourceParams, grid, metric );
-            }
+            addReportingRatesForMetrics( dataSourceParams, grid );
         }
     }
 
@@ -495,6 +508,26 @@ public class DataHandler
         }
     }
 
+    /**
+     * Passes raw data for the given data query parameters to the given row
+     * handler, one row at a time.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param rowHandler the handler of rows.
+     */
+    void streamRawData( DataQueryParams params, Consumer<List<Object>> rowHandler )
+    {
+        if ( !params.isSkipData() )
+        {
+            QueryPlannerParams plannerParams = QueryPlannerParams.newBuilder()
+                .withTableType( DATA_VALUE ).build();
+
+            params = queryPlanner.withTableNameAndPartitions( params, plannerParams );
+
+            rawAnalyticsManager.getRawDataValues( params, rowHandler );
+        }
+    }
+
     /**
      * Prepares the given data query parameters.
      *
@@ -552,14 +585,16 @@ public class DataHandler
     }
 
     /**
-     * Adds reporting rates to the given grid based on the given data query
-     * parameters and reporting rate metric.
+     * Adds reporting rates of all metrics to the given grid based on the given
+     * data query parameters. Targets are retrieved once for all metrics, and
+     * actual reports once for metrics counting all reports and once for
+     * metrics counting reports on time. Rates of all metrics are then computed
+     * in a single pass over the targets.
      *
      * @param params the {@link DataQueryParams}.
      * @param grid the grid.
-     * @param metric the reporting rate metric.
      */
-    private void addReportingRates( DataQueryParams params, Grid grid, ReportingRateMetric metric )
+    private void addReportingRatesForMetrics( DataQueryParams params, Grid grid )
     {
         if ( !params.getReportingRates().isEmpty() && !params.isSkipData() )
         {
@@ -568,6 +603,12 @@ public class DataHandler
                 return;
             }
 
+            Map<ReportingRateMetric, Set<String>> metricDataSetMap = params.getReportingRates().stream()
+                .map( ReportingRate.class::cast )
+                .filter( r -> r.getMetric() != null )
+                .collect( Collectors.groupingBy( ReportingRate::getMetric,
+                    Collectors.mapping( r -> r.getDataSet().getUid(), Collectors.toSet() ) ) );
+
             DataQueryParams targetParams = newBuilder( params )
                 .withSkipPartitioning( true )
                 .withTimely( false )
@@ -577,9 +618,11 @@ public class DataHandler
 
             Map<String, Double> targetMap = getAggregatedCompletenessTargetMap( targetParams );
 
-            Map<String, Double> dataMap = metric != EXPECTED_REPORTS
-                ? getAggregatedCompletenessValueMap( params )
-                : new HashMap<>();
+            Map<String, Double> dataMap = getAggregatedCompletenessValueMap( params, false,
+                REPORTING_RATE, ACTUAL_REPORTS );
+
+            Map<String, Double> timelyDataMap = getAggregatedCompletenessValueMap( params, true,
+                REPORTING_RATE_ON_TIME, ACTUAL_REPORTS_ON_TIME );
 
             Integer periodIndex = params.getPeriodDimensionIndex();
             Integer dataSetIndex = DX_INDEX;
@@ -588,27 +631,51 @@ public class DataHandler
 
             int timeUnits = getTimeUnits( params );
 
+            // -----------------------------------------------------------------
+            // Multiply target value by number of periods in time span
+            // -----------------------------------------------------------------
+
+            Map<String, Double> calculatedTargetMap = new LinkedHashMap<>();
+
             for ( Map.Entry<String, Double> entry : targetMap.entrySet() )
             {
                 List<String> dataRow = newArrayList( entry.getKey().split( DIMENSION_SEP ) );
 
                 Double target = entry.getValue();
-                Double actual = firstNonNull( dataMap.get( entry.getKey() ), 0d );
 
                 if ( target != null )
                 {
-                    // ---------------------------------------------------------
-                    // Multiply target value by number of periods in time span
-                    // ---------------------------------------------------------
-
                     PeriodType queryPt = filterPeriodType != null ? filterPeriodType
                         : getPeriodTypeFromIsoString( dataRow.get( periodIndex ) );
                     PeriodType dataSetPt = dsPtMap.get( dataRow.get( dataSetIndex ) );
 
-                    target = getCalculatedTarget( periodIndex, timeUnits, dataRow, target, queryPt, dataSetPt,
-                        params.getFilterPeriods() );
+                    calculatedTargetMap.put( entry.getKey(), getCalculatedTarget( periodIndex, timeUnits, dataRow,
+                        target, queryPt, dataSetPt, params.getFilterPeriods() ) );
+                }
+            }
 
-                    addReportRateToGrid( params, grid, metric, dataRow, target, actual );
+            for ( ReportingRateMetric metric : ReportingRateMetric.values() )
+            {
+                Set<String> dataSets = metricDataSetMap.get( metric );
+
+                if ( dataSets == null )
+                {
+                    continue;
+                }
+
+                Map<String, Double> metricDataMap = metric == EXPECTED_REPORTS ? new HashMap<>()
+                    : ( REPORTING_RATE_ON_TIME == metric || ACTUAL_REPORTS_ON_TIME == metric ) ? timelyDataMap : dataMap;
+
+                for ( Map.Entry<String, Double> entry : calculatedTargetMap.entrySet() )
+                {
+                    List<String> dataRow = newArrayList( entry.getKey().split( DIMENSION_SEP ) );
+
+                    if ( dataSets.contains( dataRow.get( dataSetIndex ) ) )
+                    {
+                        Double actual = firstNonNull( metricDataMap.get( entry.getKey() ), 0d );
+
+                        addReportRateToGrid( params, grid, metric, dataRow, entry.getValue(), actual );
+                    }
                 }
             }
         }
@@ -745,6 +812,27 @@ public class DataHandler
         return getDoubleMap( getAggregatedValueMap( params, COMPLETENESS, newArrayList() ) );
     }
 
+    /**
+     * Generates aggregated completeness values for the reporting rates of the
+     * given metrics in the given query. Returns an empty map without querying
+     * if the query has no reporting rates of the given metrics.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param timely whether to count reports on time only.
+     * @param metrics the reporting rate metrics.
+     * @return a mapping between a dimension key and the aggregated value.
+     */
+    private Map<String, Double> getAggregatedCompletenessValueMap( DataQueryParams params, boolean timely,
+        ReportingRateMetric... metrics )
+    {
+        DataQueryParams valueParams = newBuilder( params )
+            .retainDataDimensionReportingRates( metrics )
+            .withTimely( timely ).build();
+
+        return valueParams.getReportingRates().isEmpty() ? new HashMap<>()
+            : getAggregatedCompletenessValueMap( valueParams );
+    }
+
     /**
      * Generates a mapping between the data set dimension key and the count of
      * expected data sets to report.
@@ -1142,18 +1230,25 @@ public class DataHandler
         QueryPlannerParams plannerParams = QueryPlannerParams.newBuilder()
             .withOptimalQueries( optimalQueries )
             .withTableType( tableType )
-            .withQueryGroupers( queryGroupers ).build();
+            .withQueryGroupers( queryGroupers )
+            .withEstimateCost( admissionController.isEnabled() ).build();
 
         DataQueryGroups queryGroups = queryPlanner.planQuery( params, plannerParams );
 
         timer.getSplitTime(
-            "Planned analytics query, got: " + queryGroups.getLargestGroupSize() + " for optimal: " + optimalQueries );
+            "Planned analytics query, got: " + queryGroups.getLargestGroupSize() + " for optimal: " + optimalQueries +
+            ", partitions scanned: " + queryGroups.getPartitionsScanned() + ", pruned: " + queryGroups.getPartitionsPruned() );
 
         Map<String, Object> map = new HashMap<>();
 
-        for ( List<DataQueryParams> queries : queryGroups.getSequentialQueries() )
+        try ( QueryAdmission admission = admissionController.admit( queryGroups.getCost() ) )
         {
-            executeQueries( tableType, maxLimit, map, queries );
+            log.debug( "Analytics query admission: " + admission );
+
+            for ( List<DataQueryParams> queries : queryGroups.getSequentialQueries() )
+            {
+                executeQueries( tableType, maxLimit, map, queries );
+            }
         }
 
         timer.getTime( "Got analytics values" );
@@ -1164,26 +1259,47 @@ public class DataHandler
     private void executeQueries( AnalyticsTableType tableType, int maxLimit, Map<String, Object> map,
         List<DataQueryParams> queries )
     {
+        boolean cacheEnabled = analyticsCache.isEnabled();
+
+        List<DataQueryParams> fetchQueries = new ArrayList<>();
         List<Future<Map<String, Object>>> futures = new ArrayList<>();
 
         for ( DataQueryParams query : queries )
         {
-            futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
+            Optional<Map<String, Object>> cachedValues = cacheEnabled ?
+                analyticsCache.getSubQuery( query, tableType, maxLimit ) : Optional.empty();
+
+            if ( cachedValues.isPresent() )
+            {
+                map.putAll( cachedValues.get() );
+            }
+            else
+            {
+                fetchQueries.add( query );
+                futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
+            }
         }
 
-        for ( Future<Map<String, Object>> future : futures )
+        for ( int i = 0; i < futures.size(); i++ )
         {
             try
             {
-                Map<String, Object> taskValues = future.get();
+                Map<String, Object> taskValues = futures.get( i ).get();
 
                 if ( taskValues != null )
                 {
                     map.putAll( taskValues );
+
+                    if ( cacheEnabled )
+                    {
+                        analyticsCache.putSubQuery( fetchQueries.get( i ), tableType, maxLimit, taskValues );
+                    }
                 }
             }
             catch ( Exception ex )
             {
+                awaitCompletion( futures.subList( i + 1, futures.size() ) );
+
                 log.error( getStackTrace( ex ) );
                 log.error( getStackTrace( ex.getCause() ) );
 
@@ -1200,6 +1316,34 @@ public class DataHandler
         }
     }
 
+    /**
+     * Waits for the given query tasks to complete, discarding their results.
+     * Invoked when a task of a batch fails, so that the remaining queries do not
+     * keep running against the database after the {@link QueryAdmission} of the
+     * request has released its permits.
+     *
+     * @param futures the futures of the remaining query tasks.
+     */
+    private void awaitCompletion( List<Future<Map<String, Object>>> futures )
+    {
+        for ( Future<Map<String, Object>> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( Exception ex )
+            {
+                log.debug( "Discarded failed aggregation query task: " + ex.getMessage() );
+            }
+        }
+    }
+
     /**
      * Gets the number of available cores. Uses explicit number from system setting
      * if available. Detects number of cores from current server runtime if not.
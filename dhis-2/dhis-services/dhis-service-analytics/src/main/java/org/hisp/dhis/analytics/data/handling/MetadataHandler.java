@@ -182,6 +182,24 @@ public class MetadataHandler
      * @param grid the grid.
      */
     void applyIdScheme( DataQueryParams params, Grid grid )
+    {
+        Map<String, String> map = getIdSchemeMap( params );
+
+        if ( map != null )
+        {
+            grid.substituteMetaData( map );
+        }
+    }
+
+    /**
+     * Returns a mapping between dimension item identifiers and the identifier
+     * scheme property indicated in the query, or null if the query does not
+     * have a non-UID output identifier scheme.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return a mapping of identifiers, or null.
+     */
+    Map<String, String> getIdSchemeMap( DataQueryParams params )
     {
         if ( !params.isSkipMeta() && params.hasNonUidOutputIdScheme() )
         {
@@ -194,7 +212,9 @@ public class MetadataHandler
                     asTypedList( params.getDataElementOperands() ), params.getOutputIdScheme() ) );
             }
 
-            grid.substituteMetaData( map );
+            return map;
         }
+
+        return null;
     }
 }
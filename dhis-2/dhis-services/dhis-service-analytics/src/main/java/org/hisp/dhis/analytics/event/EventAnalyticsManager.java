@@ -28,7 +28,11 @@ package org.hisp.dhis.analytics.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
 
 import org.hisp.dhis.analytics.Rectangle;
 
@@ -41,6 +45,18 @@ public interface EventAnalyticsManager
 
     Grid getEvents( EventQueryParams params, Grid grid, int maxLimit );
 
+    /**
+     * Passes events based on the given query to the given row handler, one row
+     * at a time, without holding the rows in memory. Rows correspond to the
+     * given headers.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param headers the list of {@link GridHeader}.
+     * @param maxLimit the max number of events, 0 means no limit.
+     * @param rowHandler the handler of rows.
+     */
+    void getEvents( EventQueryParams params, List<GridHeader> headers, int maxLimit, Consumer<List<Object>> rowHandler );
+
     Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit );
 
     long getEventCount( EventQueryParams params );
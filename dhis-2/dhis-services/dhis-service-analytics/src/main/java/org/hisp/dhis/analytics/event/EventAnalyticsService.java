@@ -32,6 +32,7 @@ import org.hisp.dhis.analytics.AnalyticsMetaDataKey;
 import org.hisp.dhis.analytics.Rectangle;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridWriter;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 
 import java.util.List;
@@ -102,6 +103,16 @@ public interface EventAnalyticsService
      */
     Grid getEvents( EventQueryParams params );
 
+    /**
+     * Writes a list of events matching the given query to the given writer.
+     * Rows are streamed from the database to the writer without being held
+     * in memory. The writer is closed when all rows are written.
+     *
+     * @param params the event query parameters.
+     * @param writer the {@link GridWriter} to write events to.
+     */
+    void getEvents( EventQueryParams params, GridWriter writer );
+
     /**
      * Returns a list of event clusters matching the given query.
      *
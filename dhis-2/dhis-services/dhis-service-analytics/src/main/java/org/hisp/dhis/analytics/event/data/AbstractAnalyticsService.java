@@ -81,45 +81,13 @@ public abstract class AbstractAnalyticsService
         // Decide access, add constraints and validate
         // ---------------------------------------------------------------------
 
-        securityManager.decideAccessEventQuery( params );
-
-        params = securityManager.withUserConstraints( params );
-
-        queryValidator.validate( params );
-
-        params = new EventQueryParams.Builder( params )
-            .withStartEndDatesForPeriods()
-            .build();
+        params = getValidatedParams( params );
 
         // ---------------------------------------------------------------------
         // Headers
         // ---------------------------------------------------------------------
 
-        Grid grid = createGridWithHeaders( params );
-
-        for ( DimensionalObject dimension : params.getDimensions() )
-        {
-            grid.addHeader( new GridHeader( dimension.getDimension(), dimension.getDisplayProperty( params.getDisplayProperty() ), ValueType.TEXT, String.class.getName(), false, true ) );
-        }
-
-        for ( QueryItem item : params.getItems() )
-        {
-            if ( item.getValueType() == ValueType.ORGANISATION_UNIT
-                && params.getCoordinateField().equals( item.getItem().getUid() ) )
-            {   // Special case: if the request contains an item of Org Unit value type and the item uid
-                // is linked to coordinates (coordinateField), then create an Header of ValueType
-                // COORDINATE and type "Point"
-                grid.addHeader( new GridHeader( item.getItem().getUid(),
-                    item.getItem().getDisplayProperty( params.getDisplayProperty() ), COORDINATE,
-                    Point.class.getName(), false, true, item.getOptionSet(), item.getLegendSet() ) );
-            }
-            else
-            {
-                grid.addHeader( new GridHeader( item.getItem().getUid(),
-                    item.getItem().getDisplayProperty( params.getDisplayProperty() ), item.getValueType(),
-                    item.getTypeAsString(), false, true, item.getOptionSet(), item.getLegendSet() ) );
-            }
-        }
+        Grid grid = getGridWithHeaders( params );
 
         // ---------------------------------------------------------------------
         // Data
@@ -156,6 +124,62 @@ public abstract class AbstractAnalyticsService
         return grid;
     }
 
+    /**
+     * Decides access, adds user constraints and validates the given query.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @return the validated {@link EventQueryParams}.
+     */
+    protected EventQueryParams getValidatedParams( EventQueryParams params )
+    {
+        securityManager.decideAccessEventQuery( params );
+
+        params = securityManager.withUserConstraints( params );
+
+        queryValidator.validate( params );
+
+        return new EventQueryParams.Builder( params )
+            .withStartEndDatesForPeriods()
+            .build();
+    }
+
+    /**
+     * Creates a grid with headers for the given query, without data.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @return a {@link Grid}.
+     */
+    protected Grid getGridWithHeaders( EventQueryParams params )
+    {
+        Grid grid = createGridWithHeaders( params );
+
+        for ( DimensionalObject dimension : params.getDimensions() )
+        {
+            grid.addHeader( new GridHeader( dimension.getDimension(), dimension.getDisplayProperty( params.getDisplayProperty() ), ValueType.TEXT, String.class.getName(), false, true ) );
+        }
+
+        for ( QueryItem item : params.getItems() )
+        {
+            if ( item.getValueType() == ValueType.ORGANISATION_UNIT
+                && params.getCoordinateField().equals( item.getItem().getUid() ) )
+            {   // Special case: if the request contains an item of Org Unit value type and the item uid
+                // is linked to coordinates (coordinateField), then create an Header of ValueType
+                // COORDINATE and type "Point"
+                grid.addHeader( new GridHeader( item.getItem().getUid(),
+                    item.getItem().getDisplayProperty( params.getDisplayProperty() ), COORDINATE,
+                    Point.class.getName(), false, true, item.getOptionSet(), item.getLegendSet() ) );
+            }
+            else
+            {
+                grid.addHeader( new GridHeader( item.getItem().getUid(),
+                    item.getItem().getDisplayProperty( params.getDisplayProperty() ), item.getValueType(),
+                    item.getTypeAsString(), false, true, item.getOptionSet(), item.getLegendSet() ) );
+            }
+        }
+
+        return grid;
+    }
+
     protected abstract Grid createGridWithHeaders( EventQueryParams params );
 
     protected abstract long addEventData( Grid grid, EventQueryParams params );
@@ -301,20 +325,55 @@ public abstract class AbstractAnalyticsService
      */
     private void substituteData( Grid grid )
     {
-        for ( int i = 0; i < grid.getHeaders().size(); i++ )
+        getDataSubstitutionMaps( grid.getHeaders() ).forEach( ( i, map ) -> grid.substituteMetaData( i, i, map ) );
+    }
+
+    /**
+     * Substitutes metadata in the given row using the given substitution maps.
+     *
+     * @param row the row.
+     * @param substitutionMaps mapping of column index and substitution map.
+     * @return the row.
+     */
+    protected List<Object> substituteData( List<Object> row, Map<Integer, Map<String, String>> substitutionMaps )
+    {
+        substitutionMaps.forEach( ( i, map ) -> {
+            String value = map.get( row.get( i ) );
+
+            if ( value != null )
+            {
+                row.set( i, value );
+            }
+        } );
+
+        return row;
+    }
+
+    /**
+     * Returns a mapping between column index and a map of option codes or
+     * legend identifiers and names, for headers with option sets or legend sets.
+     *
+     * @param headers the list of {@link GridHeader}.
+     * @return a mapping of column index and substitution map.
+     */
+    protected Map<Integer, Map<String, String>> getDataSubstitutionMaps( List<GridHeader> headers )
+    {
+        Map<Integer, Map<String, String>> substitutionMaps = new HashMap<>();
+
+        for ( int i = 0; i < headers.size(); i++ )
         {
-            GridHeader header = grid.getHeaders().get( i );
+            GridHeader header = headers.get( i );
 
             if ( header.hasOptionSet() )
             {
-                Map<String, String> optionMap = header.getOptionSetObject().getOptionCodePropertyMap( IdScheme.NAME );
-                grid.substituteMetaData( i, i, optionMap );
+                substitutionMaps.put( i, header.getOptionSetObject().getOptionCodePropertyMap( IdScheme.NAME ) );
             }
             else if ( header.hasLegendSet() )
             {
-                Map<String, String> legendMap = header.getLegendSetObject().getLegendUidPropertyMap( IdScheme.NAME );
-                grid.substituteMetaData( i, i, legendMap );
+                substitutionMaps.put( i, header.getLegendSetObject().getLegendUidPropertyMap( IdScheme.NAME ) );
             }
         }
+
+        return substitutionMaps;
     }
 }
@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.event.data;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.DIMENSIONS;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.ITEMS;
+import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.PAGER;
 import static org.hisp.dhis.analytics.DataQueryParams.DENOMINATOR_HEADER_NAME;
 import static org.hisp.dhis.analytics.DataQueryParams.DENOMINATOR_ID;
 import static org.hisp.dhis.analytics.DataQueryParams.DIVISOR_HEADER_NAME;
@@ -78,8 +79,10 @@ import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.EventAnalyticalObject;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridWriter;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.MetadataItem;
+import org.hisp.dhis.common.Pager;
 import org.hisp.dhis.common.QueryItem;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.common.ValueTypedDimensionalItemObject;
@@ -563,6 +566,52 @@ public class DefaultEventAnalyticsService
         return getGrid( params );
     }
 
+    @Override
+    public void getEvents( EventQueryParams params, GridWriter writer )
+    {
+        params = getValidatedParams( params );
+
+        Grid grid = getGridWithHeaders( params );
+
+        addMetadata( params, grid );
+
+        List<GridHeader> headers = grid.getHeaders();
+
+        Map<Integer, Map<String, String>> substitutionMaps = params.hasDataIdScheme() ?
+            getDataSubstitutionMaps( headers ) : new HashMap<>();
+
+        writer.writeHeaders( headers );
+
+        Timer timer = new Timer().start().disablePrint();
+
+        params = queryPlanner.planEventQuery( params );
+
+        long count = 0;
+
+        if ( params.getPartitions().hasAny() )
+        {
+            if ( params.isPaging() )
+            {
+                count += eventAnalyticsManager.getEventCount( params );
+            }
+
+            eventAnalyticsManager.getEvents( params, headers, queryValidator.getMaxLimit(),
+                row -> writer.writeRow( substituteData( row, substitutionMaps ) ) );
+
+            timer.getTime( "Streamed events " + writer.getRowCount() );
+        }
+
+        if ( params.isPaging() )
+        {
+            Pager pager = new Pager( params.getPageWithDefault(), count, params.getPageSizeWithDefault() );
+
+            grid.getMetaData().put( PAGER.getKey(), pager );
+        }
+
+        writer.writeMetaData( grid.getMetaData() );
+        writer.close();
+    }
+
     @Override
     public Grid getEventClusters( EventQueryParams params )
     {
@@ -48,8 +48,10 @@ import static org.hisp.dhis.feedback.ErrorCode.E7133;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 import static org.postgresql.util.PSQLState.DIVISION_BY_ZERO;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -60,6 +62,7 @@ import org.hisp.dhis.analytics.event.EventAnalyticsManager;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.ProgramIndicatorSubqueryBuilder;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
+import org.hisp.dhis.analytics.util.StreamingQueryUtils;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
@@ -125,6 +128,17 @@ public class JdbcEventAnalyticsManager
         return grid;
     }
 
+    @Override
+    public void getEvents( EventQueryParams params, List<GridHeader> headers, int maxLimit, Consumer<List<Object>> rowHandler )
+    {
+        String sql = getEventsOrEnrollmentsSql( params, maxLimit );
+
+        log.debug( String.format( "Analytics event query SQL: %s", sql ) );
+
+        withExceptionHandling( () -> StreamingQueryUtils.queryForEach( jdbcTemplate, sql,
+            rowSet -> rowHandler.accept( getEventRow( params, headers, rowSet ) ) ) );
+    }
+
     /**
      * Adds event to the given grid based on the given parameters and SQL statement.
      *
@@ -140,30 +154,46 @@ public class JdbcEventAnalyticsManager
 
         while ( rowSet.next() )
         {
-            grid.addRow();
+            grid.addRow().addValuesAsList( getEventRow( params, grid.getHeaders(), rowSet ) );
+        }
+    }
 
-            int index = 1;
+    /**
+     * Returns the values of the current row of the given row set as a row
+     * corresponding to the given headers.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param headers the list of {@link GridHeader}.
+     * @param rowSet the {@link SqlRowSet} positioned on the current row.
+     * @return a row of values.
+     */
+    private List<Object> getEventRow( EventQueryParams params, List<GridHeader> headers, SqlRowSet rowSet )
+    {
+        List<Object> row = new ArrayList<>( headers.size() );
 
-            for ( GridHeader header : grid.getHeaders() )
-            {
-                if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( Precision.round( val, COORD_DEC ) );
-                }
-                else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
-                }
-                else
-                {
-                    grid.addValue( rowSet.getString( index ) );
-                }
+        int index = 1;
 
-                index++;
+        for ( GridHeader header : headers )
+        {
+            if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
+            {
+                double val = rowSet.getDouble( index );
+                row.add( Precision.round( val, COORD_DEC ) );
             }
+            else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
+            {
+                double val = rowSet.getDouble( index );
+                row.add( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
+            }
+            else
+            {
+                row.add( rowSet.getString( index ) );
+            }
+
+            index++;
         }
+
+        return row;
     }
 
     @Override
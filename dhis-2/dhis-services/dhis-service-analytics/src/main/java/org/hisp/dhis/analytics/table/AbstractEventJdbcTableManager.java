@@ -35,9 +35,11 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
+import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.ColumnDataType;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
@@ -49,12 +51,17 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.resourcetable.ResourceTableService;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.hisp.dhis.util.DateUtils;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.util.Assert;
+
+import com.google.common.collect.Lists;
 
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.getClosingParentheses;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
@@ -79,6 +86,12 @@ public abstract class AbstractEventJdbcTableManager
             databaseInfo, jdbcTemplate );
     }
 
+    /**
+     * Start time of the last successful incremental update per program and
+     * analytics table type.
+     */
+    static final String PROGRAM_UPDATE_TABLE = "analyticsprogramupdate";
+
     protected final String numericClause = " and value " + statementBuilder.getRegexpMatch() + " '" + NUMERIC_LENIENT_REGEXP + "'";
     protected final String dateClause = " and value " + statementBuilder.getRegexpMatch() + " '" + DATE_REGEXP + "'";
     protected static final String GEOMETRY_INDEX_TYPE = "gist";
@@ -157,6 +170,77 @@ public abstract class AbstractEventJdbcTableManager
         throw new IllegalStateException( "This method should never be invoked" );
     }
 
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return true;
+    }
+
+    @Override
+    public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        if ( params.isIncrementalUpdate() )
+        {
+            mergeTempTable( table, Lists.newArrayList( getRemoveIncrementalDataSql( params, table ) ) );
+            saveIncrementalUpdate( table.getProgram(), params.getStartTime() );
+        }
+        else
+        {
+            super.swapTable( params, table );
+        }
+    }
+
+    /**
+     * Returns SQL which removes the records of the program of the given table
+     * which were updated since the last incremental update from the real
+     * table. Run in the same transaction as the merge of the temporary
+     * partitions, so that queries never see the updated records as missing.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param table the {@link AnalyticsTable}.
+     */
+    protected abstract String getRemoveIncrementalDataSql( AnalyticsTableUpdateParams params, AnalyticsTable table );
+
+    /**
+     * Returns the time from which records of the given program must be reprocessed
+     * by an incremental update, which is the start time of the last successful
+     * incremental update of the program, or the start time of the last successful
+     * full analytics table update if that is later.
+     *
+     * @param program the {@link Program}.
+     * @return the start date of the incremental update.
+     */
+    protected Date getIncrementalStartDate( Program program )
+    {
+        Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+
+        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to an incremental update process" );
+
+        final String sql =
+            "select lastupdated from " + PROGRAM_UPDATE_TABLE + " " +
+            "where programid = ? and tabletype = ?";
+
+        List<Date> lastIncrementalUpdate = jdbcTemplate.queryForList( sql, Date.class, program.getId(), getAnalyticsTableType().name() );
+
+        return lastIncrementalUpdate.isEmpty() ? lastFullTableUpdate :
+            DateUtils.getLatest( lastFullTableUpdate, lastIncrementalUpdate.get( 0 ) );
+    }
+
+    /**
+     * Saves the start time of a successful incremental update of the given program.
+     *
+     * @param program the {@link Program}.
+     * @param startTime the start time of the incremental update.
+     */
+    private void saveIncrementalUpdate( Program program, Date startTime )
+    {
+        final String sql =
+            "insert into " + PROGRAM_UPDATE_TABLE + " (programid, tabletype, lastupdated) values (?, ?, ?) " +
+            "on conflict (programid, tabletype) do update set lastupdated = excluded.lastupdated";
+
+        jdbcTemplate.update( sql, program.getId(), getAnalyticsTableType().name(), startTime );
+    }
+
     /**
      * Populates the given analytics table partition using the given columns and
      * join statement.
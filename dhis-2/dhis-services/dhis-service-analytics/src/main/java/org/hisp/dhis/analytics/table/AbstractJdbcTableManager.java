@@ -35,6 +35,7 @@ import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -61,6 +62,8 @@ import org.hisp.dhis.util.DateUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.util.Assert;
 
@@ -154,6 +157,49 @@ public abstract class AbstractJdbcTableManager
     // Implementation
     // -------------------------------------------------------------------------
 
+    /**
+     * Override in order to support incremental update of tables.
+     */
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return false;
+    }
+
+    /**
+     * Override in order to support chunked population of table partitions.
+     */
+    @Override
+    public boolean supportsChunkedPopulation()
+    {
+        return false;
+    }
+
+    @Override
+    public List<AnalyticsTableChunk> getTableChunks( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition, int chunks )
+    {
+        if ( !supportsChunkedPopulation() || chunks <= 1 )
+        {
+            return Lists.newArrayList( new AnalyticsTableChunk( partition ) );
+        }
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( getChunkKeyRangeSql( params, partition ) );
+
+        Long min = null;
+        Long max = null;
+
+        if ( rowSet.next() )
+        {
+            Object minValue = rowSet.getObject( 1 );
+            Object maxValue = rowSet.getObject( 2 );
+
+            min = minValue != null ? ((Number) minValue).longValue() : null;
+            max = maxValue != null ? ((Number) maxValue).longValue() : null;
+        }
+
+        return AnalyticsTableChunk.getChunks( partition, chunks, min, max );
+    }
+
     @Override
     public Set<String> getExistingDatabaseTables()
     {
@@ -265,18 +311,22 @@ public abstract class AbstractJdbcTableManager
 
     @Override
     @Async
-    public Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTablePartition> partitions )
+    public Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTableChunk> chunks )
     {
         taskLoop: while ( true )
         {
-            AnalyticsTablePartition partition = partitions.poll();
+            AnalyticsTableChunk chunk = chunks.poll();
 
-            if ( partition == null )
+            if ( chunk == null )
             {
                 break taskLoop;
             }
 
-            populateTable( params, partition );
+            Timer timer = new SystemTimer().start();
+
+            populateTable( params, chunk );
+
+            log.info( String.format( "Populated %s in: %s", chunk, timer.stop().toString() ) );
         }
 
         return null;
@@ -311,6 +361,32 @@ public abstract class AbstractJdbcTableManager
      */
     protected abstract void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition );
 
+    /**
+     * Populates the given chunk of an analytics table partition. Override in order
+     * to support chunked population, the default implementation populates the
+     * entire partition of the chunk.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param chunk the {@link AnalyticsTableChunk} to populate.
+     */
+    protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTableChunk chunk )
+    {
+        populateTable( params, chunk.getPartition() );
+    }
+
+    /**
+     * Returns a SQL query which selects the min and max values of the key
+     * column used to split the given partition into chunks. Override in order
+     * to support chunked population.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    protected String getChunkKeyRangeSql( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        throw new IllegalStateException( "Chunked population is not supported by: " + getClass().getSimpleName() );
+    }
+
     /**
      * Indicates whether data was created or updated for the given time range since
      * last successful "latest" table partition update.
@@ -558,6 +634,63 @@ public abstract class AbstractJdbcTableManager
         log.info( String.format( "%s in: %s", logMessage, timer.stop().toString() ) );
     }
 
+    /**
+     * Indicates whether the database table with the given name exists and has
+     * exactly the given columns, meaning that rows of the given columns can be
+     * merged into it.
+     *
+     * @param tableName the table name.
+     * @param columns the list of {@link AnalyticsTableColumn}.
+     */
+    protected boolean hasTableColumns( String tableName, List<AnalyticsTableColumn> columns )
+    {
+        if ( !partitionManager.tableExists( tableName ) )
+        {
+            log.warn( String.format( "Table does not exist, full update required: '%s'", tableName ) );
+            return false;
+        }
+
+        if ( !getColumnNames( columns ).equals( getTableColumnNames( tableName ) ) )
+        {
+            log.warn( String.format( "Table columns have changed, full update required: '%s'", tableName ) );
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Inserts the rows of the temporary partitions of the given incrementally
+     * updated table into the corresponding real partitions, or into the real
+     * table if the table has no partitions, and drops the temporary tables.
+     * The given statements, which remove the rows replaced by the merge, are
+     * sent together with the inserts in a single call, so that they run in
+     * one transaction and queries never see the replaced rows as missing.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param removeStatements the SQL statements to run before the inserts.
+     */
+    protected void mergeTempTable( AnalyticsTable table, List<String> removeStatements )
+    {
+        List<AnalyticsTableColumn> columns = ListUtils.union( table.getDimensionColumns(), table.getValueColumns() );
+
+        String columnNames = StringUtils.join( columns.stream().map( AnalyticsTableColumn::getName ).collect( Collectors.toList() ), "," );
+
+        List<String> statements = new ArrayList<>( removeStatements );
+
+        for ( AnalyticsTablePartition partition : PartitionUtils.getTablePartitions( Lists.newArrayList( table ) ) )
+        {
+            statements.add(
+                "insert into " + partition.getTableName() + " (" + columnNames + ") " +
+                "select " + columnNames + " from " + partition.getTempTableName() );
+        }
+
+        invokeTimeAndLog( StringUtils.join( statements, "; " ),
+            String.format( "Merge incremental data into %s", table.getTableName() ) );
+
+        dropTempTable( table );
+    }
+
     /**
      * Collects all the {@link PeriodType} as a list of {@link AnalyticsTableColumn}.
      *
@@ -608,6 +741,30 @@ public abstract class AbstractJdbcTableManager
     // Private supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns the unquoted names of the given columns.
+     *
+     * @param columns the list of {@link AnalyticsTableColumn}.
+     */
+    private Set<String> getColumnNames( List<AnalyticsTableColumn> columns )
+    {
+        return columns.stream()
+            .map( c -> c.getName().replace( "\"", StringUtils.EMPTY ) )
+            .collect( Collectors.toSet() );
+    }
+
+    /**
+     * Returns the column names of the given database table.
+     *
+     * @param tableName the table name.
+     */
+    private Set<String> getTableColumnNames( String tableName )
+    {
+        SqlRowSetMetaData metaData = jdbcTemplate.queryForRowSet( "select * from " + tableName + " limit 0" ).getMetaData();
+
+        return new HashSet<>( Arrays.asList( metaData.getColumnNames() ) );
+    }
+
     /**
      * Swaps a database table, meaning drops the real table and renames the
      * temporary table to become the real table.
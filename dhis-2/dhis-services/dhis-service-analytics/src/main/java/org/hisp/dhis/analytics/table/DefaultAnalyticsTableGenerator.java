@@ -42,6 +42,7 @@ import org.hisp.dhis.analytics.AnalyticsTableGenerator;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.cache.AnalyticsCacheWarmer;
 import org.hisp.dhis.commons.collection.CollectionUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.message.MessageService;
@@ -74,21 +75,25 @@ public class DefaultAnalyticsTableGenerator
 
     private Notifier notifier;
 
+    private AnalyticsCacheWarmer cacheWarmer;
+
     public DefaultAnalyticsTableGenerator( List<AnalyticsTableService> analyticsTableServices,
         ResourceTableService resourceTableService, MessageService messageService,
-        SystemSettingManager systemSettingManager, Notifier notifier )
+        SystemSettingManager systemSettingManager, Notifier notifier, AnalyticsCacheWarmer cacheWarmer )
     {
         checkNotNull( analyticsTableServices );
         checkNotNull( resourceTableService );
         checkNotNull( messageService );
         checkNotNull( systemSettingManager );
         checkNotNull( notifier );
+        checkNotNull( cacheWarmer );
 
         this.analyticsTableServices = analyticsTableServices;
         this.resourceTableService = resourceTableService;
         this.messageService = messageService;
         this.systemSettingManager = systemSettingManager;
         this.notifier = notifier;
+        this.cacheWarmer = cacheWarmer;
     }
 
     // -------------------------------------------------------------------------
@@ -120,7 +125,7 @@ public class DefaultAnalyticsTableGenerator
         {
             notifier.clear( jobId ).notify( jobId, "Analytics table update process started" );
 
-            if ( !params.isSkipResourceTables() && !params.isLatestUpdate() )
+            if ( !params.isSkipResourceTables() && !params.isLatestUpdate() && !params.isIncrementalUpdate() )
             {
                 notifier.notify( jobId, "Updating resource tables" );
                 generateResourceTables();
@@ -158,11 +163,16 @@ public class DefaultAnalyticsTableGenerator
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE, params.getStartTime() );
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
         }
-        else
+        else if ( !params.isIncrementalUpdate() )
         {
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE, params.getStartTime() );
             systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
         }
+
+        if ( !params.isPartialUpdate() )
+        {
+            warmUpCache( jobId );
+        }
     }
 
     @Override
@@ -201,6 +211,33 @@ public class DefaultAnalyticsTableGenerator
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Warms up the analytics cache after a full update of the analytics
+     * tables. Failure to warm up the cache does not fail the table update.
+     */
+    private void warmUpCache( JobConfiguration jobId )
+    {
+        if ( !cacheWarmer.isEnabled() )
+        {
+            return;
+        }
+
+        final Clock clock = new Clock( log ).startClock();
+
+        notifier.notify( jobId, "Warming up analytics cache" );
+
+        try
+        {
+            int queries = cacheWarmer.warmUp();
+
+            notifier.notify( jobId, INFO, "Analytics cache warmed up with " + queries + " queries: " + clock.time(), false );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.warn( "Analytics cache warm-up failed: " + DebugUtils.getStackTrace( ex ) );
+        }
+    }
+
     private void generateResourceTables()
     {
         final Date startTime = new Date();
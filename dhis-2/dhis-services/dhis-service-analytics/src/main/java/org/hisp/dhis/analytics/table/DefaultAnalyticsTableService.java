@@ -29,8 +29,10 @@ package org.hisp.dhis.analytics.table;
  */
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hisp.dhis.analytics.AnalyticsIndex;
 import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableChunk;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
@@ -41,6 +43,8 @@ import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.scheduling.JobConfiguration;
@@ -80,9 +84,12 @@ public class DefaultAnalyticsTableService
 
     private SystemSettingManager systemSettingManager;
 
+    private DhisConfigurationProvider config;
+
     public DefaultAnalyticsTableService( AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+        DhisConfigurationProvider config )
     {
         checkNotNull( tableManager );
         checkNotNull( organisationUnitService );
@@ -90,6 +97,7 @@ public class DefaultAnalyticsTableService
         checkNotNull( resourceTableService );
         checkNotNull( notifier );
         checkNotNull( systemSettingManager );
+        checkNotNull( config );
 
         this.tableManager = tableManager;
         this.organisationUnitService = organisationUnitService;
@@ -97,6 +105,7 @@ public class DefaultAnalyticsTableService
         this.resourceTableService = resourceTableService;
         this.notifier = notifier;
         this.systemSettingManager = systemSettingManager;
+        this.config = config;
     }
 
     // -------------------------------------------------------------------------
@@ -135,6 +144,13 @@ public class DefaultAnalyticsTableService
             return;
         }
 
+        if ( params.isIncrementalUpdate() && !tableManager.supportsIncrementalUpdate() )
+        {
+            clock.logTime( String.format( "Table update skipped, incremental update not supported: '%s'", tableType.getTableName() ) );
+            notifier.notify( jobId, "Table update skipped, incremental update not supported" );
+            return;
+        }
+
         final List<AnalyticsTable> tables = tableManager.getAnalyticsTables( params );
 
         if ( tables.isEmpty() )
@@ -184,16 +200,20 @@ public class DefaultAnalyticsTableService
             clock.logTime( "Tables vacuumed" );
         }
 
-        notifier.notify( jobId, "Creating indexes" );
+        if ( !params.isIncrementalUpdate() )
+        {
+            notifier.notify( jobId, "Creating indexes" );
+
+            createIndexes( tables );
 
-        createIndexes( tables );
+            clock.logTime( "Created indexes" );
+            notifier.notify( jobId, "Analyzing analytics tables" );
 
-        clock.logTime( "Created indexes" );
-        notifier.notify( jobId, "Analyzing analytics tables" );
+            analyzeTables( tables );
 
-        analyzeTables( tables );
+            clock.logTime( "Analyzed tables" );
+        }
 
-        clock.logTime( "Analyzed tables" );
         notifier.notify( jobId, "Removing updated and deleted data" );
 
         tableManager.removeUpdatedData( params, tables );
@@ -252,7 +272,9 @@ public class DefaultAnalyticsTableService
     }
 
     /**
-     * Populates the given analytics tables.
+     * Populates the given analytics tables. Partitions are split into the
+     * number of chunks specified in configuration if supported by the table
+     * manager, so that a single large partition can be populated concurrently.
      *
      * @param tables the list of {@link AnalyticsTable}.
      */
@@ -260,17 +282,23 @@ public class DefaultAnalyticsTableService
     {
         List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
 
-        int taskNo = Math.min( getProcessNo(), partitions.size() );
+        int chunkNo = tableManager.supportsChunkedPopulation() ? getChunkNo() : 1;
 
-        log.info( "Populate table task number: " + taskNo );
+        List<AnalyticsTableChunk> chunks = new ArrayList<>();
 
-        ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
+        partitions.forEach( partition -> chunks.addAll( tableManager.getTableChunks( params, partition, chunkNo ) ) );
+
+        int taskNo = Math.min( getProcessNo(), chunks.size() );
+
+        log.info( String.format( "Populate table task number: %d, chunks per partition: %d", taskNo, chunkNo ) );
+
+        ConcurrentLinkedQueue<AnalyticsTableChunk> chunkQ = new ConcurrentLinkedQueue<>( chunks );
 
         List<Future<?>> futures = new ArrayList<>();
 
         for ( int i = 0; i < taskNo; i++ )
         {
-            futures.add( tableManager.populateTablesAsync( params, partitionQ ) );
+            futures.add( tableManager.populateTablesAsync( params, chunkQ ) );
         }
 
         ConcurrentUtils.waitForCompletion( futures );
@@ -419,4 +447,15 @@ public class DefaultAnalyticsTableService
 
         return cores > 2 ? ( cores - 1 ) : cores;
     }
+
+    /**
+     * Gets the number of chunks to split each table partition into during
+     * population from configuration. Returns one if not a positive number.
+     */
+    private int getChunkNo()
+    {
+        int chunks = NumberUtils.toInt( config.getProperty( ConfigurationKey.ANALYTICS_TABLE_POPULATE_CHUNKS ), 1 );
+
+        return Math.max( 1, chunks );
+    }
 }
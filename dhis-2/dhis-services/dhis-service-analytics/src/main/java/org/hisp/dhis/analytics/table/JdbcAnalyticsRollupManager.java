@@ -0,0 +1,338 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.hisp.dhis.util.DateUtils.getLongDateString;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.analytics.AnalyticsIndex;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTableManager;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.commons.timer.SystemTimer;
+import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.commons.util.TextUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Lists;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JDBC implementation of {@link AnalyticsRollupManager}. Rollup tables are
+ * created with a group by query against the data value analytics table and
+ * are swapped into place through a temporary table on full updates. Partial
+ * updates replace the rows of the affected years. Swaps and row replacements
+ * run as single multi-statement executions, which the database runs in one
+ * transaction, so that concurrent queries never see a missing or partially
+ * updated rollup table.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.analytics.AnalyticsRollupManager" )
+public class JdbcAnalyticsRollupManager
+    implements AnalyticsRollupManager
+{
+    private final DhisConfigurationProvider config;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Names of existing rollup tables, loaded lazily.
+     */
+    private volatile Set<String> existingRollupTables;
+
+    public JdbcAnalyticsRollupManager( DhisConfigurationProvider config, JdbcTemplate jdbcTemplate )
+    {
+        checkNotNull( config );
+        checkNotNull( jdbcTemplate );
+
+        this.config = config;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsRollupManager implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public List<AnalyticsRollup> getRollups()
+    {
+        return AnalyticsRollup.getRollups( config.getProperty( ConfigurationKey.ANALYTICS_TABLE_ROLLUPS ) );
+    }
+
+    @Override
+    public Optional<AnalyticsRollup> getRollup( DataQueryParams params )
+    {
+        List<AnalyticsRollup> rollups = getRollups();
+
+        if ( rollups.isEmpty() )
+        {
+            return Optional.empty();
+        }
+
+        Set<String> existingTables = getExistingRollupTables();
+
+        return rollups.stream()
+            .filter( rollup -> existingTables.contains( rollup.getTableName() ) )
+            .filter( rollup -> rollup.isAnswering( params ) )
+            .min( Comparator.comparingInt( AnalyticsRollup::getOrgUnitLevel )
+                .thenComparing( rollup -> rollup.getPeriodType().getFrequencyOrder(), Comparator.reverseOrder() ) );
+    }
+
+    @Override
+    public void updateRollups( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        List<AnalyticsRollup> rollups = getRollups();
+
+        if ( rollups.isEmpty() )
+        {
+            return;
+        }
+
+        Set<String> tableColumns = table.getDimensionColumns().stream()
+            .map( AnalyticsTableColumn::getName )
+            .collect( Collectors.toSet() );
+
+        Set<String> existingTables = getExistingRollupTables();
+
+        for ( AnalyticsRollup rollup : rollups )
+        {
+            List<String> columns = rollup.getDimensionColumns().stream()
+                .map( c -> quote( c ) )
+                .collect( Collectors.toList() );
+
+            if ( !tableColumns.containsAll( columns ) )
+            {
+                log.warn( String.format( "Skipping analytics rollup: '%s' as not all columns exist in analytics table", rollup ) );
+                dropRollupTable( rollup );
+                continue;
+            }
+
+            Timer timer = new SystemTimer().start();
+
+            try
+            {
+                if ( !params.isPartialUpdate() || !existingTables.contains( rollup.getTableName() ) )
+                {
+                    createRollupTable( rollup, columns );
+                }
+                else
+                {
+                    replaceRollupRows( rollup, columns, getYears( table ) );
+                }
+
+                log.info( String.format( "Analytics rollup: '%s' updated in: %s", rollup, timer.stop().toString() ) );
+            }
+            catch ( DataAccessException ex )
+            {
+                log.error( String.format( "Analytics rollup: '%s' failed, dropping rollup", rollup ), ex );
+                dropRollupTable( rollup );
+                existingRollupTables = null;
+            }
+        }
+
+        existingRollupTables = null;
+    }
+
+    @Override
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        existingRollupTables = null;
+        log.info( "Analytics rollup cache cleared" );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the years affected by a partial update of the given table. For
+     * the "latest" partition, these are the years of data values changed
+     * within the time span of the partition, including deleted data values,
+     * as rows of any year may be replaced by a "latest" partition update.
+     */
+    private Set<Integer> getYears( AnalyticsTable table )
+    {
+        Set<Integer> years = new HashSet<>();
+
+        for ( AnalyticsTablePartition partition : table.getTablePartitions() )
+        {
+            if ( partition.isLatestPartition() )
+            {
+                final String sql =
+                    "select distinct ps.year from datavalue dv " +
+                    "inner join _periodstructure ps on dv.periodid=ps.periodid " +
+                    "where dv.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " +
+                    "and dv.lastupdated < '" + getLongDateString( partition.getEndDate() ) + "'";
+
+                years.addAll( jdbcTemplate.queryForList( sql, Integer.class ) );
+            }
+            else if ( partition.getYear() != null )
+            {
+                years.add( partition.getYear() );
+            }
+        }
+
+        return years;
+    }
+
+    /**
+     * Creates the rollup table from the full analytics table through a temporary
+     * table, creates indexes and swaps the temporary table into place. The drop
+     * and rename of the swap are executed in a single transaction.
+     */
+    private void createRollupTable( AnalyticsRollup rollup, List<String> columns )
+    {
+        final String tableName = rollup.getTableName();
+        final String tempTableName = tableName + AnalyticsTableManager.TABLE_TEMP_SUFFIX;
+
+        jdbcTemplate.execute( "drop table if exists " + tempTableName );
+
+        String sql =
+            "create table " + tempTableName + " as " +
+            getSelectSql( columns, null );
+
+        log.debug( String.format( "Create analytics rollup SQL: '%s'", sql ) );
+
+        jdbcTemplate.execute( sql );
+
+        for ( String column : columns )
+        {
+            AnalyticsIndex index = new AnalyticsIndex( tempTableName, Lists.newArrayList( column ), null );
+
+            jdbcTemplate.execute( "create index " + index.getIndexName( AnalyticsTableType.DATA_VALUE ) +
+                " on " + tempTableName + " (" + column + ")" );
+        }
+
+        jdbcTemplate.execute( "analyze " + tempTableName );
+        jdbcTemplate.execute(
+            "drop table if exists " + tableName + "; " +
+            "alter table " + tempTableName + " rename to " + tableName + ";" );
+    }
+
+    /**
+     * Replaces the rows of the rollup table for the given years with rows
+     * aggregated from the corresponding analytics table partitions. The delete
+     * and insert are executed in a single transaction.
+     */
+    private void replaceRollupRows( AnalyticsRollup rollup, List<String> columns, Set<Integer> years )
+    {
+        if ( years.isEmpty() )
+        {
+            return;
+        }
+
+        final String tableName = rollup.getTableName();
+        final String yearList = TextUtils.getCommaDelimitedString( years );
+
+        String sql =
+            "delete from " + tableName + " where " + quote( "year" ) + " in (" + yearList + "); " +
+            "insert into " + tableName + " (" + StringUtils.join( getAllColumns( columns ), "," ) + ") " +
+            getSelectSql( columns, yearList ) + ";";
+
+        log.debug( String.format( "Replace analytics rollup rows SQL: '%s'", sql ) );
+
+        jdbcTemplate.execute( sql );
+    }
+
+    /**
+     * Returns a select statement aggregating the analytics table to the given
+     * dimension columns, optionally restricted to the given years.
+     */
+    private String getSelectSql( List<String> columns, String yearList )
+    {
+        String dimensions = StringUtils.join( columns, "," );
+
+        String values = AnalyticsRollup.VALUE_COLUMNS.stream()
+            .map( c -> "sum(" + quote( c ) + ") as " + quote( c ) )
+            .collect( Collectors.joining( "," ) );
+
+        return
+            "select " + dimensions + "," + values + " " +
+            "from " + AnalyticsTableType.DATA_VALUE.getTableName() + " " +
+            "where " + quote( "value" ) + " is not null " +
+            ( yearList != null ? "and " + quote( "year" ) + " in (" + yearList + ") " : "" ) +
+            "group by " + dimensions;
+    }
+
+    private List<String> getAllColumns( List<String> columns )
+    {
+        List<String> allColumns = Lists.newArrayList( columns );
+
+        AnalyticsRollup.VALUE_COLUMNS.forEach( c -> allColumns.add( quote( c ) ) );
+
+        return allColumns;
+    }
+
+    private void dropRollupTable( AnalyticsRollup rollup )
+    {
+        jdbcTemplate.execute( "drop table if exists " + rollup.getTableName() );
+    }
+
+    private Set<String> getExistingRollupTables()
+    {
+        if ( existingRollupTables != null )
+        {
+            return existingRollupTables;
+        }
+
+        final String sql =
+            "select table_name from information_schema.tables " +
+            "where table_name like '" + AnalyticsRollup.ROLLUP_TABLE_PREFIX + "%' " +
+            "and table_type = 'BASE TABLE'";
+
+        Set<String> tables = new HashSet<>( jdbcTemplate.queryForList( sql, String.class ) );
+
+        existingRollupTables = tables;
+
+        return tables;
+    }
+}
@@ -28,6 +28,7 @@ package org.hisp.dhis.analytics.table;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.hisp.dhis.analytics.ColumnDataType.*;
 import static org.hisp.dhis.analytics.ColumnNotNullConstraint.NOT_NULL;
@@ -38,16 +39,20 @@ import static org.hisp.dhis.util.DateUtils.getLongDateString;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
 import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableChunk;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
@@ -57,6 +62,7 @@ import org.hisp.dhis.analytics.ColumnDataType;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
+import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryOptionGroupSet;
 import org.hisp.dhis.category.CategoryService;
@@ -71,6 +77,7 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
 import org.hisp.dhis.organisationunit.OrganisationUnitLevel;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
@@ -82,6 +89,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -107,18 +115,41 @@ import com.google.common.collect.Sets;
 public class JdbcAnalyticsTableManager
     extends AbstractJdbcTableManager
 {
+    private final AnalyticsRollupManager rollupManager;
+
     public JdbcAnalyticsTableManager( IdentifiableObjectManager idObjectManager,
         OrganisationUnitService organisationUnitService, CategoryService categoryService,
         SystemSettingManager systemSettingManager, DataApprovalLevelService dataApprovalLevelService,
         ResourceTableService resourceTableService, AnalyticsTableHookService tableHookService,
         StatementBuilder statementBuilder, PartitionManager partitionManager, DatabaseInfo databaseInfo,
-        JdbcTemplate jdbcTemplate )
+        JdbcTemplate jdbcTemplate, AnalyticsRollupManager rollupManager )
     {
         super( idObjectManager, organisationUnitService, categoryService, systemSettingManager,
             dataApprovalLevelService, resourceTableService, tableHookService, statementBuilder, partitionManager,
             databaseInfo, jdbcTemplate );
+
+        checkNotNull( rollupManager );
+
+        this.rollupManager = rollupManager;
     }
 
+    /**
+     * Change log of data value keys, populated by a trigger on the data value table.
+     */
+    static final String CHANGE_LOG_TABLE = "datavaluechangelog";
+
+    /**
+     * Work table holding change log keys claimed by an incremental update which
+     * is in progress. Kept until the incremental update has completed.
+     */
+    static final String CHANGE_LOG_WORK_TABLE = "datavaluechangelog_temp";
+
+    /**
+     * Trigger on the data value table populating the change log, disabled
+     * unless incremental update is enabled.
+     */
+    static final String CHANGE_LOG_TRIGGER = "datavalue_changelog_trigger";
+
     private static final List<AnalyticsTableColumn> FIXED_COLS = Lists.newArrayList(
         new AnalyticsTableColumn( quote( "dx" ), CHARACTER_11, NOT_NULL, "de.uid" ),
         new AnalyticsTableColumn( quote( "co" ), CHARACTER_11, NOT_NULL, "co.uid" )
@@ -142,13 +173,36 @@ public class JdbcAnalyticsTableManager
         return AnalyticsTableType.DATA_VALUE;
     }
 
+    @Override
+    public boolean supportsIncrementalUpdate()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean supportsChunkedPopulation()
+    {
+        return true;
+    }
+
     @Override
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
-        AnalyticsTable table = params.isLatestUpdate() ?
-            getLatestAnalyticsTable( params, getDimensionColumns(), getValueColumns() ) :
-            getRegularAnalyticsTable( params, getDataYears( params ), getDimensionColumns(), getValueColumns() );
+        AnalyticsTable table;
+
+        if ( params.isIncrementalUpdate() )
+        {
+            table = getIncrementalAnalyticsTable( params, getDimensionColumns(), getValueColumns() );
+        }
+        else if ( params.isLatestUpdate() )
+        {
+            table = getLatestAnalyticsTable( params, getDimensionColumns(), getValueColumns() );
+        }
+        else
+        {
+            table = getRegularAnalyticsTable( params, getDataYears( params ), getDimensionColumns(), getValueColumns() );
+        }
 
         return table.hasPartitionTables() ? newArrayList( table ) : newArrayList();
     }
@@ -194,6 +248,11 @@ public class JdbcAnalyticsTableManager
             resourceTableService.generateDataApprovalRemapLevelTable();
             resourceTableService.generateDataApprovalMinLevelTable();
         }
+
+        if ( !params.isPartialUpdate() && params.getCaptureChangeLog() != null )
+        {
+            setChangeLogCaptured( params.getCaptureChangeLog(), params.getStartTime() );
+        }
     }
 
     @Override
@@ -222,6 +281,26 @@ public class JdbcAnalyticsTableManager
         invokeTimeAndLog( sql, "Remove updated data values" );
     }
 
+    @Override
+    public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        if ( params.isIncrementalUpdate() )
+        {
+            mergeIncrementalTable( table );
+        }
+        else
+        {
+            super.swapTable( params, table );
+
+            if ( !params.isPartialUpdate() )
+            {
+                pruneChangeLog( params );
+            }
+        }
+
+        rollupManager.updateRollups( params, table );
+    }
+
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
@@ -235,6 +314,21 @@ public class JdbcAnalyticsTableManager
     @Override
     protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
     {
+        populateTable( params, new AnalyticsTableChunk( partition ) );
+    }
+
+    /**
+     * Populates the given chunk of an analytics table partition. Chunks are
+     * based on ranges of the data element identifier of data values, which
+     * is the leading column of the primary key of the data value table.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param chunk the {@link AnalyticsTableChunk} to populate.
+     */
+    @Override
+    protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTableChunk chunk )
+    {
+        final AnalyticsTablePartition partition = chunk.getPartition();
         final String dbl = statementBuilder.getDoubleColumnType();
         final boolean skipDataTypeValidation = (Boolean) systemSettingManager.getSystemSetting( SettingKey.SKIP_DATA_TYPE_VALIDATION_IN_ANALYTICS_TABLE_EXPORT );
         final boolean skipZeroValues = (Boolean) systemSettingManager.getSystemSetting( SettingKey.SKIP_ZERO_VALUES_IN_ANALYTICS_TABLE_EXPORT );
@@ -243,31 +337,72 @@ public class JdbcAnalyticsTableManager
         final String zeroValueCondition = skipZeroValues ? "" : " or de.zeroissignificant = true";
         final String zeroValueClause = "(dv.value != '0' or de.aggregationtype in ('" + AggregationType.AVERAGE + ',' + AggregationType.AVERAGE_SUM_ORG_UNIT + "')" + zeroValueCondition + ") ";
         final String intClause = zeroValueClause + numericClause;
+        final String partitionClause = getPartitionClause( params, partition ) + chunk.getChunkClause( "dv.dataelementid" );
+
+        populateTable( partition, partitionClause, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause );
+        populateTable( partition, partitionClause, "1", "null", Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY ), "dv.value = 'true'" );
+        populateTable( partition, partitionClause, "0", "null", Sets.newHashSet( ValueType.BOOLEAN ), "dv.value = 'false'" );
+        populateTable( partition, partitionClause, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null );
+    }
+
+    @Override
+    protected String getChunkKeyRangeSql( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        return
+            "select min(dv.dataelementid), max(dv.dataelementid) " +
+            "from datavalue dv " +
+            "inner join _periodstructure ps on dv.periodid=ps.periodid " +
+            "where dv.deleted is false " +
+            getPartitionClause( params, partition );
+    }
+
+    /**
+     * Returns the where clause which restricts data values to the given
+     * partition. For incremental updates, data values are restricted to
+     * the keys in the change log work table and are not restricted by the
+     * start time of the update, as any later change will be present in the
+     * change log and reprocessed by the next incremental update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    private String getPartitionClause( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        if ( params.isIncrementalUpdate() )
+        {
+            return
+                "and ps.year = " + partition.getYear() + " " +
+                "and exists (" +
+                    "select 1 from " + CHANGE_LOG_WORK_TABLE + " cl " +
+                    "where cl.dataelementid=dv.dataelementid " +
+                    "and cl.periodid=dv.periodid " +
+                    "and cl.sourceid=dv.sourceid) ";
+        }
+
+        String partitionClause = partition.isLatestPartition() ?
+            "and dv.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " :
+            "and ps.year = " + partition.getYear() + " ";
 
-        populateTable( params, partition, "cast(dv.value as " + dbl + ")", "null", ValueType.NUMERIC_TYPES, intClause );
-        populateTable( params, partition, "1", "null", Sets.newHashSet( ValueType.BOOLEAN, ValueType.TRUE_ONLY ), "dv.value = 'true'" );
-        populateTable( params, partition, "0", "null", Sets.newHashSet( ValueType.BOOLEAN ), "dv.value = 'false'" );
-        populateTable( params, partition, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null );
+        return partitionClause + "and dv.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' ";
     }
 
     /**
      * Populates the given analytics table.
      *
+     * @param partition the {@link AnalyticsTablePartition} to populate.
+     * @param partitionClause where clause to restrict data to the partition.
      * @param valueExpression numeric value expression.
      * @param textValueExpression textual value expression.
      * @param valueTypes data element value types to include data for.
      * @param whereClause where clause to constrain data query.
      */
-    private void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition,
+    private void populateTable( AnalyticsTablePartition partition, String partitionClause,
         String valueExpression, String textValueExpression, Set<ValueType> valueTypes, String whereClause )
     {
         final String tableName = partition.getTempTableName();
         final String valTypes = TextUtils.getQuotedCommaDelimitedString( ObjectUtils.asStringList( valueTypes ) );
         final boolean respectStartEndDates = (Boolean) systemSettingManager.getSystemSetting( SettingKey.RESPECT_META_DATA_START_END_DATES_IN_ANALYTICS_TABLE_EXPORT );
         final String approvalClause = getApprovalJoinClause( partition.getYear() );
-        final String partitionClause = partition.isLatestPartition() ?
-            "and dv.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " :
-            "and ps.year = " + partition.getYear() + " ";
 
         String sql = "insert into " + partition.getTempTableName() + " (";
 
@@ -314,7 +449,6 @@ public class JdbcAnalyticsTableManager
             "where de.valuetype in (" + valTypes + ") " +
             "and de.domaintype = 'AGGREGATE' " +
             partitionClause +
-            "and dv.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' " +
             "and dv.value is not null " +
             "and dv.deleted is false ";
 
@@ -471,6 +605,195 @@ public class JdbcAnalyticsTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
+    /**
+     * Creates a {@link AnalyticsTable} with partitions for the years of data
+     * which have changed according to the data value change log. The change log
+     * entries are moved to a work table which is kept until the incremental update
+     * has completed, so that changes are not lost if the update process fails.
+     * Years for which the analytics table partition does not exist or has a
+     * different set of columns than the current dimensions are skipped, as a full
+     * analytics table update is required for those. The change log keys of skipped
+     * years are kept in the work table.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param dimensionColumns the list of dimension {@link AnalyticsTableColumn}.
+     * @param valueColumns the list of value {@link AnalyticsTableColumn}.
+     */
+    private AnalyticsTable getIncrementalAnalyticsTable( AnalyticsTableUpdateParams params,
+        List<AnalyticsTableColumn> dimensionColumns, List<AnalyticsTableColumn> valueColumns )
+    {
+        Date lastFullTableUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+
+        Assert.notNull( lastFullTableUpdate, "A full analytics table update process must be run prior to an incremental update process" );
+
+        if ( !isChangeLogCaptured() )
+        {
+            log.warn( "Skipping incremental update as the data value change log is not captured, " +
+                "a full update with incremental update enabled is required" );
+
+            return new AnalyticsTable( getAnalyticsTableType(), dimensionColumns, valueColumns );
+        }
+
+        final String claimSql =
+            "create table if not exists " + CHANGE_LOG_WORK_TABLE + " (" +
+                "dataelementid bigint not null, periodid bigint not null, sourceid bigint not null); " +
+            "with changes as (delete from " + CHANGE_LOG_TABLE + " returning dataelementid, periodid, sourceid) " +
+            "insert into " + CHANGE_LOG_WORK_TABLE + " (dataelementid, periodid, sourceid) " +
+            "select distinct dataelementid, periodid, sourceid from changes; " +
+            "analyze " + CHANGE_LOG_WORK_TABLE + ";";
+
+        invokeTimeAndLog( claimSql, "Claimed data value change log" );
+
+        final String yearSql =
+            "select distinct(extract(year from pe.startdate)) " +
+            "from " + CHANGE_LOG_WORK_TABLE + " cl " +
+            "inner join period pe on cl.periodid=pe.periodid " +
+            "where pe.startdate is not null";
+
+        List<Integer> dataYears = jdbcTemplate.queryForList( yearSql, Integer.class );
+        Integer changes = jdbcTemplate.queryForObject( "select count(*) from " + CHANGE_LOG_WORK_TABLE, Integer.class );
+
+        log.info( String.format( "Incremental update with changed data value keys: %d, years: %s", changes, dataYears ) );
+
+        Calendar calendar = PeriodType.getCalendar();
+        List<AnalyticsTableColumn> columns = ListUtils.union( dimensionColumns, valueColumns );
+
+        Collections.sort( dataYears );
+
+        AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), dimensionColumns, valueColumns );
+
+        for ( Integer year : dataYears )
+        {
+            String partitionName = PartitionUtils.getPartitionName( table.getTableName(), year );
+
+            if ( hasTableColumns( partitionName, columns ) )
+            {
+                table.addPartitionTable( year, PartitionUtils.getStartDate( calendar, year ), PartitionUtils.getEndDate( calendar, year ) );
+            }
+            else
+            {
+                log.warn( String.format( "Skipping incremental update of year: %d, changes are kept until a full update", year ) );
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Merges the temporary partitions of the given incrementally updated table
+     * into the real partitions. Data for the data element, period and
+     * organisation unit keys in the change log work table is removed from each
+     * merged partition in the same transaction as the insert of the new data.
+     * Change log keys of the merged years are then released from the work
+     * table, keys of years skipped by the update are kept for a later update.
+     *
+     * @param table the {@link AnalyticsTable}.
+     */
+    private void mergeIncrementalTable( AnalyticsTable table )
+    {
+        List<Integer> years = table.getTablePartitions().stream()
+            .map( AnalyticsTablePartition::getYear )
+            .collect( Collectors.toList() );
+
+        List<String> statements = table.getTablePartitions().stream()
+            .map( this::getRemoveChangedDataSql )
+            .collect( Collectors.toList() );
+
+        statements.add(
+            "delete from " + CHANGE_LOG_WORK_TABLE + " cl " +
+            "using _periodstructure ps " +
+            "where cl.periodid=ps.periodid " +
+            "and ps.year in (" + StringUtils.join( years, "," ) + ")" );
+
+        mergeTempTable( table, statements );
+    }
+
+    /**
+     * Returns SQL which removes data for the data element, period and
+     * organisation unit keys in the change log work table from the given
+     * partition.
+     *
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    private String getRemoveChangedDataSql( AnalyticsTablePartition partition )
+    {
+        return
+            "delete from " + partition.getTableName() + " ax " +
+            "using (" +
+                "select distinct de.uid as dx, ps.iso as pe, ou.uid as ou " +
+                "from " + CHANGE_LOG_WORK_TABLE + " cl " +
+                "inner join dataelement de on cl.dataelementid=de.dataelementid " +
+                "inner join _periodstructure ps on cl.periodid=ps.periodid " +
+                "inner join organisationunit ou on cl.sourceid=ou.organisationunitid " +
+                "where ps.year = " + partition.getYear() + ") ck " +
+            "where ax.dx=ck.dx " +
+            "and ax.pe=ck.pe " +
+            "and ax.ou=ck.ou";
+    }
+
+    /**
+     * Indicates whether the data value change log trigger is enabled.
+     */
+    private boolean isChangeLogCaptured()
+    {
+        final String sql =
+            "select exists (select 1 from pg_trigger " +
+            "where tgrelid = 'datavalue'::regclass " +
+            "and tgname = '" + CHANGE_LOG_TRIGGER + "' " +
+            "and tgenabled <> 'D')";
+
+        return Boolean.TRUE.equals( jdbcTemplate.queryForObject( sql, Boolean.class ) );
+    }
+
+    /**
+     * Enables or disables the data value change log trigger at the start of a
+     * full analytics table update. When enabling, keys of data values changed
+     * since the start of the update are added to the change log, as those
+     * changes are neither covered by the update nor captured by the trigger.
+     *
+     * @param captured whether the change log should be captured.
+     * @param startTime the start time of the full update.
+     */
+    private void setChangeLogCaptured( boolean captured, Date startTime )
+    {
+        if ( captured == isChangeLogCaptured() )
+        {
+            return;
+        }
+
+        if ( captured )
+        {
+            final String sql =
+                "alter table datavalue enable trigger " + CHANGE_LOG_TRIGGER + "; " +
+                "insert into " + CHANGE_LOG_TABLE + " (dataelementid, periodid, sourceid) " +
+                "select distinct dataelementid, periodid, sourceid from datavalue " +
+                "where lastupdated >= '" + getLongDateString( startTime ) + "'";
+
+            invokeTimeAndLog( sql, "Enabled data value change log" );
+        }
+        else
+        {
+            invokeTimeAndLog( "alter table datavalue disable trigger " + CHANGE_LOG_TRIGGER, "Disabled data value change log" );
+        }
+    }
+
+    /**
+     * Removes change log entries created before the start of the given full
+     * analytics table update, as those changes are covered by the update. Drops
+     * the change log work table of any failed incremental update.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     */
+    private void pruneChangeLog( AnalyticsTableUpdateParams params )
+    {
+        String sql =
+            "delete from " + CHANGE_LOG_TABLE + " " +
+            "where created < '" + getLongDateString( params.getStartTime() ) + "'";
+
+        executeSilently( sql );
+        dropTable( CHANGE_LOG_WORK_TABLE );
+    }
+
     @Override
     @Async
     public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions, Collection<String> dataElements, int aggregationLevel )
@@ -39,8 +39,10 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
+import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
@@ -67,6 +69,7 @@ import com.google.common.collect.Lists;
 /**
  * @author Markus Bekken
  */
+@Slf4j
 @Service( "org.hisp.dhis.analytics.EnrollmentAnalyticsTableManager" )
 public class JdbcEnrollmentAnalyticsTableManager
     extends AbstractEventJdbcTableManager
@@ -107,6 +110,11 @@ public class JdbcEnrollmentAnalyticsTableManager
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
+        if ( params.isIncrementalUpdate() )
+        {
+            return getIncrementalAnalyticsTables( params );
+        }
+
         return params.isLatestUpdate() ? new ArrayList<>() : getRegularAnalyticsTables( params );
     }
 
@@ -132,6 +140,78 @@ public class JdbcEnrollmentAnalyticsTableManager
         return tables;
     }
 
+    /**
+     * Creates a list of {@link AnalyticsTable} for each program with enrollments
+     * which were updated or deleted since the last successful update of the program.
+     * Programs for which the table does not exist or has a different set of columns
+     * than the current dimensions are skipped, as a full analytics table update is
+     * required for those.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return a list of {@link AnalyticsTableUpdateParams}.
+     */
+    private List<AnalyticsTable> getIncrementalAnalyticsTables( AnalyticsTableUpdateParams params )
+    {
+        List<AnalyticsTable> tables = new UniqueArrayList<>();
+
+        List<Program> programs = idObjectManager.getAllNoAcl( Program.class );
+
+        for ( Program program : programs )
+        {
+            Date startDate = getIncrementalStartDate( program );
+
+            if ( hasUpdatedData( startDate, params.getStartTime(), program ) )
+            {
+                AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns( program ), Lists.newArrayList(), program );
+
+                if ( hasTableColumns( table.getTableName(), table.getDimensionColumns() ) )
+                {
+                    tables.add( table );
+
+                    log.info( String.format( "Added incremental enrollment analytics table for program: '%s' with start: '%s'",
+                        program.getUid(), getLongDateString( startDate ) ) );
+                }
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Indicates whether enrollments of the given program were updated or deleted
+     * between the given start and end date.
+     *
+     * @param startDate the start date.
+     * @param endDate the end date.
+     * @param program the program.
+     * @return whether updated enrollments exist.
+     */
+    private boolean hasUpdatedData( Date startDate, Date endDate, Program program )
+    {
+        String sql =
+            "select pi.programinstanceid " +
+            "from programinstance pi " +
+            "where pi.programid = " + program.getId() + " " +
+            "and pi.lastupdated >= '" + getLongDateString( startDate ) + "' " +
+            "and pi.lastupdated < '" + getLongDateString( endDate ) + "' " +
+            "limit 1";
+
+        return !jdbcTemplate.queryForList( sql ).isEmpty();
+    }
+
+    @Override
+    protected String getRemoveIncrementalDataSql( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        return
+            "delete from " + quote( table.getTableName() ) + " ax " +
+            "where ax.pi in (" +
+                "select pi.uid " +
+                "from programinstance pi " +
+                "where pi.programid = " + table.getProgram().getId() + " " +
+                "and pi.lastupdated >= '" + getLongDateString( getIncrementalStartDate( table.getProgram() ) ) + "' " +
+                "and pi.lastupdated < '" + getLongDateString( params.getStartTime() ) + "')";
+    }
+
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
@@ -142,6 +222,8 @@ public class JdbcEnrollmentAnalyticsTableManager
     protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
     {
         final Program program = partition.getMasterTable().getProgram();
+        final String incrementalClause = params.isIncrementalUpdate() ?
+            "and pi.lastupdated >= '" + getLongDateString( getIncrementalStartDate( program ) ) + "' " : "";
 
         String fromClause = "from programinstance pi " +
             "inner join program pr on pi.programid=pr.programid " +
@@ -153,9 +235,10 @@ public class JdbcEnrollmentAnalyticsTableManager
             "left join _dateperiodstructure dps on cast(pi.enrollmentdate as date)=dps.dateperiod " +
             "where pr.programid=" + program.getId() + " " +
             "and pi.organisationunitid is not null " +
-            "and pi.lastupdated <= '" + getLongDateString( params.getStartTime() ) + "' " +
+            "and pi.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' " +
             "and pi.incidentdate is not null " +
-            "and pi.deleted is false ";
+            "and pi.deleted is false " +
+            incrementalClause;
 
         populateTableInternal( partition, getDimensionColumns( program ), fromClause );
     }
@@ -40,6 +40,8 @@ import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.hisp.dhis.system.util.MathUtils.NUMERIC_LENIENT_REGEXP;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import static org.hisp.dhis.analytics.util.AnalyticsUtils.getColumnType;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_TABLE_EVENT_SINGLE_PASS;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -48,6 +50,7 @@ import com.google.common.collect.ImmutableSet;
 
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableChunk;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
@@ -62,6 +65,7 @@ import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.PeriodType;
@@ -92,16 +96,28 @@ public class JdbcEventAnalyticsTableManager
     public static final String OU_NAME_COL_SUFFIX = "_name";
     public static final String OU_GEOMETRY_COL_SUFFIX = "_geom";
 
+    /**
+     * Alias of the record of event data values decoded once per event when
+     * populating tables in single-pass mode.
+     */
+    private static final String EDV_ALIAS = "edv";
+
+    private final DhisConfigurationProvider config;
+
     public JdbcEventAnalyticsTableManager( IdentifiableObjectManager idObjectManager,
         OrganisationUnitService organisationUnitService, CategoryService categoryService,
         SystemSettingManager systemSettingManager, DataApprovalLevelService dataApprovalLevelService,
         ResourceTableService resourceTableService, AnalyticsTableHookService tableHookService,
         StatementBuilder statementBuilder, PartitionManager partitionManager, DatabaseInfo databaseInfo,
-        JdbcTemplate jdbcTemplate )
+        JdbcTemplate jdbcTemplate, DhisConfigurationProvider config )
     {
         super( idObjectManager, organisationUnitService, categoryService, systemSettingManager,
             dataApprovalLevelService, resourceTableService, tableHookService, statementBuilder, partitionManager,
             databaseInfo, jdbcTemplate );
+
+        checkNotNull( config );
+
+        this.config = config;
     }
 
     private static final List<AnalyticsTableColumn> FIXED_COLS = Lists.newArrayList(
@@ -133,12 +149,23 @@ public class JdbcEventAnalyticsTableManager
         return AnalyticsTableType.EVENT;
     }
 
+    @Override
+    public boolean supportsChunkedPopulation()
+    {
+        return true;
+    }
+
     @Override
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
         log.info( String.format( "Get tables using earliest: %s, spatial support: %b", params.getFromDate(), databaseInfo.isSpatialSupport() ) );
 
+        if ( params.isIncrementalUpdate() )
+        {
+            return getIncrementalAnalyticsTables( params );
+        }
+
         return params.isLatestUpdate() ? getLatestAnalyticsTables( params ) : getRegularAnalyticsTables( params );
     }
 
@@ -225,6 +252,88 @@ public class JdbcEventAnalyticsTableManager
         return tables;
     }
 
+    /**
+     * Creates a list of {@link AnalyticsTable} with a partition for each year for which
+     * events of the program were updated or deleted since the last successful update of
+     * the program. Programs with a year for which the partition does not exist or has a
+     * different set of columns than the current dimensions are skipped, as a full analytics
+     * table update is required for those. The updated events of a program are removed from
+     * all partitions, so all years must be populated again for the update to be complete.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return a list of {@link AnalyticsTableUpdateParams}.
+     */
+    private List<AnalyticsTable> getIncrementalAnalyticsTables( AnalyticsTableUpdateParams params )
+    {
+        List<AnalyticsTable> tables = new ArrayList<>();
+
+        Calendar calendar = PeriodType.getCalendar();
+
+        List<Program> programs = idObjectManager.getAllNoAcl( Program.class );
+
+        for ( Program program : programs )
+        {
+            Date startDate = getIncrementalStartDate( program );
+
+            List<Integer> dataYears = getUpdatedDataYears( startDate, params.getStartTime(), program );
+
+            Collections.sort( dataYears );
+
+            AnalyticsTable table = new AnalyticsTable( getAnalyticsTableType(), getDimensionColumns( program ), Lists.newArrayList(), program );
+
+            List<Integer> skippedYears = dataYears.stream()
+                .filter( year -> !hasTableColumns( PartitionUtils.getPartitionName( table.getTableName(), year ), table.getDimensionColumns() ) )
+                .collect( Collectors.toList() );
+
+            if ( !skippedYears.isEmpty() )
+            {
+                log.warn( String.format( "Skipping incremental event analytics table for program: '%s' as partitions for years: %s are missing or outdated, full update required",
+                    program.getUid(), skippedYears ) );
+
+                continue;
+            }
+
+            for ( Integer year : dataYears )
+            {
+                table.addPartitionTable( year, PartitionUtils.getStartDate( calendar, year ), PartitionUtils.getEndDate( calendar, year ) );
+            }
+
+            if ( table.hasPartitionTables() )
+            {
+                tables.add( table );
+
+                log.info( String.format( "Added incremental event analytics table for program: '%s' with start: '%s' and years: %s",
+                    program.getUid(), getLongDateString( startDate ), dataYears ) );
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * Returns the years of events of the given program which were updated or
+     * deleted between the given start and end date.
+     *
+     * @param startDate the start date.
+     * @param endDate the end date.
+     * @param program the program.
+     * @return a list of years.
+     */
+    private List<Integer> getUpdatedDataYears( Date startDate, Date endDate, Program program )
+    {
+        String sql =
+            "select distinct(extract(year from psi.executiondate)) " +
+            "from programstageinstance psi " +
+            "inner join programinstance pi on psi.programinstanceid = pi.programinstanceid " +
+            "where pi.programid = " + program.getId() + " " +
+            "and psi.lastupdated >= '" + getLongDateString( startDate ) + "' " +
+            "and psi.lastupdated < '" + getLongDateString( endDate ) + "' " +
+            "and psi.executiondate is not null " +
+            "and psi.executiondate > '1000-01-01'";
+
+        return jdbcTemplate.queryForList( sql, Integer.class );
+    }
+
     /**
      * Indicates whether event data stored between the given start and end date and for the
      * given program exists.
@@ -258,22 +367,40 @@ public class JdbcEventAnalyticsTableManager
 
         for ( AnalyticsTable table : tables )
         {
-            AnalyticsTablePartition partition = table.getLatestPartition();
-
-            String sql =
-                "delete from " + quote( table.getTableName() ) + " ax " +
-                "where ax.psi in (" +
-                    "select psi.uid " +
-                    "from programstageinstance psi " +
-                    "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
-                    "where pi.programid = " + table.getProgram().getId() + " " +
-                    "and psi.lastupdated >= '" + getLongDateString( partition.getStartDate() ) + "' " +
-                    "and psi.lastupdated < '" + getLongDateString( partition.getEndDate() ) + "')";
+            String sql = getRemoveUpdatedEventsSql( table, table.getLatestPartition().getStartDate(),
+                table.getLatestPartition().getEndDate() );
 
             invokeTimeAndLog( sql, String.format( "Remove updated events for table: '%s'", table.getTableName() ) );
         }
     }
 
+    @Override
+    protected String getRemoveIncrementalDataSql( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        return getRemoveUpdatedEventsSql( table, getIncrementalStartDate( table.getProgram() ), params.getStartTime() );
+    }
+
+    /**
+     * Returns SQL which removes events of the program of the given table which
+     * were updated within the given time span from the table.
+     *
+     * @param table the {@link AnalyticsTable}.
+     * @param startDate the start date.
+     * @param endDate the end date.
+     */
+    private String getRemoveUpdatedEventsSql( AnalyticsTable table, Date startDate, Date endDate )
+    {
+        return
+            "delete from " + quote( table.getTableName() ) + " ax " +
+            "where ax.psi in (" +
+                "select psi.uid " +
+                "from programstageinstance psi " +
+                "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
+                "where pi.programid = " + table.getProgram().getId() + " " +
+                "and psi.lastupdated >= '" + getLongDateString( startDate ) + "' " +
+                "and psi.lastupdated < '" + getLongDateString( endDate ) + "')";
+    }
+
     @Override
     public List<AnalyticsTableColumn> getFixedColumns()
     {
@@ -293,13 +420,71 @@ public class JdbcEventAnalyticsTableManager
 
     @Override
     protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        populateTable( params, new AnalyticsTableChunk( partition ) );
+    }
+
+    @Override
+    protected String getChunkKeyRangeSql( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        final Program program = partition.getMasterTable().getProgram();
+
+        return
+            "select min(psi.programstageinstanceid), max(psi.programstageinstanceid) " +
+            "from programstageinstance psi " +
+            "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
+            "where psi.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' " +
+            getPartitionClause( params, partition ) +
+            "and pi.programid=" + program.getId() + " " +
+            "and psi.deleted is false";
+    }
+
+    /**
+     * Returns the where clause which restricts events to the given partition.
+     * For the latest partition, events are restricted by last updated, for
+     * yearly partitions by execution date and, for incremental updates, by
+     * the incremental start date of the program.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     */
+    private String getPartitionClause( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
     {
         final Program program = partition.getMasterTable().getProgram();
-        final String start = DateUtils.getLongDateString( partition.getStartDate() );
-        final String end = DateUtils.getLongDateString( partition.getEndDate() );
-        final String partitionClause = partition.isLatestPartition() ?
-            "and psi.lastupdated >= '" + start + "' " :
-            "and psi.executiondate >= '" + start + "' and psi.executiondate < '" + end + "' ";
+        final String start = getLongDateString( partition.getStartDate() );
+
+        if ( partition.isLatestPartition() )
+        {
+            return "and psi.lastupdated >= '" + start + "' ";
+        }
+
+        final String end = getLongDateString( partition.getEndDate() );
+        final String incrementalClause = params.isIncrementalUpdate() ?
+            "and psi.lastupdated >= '" + getLongDateString( getIncrementalStartDate( program ) ) + "' " : "";
+
+        return "and psi.executiondate >= '" + start + "' and psi.executiondate < '" + end + "' " + incrementalClause;
+    }
+
+    /**
+     * Populates the given chunk of an event analytics table partition. Chunks
+     * are based on ranges of the event identifier, which is the primary key of
+     * the event table.
+     * <p>
+     * In single-pass mode the event data values of each event are decoded once
+     * through a lateral join instead of through one sub-query against the event
+     * table per data element column, and organisation unit data elements are
+     * resolved through joins instead of sub-queries.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param chunk the {@link AnalyticsTableChunk} to populate.
+     */
+    @Override
+    protected void populateTable( AnalyticsTableUpdateParams params, AnalyticsTableChunk chunk )
+    {
+        final AnalyticsTablePartition partition = chunk.getPartition();
+        final Program program = partition.getMasterTable().getProgram();
+        final String partitionClause = getPartitionClause( params, partition );
+        final boolean singlePass = config.isEnabled( ANALYTICS_TABLE_EVENT_SINGLE_PASS );
 
         String fromClause = "from programstageinstance psi " +
             "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
@@ -313,17 +498,58 @@ public class JdbcEventAnalyticsTableManager
             "and (cast(date_trunc('month', psi.executiondate) as date)=ougs.startdate or ougs.startdate is null) " +
             "inner join _categorystructure acs on psi.attributeoptioncomboid=acs.categoryoptioncomboid " +
             "left join _dateperiodstructure dps on cast(psi.executiondate as date)=dps.dateperiod " +
+            ( singlePass ? getSinglePassJoinClause( program ) : "" ) +
             "where psi.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' " +
             partitionClause +
             "and pr.programid=" + program.getId() + " " +
             "and psi.organisationunitid is not null " +
             "and psi.executiondate is not null " +
-            "and psi.deleted is false ";
+            "and psi.deleted is false " +
+            chunk.getChunkClause( "psi.programstageinstanceid" );
 
-        populateTableInternal( partition, getDimensionColumns( program ), fromClause );
+        populateTableInternal( partition, getDimensionColumns( program, singlePass ), fromClause );
+    }
+
+    /**
+     * Returns the joins which decode the event data values of the given program
+     * in a single pass. Each data element is a column of the decoded record, and
+     * each organisation unit data element is joined with the organisation unit
+     * table once.
+     *
+     * @param program the {@link Program}.
+     * @return the join clause.
+     */
+    private String getSinglePassJoinClause( Program program )
+    {
+        Set<DataElement> dataElements = program.getDataElements();
+
+        if ( dataElements.isEmpty() )
+        {
+            return "";
+        }
+
+        String recordColumns = dataElements.stream()
+            .map( de -> quote( de.getUid() ) + " jsonb" )
+            .collect( Collectors.joining( ", " ) );
+
+        StringBuilder sql = new StringBuilder( "left join lateral jsonb_to_record(psi.eventdatavalues) as " +
+            EDV_ALIAS + "(" + recordColumns + ") on true " );
+
+        dataElements.stream()
+            .filter( de -> de.getValueType().isOrganisationUnit() )
+            .forEach( de -> sql.append( "left join organisationunit " ).append( getOrgUnitAlias( de ) )
+                .append( " on " ).append( getOrgUnitAlias( de ) ).append( ".uid=" )
+                .append( getSinglePassValue( de ) ).append( " " ) );
+
+        return sql.toString();
     }
 
     private List<AnalyticsTableColumn> getDimensionColumns( Program program )
+    {
+        return getDimensionColumns( program, false );
+    }
+
+    private List<AnalyticsTableColumn> getDimensionColumns( Program program, boolean singlePass )
     {
         List<AnalyticsTableColumn> columns = new ArrayList<>();
 
@@ -349,12 +575,12 @@ public class JdbcEventAnalyticsTableManager
         columns.addAll( addPeriodColumns( "dps" ) );
 
         columns.addAll( program.getDataElements().stream()
-            .map( de -> getColumnFromDataElement( de, false ) ).flatMap( Collection::stream )
-            .collect( Collectors.toList() ) );
+            .map( de -> singlePass ? getSinglePassColumnFromDataElement( de, false ) : getColumnFromDataElement( de, false ) )
+            .flatMap( Collection::stream ).collect( Collectors.toList() ) );
 
         columns.addAll( program.getDataElementsWithLegendSet().stream()
-            .map( de -> getColumnFromDataElement( de, true) ).flatMap( Collection::stream )
-            .collect( Collectors.toList() ) );
+            .map( de -> singlePass ? getSinglePassColumnFromDataElement( de, true ) : getColumnFromDataElement( de, true) )
+            .flatMap( Collection::stream ).collect( Collectors.toList() ) );
 
         columns.addAll( program.getNonConfidentialTrackedEntityAttributes().stream()
             .map( tea -> getColumnFromTrackedEntityAttribute( tea, numericClause, dateClause, false ) )
@@ -498,18 +724,117 @@ public class JdbcEventAnalyticsTableManager
         } ).collect( Collectors.toList() );
     }
 
-    private String getDataClause( String uid, ValueType valueType )
+    /**
+     * Returns the columns of the given data element for single-pass population,
+     * where values are read from the record of decoded event data values and
+     * organisation units from the joined organisation unit table.
+     *
+     * @param dataElement the {@link DataElement}.
+     * @param withLegendSet whether to return the legend set columns.
+     * @return a list of {@link AnalyticsTableColumn}.
+     */
+    private List<AnalyticsTableColumn> getSinglePassColumnFromDataElement( DataElement dataElement, boolean withLegendSet )
     {
-        if ( valueType.isNumeric() || valueType.isDate() )
+        List<AnalyticsTableColumn> columns = new ArrayList<>();
+
+        String select = getSinglePassSelect( dataElement );
+
+        if ( dataElement.getValueType().isOrganisationUnit() )
         {
-            String regex = valueType.isNumeric() ? NUMERIC_LENIENT_REGEXP : valueType.isDate() ? DATE_REGEXP : "";
+            String alias = getOrgUnitAlias( dataElement );
 
+            if ( databaseInfo.isSpatialSupport() )
+            {
+                String geoColumn = quote( dataElement.getUid() + OU_GEOMETRY_COL_SUFFIX );
+
+                columns.add( new AnalyticsTableColumn( geoColumn, ColumnDataType.GEOMETRY, alias + ".geometry as " + geoColumn )
+                    .withSkipIndex( true ).withIndexType( GEOMETRY_INDEX_TYPE ) );
+            }
+
+            String nameColumn = quote( dataElement.getUid() + OU_NAME_COL_SUFFIX );
+
+            columns.add( new AnalyticsTableColumn( nameColumn, TEXT, alias + ".name as " + nameColumn )
+                .withSkipIndex( true ) );
+
+            select = alias + ".uid";
+        }
+
+        columns.add( new AnalyticsTableColumn( quote( dataElement.getUid() ),
+            getColumnType( dataElement.getValueType(), databaseInfo.isSpatialSupport() ),
+            select + " as " + quote( dataElement.getUid() ) ).withSkipIndex(
+                NO_INDEX_VAL_TYPES.contains( dataElement.getValueType() ) && !dataElement.hasOptionSet() ) );
+
+        return withLegendSet ? getSinglePassColumnFromDataElementWithLegendSet( dataElement, select ) : columns;
+    }
+
+    private List<AnalyticsTableColumn> getSinglePassColumnFromDataElementWithLegendSet( DataElement dataElement, String select )
+    {
+        return dataElement.getLegendSets().stream().map( ls -> {
+            String column = quote( dataElement.getUid() + PartitionUtils.SEP + ls.getUid() );
+
+            String sql =
+                "(select l.uid from maplegend l " +
+                    "where l.maplegendsetid=" + ls.getId() + " " +
+                    "and l.startvalue <= " + select + " " +
+                    "and l.endvalue > " + select + ") as " + column;
+
+            return new AnalyticsTableColumn( column, CHARACTER_11, sql );
+        } ).collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns the select expression of the given data element for single-pass
+     * population. Values of numeric and date data elements which do not match
+     * the value type are selected as null.
+     *
+     * @param dataElement the {@link DataElement}.
+     * @return the select expression.
+     */
+    private String getSinglePassSelect( DataElement dataElement )
+    {
+        String value = getSinglePassValue( dataElement );
+        String select = getSelectClause( dataElement.getValueType(), value );
+        String regex = getDataRegex( dataElement.getValueType() );
+
+        return regex != null ?
+            "case when " + value + " " + statementBuilder.getRegexpMatch() + " '" + regex + "' then " + select + " end" :
+            select;
+    }
+
+    private String getSinglePassValue( DataElement dataElement )
+    {
+        return "(" + EDV_ALIAS + "." + quote( dataElement.getUid() ) + " ->> 'value')";
+    }
+
+    private String getOrgUnitAlias( DataElement dataElement )
+    {
+        return quote( "ou_" + dataElement.getUid() );
+    }
+
+    private String getDataClause( String uid, ValueType valueType )
+    {
+        String regex = getDataRegex( valueType );
+
+        if ( regex != null )
+        {
             return " and eventdatavalues #>> '{" + uid + ",value}' " + statementBuilder.getRegexpMatch() + " '" + regex + "'";
         }
 
         return "";
     }
 
+    /**
+     * Returns the regular expression which values of the given value type must
+     * match, or null if values are not validated.
+     *
+     * @param valueType the {@link ValueType}.
+     * @return a regular expression, or null.
+     */
+    private String getDataRegex( ValueType valueType )
+    {
+        return valueType.isNumeric() ? NUMERIC_LENIENT_REGEXP : valueType.isDate() ? DATE_REGEXP : null;
+    }
+
     private List<Integer> getDataYears( AnalyticsTableUpdateParams params, Program program )
     {
         String sql =
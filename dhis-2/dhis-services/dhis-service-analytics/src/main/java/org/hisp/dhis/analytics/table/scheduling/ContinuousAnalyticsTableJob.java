@@ -31,10 +31,14 @@ package org.hisp.dhis.analytics.table.scheduling;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.hisp.dhis.analytics.AnalyticsTableGenerator;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.commons.collection.CollectionUtils;
 import org.hisp.dhis.scheduling.AbstractJob;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
@@ -44,6 +48,8 @@ import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.ImmutableSet;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -56,6 +62,14 @@ import lombok.extern.slf4j.Slf4j;
  * update time is persisted using a system setting. A full analytics table update is performed
  * when the current time is after the next scheduled full update time. Otherwise, a partial
  * update of the latest analytics partition table is performed.
+ * <p>
+ * When {@link ContinuousAnalyticsJobParameters#isIncrementalUpdate()} is enabled, the data
+ * value analytics table is instead updated incrementally based on the data value change log,
+ * and the event and enrollment analytics tables are updated incrementally based on the events
+ * and enrollments updated since the last successful update of each program. The data value
+ * change log is only captured while incremental update is enabled. It is switched on or off
+ * by the full update, and the data value table is updated incrementally once the first full
+ * update with incremental update enabled has started.
  *
  * @author Lars Helge Overland
  */
@@ -66,6 +80,9 @@ public class ContinuousAnalyticsTableJob
 {
     private static final Integer DEFAULT_HOUR_OF_DAY = 0;
 
+    private static final Set<AnalyticsTableType> INCREMENTAL_TABLE_TYPES = ImmutableSet.of(
+        AnalyticsTableType.DATA_VALUE, AnalyticsTableType.EVENT, AnalyticsTableType.ENROLLMENT );
+
     private final AnalyticsTableGenerator analyticsTableGenerator;
 
     private final SystemSettingManager systemSettingManager;
@@ -101,6 +118,7 @@ public class ContinuousAnalyticsTableJob
 
             AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
                 .withLastYears( parameters.getLastYears() )
+                .withCaptureChangeLog( parameters.isIncrementalUpdate() )
                 .withSkipResourceTables( false )
                 .withSkipTableTypes( parameters.getSkipTableTypes() )
                 .withJobId( jobConfiguration )
@@ -120,12 +138,31 @@ public class ContinuousAnalyticsTableJob
         }
         else
         {
+            Set<AnalyticsTableType> skipTableTypes = new HashSet<>( CollectionUtils.emptyIfNull( parameters.getSkipTableTypes() ) );
+
+            if ( parameters.isIncrementalUpdate() && !skipTableTypes.containsAll( INCREMENTAL_TABLE_TYPES ) )
+            {
+                log.info( "Performing incremental analytics table update" );
+
+                AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+                    .withIncrementalUpdate()
+                    .withSkipResourceTables( true )
+                    .withSkipTableTypes( skipTableTypes )
+                    .withJobId( jobConfiguration )
+                    .withStartTime( now )
+                    .build();
+
+                analyticsTableGenerator.generateTables( params );
+
+                skipTableTypes.addAll( INCREMENTAL_TABLE_TYPES );
+            }
+
             log.info( "Performing latest analytics table partition update" );
 
             AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
                 .withLatestPartition()
                 .withSkipResourceTables( true )
-                .withSkipTableTypes( parameters.getSkipTableTypes() )
+                .withSkipTableTypes( skipTableTypes )
                 .withJobId( jobConfiguration )
                 .withStartTime( now )
                 .build();
@@ -0,0 +1,101 @@
+package org.hisp.dhis.analytics.util;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * Utilities for streaming the result of analytics queries row by row through
+ * a database cursor, so that memory use is independent of the number of rows.
+ */
+public class StreamingQueryUtils
+{
+    /**
+     * Number of rows fetched from the database per round trip.
+     */
+    public static final int FETCH_SIZE = 5000;
+
+    /**
+     * Executes the given SQL query and passes each row of the result to the
+     * given handler. The query is executed with a forward-only result set and
+     * a fetch size, which requires auto-commit to be disabled for PostgreSQL
+     * to use a cursor. Auto-commit is disabled for the duration of the query
+     * if enabled, and restored afterwards.
+     * <p>
+     * The row set passed to the handler is positioned on the current row, and
+     * must not be moved by the handler.
+     *
+     * @param jdbcTemplate the {@link JdbcTemplate}.
+     * @param sql the SQL query.
+     * @param rowHandler the handler of rows.
+     */
+    public static void queryForEach( JdbcTemplate jdbcTemplate, String sql, Consumer<SqlRowSet> rowHandler )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            final boolean autoCommit = connection.getAutoCommit();
+
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            try ( Statement statement = connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( FETCH_SIZE );
+
+                try ( ResultSet resultSet = statement.executeQuery( sql ) )
+                {
+                    SqlRowSet rowSet = new ResultSetWrappingSqlRowSet( resultSet );
+
+                    while ( rowSet.next() )
+                    {
+                        rowHandler.accept( rowSet );
+                    }
+                }
+            }
+            finally
+            {
+                if ( autoCommit )
+                {
+                    connection.rollback();
+                    connection.setAutoCommit( true );
+                }
+            }
+
+            return null;
+        } );
+    }
+}
@@ -0,0 +1,178 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.category.Category;
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AnalyticsRollupTest
+    extends DhisConvenienceTest
+{
+    private DataElement deA;
+
+    private OrganisationUnit ouA;
+
+    private Period peA;
+
+    private CategoryOption coA;
+
+    private Category caA;
+
+    @Before
+    public void setUpTest()
+    {
+        deA = createDataElement( 'A' );
+        ouA = createOrganisationUnit( 'A' );
+        peA = createPeriod( "202001" );
+        coA = createCategoryOption( 'A' );
+        caA = createCategory( 'A', coA );
+    }
+
+    @Test
+    public void testGetRollups()
+    {
+        List<AnalyticsRollup> rollups = AnalyticsRollup.getRollups( "3:Monthly, 2:quarterly,4,0:Monthly,x:Monthly,2:Unknown" );
+
+        assertEquals( 2, rollups.size() );
+        assertEquals( 3, rollups.get( 0 ).getOrgUnitLevel() );
+        assertEquals( new MonthlyPeriodType(), rollups.get( 0 ).getPeriodType() );
+        assertEquals( 2, rollups.get( 1 ).getOrgUnitLevel() );
+        assertEquals( new QuarterlyPeriodType(), rollups.get( 1 ).getPeriodType() );
+    }
+
+    @Test
+    public void testGetRollupsEmpty()
+    {
+        assertTrue( AnalyticsRollup.getRollups( null ).isEmpty() );
+        assertTrue( AnalyticsRollup.getRollups( "" ).isEmpty() );
+    }
+
+    @Test
+    public void testGetTableName()
+    {
+        assertEquals( "analytics_rollup_ou3_monthly", new AnalyticsRollup( 3, new MonthlyPeriodType() ).getTableName() );
+    }
+
+    @Test
+    public void testGetDimensionColumns()
+    {
+        Set<String> columns = new AnalyticsRollup( 2, new MonthlyPeriodType() ).getDimensionColumns();
+
+        assertTrue( columns.contains( "dx" ) );
+        assertTrue( columns.contains( "co" ) );
+        assertTrue( columns.contains( "ao" ) );
+        assertTrue( columns.contains( "uidlevel1" ) );
+        assertTrue( columns.contains( "uidlevel2" ) );
+        assertTrue( columns.contains( "monthly" ) );
+        assertTrue( columns.contains( "quarterly" ) );
+        assertTrue( columns.contains( "yearly" ) );
+        assertTrue( columns.contains( "year" ) );
+        assertFalse( columns.contains( "uidlevel3" ) );
+        assertFalse( columns.contains( "weekly" ) );
+        assertFalse( columns.contains( "daily" ) );
+        assertFalse( columns.contains( "pe" ) );
+        assertFalse( columns.contains( "ou" ) );
+    }
+
+    @Test
+    public void testIsAnswering()
+    {
+        DataQueryParams params = getParams( AnalyticsAggregationType.SUM ).build();
+
+        assertTrue( new AnalyticsRollup( 2, new MonthlyPeriodType() ).isAnswering( params ) );
+        assertTrue( new AnalyticsRollup( 3, new MonthlyPeriodType() ).isAnswering( params ) );
+        assertFalse( new AnalyticsRollup( 1, new MonthlyPeriodType() ).isAnswering( params ) );
+        assertFalse( new AnalyticsRollup( 2, new QuarterlyPeriodType() ).isAnswering( params ) );
+    }
+
+    @Test
+    public void testIsAnsweringAggregationType()
+    {
+        AnalyticsRollup rollup = new AnalyticsRollup( 2, new MonthlyPeriodType() );
+
+        assertTrue( rollup.isAnswering( getParams( new AnalyticsAggregationType(
+            AggregationType.AVERAGE, AggregationType.AVERAGE, DataType.BOOLEAN, false ) ).build() ) );
+        assertFalse( rollup.isAnswering( getParams( new AnalyticsAggregationType(
+            AggregationType.AVERAGE, AggregationType.AVERAGE, DataType.NUMERIC, false ) ).build() ) );
+        assertFalse( rollup.isAnswering( getParams( AnalyticsAggregationType.COUNT ).build() ) );
+        assertFalse( rollup.isAnswering( getParams( AnalyticsAggregationType.LAST ).build() ) );
+        assertFalse( rollup.isAnswering( getParams( AnalyticsAggregationType.SUM ).withDataType( DataType.TEXT ).build() ) );
+    }
+
+    @Test
+    public void testIsAnsweringDynamicDimension()
+    {
+        AnalyticsRollup rollup = new AnalyticsRollup( 2, new MonthlyPeriodType() );
+
+        DataQueryParams params = getParams( AnalyticsAggregationType.SUM )
+            .addFilter( new BaseDimensionalObject( caA.getUid(), DimensionType.CATEGORY, Lists.newArrayList( coA ) ) )
+            .build();
+
+        assertFalse( rollup.isAnswering( params ) );
+    }
+
+    /**
+     * Returns query parameters as grouped by the query planner, with the
+     * organisation unit dimension at level 2 and the period dimension of
+     * monthly period type.
+     */
+    private DataQueryParams.Builder getParams( AnalyticsAggregationType aggregationType )
+    {
+        return DataQueryParams.newBuilder()
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X, Lists.newArrayList( deA ) ) )
+            .addDimension( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT,
+                DataQueryParams.LEVEL_PREFIX + 2, null, Lists.newArrayList( ouA ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD,
+                "monthly", null, Lists.newArrayList( peA ) ) )
+            .withAggregationType( aggregationType )
+            .withDataType( DataType.NUMERIC );
+    }
+}
@@ -0,0 +1,88 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class AnalyticsTableChunkTest
+{
+    @Test
+    public void testGetChunks()
+    {
+        List<AnalyticsTableChunk> chunks = AnalyticsTableChunk.getChunks( null, 4, 1L, 100L );
+
+        assertEquals( 4, chunks.size() );
+        assertEquals( Long.valueOf( 1L ), chunks.get( 0 ).getLowerBound() );
+        assertEquals( Long.valueOf( 26L ), chunks.get( 0 ).getUpperBound() );
+        assertEquals( Long.valueOf( 76L ), chunks.get( 3 ).getLowerBound() );
+        assertEquals( Long.valueOf( 101L ), chunks.get( 3 ).getUpperBound() );
+        assertEquals( 4, chunks.get( 3 ).getChunks() );
+        assertEquals( "and dv.dataelementid >= 26 and dv.dataelementid < 51 ", chunks.get( 1 ).getChunkClause( "dv.dataelementid" ) );
+    }
+
+    @Test
+    public void testGetChunksNarrowRange()
+    {
+        List<AnalyticsTableChunk> chunks = AnalyticsTableChunk.getChunks( null, 8, 10L, 12L );
+
+        assertEquals( 3, chunks.size() );
+        assertEquals( Long.valueOf( 12L ), chunks.get( 2 ).getLowerBound() );
+        assertEquals( Long.valueOf( 13L ), chunks.get( 2 ).getUpperBound() );
+    }
+
+    @Test
+    public void testGetChunksEmptyPartition()
+    {
+        List<AnalyticsTableChunk> chunks = AnalyticsTableChunk.getChunks( null, 4, null, null );
+
+        assertEquals( 1, chunks.size() );
+        assertFalse( chunks.get( 0 ).isChunked() );
+        assertEquals( "", chunks.get( 0 ).getChunkClause( "dv.dataelementid" ) );
+    }
+
+    @Test
+    public void testGetChunksContiguous()
+    {
+        List<AnalyticsTableChunk> chunks = AnalyticsTableChunk.getChunks( null, 7, 3L, 1000L );
+
+        for ( int i = 1; i < chunks.size(); i++ )
+        {
+            assertEquals( chunks.get( i - 1 ).getUpperBound(), chunks.get( i ).getLowerBound() );
+            assertTrue( chunks.get( i ).isChunked() );
+        }
+
+        assertEquals( Long.valueOf( 1001L ), chunks.get( chunks.size() - 1 ).getUpperBound() );
+    }
+}
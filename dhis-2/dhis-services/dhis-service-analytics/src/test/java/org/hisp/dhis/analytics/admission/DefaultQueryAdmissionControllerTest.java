@@ -0,0 +1,145 @@
+package org.hisp.dhis.analytics.admission;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_ADMISSION_ENABLED;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_ADMISSION_TIMEOUT;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_COST_BUDGET;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_QUERY_COST_MAX;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.analytics.QueryCost;
+import org.hisp.dhis.analytics.admission.QueryAdmission.Decision;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.feedback.ErrorCode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultQueryAdmissionControllerTest
+{
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DefaultQueryAdmissionController subject;
+
+    @Before
+    public void setUp()
+    {
+        when( config.isEnabled( ANALYTICS_QUERY_ADMISSION_ENABLED ) ).thenReturn( true );
+        when( config.getProperty( ANALYTICS_QUERY_ADMISSION_TIMEOUT ) ).thenReturn( "0" );
+        when( config.getProperty( ANALYTICS_QUERY_COST_BUDGET ) ).thenReturn( "1000000" );
+        when( config.getProperty( ANALYTICS_QUERY_COST_MAX ) ).thenReturn( "5000000" );
+
+        subject = new DefaultQueryAdmissionController( config );
+    }
+
+    @Test
+    public void testGetPermits()
+    {
+        assertEquals( 1, subject.getPermits( QueryCost.NONE ) );
+        assertEquals( 1, subject.getPermits( new QueryCost( 10_000, 1 ) ) );
+        assertEquals( 2, subject.getPermits( new QueryCost( 10_001, 1 ) ) );
+        assertEquals( 100, subject.getPermits( new QueryCost( 3_000_000, 1 ) ) );
+    }
+
+    @Test
+    public void testAdmitAndRelease()
+    {
+        try ( QueryAdmission admission = subject.admit( new QueryCost( 500_000, 1 ) ) )
+        {
+            assertEquals( Decision.ADMITTED, admission.getDecision() );
+            assertEquals( 50, admission.getPermits() );
+            assertEquals( 0.5, subject.getUsedBudgetRatio(), 0.001 );
+        }
+
+        assertEquals( 0, subject.getUsedBudgetRatio(), 0.001 );
+        assertEquals( 1, subject.getDecisionCount( Decision.ADMITTED ) );
+        assertEquals( 500_000, subject.getEstimatedRowsTotal() );
+    }
+
+    @Test
+    public void testRejectWhenBudgetExhausted()
+    {
+        try ( QueryAdmission admission = subject.admit( new QueryCost( 800_000, 1 ) ) )
+        {
+            subject.admit( new QueryCost( 300_000, 1 ) );
+
+            fail( "Query should be rejected" );
+        }
+        catch ( IllegalQueryException ex )
+        {
+            assertEquals( ErrorCode.E7135, ex.getErrorCode() );
+        }
+
+        assertEquals( 1, subject.getDecisionCount( Decision.ADMITTED ) );
+        assertEquals( 1, subject.getDecisionCount( Decision.REJECTED ) );
+        assertEquals( 0, subject.getUsedBudgetRatio(), 0.001 );
+    }
+
+    @Test
+    public void testRejectWhenCostExceedsMax()
+    {
+        try
+        {
+            subject.admit( new QueryCost( 6_000_000, 1 ) );
+
+            fail( "Query should be rejected" );
+        }
+        catch ( IllegalQueryException ex )
+        {
+            assertEquals( ErrorCode.E7134, ex.getErrorCode() );
+        }
+
+        assertEquals( 1, subject.getDecisionCount( Decision.REJECTED ) );
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        when( config.isEnabled( ANALYTICS_QUERY_ADMISSION_ENABLED ) ).thenReturn( false );
+
+        subject = new DefaultQueryAdmissionController( config );
+
+        try ( QueryAdmission admission = subject.admit( new QueryCost( 6_000_000, 1 ) ) )
+        {
+            assertEquals( Decision.UNCONTROLLED, admission.getDecision() );
+            assertEquals( 0, subject.getUsedBudgetRatio(), 0.001 );
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.dhis.analytics.cache;
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.analytics.AnalyticsTableType.DATA_VALUE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.mockito.junit.MockitoJUnit.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.ExtendedCacheBuilder;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.common.DisplayProperty;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class AnalyticsCacheTest
+{
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private AnalyticsCacheSettings analyticsCacheSettings;
+
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    @Rule
+    public MockitoRule mockitoRule = rule();
+
+    private AnalyticsCache analyticsCache;
+
+    @Before
+    public void setUp()
+    {
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+        when( analyticsCacheSettings.fixedExpirationTimeOrDefault() ).thenReturn( 60L );
+        when( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ) ).thenReturn( "false" );
+        when( cacheProvider.newCacheBuilder( Grid.class ) ).thenReturn( new SimpleCacheBuilder<>() );
+        when( cacheProvider.newCacheBuilder( String.class, Object.class ) )
+            .thenReturn( new ExtendedCacheBuilder<>( null, configurationProvider ) );
+
+        analyticsCache = new AnalyticsCache( cacheProvider, environment, analyticsCacheSettings );
+        analyticsCache.init();
+    }
+
+    @Test
+    public void testSubQueryMissAndHit()
+    {
+        DataQueryParams params = getParams( 2019 );
+
+        Map<String, Object> values = new HashMap<>();
+        values.put( "deabcdefghA-201901", 3d );
+
+        assertFalse( analyticsCache.getSubQuery( params, DATA_VALUE, 0 ).isPresent() );
+
+        analyticsCache.putSubQuery( params, DATA_VALUE, 0, values );
+
+        assertEquals( values, analyticsCache.getSubQuery( params, DATA_VALUE, 0 ).get() );
+
+        assertEquals( 1, analyticsCache.getHitCount( AnalyticsCacheTier.SUB_QUERY ) );
+        assertEquals( 1, analyticsCache.getMissCount( AnalyticsCacheTier.SUB_QUERY ) );
+        assertEquals( 0, analyticsCache.getHitCount( AnalyticsCacheTier.RESPONSE ) );
+        assertEquals( 0, analyticsCache.getMissCount( AnalyticsCacheTier.RESPONSE ) );
+    }
+
+    @Test
+    public void testSubQueryKeyIncludesPartitions()
+    {
+        assertEquals( analyticsCache.getSubQueryKey( getParams( 2019 ), DATA_VALUE, 0 ),
+            analyticsCache.getSubQueryKey( getParams( 2019 ), DATA_VALUE, 0 ) );
+        assertNotEquals( analyticsCache.getSubQueryKey( getParams( 2019 ), DATA_VALUE, 0 ),
+            analyticsCache.getSubQueryKey( getParams( 2020 ), DATA_VALUE, 0 ) );
+    }
+
+    @Test
+    public void testSubQueryKeyIgnoresRequestOptions()
+    {
+        DataQueryParams paramsA = DataQueryParams.newBuilder( getParams( 2019 ) )
+            .withDisplayProperty( DisplayProperty.NAME )
+            .withHideEmptyRows( false ).build();
+        DataQueryParams paramsB = DataQueryParams.newBuilder( getParams( 2019 ) )
+            .withDisplayProperty( DisplayProperty.SHORTNAME )
+            .withHideEmptyRows( true ).build();
+
+        assertNotEquals( paramsA.getKey(), paramsB.getKey() );
+        assertEquals( analyticsCache.getSubQueryKey( paramsA, DATA_VALUE, 0 ),
+            analyticsCache.getSubQueryKey( paramsB, DATA_VALUE, 0 ) );
+    }
+
+    @Test
+    public void testSubQueryKeyIncludesDimensions()
+    {
+        DataQueryParams paramsA = getParams( 2019 );
+        DataQueryParams paramsB = DataQueryParams.newBuilder( getParams( 2019 ) )
+            .withDataElements( Lists.newArrayList( createDataElement( 'B' ) ) ).build();
+
+        assertNotEquals( analyticsCache.getSubQueryKey( paramsA, DATA_VALUE, 0 ),
+            analyticsCache.getSubQueryKey( paramsB, DATA_VALUE, 0 ) );
+    }
+
+    @Test
+    public void testInvalidateAllClearsSubQueries()
+    {
+        DataQueryParams params = getParams( 2019 );
+
+        analyticsCache.putSubQuery( params, DATA_VALUE, 0, new HashMap<>() );
+
+        assertTrue( analyticsCache.getSubQuery( params, DATA_VALUE, 0 ).isPresent() );
+
+        analyticsCache.invalidateAll();
+
+        assertFalse( analyticsCache.getSubQuery( params, DATA_VALUE, 0 ).isPresent() );
+    }
+
+    private DataQueryParams getParams( int partition )
+    {
+        return DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( createDataElement( 'A' ) ) )
+            .withTableName( "analytics" )
+            .withPartitions( new Partitions( Sets.newHashSet( partition ) ) )
+            .build();
+    }
+}
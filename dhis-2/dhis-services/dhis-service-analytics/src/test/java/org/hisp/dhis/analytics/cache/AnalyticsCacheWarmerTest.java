@@ -0,0 +1,207 @@
+package org.hisp.dhis.analytics.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.DhisConvenienceTest.createVisualization;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_CACHE_WARMUP_ENABLED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.DataQueryService;
+import org.hisp.dhis.analytics.data.handling.DataAggregator;
+import org.hisp.dhis.common.DataQueryRequest;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dashboard.Dashboard;
+import org.hisp.dhis.dashboard.DashboardItem;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.hisp.dhis.visualization.Visualization;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class AnalyticsCacheWarmerTest
+{
+    @Mock
+    private AnalyticsCache analyticsCache;
+
+    @Mock
+    private DataAggregator dataAggregator;
+
+    @Mock
+    private DataQueryService dataQueryService;
+
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private AnalyticsCacheWarmer subject;
+
+    private DataQueryParams paramsA;
+
+    private DataQueryParams paramsB;
+
+    private DataQueryParams paramsC;
+
+    @Before
+    public void setUp()
+    {
+        when( analyticsCache.isEnabled() ).thenReturn( true );
+        when( config.isEnabled( ANALYTICS_CACHE_WARMUP_ENABLED ) ).thenReturn( true );
+
+        paramsA = createParams( 'A' );
+        paramsB = createParams( 'B' );
+        paramsC = createParams( 'C' );
+
+        subject = new AnalyticsCacheWarmer( analyticsCache, dataAggregator, dataQueryService, idObjectManager,
+            transactionTemplate, config );
+    }
+
+    @Test
+    public void testGetWarmUpQueriesByFrequency()
+    {
+        subject.recordQuery( paramsB );
+        subject.recordQuery( paramsA );
+        subject.recordQuery( paramsA );
+        subject.recordQuery( paramsA );
+        subject.recordQuery( paramsB );
+        subject.recordQuery( paramsC );
+
+        assertEquals( Lists.newArrayList( "deabcdefghA", "deabcdefghB", "deabcdefghC" ),
+            getDataItems( subject.getWarmUpQueries( 10 ) ) );
+        assertEquals( Lists.newArrayList( "deabcdefghA" ), getDataItems( subject.getWarmUpQueries( 1 ) ) );
+    }
+
+    @Test
+    public void testGetWarmUpQueriesWithDashboards()
+    {
+        Visualization visualization = createVisualization( 'A' );
+
+        DashboardItem item = new DashboardItem();
+        item.setVisualization( visualization );
+
+        Dashboard dashboard = new Dashboard( "Dashboard" );
+        dashboard.setItems( Lists.newArrayList( item ) );
+
+        when( idObjectManager.getAllNoAcl( Dashboard.class ) ).thenReturn( Lists.newArrayList( dashboard ) );
+        when( dataQueryService.getFromAnalyticalObject( visualization ) ).thenReturn( paramsC );
+
+        subject.recordQuery( paramsA );
+
+        assertEquals( Lists.newArrayList( "deabcdefghA", "deabcdefghC" ), getDataItems( subject.getWarmUpQueries( 10 ) ) );
+    }
+
+    @Test
+    public void testWarmUp()
+    {
+        Grid grid = new ListGrid();
+
+        when( dataAggregator.getAggregatedDataValueGrid( any( DataQueryParams.class ) ) ).thenReturn( grid );
+        when( dataQueryService.getFromRequest( any( DataQueryRequest.class ) ) ).thenReturn( paramsA, paramsB );
+        when( transactionTemplate.execute( any() ) ).thenAnswer(
+            invocation -> invocation.<TransactionCallback<?>> getArgument( 0 ).doInTransaction( null ) );
+
+        subject.recordQuery( paramsA );
+        subject.recordQuery( paramsB );
+
+        assertEquals( 2, subject.warmUp() );
+
+        verify( transactionTemplate, times( 2 ) ).execute( any() );
+        verify( analyticsCache ).put( paramsA, grid );
+        verify( analyticsCache ).put( paramsB, grid );
+    }
+
+    @Test
+    public void testGetRequest()
+    {
+        DataQueryRequest request = AnalyticsCacheWarmer.getRequest( paramsA );
+
+        assertEquals( Sets.newHashSet( "dx:deabcdefghA", "ou:ouabcdefghA" ), request.getDimension() );
+        assertTrue( request.getFilter().isEmpty() );
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        when( config.isEnabled( ANALYTICS_CACHE_WARMUP_ENABLED ) ).thenReturn( false );
+
+        subject.recordQuery( paramsA );
+
+        assertEquals( 0, subject.warmUp() );
+
+        List<DataQueryRequest> queries = subject.getWarmUpQueries( 10 );
+
+        assertTrue( queries.isEmpty() );
+    }
+
+    private List<String> getDataItems( List<DataQueryRequest> requests )
+    {
+        return requests.stream()
+            .flatMap( request -> request.getDimension().stream() )
+            .filter( dimension -> dimension.startsWith( "dx:" ) )
+            .map( dimension -> dimension.substring( 3 ) )
+            .collect( Collectors.toList() );
+    }
+
+    private DataQueryParams createParams( char uniqueCharacter )
+    {
+        return DataQueryParams.newBuilder()
+            .withDataElements( getList( createDataElement( uniqueCharacter ) ) )
+            .withOrganisationUnits( getList( createOrganisationUnit( uniqueCharacter ) ) )
+            .build();
+    }
+}
@@ -40,6 +40,7 @@ import org.hisp.dhis.analytics.DataQueryService;
 import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.RawAnalyticsManager;
+import org.hisp.dhis.analytics.admission.QueryAdmissionController;
 import org.hisp.dhis.analytics.cache.AnalyticsCache;
 import org.hisp.dhis.analytics.cache.AnalyticsCacheSettings;
 import org.hisp.dhis.analytics.data.handling.DataAggregator;
@@ -109,6 +110,9 @@ public abstract class AnalyticsServiceBaseTest
     @Mock
     private ExpressionResolver resolver;
 
+    @Mock
+    private QueryAdmissionController admissionController;
+
     @Mock
     private NestedIndicatorCyclicDependencyInspector nestedIndicatorCyclicDependencyInspector;
 
@@ -124,9 +128,9 @@ public abstract class AnalyticsServiceBaseTest
         MetadataHandler metadataHandler = new MetadataHandler( dataQueryService );
         DataHandler dataHandler = new DataHandler( eventAnalyticsService, rawAnalyticsManager, constantService,
             resolver, expressionService, queryPlanner, queryValidator, systemSettingManager, analyticsManager,
-            organisationUnitService );
+            organisationUnitService, analyticsCache, admissionController );
 
-        target = new DataAggregator( headerHandler, metadataHandler, dataHandler );
+        target = new DataAggregator( headerHandler, metadataHandler, dataHandler, dhisConfig );
         target.feedHandlers();
 
         when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_MAINTENANCE_MODE ) ).thenReturn( false );
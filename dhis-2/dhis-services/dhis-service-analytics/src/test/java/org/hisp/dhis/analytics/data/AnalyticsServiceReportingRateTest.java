@@ -279,6 +279,67 @@ public class AnalyticsServiceReportingRateTest
         Grid grid = target.getAggregatedDataValueGrid( params );
         assertReportingRatesGrid( grid, dataSetA, "201901" );
     }
+
+    @Test
+    public void verifyReportingRatesOfAllMetricsAreComputedFromSingleTargetQuery()
+    {
+        DataSet dataSetA = createDataSet( 'A' );
+
+        List<DimensionalItemObject> reportingRates = new ArrayList<>();
+
+        for ( ReportingRateMetric metric : ReportingRateMetric.values() )
+        {
+            reportingRates.add( new ReportingRate( dataSetA, metric ) );
+        }
+
+        List<DimensionalItemObject> periods = new ArrayList<>();
+        periods.add( PeriodType.getPeriodFromIsoString( "201901" ) );
+
+        OrganisationUnit ou = new OrganisationUnit( "aaaa" );
+
+        DataQueryParams params = DataQueryParams.newBuilder().withOrganisationUnit( ou )
+            .withDataElements( reportingRates ).withIgnoreLimit( true )
+            .withFilters( singletonList( new BaseDimensionalObject( "pe", DimensionType.PERIOD, periods ) ) )
+            .build();
+
+        initMock( params );
+
+        Map<String, Object> targets = new HashMap<>();
+        targets.put( dataSetA.getUid() + "-" + ou.getUid(), 100D );
+
+        Map<String, Object> actuals = new HashMap<>();
+        actuals.put( dataSetA.getUid() + "-" + ou.getUid(), 50D );
+
+        when( analyticsManager.getAggregatedDataValues( any( DataQueryParams.class ),
+            eq( AnalyticsTableType.COMPLETENESS_TARGET ), eq( 0 ) ) )
+                .thenReturn( CompletableFuture.completedFuture( targets ) );
+
+        when( analyticsManager.getAggregatedDataValues( any( DataQueryParams.class ),
+            eq( AnalyticsTableType.COMPLETENESS ), eq( 0 ) ) )
+                .thenReturn( CompletableFuture.completedFuture( actuals ) );
+
+        Grid grid = target.getAggregatedDataValueGrid( params );
+
+        assertThat( grid.getRows(), hasSize( 5 ) );
+        assertEquals( 50D,
+            getValueFromGrid( grid.getRows(), makeKey( dataSetA, ReportingRateMetric.REPORTING_RATE ) ).get(), 0 );
+        assertEquals( 50D,
+            getValueFromGrid( grid.getRows(), makeKey( dataSetA, ReportingRateMetric.REPORTING_RATE_ON_TIME ) ).get(), 0 );
+        assertEquals( 50D,
+            getValueFromGrid( grid.getRows(), makeKey( dataSetA, ReportingRateMetric.ACTUAL_REPORTS ) ).get(), 0 );
+        assertEquals( 50D,
+            getValueFromGrid( grid.getRows(), makeKey( dataSetA, ReportingRateMetric.ACTUAL_REPORTS_ON_TIME ) ).get(), 0 );
+        assertEquals( 100D,
+            getValueFromGrid( grid.getRows(), makeKey( dataSetA, ReportingRateMetric.EXPECTED_REPORTS ) ).get(), 0 );
+
+        // One target query for all metrics, one actual query for all reports and
+        // one for reports on time
+
+        verify( analyticsManager, times( 1 ) ).getAggregatedDataValues( any( DataQueryParams.class ),
+            eq( AnalyticsTableType.COMPLETENESS_TARGET ), eq( 0 ) );
+        verify( analyticsManager, times( 2 ) ).getAggregatedDataValues( any( DataQueryParams.class ),
+            eq( AnalyticsTableType.COMPLETENESS ), eq( 0 ) );
+    }
     
     private void assertReportingRatesGrid( Grid grid, DataSet dataset, String period )
     {
@@ -40,6 +40,7 @@ import java.util.List;
 
 import org.hisp.dhis.analytics.*;
 import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.partition.PartitionStatistics;
 import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
@@ -72,13 +73,19 @@ public class DefaultQueryPlannerGroupByAggregationTypeTest
     @Mock
     private PartitionManager partitionManager;
 
+    @Mock
+    private AnalyticsRollupManager rollupManager;
+
+    @Mock
+    private QueryCostEstimator costEstimator;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
     @Before
     public void setUp()
     {
-        subject = new DefaultQueryPlanner( queryValidator, partitionManager );
+        subject = new DefaultQueryPlanner( queryValidator, partitionManager, rollupManager, costEstimator, new PartitionStatistics() );
     }
 
     @Test
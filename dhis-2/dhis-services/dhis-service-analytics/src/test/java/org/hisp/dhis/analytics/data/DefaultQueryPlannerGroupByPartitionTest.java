@@ -0,0 +1,217 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryGroups;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.analytics.QueryCostEstimator;
+import org.hisp.dhis.analytics.QueryPlannerParams;
+import org.hisp.dhis.analytics.QueryValidator;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.partition.PartitionStatistics;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Sets;
+
+public class DefaultQueryPlannerGroupByPartitionTest
+{
+    @Mock
+    private QueryValidator queryValidator;
+
+    @Mock
+    private PartitionManager partitionManager;
+
+    @Mock
+    private AnalyticsRollupManager rollupManager;
+
+    @Mock
+    private QueryCostEstimator costEstimator;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private PartitionStatistics partitionStatistics;
+
+    private DefaultQueryPlanner subject;
+
+    private QueryPlannerParams plannerParams;
+
+    private Set<String> tables;
+
+    @Before
+    public void setUp()
+    {
+        tables = Sets.newHashSet( "analytics", "analytics_2018", "analytics_2019", "analytics_2020", "analytics_event_2019" );
+
+        when( partitionManager.getAnalyticsPartitions( AnalyticsTableType.DATA_VALUE ) ).thenReturn( tables );
+
+        doAnswer( invocation -> {
+            Partitions partitions = invocation.getArgument( 0 );
+            partitions.setPartitions( partitions.getPartitions().stream()
+                .filter( partition -> tables.contains( "analytics_" + partition ) )
+                .collect( Collectors.toSet() ) );
+            return null;
+        } ).when( partitionManager ).filterNonExistingPartitions( any( Partitions.class ), anyString() );
+
+        partitionStatistics = new PartitionStatistics();
+
+        subject = new DefaultQueryPlanner( queryValidator, partitionManager, rollupManager, costEstimator, partitionStatistics );
+
+        plannerParams = QueryPlannerParams.newBuilder()
+            .withOptimalQueries( 1 )
+            .withTableType( AnalyticsTableType.DATA_VALUE ).build();
+    }
+
+    @Test
+    public void testGroupByPartition()
+    {
+        DataQueryParams params = createParams( AggregationType.SUM, "201911", "201912", "202001" ).build();
+
+        DataQueryGroups queryGroups = subject.planQuery( params, plannerParams );
+
+        assertEquals( 2, queryGroups.getAllQueries().size() );
+
+        Map<Integer, List<String>> partitionPeriods = queryGroups.getAllQueries().stream()
+            .collect( Collectors.toMap( query -> query.getPartitions().getAny(), this::getPeriodIds ) );
+
+        assertEquals( Sets.newHashSet( "201911", "201912" ), Sets.newHashSet( partitionPeriods.get( 2019 ) ) );
+        assertEquals( Sets.newHashSet( "202001" ), Sets.newHashSet( partitionPeriods.get( 2020 ) ) );
+
+        queryGroups.getAllQueries().forEach( query -> assertTrue( query.getPartitions().hasOne() ) );
+
+        assertEquals( 2, queryGroups.getPartitionsScanned() );
+        assertEquals( 1, queryGroups.getPartitionsPruned() );
+        assertEquals( 2, partitionStatistics.getScannedCount() );
+        assertEquals( 1, partitionStatistics.getPrunedCount() );
+    }
+
+    @Test
+    public void testGroupByPartitionWithLatestPartition()
+    {
+        tables.add( "analytics_0" );
+
+        DataQueryParams params = createParams( AggregationType.SUM, "201711", "201912", "202001" ).build();
+
+        DataQueryGroups queryGroups = subject.planQuery( params, plannerParams );
+
+        assertEquals( 3, queryGroups.getAllQueries().size() );
+
+        Map<Set<Integer>, List<String>> partitionPeriods = queryGroups.getAllQueries().stream()
+            .collect( Collectors.toMap( query -> query.getPartitions().getPartitions(), this::getPeriodIds ) );
+
+        assertEquals( Sets.newHashSet( "201912" ), Sets.newHashSet( partitionPeriods.get( Sets.newHashSet( 2019, 0 ) ) ) );
+        assertEquals( Sets.newHashSet( "202001" ), Sets.newHashSet( partitionPeriods.get( Sets.newHashSet( 2020, 0 ) ) ) );
+        assertEquals( Sets.newHashSet( "201711" ), Sets.newHashSet( partitionPeriods.get( Sets.newHashSet( 0 ) ) ) );
+
+        assertEquals( 2, queryGroups.getPartitionsScanned() );
+        assertEquals( 1, queryGroups.getPartitionsPruned() );
+    }
+
+    @Test
+    public void testNoGroupByPartitionForPeriodFilter()
+    {
+        DataQueryParams params = DataQueryParams.newBuilder()
+            .withDataElements( getList( createDataElement( 'A', ValueType.INTEGER, AggregationType.SUM ) ) )
+            .withOrganisationUnits( getList( createOrganisationUnit( 'A' ) ) )
+            .withFilterPeriods( getList( PeriodType.getPeriodFromIsoString( "201912" ), PeriodType.getPeriodFromIsoString( "202001" ) ) )
+            .withAggregationType( AnalyticsAggregationType.SUM ).build();
+
+        DataQueryGroups queryGroups = subject.planQuery( params, plannerParams );
+
+        assertEquals( 1, queryGroups.getAllQueries().size() );
+        assertTrue( queryGroups.getAllQueries().get( 0 ).getPartitions().hasMultiple() );
+        assertEquals( 2, queryGroups.getPartitionsScanned() );
+    }
+
+    @Test
+    public void testNoGroupByPartitionForPeriodSpanningYears()
+    {
+        DataQueryParams params = createParams( AggregationType.SUM, "2020W1", "2020W2" ).build();
+
+        DataQueryGroups queryGroups = subject.planQuery( params, plannerParams );
+
+        assertEquals( 1, queryGroups.getAllQueries().size() );
+        assertTrue( queryGroups.getAllQueries().get( 0 ).getPartitions().hasMultiple() );
+    }
+
+    private DataQueryParams.Builder createParams( AggregationType aggregationType, String... periods )
+    {
+        List<DimensionalItemObject> periodList = Sets.newHashSet( periods ).stream()
+            .map( PeriodType::getPeriodFromIsoString )
+            .collect( Collectors.toList() );
+
+        return DataQueryParams.newBuilder()
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X,
+                getList( createDataElement( 'A', ValueType.INTEGER, aggregationType ) ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, periodList ) )
+            .addFilter( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT,
+                getList( createOrganisationUnit( 'A' ) ) ) )
+            .withAggregationType( AnalyticsAggregationType.fromAggregationType( aggregationType ) );
+    }
+
+    private List<String> getPeriodIds( DataQueryParams params )
+    {
+        return params.getPeriods().stream()
+            .map( DimensionalItemObject::getDimensionItem )
+            .collect( Collectors.toList() );
+    }
+}
@@ -37,6 +37,7 @@ import static org.mockito.Mockito.when;
 
 import org.hisp.dhis.analytics.*;
 import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.partition.PartitionStatistics;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.ValueType;
@@ -70,6 +71,12 @@ public class JdbcAnalyticsManagerTest
     @Mock
     private PartitionManager partitionManager;
 
+    @Mock
+    private AnalyticsRollupManager rollupManager;
+
+    @Mock
+    private QueryCostEstimator costEstimator;
+
     @Mock
     private JdbcTemplate jdbcTemplate;
 
@@ -89,7 +96,7 @@ public class JdbcAnalyticsManagerTest
     {
         QueryPlanner queryPlanner = new DefaultQueryPlanner(
             new DefaultQueryValidator( this.systemSettingManager, nestedIndicatorCyclicDependencyInspector ),
-            partitionManager );
+            partitionManager, rollupManager, costEstimator, new PartitionStatistics() );
 
         mockRowSet();
 
@@ -0,0 +1,179 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.analytics.QueryCost;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class JdbcQueryCostEstimatorTest
+{
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private JdbcQueryCostEstimator subject;
+
+    @Before
+    public void setUp()
+    {
+        when( jdbcTemplate.queryForRowSet( anyString() ) ).thenAnswer( invocation -> mockRowSet(
+            "relname", "reltuples", new String[] { "analytics_2019", "analytics_2020" }, 1_000_000d, 2_000_000d ) );
+
+        when( jdbcTemplate.queryForRowSet( anyString(), eq( "analytics_2019" ) ) ).thenAnswer( invocation -> mockRowSet(
+            "attname", "n_distinct", new String[] { "dx", "ou" }, 100d, 1_000d ) );
+
+        when( jdbcTemplate.queryForRowSet( anyString(), eq( "analytics_2020" ) ) ).thenAnswer( invocation -> mockRowSet(
+            "attname", "n_distinct", new String[] { "dx", "ou" }, 100d, -0.0005d ) );
+
+        when( jdbcTemplate.queryForRowSet( anyString(), eq( "analytics" ) ) ).thenAnswer( invocation -> mock( SqlRowSet.class ) );
+
+        subject = new JdbcQueryCostEstimator( jdbcTemplate );
+    }
+
+    @Test
+    public void testEstimatePartitions()
+    {
+        DataQueryParams params = createParams( "analytics", new Partitions( Sets.newHashSet( 2019, 2020 ) ), false );
+
+        QueryCost cost = subject.estimate( Lists.newArrayList( params ) );
+
+        // 2019: 1M rows * 2/100 dx * 1/1000 ou, 2020: 2M rows * 2/100 dx * 1/1000 ou
+
+        assertEquals( 60, cost.getEstimatedRows() );
+        assertEquals( 2, cost.getEstimatedCells() );
+    }
+
+    @Test
+    public void testEstimateSkipPartitioning()
+    {
+        DataQueryParams params = createParams( "analytics", new Partitions( Sets.newHashSet( 2019, 2020 ) ), true );
+
+        QueryCost cost = subject.estimate( Lists.newArrayList( params ) );
+
+        // Master table without statistics is the sum of partitions
+
+        assertEquals( 3_000_000, cost.getEstimatedRows() );
+    }
+
+    @Test
+    public void testEstimateMultipleQueries()
+    {
+        DataQueryParams paramsA = createParams( "analytics", new Partitions( Sets.newHashSet( 2019 ) ), false );
+        DataQueryParams paramsB = createParams( "analytics", new Partitions( Sets.newHashSet( 2020 ) ), false );
+
+        QueryCost cost = subject.estimate( Lists.newArrayList( paramsA, paramsB ) );
+
+        assertEquals( 60, cost.getEstimatedRows() );
+        assertEquals( 4, cost.getEstimatedCells() );
+    }
+
+    @Test
+    public void testStatisticsCachedUntilCleared()
+    {
+        DataQueryParams params = createParams( "analytics", new Partitions( Sets.newHashSet( 2019 ) ), false );
+
+        subject.estimate( Lists.newArrayList( params ) );
+        subject.estimate( Lists.newArrayList( params ) );
+
+        verify( jdbcTemplate, times( 1 ) ).queryForRowSet( anyString() );
+        verify( jdbcTemplate, times( 1 ) ).queryForRowSet( anyString(), eq( "analytics_2019" ) );
+
+        subject.handleApplicationCachesCleared( new ApplicationCacheClearedEvent() );
+        subject.estimate( Lists.newArrayList( params ) );
+
+        verify( jdbcTemplate, times( 2 ) ).queryForRowSet( anyString() );
+        verify( jdbcTemplate, times( 2 ) ).queryForRowSet( anyString(), eq( "analytics_2019" ) );
+    }
+
+    private DataQueryParams createParams( String tableName, Partitions partitions, boolean skipPartitioning )
+    {
+        return DataQueryParams.newBuilder()
+            .withTableName( tableName )
+            .withPartitions( partitions )
+            .withSkipPartitioning( skipPartitioning )
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X,
+                getList( createDataElement( 'A' ), createDataElement( 'B' ) ) ) )
+            .addFilter( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT,
+                getList( createOrganisationUnit( 'A' ) ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD,
+                getList( PeriodType.getPeriodFromIsoString( "201901" ) ) ) )
+            .build();
+    }
+
+    private SqlRowSet mockRowSet( String nameColumn, String valueColumn, String[] names, Double... values )
+    {
+        SqlRowSet rowSet = mock( SqlRowSet.class );
+
+        Boolean[] next = new Boolean[names.length];
+        Arrays.fill( next, true );
+        next[next.length - 1] = false;
+
+        when( rowSet.next() ).thenReturn( true, next );
+        when( rowSet.getString( nameColumn ) ).thenReturn( names[0], Arrays.copyOfRange( names, 1, names.length ) );
+        when( rowSet.getDouble( valueColumn ) ).thenReturn( values[0], Arrays.copyOfRange( values, 1, values.length ) );
+        when( rowSet.getLong( valueColumn ) ).thenReturn( values[0].longValue(),
+            Arrays.stream( values ).skip( 1 ).map( Double::longValue ).toArray( Long[]::new ) );
+
+        return rowSet;
+    }
+}
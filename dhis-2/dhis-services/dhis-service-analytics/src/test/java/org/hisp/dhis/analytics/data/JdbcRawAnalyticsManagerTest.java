@@ -0,0 +1,134 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.util.StreamingQueryUtils;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+public class JdbcRawAnalyticsManagerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private ResultSetMetaData metaData;
+
+    private JdbcRawAnalyticsManager subject;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        doAnswer( invocation -> ((ConnectionCallback<?>) invocation.getArgument( 0 )).doInConnection( connection ) )
+            .when( jdbcTemplate ).execute( any( ConnectionCallback.class ) );
+
+        when( connection.getAutoCommit() ).thenReturn( true );
+        when( connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) ).thenReturn( statement );
+        when( statement.executeQuery( anyString() ) ).thenReturn( resultSet );
+        when( resultSet.getMetaData() ).thenReturn( metaData );
+        when( metaData.getColumnCount() ).thenReturn( 3 );
+        when( metaData.getColumnLabel( 1 ) ).thenReturn( "dx" );
+        when( metaData.getColumnLabel( 2 ) ).thenReturn( "path" );
+        when( metaData.getColumnLabel( 3 ) ).thenReturn( "value" );
+        when( resultSet.next() ).thenReturn( true, true, false );
+        when( resultSet.getString( 1 ) ).thenReturn( "deabcdefghA", "deabcdefghB" );
+        when( resultSet.getDouble( 3 ) ).thenReturn( 3d, 4d );
+
+        subject = new JdbcRawAnalyticsManager( jdbcTemplate );
+    }
+
+    @Test
+    public void testGetRawDataValuesStreamsRows()
+        throws Exception
+    {
+        DataQueryParams params = DataQueryParams.newBuilder()
+            .withDataElements( Lists.newArrayList( createDataElement( 'A' ), createDataElement( 'B' ) ) )
+            .withTableName( "analytics" )
+            .withStartDate( new DateTime( 2019, 1, 1, 0, 0 ).toDate() )
+            .withEndDate( new DateTime( 2019, 12, 31, 0, 0 ).toDate() ).build();
+
+        List<List<Object>> rows = new ArrayList<>();
+
+        subject.getRawDataValues( params, rows::add );
+
+        assertEquals( 2, rows.size() );
+        assertEquals( Lists.newArrayList( "deabcdefghA", 3d ), rows.get( 0 ) );
+        assertEquals( Lists.newArrayList( "deabcdefghB", 4d ), rows.get( 1 ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        verify( statement ).setFetchSize( StreamingQueryUtils.FETCH_SIZE );
+        verify( statement ).executeQuery( sql.capture() );
+
+        assertThat( sql.getValue(), containsString( "from analytics as ax" ) );
+        assertThat( sql.getValue(), containsString( "\"dx\" in ('deabcdefghA', 'deabcdefghB')" ) );
+        assertThat( sql.getValue(), containsString( "ps.startdate >= '2019-01-01' and ps.enddate <= '2019-12-31'" ) );
+    }
+}
@@ -0,0 +1,143 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.ColumnDataType;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+public class JdbcAnalyticsRollupManagerTest
+{
+    private static final String ROLLUP_TABLE = "analytics_rollup_ou1_yearly";
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private JdbcAnalyticsRollupManager subject;
+
+    @Before
+    public void setUp()
+    {
+        when( config.getProperty( ConfigurationKey.ANALYTICS_TABLE_ROLLUPS ) ).thenReturn( "1:Yearly" );
+        when( jdbcTemplate.queryForList( startsWith( "select table_name" ), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( ROLLUP_TABLE ) );
+
+        subject = new JdbcAnalyticsRollupManager( config, jdbcTemplate );
+    }
+
+    @Test
+    public void testFullUpdateSwapsTableInSingleStatement()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().build();
+
+        subject.updateRollups( params, getTable( 2019 ) );
+
+        verify( jdbcTemplate ).execute( "drop table if exists " + ROLLUP_TABLE + "; " +
+            "alter table " + ROLLUP_TABLE + "_temp rename to " + ROLLUP_TABLE + ";" );
+        verify( jdbcTemplate, never() ).execute( startsWith( "delete from" ) );
+    }
+
+    @Test
+    public void testLatestUpdateReplacesRowsOfChangedYears()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLatestPartition().build();
+
+        when( jdbcTemplate.queryForList( startsWith( "select distinct ps.year" ), eq( Integer.class ) ) )
+            .thenReturn( Lists.newArrayList( 2018, 2020 ) );
+
+        subject.updateRollups( params, getTable( AnalyticsTablePartition.LATEST_PARTITION ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+        verify( jdbcTemplate, never() ).execute( startsWith( "create table" ) );
+
+        assertTrue( sql.getValue().startsWith( "delete from " + ROLLUP_TABLE + " where " + quote( "year" ) + " in (2018,2020); insert into " ) );
+        assertTrue( sql.getValue().endsWith( ";" ) );
+    }
+
+    @Test
+    public void testLatestUpdateWithoutChangesSkipsRollups()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLatestPartition().build();
+
+        when( jdbcTemplate.queryForList( startsWith( "select distinct ps.year" ), eq( Integer.class ) ) )
+            .thenReturn( Lists.newArrayList() );
+
+        subject.updateRollups( params, getTable( AnalyticsTablePartition.LATEST_PARTITION ) );
+
+        verify( jdbcTemplate, never() ).execute( anyString() );
+        assertEquals( 1, subject.getRollups().size() );
+    }
+
+    private AnalyticsTable getTable( Integer year )
+    {
+        List<AnalyticsTableColumn> columns = subject.getRollups().get( 0 ).getDimensionColumns().stream()
+            .map( c -> new AnalyticsTableColumn( quote( c ), ColumnDataType.TEXT, c ) )
+            .collect( Collectors.toList() );
+
+        return new AnalyticsTable( AnalyticsTableType.DATA_VALUE, columns, Lists.newArrayList() )
+            .addPartitionTable( year, new DateTime( 2019, 1, 1, 0, 0 ).toDate(), new DateTime( 2020, 1, 1, 0, 0 ).toDate() );
+    }
+}
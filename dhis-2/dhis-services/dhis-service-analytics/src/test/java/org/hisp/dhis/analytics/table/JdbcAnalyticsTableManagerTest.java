@@ -31,12 +31,15 @@ package org.hisp.dhis.analytics.table;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -45,14 +48,18 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
 import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
@@ -62,7 +69,13 @@ import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.joda.time.DateTime;
 
+import static org.hisp.dhis.analytics.ColumnDataType.CHARACTER_11;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import static org.junit.Assert.assertNotNull;
@@ -80,6 +93,9 @@ public class JdbcAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private PartitionManager partitionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -91,7 +107,7 @@ public class JdbcAnalyticsTableManagerTest
         subject = new JdbcAnalyticsTableManager( mock( IdentifiableObjectManager.class ), mock( OrganisationUnitService.class ),
             mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ), mock( StatementBuilder.class ),
-            mock( PartitionManager.class ), mock( DatabaseInfo.class ), jdbcTemplate );
+            partitionManager, mock( DatabaseInfo.class ), jdbcTemplate, mock( AnalyticsRollupManager.class ) );
     }
 
     @Test
@@ -167,6 +183,122 @@ public class JdbcAnalyticsTableManagerTest
         assertEquals( startTime, partition.getEndDate() );
     }
 
+    @Test
+    public void testGetIncrementalAnalyticsTable()
+    {
+        Date lastFullTableUpdate = new DateTime( 2019, 3, 1, 2, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+        List<Integer> dataYears = Lists.newArrayList( 2019, 2017, 2018 );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withIncrementalUpdate()
+            .build();
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( lastFullTableUpdate );
+        when( jdbcTemplate.queryForList( Mockito.anyString(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( dataYears );
+        when( jdbcTemplate.queryForObject( Mockito.anyString(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( 12 );
+        when( jdbcTemplate.queryForObject( Mockito.contains( "pg_trigger" ), Mockito.eq( Boolean.class ) ) ).thenReturn( true );
+
+        AnalyticsTable regularTable = subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder().withStartTime( startTime ).build() ).get( 0 );
+
+        String[] columnNames = ListUtils.union( regularTable.getDimensionColumns(), regularTable.getValueColumns() ).stream()
+            .map( c -> c.getName().replace( "\"", "" ) )
+            .toArray( String[]::new );
+
+        SqlRowSetMetaData metaData = mock( SqlRowSetMetaData.class );
+        SqlRowSet rowSet = mock( SqlRowSet.class );
+
+        when( metaData.getColumnNames() ).thenReturn( columnNames );
+        when( rowSet.getMetaData() ).thenReturn( metaData );
+        when( jdbcTemplate.queryForRowSet( Mockito.anyString() ) ).thenReturn( rowSet );
+        when( partitionManager.tableExists( "analytics_2017" ) ).thenReturn( false );
+        when( partitionManager.tableExists( "analytics_2018" ) ).thenReturn( true );
+        when( partitionManager.tableExists( "analytics_2019" ) ).thenReturn( true );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( params );
+
+        assertEquals( 1, tables.size() );
+
+        AnalyticsTable table = tables.get( 0 );
+
+        assertNotNull( table );
+        assertEquals( 2, table.getTablePartitions().size() );
+        assertEquals( 2018, table.getTablePartitions().get( 0 ).getYear().intValue() );
+        assertEquals( 2019, table.getTablePartitions().get( 1 ).getYear().intValue() );
+        assertEquals( "analytics_2018", table.getTablePartitions().get( 0 ).getTableName() );
+        assertEquals( "analytics_temp_2018", table.getTablePartitions().get( 0 ).getTempTableName() );
+    }
+
+    @Test
+    public void testGetIncrementalAnalyticsTableChangeLogNotCaptured()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .withIncrementalUpdate()
+            .build();
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) )
+            .thenReturn( new DateTime( 2019, 3, 1, 2, 0 ).toDate() );
+        when( jdbcTemplate.queryForObject( Mockito.contains( "pg_trigger" ), Mockito.eq( Boolean.class ) ) ).thenReturn( false );
+
+        assertTrue( subject.getAnalyticsTables( params ).isEmpty() );
+
+        verify( jdbcTemplate, never() ).execute( Mockito.anyString() );
+    }
+
+    @Test
+    public void testPreCreateTablesEnablesChangeLog()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .withCaptureChangeLog( true )
+            .build();
+
+        when( jdbcTemplate.queryForObject( Mockito.contains( "pg_trigger" ), Mockito.eq( Boolean.class ) ) ).thenReturn( false );
+
+        subject.preCreateTables( params );
+
+        verify( jdbcTemplate ).execute( "alter table datavalue enable trigger datavalue_changelog_trigger; " +
+            "insert into datavaluechangelog (dataelementid, periodid, sourceid) " +
+            "select distinct dataelementid, periodid, sourceid from datavalue " +
+            "where lastupdated >= '2019-03-01T10:00:00'" );
+    }
+
+    @Test
+    public void testPreCreateTablesKeepsChangeLogState()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .build();
+
+        subject.preCreateTables( params );
+
+        params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .withCaptureChangeLog( true )
+            .build();
+
+        when( jdbcTemplate.queryForObject( Mockito.contains( "pg_trigger" ), Mockito.eq( Boolean.class ) ) ).thenReturn( true );
+
+        subject.preCreateTables( params );
+
+        verify( jdbcTemplate, never() ).execute( Mockito.anyString() );
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testGetIncrementalAnalyticsTableNoFullTableUpdate()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .withIncrementalUpdate()
+            .build();
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( null );
+
+        subject.getAnalyticsTables( params );
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testGetLatestAnalyticsTableNoFullTableUpdate()
     {
@@ -183,4 +315,40 @@ public class JdbcAnalyticsTableManagerTest
 
         subject.getAnalyticsTables( params );
     }
+
+    @Test
+    public void testSwapTableMergesIncrementalUpdate()
+    {
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, Lists.newArrayList(
+            new AnalyticsTableColumn( quote( "dx" ), CHARACTER_11, "de.uid" ) ), Lists.newArrayList() );
+        table.addPartitionTable( 2018, new DateTime( 2018, 1, 1, 0, 0 ).toDate(), new DateTime( 2019, 1, 1, 0, 0 ).toDate() );
+        table.addPartitionTable( 2019, new DateTime( 2019, 1, 1, 0, 0 ).toDate(), new DateTime( 2020, 1, 1, 0, 0 ).toDate() );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( new DateTime( 2019, 3, 1, 10, 0 ).toDate() )
+            .withIncrementalUpdate()
+            .build();
+
+        subject.removeUpdatedData( params, Lists.newArrayList( table ) );
+
+        verifyNoInteractions( jdbcTemplate );
+
+        subject.swapTable( params, table );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        verify( jdbcTemplate, atLeastOnce() ).execute( sql.capture() );
+
+        String merge = sql.getAllValues().get( 0 );
+
+        assertTrue( merge.contains( "delete from analytics_2018 ax using (" ) );
+        assertTrue( merge.contains( "where ps.year = 2018) ck" ) );
+        assertTrue( merge.contains( "delete from analytics_2019 ax using (" ) );
+        assertTrue( merge.contains( "delete from datavaluechangelog_temp cl using _periodstructure ps " +
+            "where cl.periodid=ps.periodid and ps.year in (2018,2019)" ) );
+        assertTrue( merge.contains( "insert into analytics_2018 (\"dx\") select \"dx\" from analytics_temp_2018" ) );
+        assertTrue( merge.contains( "insert into analytics_2019 (\"dx\") select \"dx\" from analytics_temp_2019" ) );
+        assertTrue( merge.indexOf( "delete from analytics_2019" ) < merge.indexOf( "insert into analytics_2018" ) );
+
+        verify( jdbcTemplate, never() ).execute( "drop table if exists datavaluechangelog_temp" );
+    }
 }
@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics.table;
  */
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hisp.dhis.DhisConvenienceTest.createProgram;
 import static org.hisp.dhis.DhisConvenienceTest.createProgramTrackedEntityAttribute;
 import static org.hisp.dhis.DhisConvenienceTest.createTrackedEntityAttribute;
@@ -36,7 +37,10 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
+import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
@@ -49,6 +53,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramTrackedEntityAttribute;
 import org.hisp.dhis.resourcetable.ResourceTableService;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
@@ -61,7 +66,10 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 /**
@@ -78,6 +86,12 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private PartitionManager partitionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -89,9 +103,9 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
     public void setUp()
     {
         subject = new JdbcEnrollmentAnalyticsTableManager( idObjectManager, mock( OrganisationUnitService.class ),
-            mock( CategoryService.class ), mock( SystemSettingManager.class ), mock( DataApprovalLevelService.class ),
+            mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ),
-            new PostgreSQLStatementBuilder(), mock( PartitionManager.class ), databaseInfo, jdbcTemplate );
+            new PostgreSQLStatementBuilder(), partitionManager, databaseInfo, jdbcTemplate );
     }
 
     @Test
@@ -123,4 +137,57 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
 
         assertThat( sql.getValue(), containsString( String.format( ouQuery, "uid") ) );
     }
+
+    @Test
+    public void verifyIncrementalUpdatePopulatesAndMergesUpdatedEnrollments()
+    {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        Program p1 = createProgram( 'A' );
+        p1.setId( 42 );
+
+        Date lastFullTableUpdate = new DateTime( 2019, 7, 31, 2, 0 ).toDate();
+
+        List<Map<String, Object>> queryResp = Lists.newArrayList();
+        queryResp.add( ImmutableMap.of( "programinstanceid", 1 ) );
+
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( p1 ) );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( lastFullTableUpdate );
+        when( jdbcTemplate.queryForList( contains( "from programinstance pi" ) ) ).thenReturn( queryResp );
+
+        List<AnalyticsTable> regularTables = subject.getAnalyticsTables(
+            AnalyticsTableUpdateParams.newBuilder().withStartTime( START_TIME ).build() );
+
+        String[] columnNames = regularTables.get( 0 ).getDimensionColumns().stream()
+            .map( c -> c.getName().replace( "\"", "" ) )
+            .toArray( String[]::new );
+
+        SqlRowSetMetaData metaData = mock( SqlRowSetMetaData.class );
+        SqlRowSet rowSet = mock( SqlRowSet.class );
+
+        when( metaData.getColumnNames() ).thenReturn( columnNames );
+        when( rowSet.getMetaData() ).thenReturn( metaData );
+        when( jdbcTemplate.queryForRowSet( anyString() ) ).thenReturn( rowSet );
+        when( partitionManager.tableExists( regularTables.get( 0 ).getTableName() ) ).thenReturn( true );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withStartTime( START_TIME )
+            .withIncrementalUpdate().build();
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( params );
+
+        assertThat( tables.size(), is( 1 ) );
+
+        subject.populateTable( params, PartitionUtils.getTablePartitions( tables ).get( 0 ) );
+        subject.removeUpdatedData( params, tables );
+        subject.swapTable( params, tables.get( 0 ) );
+
+        verify( jdbcTemplate, times( 3 ) ).execute( sql.capture() );
+
+        assertThat( sql.getAllValues().get( 0 ), containsString( "and pi.lastupdated >= '2019-07-31T02:00:00'" ) );
+        assertThat( sql.getAllValues().get( 0 ), containsString( "and pi.lastupdated < '2019-08-01T00:00:00'" ) );
+        assertThat( sql.getAllValues().get( 1 ), containsString( "delete from \"" + tables.get( 0 ).getTableName() + "\" ax where ax.pi in (" ) );
+        assertThat( sql.getAllValues().get( 1 ), containsString( "where pi.programid = 42 " +
+            "and pi.lastupdated >= '2019-07-31T02:00:00' and pi.lastupdated < '2019-08-01T00:00:00'); " +
+            "insert into " + tables.get( 0 ).getTablePartitions().get( 0 ).getTableName() + " (" ) );
+        assertThat( sql.getAllValues().get( 2 ), containsString( "drop table if exists " ) );
+    }
 }
@@ -39,8 +39,10 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.hisp.dhis.analytics.*;
@@ -50,10 +52,13 @@ import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.category.CategoryOptionGroupSet;
 import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.jdbc.statementbuilder.PostgreSQLStatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupSet;
@@ -68,7 +73,9 @@ import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
+import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Rule;
@@ -79,6 +86,8 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -109,6 +118,12 @@ public class JdbcEventAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private PartitionManager partitionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -138,8 +153,8 @@ public class JdbcEventAnalyticsTableManagerTest
 
         subject = new JdbcEventAnalyticsTableManager( idObjectManager, organisationUnitService, categoryService,
             systemSettingManager, mock( DataApprovalLevelService.class ), mock( ResourceTableService.class ),
-            mock( AnalyticsTableHookService.class ), statementBuilder, mock( PartitionManager.class ), databaseInfo,
-            jdbcTemplate );
+            mock( AnalyticsTableHookService.class ), statementBuilder, partitionManager, databaseInfo,
+            jdbcTemplate, config );
     }
 
     @Test
@@ -578,6 +593,204 @@ public class JdbcEventAnalyticsTableManagerTest
         assertThat( sql.getValue(), containsString( String.format( ouQuery, "name") ) );
     }
 
+    @Test
+    public void verifyChunkedPopulationRestrictsEventsByChunk()
+    {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        Program programA = createProgram( 'A' );
+
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( programA ) );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLastYears( 2 )
+            .withStartTime( START_TIME ).withToday( today ).build();
+
+        when( jdbcTemplate.queryForList(
+            getYearQueryForCurrentYear( programA, true ),
+            Integer.class ) ).thenReturn( Lists.newArrayList( 2018, 2019 ) );
+
+        AnalyticsTablePartition partition = PartitionUtils.getTablePartitions( subject.getAnalyticsTables( params ) ).get( 0 );
+
+        subject.populateTable( params, new AnalyticsTableChunk( partition, 1, 4, 100L, 200L ) );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        assertThat( subject.supportsChunkedPopulation(), is( true ) );
+        assertThat( sql.getValue(), containsString( "and psi.programstageinstanceid >= 100 and psi.programstageinstanceid < 200" ) );
+    }
+
+    @Test
+    public void verifySinglePassPopulationDecodesEventDataValuesOnce()
+    {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        when( config.isEnabled( ConfigurationKey.ANALYTICS_TABLE_EVENT_SINGLE_PASS ) ).thenReturn( true );
+        Program programA = createProgram( 'A' );
+
+        Set<DataElement> dataElements = new HashSet<>();
+
+        for ( int i = 0; i < 300; i++ )
+        {
+            DataElement de = createDataElement( 'A', ValueType.INTEGER, AggregationType.SUM );
+            de.setUid( CodeGenerator.generateUid() );
+            dataElements.add( de );
+        }
+
+        programA.setProgramStages( Sets.newHashSet( createProgramStage( 'A', dataElements ) ) );
+
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( programA ) );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLastYears( 2 )
+            .withStartTime( START_TIME ).withToday( today ).build();
+
+        when( jdbcTemplate.queryForList(
+            getYearQueryForCurrentYear( programA, true ),
+            Integer.class ) ).thenReturn( Lists.newArrayList( 2018, 2019 ) );
+
+        subject.populateTable( params,
+            PartitionUtils.getTablePartitions( subject.getAnalyticsTables( params ) ).get( 0 ) );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        String insert = sql.getValue();
+        DataElement de = dataElements.iterator().next();
+
+        assertThat( StringUtils.countMatches( insert, "jsonb_to_record(psi.eventdatavalues)" ), is( 1 ) );
+        assertThat( insert, not( containsString( FROM_CLAUSE ) ) );
+        assertThat( insert, containsString( "case when (edv.\"" + de.getUid() + "\" ->> 'value') ~* '" +
+            MathUtils.NUMERIC_LENIENT_REGEXP + "' then cast((edv.\"" + de.getUid() + "\" ->> 'value') as bigint) end as \"" +
+            de.getUid() + "\"" ) );
+    }
+
+    @Test
+    public void verifySinglePassPopulationJoinsOrgUnitDataElements()
+    {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        when( config.isEnabled( ConfigurationKey.ANALYTICS_TABLE_EVENT_SINGLE_PASS ) ).thenReturn( true );
+        when( databaseInfo.isSpatialSupport() ).thenReturn( true );
+        Program programA = createProgram( 'A' );
+
+        DataElement d5 = createDataElement( 'G', ValueType.ORGANISATION_UNIT, AggregationType.NONE );
+
+        programA.setProgramStages( Sets.newHashSet( createProgramStage( 'A', Sets.newHashSet( d5 ) ) ) );
+
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( programA ) );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLastYears( 2 )
+            .withStartTime( START_TIME ).withToday( today ).build();
+
+        when( jdbcTemplate.queryForList(
+            getYearQueryForCurrentYear( programA, true ),
+            Integer.class ) ).thenReturn( Lists.newArrayList( 2018, 2019 ) );
+
+        subject.populateTable( params,
+            PartitionUtils.getTablePartitions( subject.getAnalyticsTables( params ) ).get( 0 ) );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        String alias = "\"ou_" + d5.getUid() + "\"";
+
+        assertThat( sql.getValue(), containsString( "left join organisationunit " + alias + " on " + alias +
+            ".uid=(edv.\"" + d5.getUid() + "\" ->> 'value')" ) );
+        assertThat( sql.getValue(), containsString( alias + ".uid as \"" + d5.getUid() + "\"" ) );
+        assertThat( sql.getValue(), containsString( alias + ".name as \"" + d5.getUid() + "_name\"" ) );
+        assertThat( sql.getValue(), containsString( alias + ".geometry as \"" + d5.getUid() + "_geom\"" ) );
+    }
+
+    @Test
+    public void verifyGetIncrementalAnalyticsTables()
+    {
+        List<AnalyticsTable> tables = getIncrementalAnalyticsTables( true );
+
+        assertThat( tables, hasSize( 1 ) );
+        assertThat( tables.get( 0 ).getTablePartitions(), hasSize( 2 ) );
+        assertThat( tables.get( 0 ).getTablePartitions().get( 0 ).getYear(), is( 2018 ) );
+        assertThat( tables.get( 0 ).getTablePartitions().get( 1 ).getYear(), is( 2019 ) );
+
+        verify( jdbcTemplate ).queryForList( contains( "and psi.lastupdated >= '2019-03-01T09:00:00' " +
+            "and psi.lastupdated < '2019-03-01T10:00:00'" ), eq( Integer.class ) );
+    }
+
+    @Test
+    public void verifyGetIncrementalAnalyticsTablesSkipsProgramWithMissingPartition()
+    {
+        List<AnalyticsTable> tables = getIncrementalAnalyticsTables( false );
+
+        assertThat( tables, hasSize( 0 ) );
+    }
+
+    /**
+     * Returns the incremental analytics tables of a program with events updated
+     * in 2018 and 2019, where the 2019 partition exists.
+     *
+     * @param partition2018Exists whether the 2018 partition exists.
+     */
+    private List<AnalyticsTable> getIncrementalAnalyticsTables( boolean partition2018Exists )
+    {
+        Program programA = createProgram( 'A' );
+
+        Date lastFullTableUpdate = new DateTime( 2019, 3, 1, 2, 0 ).toDate();
+        Date lastIncrementalUpdate = new DateTime( 2019, 3, 1, 9, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withStartTime( startTime )
+            .withIncrementalUpdate().build();
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) )
+            .thenReturn( lastFullTableUpdate );
+        when( jdbcTemplate.queryForList( anyString(), eq( Date.class ), any(), any() ) )
+            .thenReturn( Lists.newArrayList( lastIncrementalUpdate ) );
+        when( jdbcTemplate.queryForList( anyString(), eq( Integer.class ) ) ).thenReturn( Lists.newArrayList( 2019, 2018 ) );
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( programA ) );
+
+        AnalyticsTable regularTable = subject.getAnalyticsTables( AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime ).build() ).get( 0 );
+
+        String[] columnNames = regularTable.getDimensionColumns().stream()
+            .map( c -> c.getName().replace( "\"", "" ) )
+            .toArray( String[]::new );
+
+        SqlRowSetMetaData metaData = mock( SqlRowSetMetaData.class );
+        SqlRowSet rowSet = mock( SqlRowSet.class );
+
+        when( metaData.getColumnNames() ).thenReturn( columnNames );
+        when( rowSet.getMetaData() ).thenReturn( metaData );
+        when( jdbcTemplate.queryForRowSet( anyString() ) ).thenReturn( rowSet );
+        when( partitionManager.tableExists( regularTable.getTableName() + "_2018" ) ).thenReturn( partition2018Exists );
+        when( partitionManager.tableExists( regularTable.getTableName() + "_2019" ) ).thenReturn( true );
+
+        return subject.getAnalyticsTables( params );
+    }
+
+    @Test
+    public void verifySwapTableMergesIncrementalUpdate()
+    {
+        Program programA = createProgram( 'A' );
+        programA.setId( 42 );
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.EVENT, Lists.newArrayList(
+            new AnalyticsTableColumn( quote( "psi" ), CHARACTER_11, "psi.uid" ) ), Lists.newArrayList(), programA );
+        table.addPartitionTable( 2019, new DateTime( 2019, 1, 1, 0, 0 ).toDate(), new DateTime( 2020, 1, 1, 0, 0 ).toDate() );
+
+        Date lastFullTableUpdate = new DateTime( 2019, 7, 31, 2, 0 ).toDate();
+
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( lastFullTableUpdate );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withStartTime( START_TIME )
+            .withIncrementalUpdate().build();
+
+        subject.removeUpdatedData( params, Lists.newArrayList( table ) );
+        subject.swapTable( params, table );
+
+        String partition = table.getTableName() + "_2019";
+
+        verify( jdbcTemplate ).execute( "delete from \"" + table.getTableName() + "\" ax where ax.psi in (" +
+            "select psi.uid from programstageinstance psi " +
+            "inner join programinstance pi on psi.programinstanceid=pi.programinstanceid " +
+            "where pi.programid = 42 and psi.lastupdated >= '2019-07-31T02:00:00' " +
+            "and psi.lastupdated < '2019-08-01T00:00:00'); " +
+            "insert into " + partition + " (\"psi\") select \"psi\" from " + table.getTempTableName() + "_2019" );
+        verify( jdbcTemplate ).update( contains( "insert into analyticsprogramupdate" ), eq( 42L ), eq( "EVENT" ), eq( START_TIME ) );
+    }
+
     private String toAlias( String template, String uid )
     {
         return String.format( template, uid, uid, uid );
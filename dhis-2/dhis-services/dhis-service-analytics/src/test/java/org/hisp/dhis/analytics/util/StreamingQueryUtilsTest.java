@@ -0,0 +1,151 @@
+package org.hisp.dhis.analytics.util;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class StreamingQueryUtilsTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private ResultSetMetaData metaData;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        doAnswer( invocation -> ((ConnectionCallback<?>) invocation.getArgument( 0 )).doInConnection( connection ) )
+            .when( jdbcTemplate ).execute( any( ConnectionCallback.class ) );
+
+        when( connection.getAutoCommit() ).thenReturn( true );
+        when( connection.createStatement( ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) ).thenReturn( statement );
+        when( statement.executeQuery( anyString() ) ).thenReturn( resultSet );
+        when( resultSet.getMetaData() ).thenReturn( metaData );
+        when( metaData.getColumnCount() ).thenReturn( 1 );
+        when( metaData.getColumnLabel( 1 ) ).thenReturn( "value" );
+        when( resultSet.next() ).thenReturn( true, true, true, false );
+        when( resultSet.getString( 1 ) ).thenReturn( "A", "B", "C" );
+    }
+
+    @Test
+    public void testQueryForEach()
+        throws Exception
+    {
+        List<String> values = new ArrayList<>();
+
+        StreamingQueryUtils.queryForEach( jdbcTemplate, "select value from analytics", row -> values.add( row.getString( "value" ) ) );
+
+        assertEquals( 3, values.size() );
+        assertEquals( "A", values.get( 0 ) );
+        assertEquals( "C", values.get( 2 ) );
+
+        InOrder inOrder = inOrder( connection, statement, resultSet );
+        inOrder.verify( connection ).setAutoCommit( false );
+        inOrder.verify( statement ).setFetchSize( StreamingQueryUtils.FETCH_SIZE );
+        inOrder.verify( statement ).executeQuery( "select value from analytics" );
+        inOrder.verify( resultSet ).close();
+        inOrder.verify( statement ).close();
+        inOrder.verify( connection ).rollback();
+        inOrder.verify( connection ).setAutoCommit( true );
+    }
+
+    @Test
+    public void testQueryForEachRestoresAutoCommitOnFailure()
+        throws Exception
+    {
+        try
+        {
+            StreamingQueryUtils.queryForEach( jdbcTemplate, "select value from analytics", row -> {
+                throw new IllegalStateException( "Client disconnected" );
+            } );
+
+            fail( "Expected exception" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertEquals( "Client disconnected", ex.getMessage() );
+        }
+
+        verify( resultSet ).close();
+        verify( connection ).rollback();
+        verify( connection ).setAutoCommit( true );
+    }
+
+    @Test
+    public void testQueryForEachKeepsAutoCommitDisabled()
+        throws Exception
+    {
+        when( connection.getAutoCommit() ).thenReturn( false );
+
+        StreamingQueryUtils.queryForEach( jdbcTemplate, "select value from analytics", row -> {} );
+
+        verify( statement ).setFetchSize( StreamingQueryUtils.FETCH_SIZE );
+        verify( connection, never() ).setAutoCommit( false );
+        verify( connection, never() ).rollback();
+    }
+}
@@ -55,6 +55,7 @@ public class SoftDeleteHibernateObjectStore<T extends SoftDeletableObject>
     {
         publisher.publishEvent( new ObjectDeletionRequestedEvent( object ) );
         object.setDeleted( true );
+        object.setAutoFields();
         getSession().update( object );
     }
 }
@@ -0,0 +1,186 @@
+package org.hisp.dhis.datavalue;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE_ASYNC_BATCH_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE_ASYNC_CAPACITY;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded in-memory queue of data value audits which are written to the
+ * database in batches by a background writer, which keeps audit writes off
+ * the request thread.
+ * <p>
+ * When the queue is full, the thread adding an audit flushes the queue
+ * itself, which applies back-pressure to producers outpacing the writer.
+ * Remaining audits are flushed when the application shuts down.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.datavalue.DataValueAuditQueue" )
+public class DataValueAuditQueue
+{
+    private final BatchHandlerFactory batchHandlerFactory;
+
+    private final BlockingQueue<DataValueAudit> queue;
+
+    private final int batchSize;
+
+    private final Lock flushLock = new ReentrantLock();
+
+    private volatile boolean shutdown = false;
+
+    public DataValueAuditQueue( BatchHandlerFactory batchHandlerFactory, DhisConfigurationProvider config )
+    {
+        checkNotNull( batchHandlerFactory );
+        checkNotNull( config );
+
+        this.batchHandlerFactory = batchHandlerFactory;
+        this.queue = new ArrayBlockingQueue<>( Math.max( 1,
+            NumberUtils.toInt( config.getProperty( CHANGELOG_AGGREGATE_ASYNC_CAPACITY ), 100000 ) ) );
+        this.batchSize = Math.max( 1,
+            NumberUtils.toInt( config.getProperty( CHANGELOG_AGGREGATE_ASYNC_BATCH_SIZE ), 5000 ) );
+    }
+
+    /**
+     * Adds the given audit to the queue. If the queue is full, the queue is
+     * flushed in the calling thread. After shutdown, the audit is written
+     * immediately.
+     *
+     * @param dataValueAudit the {@link DataValueAudit}.
+     */
+    public void add( DataValueAudit dataValueAudit )
+    {
+        if ( shutdown )
+        {
+            write( Collections.singletonList( dataValueAudit ) );
+            return;
+        }
+
+        while ( !queue.offer( dataValueAudit ) )
+        {
+            log.debug( "Data value audit queue is full, flushing in calling thread" );
+
+            flush();
+        }
+    }
+
+    /**
+     * Writes all queued audits in batches. Invoked periodically by the
+     * scheduler. Concurrent flushes are serialized.
+     */
+    @Scheduled( fixedDelay = 2_000 )
+    public void flush()
+    {
+        flushLock.lock();
+
+        try
+        {
+            List<DataValueAudit> batch = new ArrayList<>( batchSize );
+
+            while ( queue.drainTo( batch, batchSize ) > 0 )
+            {
+                write( batch );
+                batch.clear();
+            }
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of queued audits.
+     */
+    public int size()
+    {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        shutdown = true;
+
+        log.info( String.format( "Flushing %d queued data value audits on shutdown", queue.size() ) );
+
+        flush();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes the given audits in a single batch. Failed batches are logged
+     * and discarded, as retrying would block the queue indefinitely.
+     */
+    private void write( List<DataValueAudit> audits )
+    {
+        try
+        {
+            BatchHandler<DataValueAudit> batchHandler = batchHandlerFactory
+                .createBatchHandler( DataValueAuditBatchHandler.class ).init();
+
+            try
+            {
+                audits.forEach( batchHandler::addObject );
+            }
+            finally
+            {
+                batchHandler.flush();
+            }
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( String.format( "Failed to write %d data value audits", audits.size() ), ex );
+        }
+    }
+}
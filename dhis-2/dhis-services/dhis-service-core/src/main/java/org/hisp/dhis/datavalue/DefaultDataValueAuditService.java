@@ -54,11 +54,15 @@ public class DefaultDataValueAuditService
 
     private final DataValueAuditStore dataValueAuditStore;
 
-    public DefaultDataValueAuditService( DataValueAuditStore dataValueAuditStore )
+    private final DataValueAuditQueue dataValueAuditQueue;
+
+    public DefaultDataValueAuditService( DataValueAuditStore dataValueAuditStore, DataValueAuditQueue dataValueAuditQueue )
     {
         checkNotNull( dataValueAuditStore );
+        checkNotNull( dataValueAuditQueue );
 
         this.dataValueAuditStore = dataValueAuditStore;
+        this.dataValueAuditQueue = dataValueAuditQueue;
     }
 
     // -------------------------------------------------------------------------
@@ -71,6 +75,12 @@ public class DefaultDataValueAuditService
     {
         dataValueAuditStore.addDataValueAudit( dataValueAudit );
     }
+
+    @Override
+    public void queueDataValueAudit( DataValueAudit dataValueAudit )
+    {
+        dataValueAuditQueue.add( dataValueAudit );
+    }
     
     @Override
     @Transactional
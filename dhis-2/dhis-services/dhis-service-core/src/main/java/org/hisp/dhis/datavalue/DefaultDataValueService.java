@@ -32,6 +32,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsValid;
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsZeroAndInsignificant;
 import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE_ASYNC;
 
 import java.util.Calendar;
 import java.util.Collection;
@@ -53,6 +54,8 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -188,7 +191,7 @@ public class DefaultDataValueService
 
             if ( config.isEnabled( CHANGELOG_AGGREGATE ) )
             {
-                dataValueAuditService.addDataValueAudit( dataValueAudit );
+                addDataValueAudit( dataValueAudit );
             }
 
             dataValueStore.updateDataValue( dataValue );
@@ -217,7 +220,7 @@ public class DefaultDataValueService
 
         if ( config.isEnabled( CHANGELOG_AGGREGATE ) )
         {
-            dataValueAuditService.addDataValueAudit( dataValueAudit );
+            addDataValueAudit( dataValueAudit );
         }
 
         dataValue.setLastUpdated( new Date() );
@@ -379,4 +382,36 @@ public class DefaultDataValueService
     {
         return dataValueStore.getDataValueCountLastUpdatedBetween( startDate, endDate, includeDeleted );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds the given audit. If asynchronous audit is enabled, the audit is
+     * queued when the current transaction commits, so that audits of rolled
+     * back changes are not written.
+     */
+    private void addDataValueAudit( DataValueAudit dataValueAudit )
+    {
+        if ( !config.isEnabled( CHANGELOG_AGGREGATE_ASYNC ) )
+        {
+            dataValueAuditService.addDataValueAudit( dataValueAudit );
+        }
+        else if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    dataValueAuditService.queueDataValueAudit( dataValueAudit );
+                }
+            } );
+        }
+        else
+        {
+            dataValueAuditService.queueDataValueAudit( dataValueAudit );
+        }
+    }
 }
@@ -327,10 +327,17 @@ public class DefaultProgramIndicatorService
         return ANALYTICS_SQL_CACHE.get( cacheKey, k -> _getAnalyticsSql( expression, programIndicator, startDate, endDate, tableAlias ) ).orElse( null );
     }
 
+    @Override
+    public void invalidateAnalyticsSqlCache()
+    {
+        ANALYTICS_SQL_CACHE.invalidateAll();
+    }
+
     private String getAnalyticsSqlCacheKey( String expression, ProgramIndicator programIndicator, Date startDate, Date endDate, String tableAlias )
     {
         return expression
             + "|" + programIndicator.getUid()
+            + "|" + ( programIndicator.getLastUpdated() == null ? "" : programIndicator.getLastUpdated().getTime() )
             + "|" + startDate.getTime()
             + "|" + endDate.getTime()
             + "|" + ( tableAlias == null ? "" : tableAlias );
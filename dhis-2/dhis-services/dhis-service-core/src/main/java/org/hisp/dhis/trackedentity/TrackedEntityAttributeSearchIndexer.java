@@ -0,0 +1,262 @@
+package org.hisp.dhis.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_SEARCH_TRIGRAM;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains trigram indexes on tracked entity attribute values for the
+ * attributes which can be searched, which are unique attributes and
+ * attributes marked as searchable for a tracked entity type or a program.
+ * <p>
+ * Each attribute gets two partial indexes on the lower-cased value, a GIN
+ * trigram index serving contains and regular expression matches and a B-tree
+ * index serving equality and starts with matches. The indexes are created
+ * and dropped concurrently by a background task as the searchable flags of
+ * attributes change. Numeric attributes are compared by value and are not
+ * indexed.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.trackedentity.TrackedEntityAttributeSearchIndexer" )
+public class TrackedEntityAttributeSearchIndexer
+{
+    static final String TRIGRAM_INDEX_PREFIX = "in_teav_trgm_";
+
+    static final String LOWER_INDEX_PREFIX = "in_teav_lower_";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+
+    private volatile Set<Long> indexedAttributes = Collections.emptySet();
+
+    public TrackedEntityAttributeSearchIndexer( JdbcTemplate jdbcTemplate, DhisConfigurationProvider config )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( config );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = config.isEnabled( TRACKER_SEARCH_TRIGRAM );
+    }
+
+    /**
+     * Indicates whether trigram search is enabled.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Indicates whether values of the attribute with the given identifier can
+     * be searched through the trigram indexes.
+     *
+     * @param attributeId the attribute identifier.
+     * @return true if the attribute is indexed.
+     */
+    public boolean isIndexed( long attributeId )
+    {
+        return enabled && indexedAttributes.contains( attributeId );
+    }
+
+    /**
+     * Creates indexes for searchable attributes which are not indexed and
+     * drops indexes of attributes which are no longer searchable. Invoked
+     * periodically by the scheduler, does nothing if trigram search is
+     * disabled or the pg_trgm extension is not installed.
+     */
+    @Scheduled( initialDelay = 60_000, fixedDelay = 300_000 )
+    public synchronized void synchronizeIndexes()
+    {
+        if ( !enabled )
+        {
+            return;
+        }
+
+        try
+        {
+            if ( !isTrigramInstalled() )
+            {
+                log.warn( "Trigram search is enabled but extension pg_trgm is not installed" );
+
+                indexedAttributes = Collections.emptySet();
+                return;
+            }
+
+            Set<Long> searchable = getSearchableAttributes();
+            Set<Long> indexed = getIndexedAttributes();
+
+            for ( Long attributeId : indexed )
+            {
+                if ( !searchable.contains( attributeId ) )
+                {
+                    dropIndexes( attributeId );
+                }
+            }
+
+            indexed.retainAll( searchable );
+
+            for ( Long attributeId : searchable )
+            {
+                if ( !indexed.contains( attributeId ) && createIndexes( attributeId ) )
+                {
+                    indexed.add( attributeId );
+                }
+            }
+
+            indexedAttributes = Collections.unmodifiableSet( indexed );
+        }
+        catch ( DataAccessException ex )
+        {
+            log.error( "Failed to synchronize tracked entity attribute search indexes", ex );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isTrigramInstalled()
+    {
+        return Boolean.TRUE.equals( jdbcTemplate.queryForObject(
+            "select exists (select 1 from pg_extension where extname = 'pg_trgm')", Boolean.class ) );
+    }
+
+    private Set<Long> getSearchableAttributes()
+    {
+        Set<String> numericTypes = ValueType.NUMERIC_TYPES.stream()
+            .map( ValueType::name )
+            .collect( Collectors.toSet() );
+
+        final String sql =
+            "select tea.trackedentityattributeid from trackedentityattribute tea " +
+            "where tea.valuetype not in (" + getQuotedCommaDelimitedString( numericTypes ) + ") " +
+            "and (tea.uniquefield = true " +
+            "or exists (select 1 from trackedentitytypeattribute tta " +
+            "where tta.trackedentityattributeid = tea.trackedentityattributeid and tta.searchable = true) " +
+            "or exists (select 1 from program_attributes pa " +
+            "where pa.trackedentityattributeid = tea.trackedentityattributeid and pa.searchable = true))";
+
+        return new HashSet<>( jdbcTemplate.queryForList( sql, Long.class ) );
+    }
+
+    /**
+     * Returns the identifiers of attributes for which both the B-tree and the
+     * trigram index exist and are valid. Invalid indexes left by failed
+     * concurrent builds are dropped together with the other index of the
+     * attribute, so that both are rebuilt.
+     */
+    private Set<Long> getIndexedAttributes()
+    {
+        final String sql =
+            "select c.relname as indexname, i.indisvalid as valid from pg_index i " +
+            "inner join pg_class c on i.indexrelid = c.oid " +
+            "where c.relname like '" + TRIGRAM_INDEX_PREFIX.replace( "_", "\\_" ) + "%' " +
+            "or c.relname like '" + LOWER_INDEX_PREFIX.replace( "_", "\\_" ) + "%'";
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList( sql );
+
+        Map<Long, Integer> validIndexes = new HashMap<>();
+        Set<Long> invalid = new HashSet<>();
+
+        for ( Map<String, Object> row : rows )
+        {
+            String indexName = (String) row.get( "indexname" );
+            String prefix = indexName.startsWith( TRIGRAM_INDEX_PREFIX ) ? TRIGRAM_INDEX_PREFIX : LOWER_INDEX_PREFIX;
+            long attributeId = Long.parseLong( indexName.substring( prefix.length() ) );
+
+            if ( Boolean.TRUE.equals( row.get( "valid" ) ) )
+            {
+                validIndexes.merge( attributeId, 1, Integer::sum );
+            }
+            else
+            {
+                invalid.add( attributeId );
+            }
+        }
+
+        invalid.forEach( this::dropIndexes );
+
+        return validIndexes.entrySet().stream()
+            .filter( e -> e.getValue() == 2 && !invalid.contains( e.getKey() ) )
+            .map( Map.Entry::getKey )
+            .collect( Collectors.toCollection( HashSet::new ) );
+    }
+
+    private boolean createIndexes( long attributeId )
+    {
+        final String table = " on trackedentityattributevalue ";
+        final String predicate = " where trackedentityattributeid = " + attributeId;
+
+        try
+        {
+            jdbcTemplate.execute( "create index concurrently if not exists " + LOWER_INDEX_PREFIX + attributeId +
+                table + "(lower(value) text_pattern_ops)" + predicate );
+            jdbcTemplate.execute( "create index concurrently if not exists " + TRIGRAM_INDEX_PREFIX + attributeId +
+                table + "using gin (lower(value) gin_trgm_ops)" + predicate );
+
+            log.info( String.format( "Created search indexes for tracked entity attribute: %d", attributeId ) );
+
+            return true;
+        }
+        catch ( DataAccessException ex )
+        {
+            log.warn( String.format( "Failed to create search indexes for tracked entity attribute: %d", attributeId ), ex );
+
+            return false;
+        }
+    }
+
+    private void dropIndexes( long attributeId )
+    {
+        jdbcTemplate.execute( "drop index concurrently if exists " + TRIGRAM_INDEX_PREFIX + attributeId );
+        jdbcTemplate.execute( "drop index concurrently if exists " + LOWER_INDEX_PREFIX + attributeId );
+
+        log.info( String.format( "Dropped search indexes for tracked entity attribute: %d", attributeId ) );
+    }
+}
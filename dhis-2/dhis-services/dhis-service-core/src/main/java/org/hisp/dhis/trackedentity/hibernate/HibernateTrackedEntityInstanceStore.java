@@ -80,6 +80,7 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitStore;
 import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.trackedentity.TrackedEntityAttributeSearchIndexer;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
@@ -113,19 +114,24 @@ public class HibernateTrackedEntityInstanceStore
 
     private final StatementBuilder statementBuilder;
 
+    private final TrackedEntityAttributeSearchIndexer searchIndexer;
+
     private final static String SELECT_TEI = "select tei from";
 
     public HibernateTrackedEntityInstanceStore( SessionFactory sessionFactory, JdbcTemplate jdbcTemplate,
         ApplicationEventPublisher publisher, CurrentUserService currentUserService,
-        AclService aclService, OrganisationUnitStore organisationUnitStore, StatementBuilder statementBuilder )
+        AclService aclService, OrganisationUnitStore organisationUnitStore, StatementBuilder statementBuilder,
+        TrackedEntityAttributeSearchIndexer searchIndexer )
     {
         super( sessionFactory, jdbcTemplate, publisher, TrackedEntityInstance.class, currentUserService, aclService, false );
 
         checkNotNull( statementBuilder );
         checkNotNull( organisationUnitStore );
+        checkNotNull( searchIndexer );
 
         this.statementBuilder = statementBuilder;
         this.organisationUnitStore = organisationUnitStore;
+        this.searchIndexer = searchIndexer;
     }
 
     // -------------------------------------------------------------------------
@@ -501,7 +507,9 @@ public class HibernateTrackedEntityInstanceStore
 
     /**
      * From, join and where clause. For attribute params, restriction is set in
-     * inner join. For query params, restriction is set in where clause.
+     * inner join. For query params, restriction is set in where clause. Query
+     * params on attributes with trigram search indexes are matched against the
+     * lower-cased value, which is the indexed expression.
      */
     private String getFromWhereClause( TrackedEntityInstanceQueryParams params, SqlHelper hlp )
     {
@@ -661,7 +669,9 @@ public class HibernateTrackedEntityInstanceStore
                 {
                     final String col = statementBuilder.columnQuote( item.getItemId() );
 
-                    sql += col + ".value " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
+                    final String queryCol = searchIndexer.isIndexed( item.getItem().getId() ) ? "lower(" + col + ".value)" : (col + ".value");
+
+                    sql += queryCol + " " + regexp + " '" + start + StringUtils.lowerCase( query ) + end + "' or ";
                 }
 
                 sql = removeLastOr( sql ) + ") and ";
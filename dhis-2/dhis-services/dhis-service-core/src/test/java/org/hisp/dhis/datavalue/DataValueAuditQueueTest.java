@@ -0,0 +1,133 @@
+package org.hisp.dhis.datavalue;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE_ASYNC_BATCH_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE_ASYNC_CAPACITY;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.common.AuditType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
+import org.hisp.dhis.mock.batchhandler.MockBatchHandler;
+import org.hisp.dhis.mock.batchhandler.MockBatchHandlerFactory;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DataValueAuditQueueTest
+    extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    private MockBatchHandler<DataValueAudit> batchHandler;
+
+    private DataValueAuditQueue queue;
+
+    private DataValue dataValue;
+
+    @Before
+    public void setUp()
+    {
+        when( config.getProperty( CHANGELOG_AGGREGATE_ASYNC_CAPACITY ) ).thenReturn( "10" );
+        when( config.getProperty( CHANGELOG_AGGREGATE_ASYNC_BATCH_SIZE ) ).thenReturn( "4" );
+
+        batchHandler = new MockBatchHandler<>();
+
+        queue = new DataValueAuditQueue( new MockBatchHandlerFactory()
+            .registerBatchHandler( DataValueAuditBatchHandler.class, batchHandler ), config );
+
+        DataElement dataElement = createDataElement( 'A' );
+        Period period = createPeriod( "202001" );
+        OrganisationUnit orgUnit = createOrganisationUnit( 'A' );
+        CategoryOptionCombo optionCombo = createCategoryOptionCombo( 'A' );
+
+        dataValue = createDataValue( dataElement, period, orgUnit, optionCombo, optionCombo, "10" );
+    }
+
+    @Test
+    public void testFlush()
+    {
+        for ( int i = 0; i < 9; i++ )
+        {
+            queue.add( new DataValueAudit( dataValue, String.valueOf( i ), "admin", AuditType.UPDATE ) );
+        }
+
+        assertEquals( 9, queue.size() );
+        assertEquals( 0, batchHandler.getInserts().size() );
+
+        queue.flush();
+
+        assertEquals( 0, queue.size() );
+        assertEquals( 9, batchHandler.getInserts().size() );
+        assertEquals( "0", batchHandler.getInserts().get( 0 ).getValue() );
+        assertEquals( "8", batchHandler.getInserts().get( 8 ).getValue() );
+    }
+
+    @Test
+    public void testFlushInCallingThreadWhenFull()
+    {
+        for ( int i = 0; i < 15; i++ )
+        {
+            queue.add( new DataValueAudit( dataValue, String.valueOf( i ), "admin", AuditType.UPDATE ) );
+        }
+
+        assertEquals( 10, batchHandler.getInserts().size() );
+        assertEquals( 5, queue.size() );
+    }
+
+    @Test
+    public void testShutdown()
+    {
+        queue.add( new DataValueAudit( dataValue, "1", "admin", AuditType.UPDATE ) );
+
+        queue.shutdown();
+
+        assertEquals( 1, batchHandler.getInserts().size() );
+
+        queue.add( new DataValueAudit( dataValue, "2", "admin", AuditType.DELETE ) );
+
+        assertEquals( 0, queue.size() );
+        assertEquals( 2, batchHandler.getInserts().size() );
+    }
+}
@@ -0,0 +1,143 @@
+package org.hisp.dhis.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_SEARCH_TRIGRAM;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class TrackedEntityAttributeSearchIndexerTest
+{
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Test
+    public void testDisabled()
+    {
+        when( config.isEnabled( TRACKER_SEARCH_TRIGRAM ) ).thenReturn( false );
+
+        TrackedEntityAttributeSearchIndexer indexer = new TrackedEntityAttributeSearchIndexer( jdbcTemplate, config );
+
+        indexer.synchronizeIndexes();
+
+        assertFalse( indexer.isIndexed( 1L ) );
+        verifyNoInteractions( jdbcTemplate );
+    }
+
+    @Test
+    public void testExtensionNotInstalled()
+    {
+        when( config.isEnabled( TRACKER_SEARCH_TRIGRAM ) ).thenReturn( true );
+        when( jdbcTemplate.queryForObject( anyString(), eq( Boolean.class ) ) ).thenReturn( false );
+
+        TrackedEntityAttributeSearchIndexer indexer = new TrackedEntityAttributeSearchIndexer( jdbcTemplate, config );
+
+        indexer.synchronizeIndexes();
+
+        assertFalse( indexer.isIndexed( 1L ) );
+        verify( jdbcTemplate, never() ).execute( anyString() );
+    }
+
+    @Test
+    public void testSynchronizeIndexes()
+    {
+        List<Map<String, Object>> indexes = Lists.newArrayList(
+            ImmutableMap.of( "indexname", "in_teav_trgm_2", "valid", true ),
+            ImmutableMap.of( "indexname", "in_teav_lower_2", "valid", true ),
+            ImmutableMap.of( "indexname", "in_teav_trgm_3", "valid", true ),
+            ImmutableMap.of( "indexname", "in_teav_lower_3", "valid", true ),
+            ImmutableMap.of( "indexname", "in_teav_trgm_4", "valid", false ),
+            ImmutableMap.of( "indexname", "in_teav_lower_4", "valid", true ),
+            ImmutableMap.of( "indexname", "in_teav_trgm_5", "valid", true ),
+            ImmutableMap.of( "indexname", "in_teav_lower_5", "valid", false ),
+            ImmutableMap.of( "indexname", "in_teav_lower_6", "valid", true ) );
+
+        when( config.isEnabled( TRACKER_SEARCH_TRIGRAM ) ).thenReturn( true );
+        when( jdbcTemplate.queryForObject( anyString(), eq( Boolean.class ) ) ).thenReturn( true );
+        when( jdbcTemplate.queryForList( anyString(), eq( Long.class ) ) )
+            .thenReturn( Lists.newArrayList( 1L, 2L, 4L, 5L, 6L ) );
+        when( jdbcTemplate.queryForList( startsWith( "select c.relname" ) ) ).thenReturn( indexes );
+
+        TrackedEntityAttributeSearchIndexer indexer = new TrackedEntityAttributeSearchIndexer( jdbcTemplate, config );
+
+        indexer.synchronizeIndexes();
+
+        assertTrue( indexer.isIndexed( 1L ) );
+        assertTrue( indexer.isIndexed( 2L ) );
+        assertFalse( indexer.isIndexed( 3L ) );
+        assertTrue( indexer.isIndexed( 4L ) );
+        assertTrue( indexer.isIndexed( 5L ) );
+        assertTrue( indexer.isIndexed( 6L ) );
+
+        verify( jdbcTemplate ).execute( startsWith( "create index concurrently if not exists in_teav_trgm_1 " ) );
+        verify( jdbcTemplate ).execute( startsWith( "create index concurrently if not exists in_teav_lower_1 " ) );
+        verify( jdbcTemplate, never() ).execute( startsWith( "create index concurrently if not exists in_teav_trgm_2 " ) );
+        verify( jdbcTemplate ).execute( "drop index concurrently if exists in_teav_trgm_3" );
+        verify( jdbcTemplate ).execute( "drop index concurrently if exists in_teav_lower_3" );
+
+        verify( jdbcTemplate ).execute( "drop index concurrently if exists in_teav_trgm_4" );
+        verify( jdbcTemplate ).execute( "drop index concurrently if exists in_teav_lower_4" );
+        verify( jdbcTemplate ).execute( startsWith( "create index concurrently if not exists in_teav_trgm_4 " ) );
+        verify( jdbcTemplate ).execute( startsWith( "create index concurrently if not exists in_teav_lower_4 " ) );
+
+        verify( jdbcTemplate ).execute( "drop index concurrently if exists in_teav_trgm_5" );
+        verify( jdbcTemplate ).execute( "drop index concurrently if exists in_teav_lower_5" );
+        verify( jdbcTemplate ).execute( startsWith( "create index concurrently if not exists in_teav_lower_5 " ) );
+
+        verify( jdbcTemplate, never() ).execute( "drop index concurrently if exists in_teav_lower_6" );
+        verify( jdbcTemplate ).execute( startsWith( "create index concurrently if not exists in_teav_trgm_6 " ) );
+    }
+}
@@ -0,0 +1,267 @@
+package org.hisp.dhis.dxf2.common;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.IdentifiableProperty;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.hibernate.exception.ReadAccessDeniedException;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Process-wide cache of resolved meta-data identifiers shared by the data value,
+ * event and tracker importers. The cache maps an identifier in a given
+ * identifier scheme to the database identifier of the meta-data object. Objects
+ * are then loaded by database identifier, which is served by the Hibernate
+ * second-level cache, instead of being queried by UID, code or attribute value
+ * for every import.
+ * <p>
+ * Keys are versioned per meta-data class. The version of a class is incremented
+ * when an object of the class is updated or deleted, which means that all
+ * identifiers of the class are resolved again after a meta-data change. Cached
+ * objects are in addition verified against the requested identifier when
+ * loaded, so that stale entries are never returned.
+ */
+@Component
+public class ImportMetadataCache
+{
+    private static final String SEP = "|";
+
+    private final Cache<Long> cache = new SimpleCacheBuilder<Long>()
+        .forRegion( "importMetadataIdentifiers" )
+        .expireAfterAccess( 6, TimeUnit.HOURS )
+        .withInitialCapacity( 1000 )
+        .withMaximumSize( 200000 )
+        .build();
+
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final IdentifiableObjectManager manager;
+
+    public ImportMetadataCache( IdentifiableObjectManager manager )
+    {
+        checkNotNull( manager );
+
+        this.manager = manager;
+    }
+
+    /**
+     * Returns the object with the given identifier. The database identifier is
+     * looked up in the cache, and if not present the object is queried and the
+     * database identifier is cached.
+     *
+     * @param klass the meta-data class.
+     * @param idScheme the identifier scheme.
+     * @param identifier the identifier.
+     * @return the object, or null if not found or not readable.
+     */
+    public <T extends IdentifiableObject> T getObject( Class<T> klass, IdScheme idScheme, String identifier )
+    {
+        if ( StringUtils.isEmpty( identifier ) )
+        {
+            return null;
+        }
+
+        if ( !isSupported( idScheme ) )
+        {
+            return manager.getObject( klass, idScheme, identifier );
+        }
+
+        T object = getCachedObject( klass, idScheme, identifier );
+
+        if ( object == null )
+        {
+            object = manager.getObject( klass, idScheme, identifier );
+
+            put( klass, idScheme, identifier, object );
+        }
+
+        return object;
+    }
+
+    /**
+     * Returns the objects with the given identifiers which are present in the
+     * cache, mapped by identifier. Identifiers which are not cached are not
+     * included and must be resolved by the caller, which should then
+     * {@link #put(Class, IdScheme, Collection) put} the resolved objects.
+     *
+     * @param klass the meta-data class.
+     * @param idScheme the identifier scheme.
+     * @param identifiers the identifiers.
+     * @return a mapping of identifiers and objects.
+     */
+    public <T extends IdentifiableObject> Map<String, T> getCachedObjects( Class<T> klass, IdScheme idScheme,
+        Collection<String> identifiers )
+    {
+        Map<String, T> objects = new HashMap<>();
+
+        if ( !isSupported( idScheme ) )
+        {
+            return objects;
+        }
+
+        for ( String identifier : identifiers )
+        {
+            T object = getCachedObject( klass, idScheme, identifier );
+
+            if ( object != null )
+            {
+                objects.put( identifier, object );
+            }
+        }
+
+        return objects;
+    }
+
+    /**
+     * Caches the database identifiers of the given objects, keyed by their
+     * identifier in the given identifier scheme.
+     *
+     * @param klass the meta-data class.
+     * @param idScheme the identifier scheme.
+     * @param objects the objects.
+     */
+    public <T extends IdentifiableObject> void put( Class<T> klass, IdScheme idScheme, Collection<T> objects )
+    {
+        if ( !isSupported( idScheme ) )
+        {
+            return;
+        }
+
+        for ( T object : objects )
+        {
+            put( klass, idScheme, object.getPropertyValue( idScheme ), object );
+        }
+    }
+
+    /**
+     * Indicates whether the given identifier scheme is cached. Schemes which
+     * do not guarantee a unique identifier, such as name, are not cached.
+     *
+     * @param idScheme the identifier scheme.
+     * @return true if the identifier scheme is cached.
+     */
+    public boolean isSupported( IdScheme idScheme )
+    {
+        return idScheme != null && ( idScheme.isNull() || idScheme.is( IdentifiableProperty.UID ) ||
+            idScheme.is( IdentifiableProperty.CODE ) || idScheme.isAttribute() );
+    }
+
+    /**
+     * Invalidates all cached identifiers of the given meta-data class by
+     * incrementing the version of the class.
+     *
+     * @param klass the meta-data class.
+     */
+    public void invalidate( Class<?> klass )
+    {
+        getVersion( klass ).incrementAndGet();
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        cache.invalidateAll();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private <T extends IdentifiableObject> T getCachedObject( Class<T> klass, IdScheme idScheme, String identifier )
+    {
+        String key = getKey( klass, idScheme, identifier );
+
+        Optional<Long> id = cache.getIfPresent( key );
+
+        if ( !id.isPresent() )
+        {
+            return null;
+        }
+
+        T object;
+
+        try
+        {
+            object = manager.get( klass, id.get() );
+        }
+        catch ( ReadAccessDeniedException ex )
+        {
+            return null;
+        }
+
+        if ( object == null || !identifier.equals( object.getPropertyValue( idScheme ) ) )
+        {
+            cache.invalidate( key );
+
+            return null;
+        }
+
+        return object;
+    }
+
+    private <T extends IdentifiableObject> void put( Class<T> klass, IdScheme idScheme, String identifier, T object )
+    {
+        if ( object != null && object.getId() > 0 && identifier != null )
+        {
+            cache.put( getKey( klass, idScheme, identifier ), object.getId() );
+        }
+    }
+
+    private String getKey( Class<?> klass, IdScheme idScheme, String identifier )
+    {
+        return new StringBuilder()
+            .append( klass.getName() ).append( SEP )
+            .append( getVersion( klass ).get() ).append( SEP )
+            .append( idScheme.isNull() ? IdentifiableProperty.UID.name() : idScheme.name() ).append( SEP )
+            .append( identifier )
+            .toString();
+    }
+
+    private AtomicLong getVersion( Class<?> klass )
+    {
+        return versions.computeIfAbsent( klass, k -> new AtomicLong() );
+    }
+}
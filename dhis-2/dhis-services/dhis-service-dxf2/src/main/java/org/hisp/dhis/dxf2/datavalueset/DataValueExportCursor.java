@@ -0,0 +1,171 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+import org.hisp.dhis.common.IllegalQueryException;
+
+/**
+ * Position in the export of data values ordered by last updated timestamp and
+ * data value key, used for keyset pagination. The position can be encoded to
+ * and decoded from an opaque continuation token which is passed between
+ * requests, so that an export can be resumed after the last exported data
+ * value.
+ */
+public class DataValueExportCursor
+{
+    private static final String SEP = "_";
+
+    private final Timestamp lastUpdated;
+
+    private final long dataElement;
+
+    private final long period;
+
+    private final long orgUnit;
+
+    private final long categoryOptionCombo;
+
+    private final long attributeOptionCombo;
+
+    public DataValueExportCursor( Timestamp lastUpdated, long dataElement, long period, long orgUnit,
+        long categoryOptionCombo, long attributeOptionCombo )
+    {
+        this.lastUpdated = lastUpdated;
+        this.dataElement = dataElement;
+        this.period = period;
+        this.orgUnit = orgUnit;
+        this.categoryOptionCombo = categoryOptionCombo;
+        this.attributeOptionCombo = attributeOptionCombo;
+    }
+
+    /**
+     * Decodes a cursor from the given continuation token.
+     *
+     * @param token the continuation token.
+     * @return a {@link DataValueExportCursor}, or null if the token is null.
+     * @throws IllegalQueryException if the token is invalid.
+     */
+    public static DataValueExportCursor fromToken( String token )
+    {
+        if ( token == null )
+        {
+            return null;
+        }
+
+        try
+        {
+            String[] parts = new String( Base64.getUrlDecoder().decode( token ), StandardCharsets.UTF_8 ).split( SEP );
+
+            if ( parts.length != 7 )
+            {
+                throw new IllegalQueryException( "Invalid data value export cursor: " + token );
+            }
+
+            Timestamp lastUpdated = new Timestamp( Long.parseLong( parts[0] ) );
+            lastUpdated.setNanos( Integer.parseInt( parts[1] ) );
+
+            return new DataValueExportCursor( lastUpdated, Long.parseLong( parts[2] ), Long.parseLong( parts[3] ),
+                Long.parseLong( parts[4] ), Long.parseLong( parts[5] ), Long.parseLong( parts[6] ) );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            throw new IllegalQueryException( "Invalid data value export cursor: " + token );
+        }
+    }
+
+    /**
+     * Encodes this cursor as an opaque, URL safe continuation token.
+     *
+     * @return a continuation token.
+     */
+    public String toToken()
+    {
+        String value = String.join( SEP, String.valueOf( lastUpdated.getTime() ),
+            String.valueOf( lastUpdated.getNanos() ), String.valueOf( dataElement ), String.valueOf( period ),
+            String.valueOf( orgUnit ), String.valueOf( categoryOptionCombo ), String.valueOf( attributeOptionCombo ) );
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( value.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Returns a SQL row value of this cursor which can be compared with the
+     * row value of the data value key columns.
+     *
+     * @return a SQL row value.
+     */
+    public String toSqlRowValue()
+    {
+        return "(timestamp '" + lastUpdated.toString() + "', " + dataElement + ", " + period + ", " + orgUnit + ", " +
+            categoryOptionCombo + ", " + attributeOptionCombo + ")";
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public Timestamp getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public long getDataElement()
+    {
+        return dataElement;
+    }
+
+    public long getPeriod()
+    {
+        return period;
+    }
+
+    public long getOrgUnit()
+    {
+        return orgUnit;
+    }
+
+    public long getCategoryOptionCombo()
+    {
+        return categoryOptionCombo;
+    }
+
+    public long getAttributeOptionCombo()
+    {
+        return attributeOptionCombo;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toToken();
+    }
+}
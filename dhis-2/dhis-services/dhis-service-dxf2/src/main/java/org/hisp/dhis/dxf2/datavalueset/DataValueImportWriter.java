@@ -0,0 +1,300 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.hisp.dhis.common.AuditType;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.quick.BatchHandler;
+
+/**
+ * Writes validated data values of a data value set import. Each writer holds
+ * its own batch handlers, and hence its own database connections, which allows
+ * several writers to run concurrently as long as they are given disjoint sets
+ * of data value keys. File resources referred to by written data values are
+ * collected and must be updated by the caller.
+ */
+class DataValueImportWriter
+{
+    private final BatchHandler<DataValue> dataValueBatchHandler;
+
+    private final BatchHandler<DataValueAudit> auditBatchHandler;
+
+    private final Consumer<DataValueAudit> auditQueue;
+
+    private final ImportStrategy strategy;
+
+    private final boolean dryRun;
+
+    private final boolean skipExistingCheck;
+
+    private int importCount = 0;
+
+    private int updateCount = 0;
+
+    private int deleteCount = 0;
+
+    private final List<String> assignedFileResources = new ArrayList<>();
+
+    private final List<String> updatedFileResources = new ArrayList<>();
+
+    /**
+     * @param dataValueBatchHandler the data value batch handler.
+     * @param auditBatchHandler the audit batch handler, null if audit is skipped.
+     * @param strategy the import strategy.
+     * @param dryRun whether this is a dry run.
+     * @param skipExistingCheck whether to skip the check for existing data values.
+     */
+    DataValueImportWriter( BatchHandler<DataValue> dataValueBatchHandler, BatchHandler<DataValueAudit> auditBatchHandler,
+        ImportStrategy strategy, boolean dryRun, boolean skipExistingCheck )
+    {
+        this( dataValueBatchHandler, auditBatchHandler, null, strategy, dryRun, skipExistingCheck );
+    }
+
+    /**
+     * @param dataValueBatchHandler the data value batch handler.
+     * @param auditBatchHandler the audit batch handler, null if audit is skipped
+     *        or audits are queued.
+     * @param auditQueue the consumer queueing audits for asynchronous writing,
+     *        null if audit is skipped or written through the audit batch handler.
+     * @param strategy the import strategy.
+     * @param dryRun whether this is a dry run.
+     * @param skipExistingCheck whether to skip the check for existing data values.
+     */
+    DataValueImportWriter( BatchHandler<DataValue> dataValueBatchHandler, BatchHandler<DataValueAudit> auditBatchHandler,
+        Consumer<DataValueAudit> auditQueue, ImportStrategy strategy, boolean dryRun, boolean skipExistingCheck )
+    {
+        this.dataValueBatchHandler = dataValueBatchHandler;
+        this.auditBatchHandler = auditBatchHandler;
+        this.auditQueue = auditQueue;
+        this.strategy = strategy;
+        this.dryRun = dryRun;
+        this.skipExistingCheck = skipExistingCheck;
+    }
+
+    /**
+     * Saves, updates or deletes the given data values.
+     *
+     * @param dataValues the validated data values.
+     * @param existingValues the existing data values, mapped by key.
+     * @param fileDataValues the existing data values of file data elements to
+     *        delete, mapped by key.
+     */
+    void write( List<DataValue> dataValues, Map<DataValue, DataValue> existingValues, Map<DataValue, DataValue> fileDataValues )
+    {
+        Map<DataValue, DataValue> writtenValues = new HashMap<>();
+
+        for ( DataValue internalValue : dataValues )
+        {
+            final String storedBy = internalValue.getStoredBy();
+            final boolean fileType = internalValue.getDataElement().isFileType();
+            final DataValue actualDataValue = fileDataValues.get( internalValue );
+
+            DataValue existingValue = !skipExistingCheck ?
+                writtenValues.getOrDefault( internalValue, existingValues.get( internalValue ) ) : null;
+
+            // -----------------------------------------------------------------
+            // Check soft deleted data values on update and import
+            // -----------------------------------------------------------------
+
+            if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
+            {
+                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                {
+                    AuditType auditType = AuditType.UPDATE;
+
+                    if ( internalValue.isNullValue() || internalValue.isDeleted() )
+                    {
+                        internalValue.setDeleted( true );
+
+                        auditType = AuditType.DELETE;
+
+                        deleteCount++;
+                    }
+                    else
+                    {
+                        updateCount++;
+                    }
+
+                    if ( !dryRun )
+                    {
+                        dataValueBatchHandler.updateObject( internalValue );
+
+                        writtenValues.put( internalValue, internalValue );
+
+                        addAudit( new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType ) );
+
+                        if ( fileType )
+                        {
+                            assignedFileResources.add( internalValue.getValue() );
+                        }
+                    }
+                }
+                else if ( strategy.isDelete() )
+                {
+                    internalValue.setDeleted( true );
+
+                    deleteCount++;
+
+                    if ( !dryRun )
+                    {
+                        if ( fileType && actualDataValue != null )
+                        {
+                            updatedFileResources.add( actualDataValue.getValue() );
+                        }
+
+                        dataValueBatchHandler.updateObject( internalValue );
+
+                        writtenValues.put( internalValue, internalValue );
+
+                        addAudit( new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE ) );
+                    }
+                }
+            }
+            else
+            {
+                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
+                {
+                    if ( !internalValue.isNullValue() ) // Ignore null values
+                    {
+                        if ( existingValue != null && existingValue.isDeleted() )
+                        {
+                            importCount++;
+
+                            if ( !dryRun )
+                            {
+                                dataValueBatchHandler.updateObject( internalValue );
+
+                                writtenValues.put( internalValue, internalValue );
+
+                                if ( fileType )
+                                {
+                                    assignedFileResources.add( internalValue.getValue() );
+                                }
+                            }
+                        }
+                        else
+                        {
+                            boolean added = false;
+
+                            if ( !dryRun )
+                            {
+                                added = dataValueBatchHandler.addObject( internalValue );
+
+                                if ( added && fileType )
+                                {
+                                    assignedFileResources.add( internalValue.getValue() );
+                                }
+                            }
+
+                            if ( dryRun || added )
+                            {
+                                importCount++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the given audit if an audit queue is set, otherwise adds it to
+     * the audit batch handler if set.
+     */
+    private void addAudit( DataValueAudit dataValueAudit )
+    {
+        if ( auditQueue != null )
+        {
+            auditQueue.accept( dataValueAudit );
+        }
+        else if ( auditBatchHandler != null )
+        {
+            auditBatchHandler.addObject( dataValueAudit );
+        }
+    }
+
+    /**
+     * Flushes the batch handlers of this writer.
+     */
+    void flush()
+    {
+        dataValueBatchHandler.flush();
+
+        if ( auditBatchHandler != null )
+        {
+            auditBatchHandler.flush();
+        }
+    }
+
+    /**
+     * Returns and clears the identifiers of file resources which must be
+     * marked as assigned.
+     */
+    List<String> pollAssignedFileResources()
+    {
+        List<String> fileResources = new ArrayList<>( assignedFileResources );
+        assignedFileResources.clear();
+        return fileResources;
+    }
+
+    /**
+     * Returns and clears the identifiers of file resources of deleted data
+     * values which must be updated.
+     */
+    List<String> pollUpdatedFileResources()
+    {
+        List<String> fileResources = new ArrayList<>( updatedFileResources );
+        updatedFileResources.clear();
+        return fileResources;
+    }
+
+    int getImportCount()
+    {
+        return importCount;
+    }
+
+    int getUpdateCount()
+    {
+        return updateCount;
+    }
+
+    int getDeleteCount()
+    {
+        return deleteCount;
+    }
+}
@@ -102,8 +102,45 @@ public interface DataValueSetService
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
 
+    /**
+     * Returns the cursor of the last data value of the page of data values
+     * last updated on or after the given date, which follows the given cursor.
+     * Data values are ordered by last updated timestamp and data value key.
+     *
+     * @param lastUpdated specifies the date to filter data values last updated after
+     * @param pageSize the page size
+     * @param after the cursor to start after, null to start from the beginning
+     * @return the cursor of the last data value of the page, or null if the
+     *         page is the last page
+     */
+    DataValueExportCursor getDataValueExportPageEnd( Date lastUpdated, int pageSize, DataValueExportCursor after );
+
+    /**
+     * Query for {@link DataValueSet DataValueSets} and write result as JSON,
+     * using keyset pagination. Data values after the given cursor, up to and
+     * including the given page end cursor, are written.
+     *
+     * @param lastUpdated specifies the date to filter data values last updated after
+     * @param outputStream the stream to write to
+     * @param idSchemes idSchemes
+     * @param after the cursor to start after, null to start from the beginning
+     * @param pageEnd the cursor of the last data value to write, null to write
+     *        all remaining data values
+     */
+    void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        DataValueExportCursor after, DataValueExportCursor pageEnd );
+
     void writeDataValueSetCsv( DataExportParams params, Writer writer );
 
+    /**
+     * Writes data values in the binary columnar format of
+     * {@link StreamingBinaryDataValueSet}.
+     *
+     * @param params the data export params.
+     * @param out the stream to write to.
+     */
+    void writeDataValueSetBinary( DataExportParams params, OutputStream out );
+
     RootNode getDataValueSetTemplate( DataSet dataSet, Period period, List<String> orgUnits, boolean writeComments,
         String ouScheme, String deScheme );
 
@@ -119,6 +156,8 @@ public interface DataValueSetService
 
     ImportSummary saveDataValueSetPdf( InputStream in, ImportOptions importOptions );
 
+    ImportSummary saveDataValueSetBinary( InputStream in, ImportOptions importOptions );
+
     ImportSummary saveDataValueSet( InputStream in, ImportOptions importOptions, JobConfiguration jobId );
 
     ImportSummary saveDataValueSetJson( InputStream in, ImportOptions importOptions, JobConfiguration jobId );
@@ -126,4 +165,6 @@ public interface DataValueSetService
     ImportSummary saveDataValueSetCsv( InputStream in, ImportOptions importOptions, JobConfiguration id );
 
     ImportSummary saveDataValueSetPdf( InputStream in, ImportOptions importOptions, JobConfiguration id );
+
+    ImportSummary saveDataValueSetBinary( InputStream in, ImportOptions importOptions, JobConfiguration id );
 }
@@ -30,10 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 /**
  * @author Lars Helge Overland
@@ -46,6 +49,16 @@ public interface DataValueSetStore
 
     void writeDataValueSetCsv( DataExportParams params, Date completeDate, Writer writer );
 
+    /**
+     * Query for data values and write result in the binary columnar format
+     * of {@link StreamingBinaryDataValueSet}.
+     *
+     * @param params the {@link DataExportParams}.
+     * @param completeDate the complete date of the data value set.
+     * @param out the stream to write to.
+     */
+    void writeDataValueSetBinary( DataExportParams params, Date completeDate, OutputStream out );
+
     /**
      * Query for {@link DataValueSet DataValueSets} and write result as JSON.
      *
@@ -66,4 +79,44 @@ public interface DataValueSetStore
      */
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
+
+    /**
+     * Returns the cursor of the last data value of the page of data values
+     * last updated on or after the given date, which follows the given cursor.
+     * Data values are ordered by last updated timestamp and data value key.
+     *
+     * @param lastUpdated specifies the date to filter data values last updated after
+     * @param pageSize the page size
+     * @param after the cursor to start after, null to start from the beginning
+     * @return the cursor of the last data value of the page, or null if the
+     *         page is the last page
+     */
+    DataValueExportCursor getDataValueExportPageEnd( Date lastUpdated, int pageSize, DataValueExportCursor after );
+
+    /**
+     * Query for {@link DataValueSet DataValueSets} and write result as JSON,
+     * using keyset pagination. Data values after the given cursor, up to and
+     * including the given page end cursor, are written.
+     *
+     * @param lastUpdated specifies the date to filter data values last updated after
+     * @param outputStream the stream to write to
+     * @param idSchemes idSchemes
+     * @param after the cursor to start after, null to start from the beginning
+     * @param pageEnd the cursor of the last data value to write, null to write
+     *        all remaining data values
+     */
+    void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        DataValueExportCursor after, DataValueExportCursor pageEnd );
+
+    /**
+     * Returns the persisted data values, including soft deleted data values,
+     * which match the data element, period, organisation unit, category option
+     * combo and attribute option combo of the given data values. The lookup is
+     * done with a single query. The returned data values refer to the same
+     * meta-data objects as the given data values.
+     *
+     * @param dataValues the data values to look up, meta-data must be persisted.
+     * @return the list of existing data values.
+     */
+    List<DataValue> getExistingDataValues( Collection<DataValue> dataValues );
 }
@@ -32,18 +32,20 @@ import com.csvreader.CsvReader;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hisp.dhis.calendar.CalendarService;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
-import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.common.DateRange;
 import org.hisp.dhis.common.DxfNamespaces;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
+import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.IdentifiableProperty;
 import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.commons.collection.CachingMap;
+import org.hisp.dhis.commons.util.ConcurrentUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.commons.util.StreamUtils;
 import org.hisp.dhis.dataapproval.DataApproval;
@@ -58,8 +60,10 @@ import org.hisp.dhis.dataset.LockExceptionStore;
 import org.hisp.dhis.datavalue.AggregateAccessManager;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValue;
-import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueAuditService;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dxf2.common.ImportMetadataCache;
+import org.hisp.dhis.dxf2.common.ImportMetadataCacheCallable;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
 import org.hisp.dhis.dxf2.importsummary.ImportCount;
@@ -77,6 +81,7 @@ import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
+import org.hisp.dhis.jdbc.batchhandler.DataValueCopyBatchHandler;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
@@ -115,10 +120,19 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -127,6 +141,9 @@ import static org.hisp.dhis.system.notification.NotificationLevel.*;
 import static org.hisp.dhis.util.DateUtils.parseDate;
 
 import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE_ASYNC;
+import static org.hisp.dhis.external.conf.ConfigurationKey.DATAVALUE_IMPORT_COPY;
+import static org.hisp.dhis.external.conf.ConfigurationKey.DATAVALUE_IMPORT_WORKERS;
 
 /**
  * Note that a mock BatchHandler factory is being injected.
@@ -140,6 +157,7 @@ public class DefaultDataValueSetService
 {
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
+    private static final int IMPORT_CHUNK_SIZE = 1000;
 
     private final IdentifiableObjectManager identifiableObjectManager;
 
@@ -183,6 +201,10 @@ public class DefaultDataValueSetService
 
     private final ObjectMapper jsonMapper;
 
+    private final ImportMetadataCache importMetadataCache;
+
+    private final DataValueAuditService dataValueAuditService;
+
     public DefaultDataValueSetService(
         IdentifiableObjectManager identifiableObjectManager,
         CategoryService categoryService,
@@ -204,7 +226,9 @@ public class DefaultDataValueSetService
         AclService aclService,
         AggregateAccessManager accessManager,
         DhisConfigurationProvider config,
-        ObjectMapper jsonMapper )
+        ObjectMapper jsonMapper,
+        ImportMetadataCache importMetadataCache,
+        DataValueAuditService dataValueAuditService )
     {
         checkNotNull( identifiableObjectManager );
         checkNotNull( categoryService );
@@ -227,6 +251,8 @@ public class DefaultDataValueSetService
         checkNotNull( accessManager );
         checkNotNull( config );
         checkNotNull( jsonMapper );
+        checkNotNull( importMetadataCache );
+        checkNotNull( dataValueAuditService );
 
         this.identifiableObjectManager = identifiableObjectManager;
         this.categoryService = categoryService;
@@ -249,6 +275,8 @@ public class DefaultDataValueSetService
         this.accessManager = accessManager;
         this.config = config;
         this.jsonMapper = jsonMapper;
+        this.importMetadataCache = importMetadataCache;
+        this.dataValueAuditService = dataValueAuditService;
     }
 
     /**
@@ -468,6 +496,21 @@ public class DefaultDataValueSetService
         dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, pageSize, page );
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public DataValueExportCursor getDataValueExportPageEnd( Date lastUpdated, int pageSize, DataValueExportCursor after )
+    {
+        return dataValueSetStore.getDataValueExportPageEnd( lastUpdated, pageSize, after );
+    }
+
+    @Override
+    @Transactional( readOnly = true )
+    public void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        DataValueExportCursor after, DataValueExportCursor pageEnd )
+    {
+        dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, after, pageEnd );
+    }
+
     @Override
     @Transactional
     public void writeDataValueSetCsv( DataExportParams params, Writer writer )
@@ -478,6 +521,16 @@ public class DefaultDataValueSetService
         dataValueSetStore.writeDataValueSetCsv( params, getCompleteDate( params ), writer );
     }
 
+    @Override
+    @Transactional
+    public void writeDataValueSetBinary( DataExportParams params, OutputStream out )
+    {
+        decideAccess( params );
+        validate( params );
+
+        dataValueSetStore.writeDataValueSetBinary( params, getCompleteDate( params ), out );
+    }
+
     private Date getCompleteDate( DataExportParams params )
     {
         if ( params.isSingleDataValueSet() )
@@ -724,6 +777,30 @@ public class DefaultDataValueSetService
         return saveDataValueSetPdf( in, importOptions, null );
     }
 
+    @Override
+    @Transactional
+    public ImportSummary saveDataValueSetBinary( InputStream in, ImportOptions importOptions, JobConfiguration id )
+    {
+        try
+        {
+            in = StreamUtils.wrapAndCheckCompressionFormat( in );
+            DataValueSet dataValueSet = new StreamingBinaryDataValueSet( in );
+            return saveDataValueSet( importOptions, id, dataValueSet );
+        }
+        catch ( Exception ex )
+        {
+            log.error( DebugUtils.getStackTrace( ex ) );
+            notifier.clear( id ).notify( id, ERROR, "Process failed: " + ex.getMessage(), true );
+            return new ImportSummary( ImportStatus.ERROR, "The import process failed: " + ex.getMessage() );
+        }
+    }
+
+    @Override
+    public ImportSummary saveDataValueSetBinary( InputStream in, ImportOptions importOptions )
+    {
+        return saveDataValueSetBinary( in, importOptions, null );
+    }
+
     /**
      * There are specific id schemes for data elements and organisation units and
      * a generic id scheme for all objects. The specific id schemes will take
@@ -765,7 +842,13 @@ public class DefaultDataValueSetService
         boolean hasSkipAuditAuth = currentUser != null && currentUser.isAuthorized( Authorities.F_SKIP_DATA_IMPORT_AUDIT );
         boolean skipAudit = ( importOptions.isSkipAudit() && hasSkipAuditAuth ) || !auditEnabed;
 
-        log.info( String.format( "Skip audit: %b, has authority to skip: %b", skipAudit, hasSkipAuditAuth ) );
+        boolean asyncAudit = !skipAudit && config.isEnabled( CHANGELOG_AGGREGATE_ASYNC );
+
+        log.info( String.format( "Skip audit: %b, has authority to skip: %b, async audit: %b", skipAudit, hasSkipAuditAuth, asyncAudit ) );
+
+        boolean copyEnabled = config.isEnabled( DATAVALUE_IMPORT_COPY );
+
+        log.info( String.format( "Add data values through copy: %b", copyEnabled ) );
 
         // ---------------------------------------------------------------------
         // Get import options
@@ -832,10 +915,10 @@ public class DefaultDataValueSetService
         // Get meta-data maps
         // ---------------------------------------------------------------------
 
-        IdentifiableObjectCallable<DataElement> dataElementCallable = new IdentifiableObjectCallable<>(
-            identifiableObjectManager, DataElement.class, dataElementIdScheme, null );
-        IdentifiableObjectCallable<OrganisationUnit> orgUnitCallable = new IdentifiableObjectCallable<>(
-            identifiableObjectManager, OrganisationUnit.class, orgUnitIdScheme, trimToNull( dataValueSet.getOrgUnit() ) );
+        IdentifiableObjectCallable<DataElement> dataElementCallable = new ImportMetadataCacheCallable<>(
+            importMetadataCache, DataElement.class, dataElementIdScheme, null );
+        IdentifiableObjectCallable<OrganisationUnit> orgUnitCallable = new ImportMetadataCacheCallable<>(
+            importMetadataCache, OrganisationUnit.class, orgUnitIdScheme, trimToNull( dataValueSet.getOrgUnit() ) );
         IdentifiableObjectCallable<CategoryOptionCombo> categoryOptionComboCallable = new CategoryOptionComboAclCallable(
             categoryService, categoryOptComboIdScheme, null );
         IdentifiableObjectCallable<CategoryOptionCombo> attributeOptionComboCallable = new CategoryOptionComboAclCallable(
@@ -935,12 +1018,22 @@ public class DefaultDataValueSetService
 
         final Set<OrganisationUnit> currentOrgUnits = currentUserService.getCurrentUserOrganisationUnits();
 
-        BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
-        BatchHandler<DataValueAudit> auditBatchHandler = skipAudit ? null : batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
+        int workers = Math.max( 1, NumberUtils.toInt( config.getProperty( DATAVALUE_IMPORT_WORKERS ), 1 ) );
+
+        log.info( String.format( "Data value import workers: %d", workers ) );
+
+        List<DataValueImportWriter> writers = new ArrayList<>();
+
+        for ( int i = 0; i < workers; i++ )
+        {
+            writers.add( new DataValueImportWriter( createDataValueBatchHandler( copyEnabled ),
+                skipAudit || asyncAudit ? null : batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init(),
+                asyncAudit ? dataValueAuditService::queueDataValueAudit : null,
+                strategy, dryRun, skipExistingCheck ) );
+        }
+
+        ExecutorService executor = workers > 1 ? createWriterExecutor( workers ) : null;
 
-        int importCount = 0;
-        int updateCount = 0;
-        int deleteCount = 0;
         int totalCount = 0;
 
         // ---------------------------------------------------------------------
@@ -952,490 +1045,413 @@ public class DefaultDataValueSetService
         clock.logTime( "Validated outer meta-data" );
         notifier.notify( id, notificationLevel, "Importing data values" );
 
-        while ( dataValueSet.hasNextDataValue() )
-        {
-            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
-
-            totalCount++;
-
-            final DataElement dataElement =
-                dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
-            final Period period = outerPeriod != null ? outerPeriod :
-                periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
-            final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
-                orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
-            CategoryOptionCombo categoryOptionCombo =
-                optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
-            CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
-                optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+        List<DataValue> chunkValues = new ArrayList<>();
+        Map<DataValue, DataValue> fileDataValues = new HashMap<>();
+        List<org.hisp.dhis.dxf2.datavalue.DataValue> chunk;
 
+        while ( !( chunk = getNextChunk( dataValueSet ) ).isEmpty() )
+        {
             // -----------------------------------------------------------------
-            // Potentially heat caches
+            // Resolve meta-data of chunk with set-based queries
             // -----------------------------------------------------------------
 
-            if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
-
-                log.info( "Data element cache heated after cache miss threshold reached" );
-            }
+            preheatChunkMetaData( dataElementMap, DataElement.class, dataElementIdScheme, chunk,
+                org.hisp.dhis.dxf2.datavalue.DataValue::getDataElement );
 
-            if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+            if ( outerOrgUnit == null )
             {
-                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
-
-                log.info( "Org unit cache heated after cache miss threshold reached" );
+                preheatChunkMetaData( orgUnitMap, OrganisationUnit.class, orgUnitIdScheme, chunk,
+                    org.hisp.dhis.dxf2.datavalue.DataValue::getOrgUnit );
             }
 
-            if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
-                    categoryOptComboIdScheme ) );
+            chunkValues.clear();
+            fileDataValues.clear();
 
-                log.info( "Category Option Combo cache heated after cache miss threshold reached" );
-            }
+            for ( org.hisp.dhis.dxf2.datavalue.DataValue dataValue : chunk )
+            {
+                totalCount++;
+
+                final DataElement dataElement =
+                    dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
+                final Period period = outerPeriod != null ? outerPeriod :
+                    periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
+                final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
+                    orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
+                CategoryOptionCombo categoryOptionCombo =
+                    optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
+                CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
+                    optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+
+                // -----------------------------------------------------------------
+                // Potentially heat caches
+                // -----------------------------------------------------------------
+
+                if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
 
-            // -----------------------------------------------------------------
-            // Validation
-            // -----------------------------------------------------------------
+                    log.info( "Data element cache heated after cache miss threshold reached" );
+                }
 
-            if ( dataElement == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
-                continue;
-            }
+                if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
 
-            if ( period == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
-                continue;
-            }
+                    log.info( "Org unit cache heated after cache miss threshold reached" );
+                }
 
-            if ( orgUnit == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
-                continue;
-            }
+                if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
+                {
+                    optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
+                        categoryOptComboIdScheme ) );
 
-            if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
-                continue;
-            }
+                    log.info( "Category Option Combo cache heated after cache miss threshold reached" );
+                }
 
-            if ( categoryOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+                // -----------------------------------------------------------------
+                // Validation
+                // -----------------------------------------------------------------
 
-                if ( !errors.isEmpty() )
+                if ( dataElement == null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
                     continue;
                 }
-            }
 
-            if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
-                continue;
-            }
-
-            if ( attrOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
-
-                if ( !errors.isEmpty() )
+                if ( period == null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
                     continue;
                 }
-            }
-
-            boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
-
-            if ( !inUserHierarchy )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
-                continue;
-            }
 
-            if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
-            {
-                summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
-                continue;
-            }
-
-            dataValue.setValueForced(
-                ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
-
-            String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
-
-            if ( valueValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
-                continue;
-            }
-
-            String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
-
-            if ( commentValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
-                continue;
-            }
-
-            Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
-                Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
-
-            if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
-                continue;
-            }
-
-            // -----------------------------------------------------------------
-            // Constraints
-            // -----------------------------------------------------------------
-
-            if ( categoryOptionCombo == null )
-            {
-                if ( requireCategoryOptionCombo )
+                if ( orgUnit == null )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
                     continue;
                 }
-                else
+
+                if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
                 {
-                    categoryOptionCombo = fallbackCategoryOptionCombo;
+                    summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
+                    continue;
                 }
-            }
 
-            if ( attrOptionCombo == null )
-            {
-                if ( requireAttrOptionCombo )
+                if ( categoryOptionCombo != null )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
-                    continue;
+                    List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+
+                    if ( !errors.isEmpty() )
+                    {
+                        summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                        continue;
+                    }
                 }
-                else
+
+                if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
                 {
-                    attrOptionCombo = fallbackCategoryOptionCombo;
+                    summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
+                    continue;
                 }
-            }
 
-            if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
-                dataElement::getPeriodTypes ).contains( period.getPeriodType() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
-                    "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                if ( attrOptionCombo != null )
+                {
+                    List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
 
-            if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
-            {
-                summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
-                    "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
-                continue;
-            }
+                    if ( !errors.isEmpty() )
+                    {
+                        summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                        continue;
+                    }
+                }
 
-            if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
-                dataElement::getCategoryOptionCombos ).contains( categoryOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
-                    "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
 
-            if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
-                dataElement::getDataSetCategoryOptionCombos ).contains( attrOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
-                    "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                if ( !inUserHierarchy )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
+                    continue;
+                }
 
-            if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
-                () -> orgUnit.hasDataElement( dataElement ) ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
-                continue;
-            }
+                if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
+                {
+                    summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+                dataValue.setValueForced(
+                    ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
 
-            if ( zeroAndInsignificant )
-            {
-                continue; // Ignore value
-            }
+                String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
 
-            String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
+                if ( valueValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            if ( storedByValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
-                continue;
-            }
+                String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
 
-            String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
+                if ( commentValid != null )
+                {
+                    summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
+                    continue;
+                }
 
-            final CategoryOptionCombo aoc = attrOptionCombo;
+                Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
+                    Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
 
-            DateRange aocDateRange = dataSet != null
-                ? attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataSet.getUid(), () -> aoc.getDateRange( dataSet ) )
-                : attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataElement.getUid(), () -> aoc.getDateRange( dataElement ) );
+                if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-            if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().after( period.getEndDate() ) )
-                || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().before( period.getStartDate() ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
-            }
+                // -----------------------------------------------------------------
+                // Constraints
+                // -----------------------------------------------------------------
 
-            if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
-            {
-                Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
-                return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
-            } ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
-            }
+                if ( categoryOptionCombo == null )
+                {
+                    if ( requireCategoryOptionCombo )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                        continue;
+                    }
+                    else
+                    {
+                        categoryOptionCombo = fallbackCategoryOptionCombo;
+                    }
+                }
 
-            final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
-                dataElement::getApprovalDataSet );
+                if ( attrOptionCombo == null )
+                {
+                    if ( requireAttrOptionCombo )
+                    {
+                        summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                        continue;
+                    }
+                    else
+                    {
+                        attrOptionCombo = fallbackCategoryOptionCombo;
+                    }
+                }
 
-            if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
-            {
-                if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
-                    () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
+                if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
+                    dataElement::getPeriodTypes ).contains( period.getPeriodType() ) )
                 {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
-                        period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
+                        "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
                     continue;
                 }
 
-                Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod );
+                if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
+                        "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
+                    continue;
+                }
 
-                if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
+                if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
+                    dataElement::getCategoryOptionCombos ).contains( categoryOptionCombo ) )
                 {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
-                        period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                    summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
+                        "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
                     continue;
                 }
 
-                DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+                if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
+                    dataElement::getDataSetCategoryOptionCombos ).contains( attrOptionCombo ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
+                        "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
+                    continue;
+                }
 
-                if ( workflow != null )
+                if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
+                    () -> orgUnit.hasDataElement( dataElement ) ) ) )
                 {
-                    final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
+                    continue;
+                }
 
-                    if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
-                    {
-                        DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+                boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
 
-                        return lowestApproval != null && lowestApprovalLevelMap.get(
-                            lowestApproval.getDataApprovalLevel().getUid()
-                                + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
-                            () -> approvalService.getDataApproval( lowestApproval ) != null );
-                    } ) )
-                    {
-                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                            "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
-                                + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
-                        continue;
-                    }
+                if ( zeroAndInsignificant )
+                {
+                    continue; // Ignore value
                 }
-            }
 
-            if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
-                continue;
-            }
+                String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
 
-            if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
-                continue;
-            }
-
-            DataValue actualDataValue = null;
-            if ( strategy.isDelete() && dataElement.isFileType() )
-            {
-                actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
-                if ( actualDataValue == null )
+                if ( storedByValid != null )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
+                    summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
                     continue;
                 }
-            }
 
-            // -----------------------------------------------------------------
-            // Create data value
-            // -----------------------------------------------------------------
+                String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
 
-            DataValue internalValue = new DataValue();
-
-            internalValue.setDataElement( dataElement );
-            internalValue.setPeriod( period );
-            internalValue.setSource( orgUnit );
-            internalValue.setCategoryOptionCombo( categoryOptionCombo );
-            internalValue.setAttributeOptionCombo( attrOptionCombo );
-            internalValue.setValue( trimToNull( dataValue.getValue() ) );
-            internalValue.setStoredBy( storedBy );
-            internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
-            internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
-            internalValue.setComment( trimToNull( dataValue.getComment() ) );
-            internalValue.setFollowup( dataValue.getFollowup() );
-            internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+                final CategoryOptionCombo aoc = attrOptionCombo;
 
-            // -----------------------------------------------------------------
-            // Save, update or delete data value
-            // -----------------------------------------------------------------
-
-            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+                DateRange aocDateRange = dataSet != null
+                    ? attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataSet.getUid(), () -> aoc.getDateRange( dataSet ) )
+                    : attrOptionComboDateRangeMap.get( attrOptionCombo.getUid() + dataElement.getUid(), () -> aoc.getDateRange( dataElement ) );
 
-            // -----------------------------------------------------------------
-            // Check soft deleted data values on update and import
-            // -----------------------------------------------------------------
+                if ( ( aocDateRange.getStartDate() != null && aocDateRange.getStartDate().after( period.getEndDate() ) )
+                    || ( aocDateRange.getEndDate() != null && aocDateRange.getEndDate().before( period.getStartDate() ) ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
+                    continue;
+                }
 
-            if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
-            {
-                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
                 {
-                    AuditType auditType = AuditType.UPDATE;
+                    Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
+                    return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
+                } ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
+                    continue;
+                }
+
+                final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
+                    dataElement::getApprovalDataSet );
 
-                    if ( internalValue.isNullValue() || internalValue.isDeleted() )
+                if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
+                {
+                    if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
+                        () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
                     {
-                        internalValue.setDeleted( true );
+                        summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
+                            period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                        continue;
+                    }
 
-                        auditType = AuditType.DELETE;
+                    Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod );
 
-                        deleteCount++;
-                    }
-                    else
+                    if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
                     {
-                        updateCount++;
+                        summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
+                            period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                        continue;
                     }
 
-                    if ( !dryRun )
+                    DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+
+                    if ( workflow != null )
                     {
-                        dataValueBatchHandler.updateObject( internalValue );
+                        final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
 
-                        if ( !skipAudit )
+                        if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
                         {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType );
-
-                            auditBatchHandler.addObject( auditValue );
-                        }
+                            DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
 
-                        if ( dataElement.isFileType() )
+                            return lowestApproval != null && lowestApprovalLevelMap.get(
+                                lowestApproval.getDataApprovalLevel().getUid()
+                                    + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
+                                () -> approvalService.getDataApproval( lowestApproval ) != null );
+                        } ) )
                         {
-                            FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
-
-                            fr.setAssigned( true );
-
-                            fileResourceService.updateFileResource( fr );
+                            summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                                "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
+                                    + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
+                            continue;
                         }
-
                     }
                 }
-                else if ( strategy.isDelete() )
+
+                if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
                 {
-                    internalValue.setDeleted( true );
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
+                        "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
+                    continue;
+                }
 
-                    deleteCount++;
+                if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+                {
+                    summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
+                    continue;
+                }
 
-                    if ( !dryRun )
+                DataValue actualDataValue = null;
+                if ( strategy.isDelete() && dataElement.isFileType() )
+                {
+                    actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
+                    if ( actualDataValue == null )
                     {
-                        if ( dataElement.isFileType() && actualDataValue != null )
-                        {
-                            FileResource fr = fileResourceService.getFileResource( actualDataValue.getValue() );
-
-                            fileResourceService.updateFileResource( fr );
-                        }
-
-                        dataValueBatchHandler.updateObject( internalValue );
-
-                        if ( !skipAudit )
-                        {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE );
-
-                            auditBatchHandler.addObject( auditValue );
-                        }
+                        summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
+                        continue;
                     }
                 }
-            }
-            else
-            {
-                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
-                {
-                    if ( !internalValue.isNullValue() ) // Ignore null values
-                    {
-                        if ( existingValue != null && existingValue.isDeleted() )
-                        {
-                            importCount++;
 
-                            if ( !dryRun )
-                            {
-                                dataValueBatchHandler.updateObject( internalValue );
+                // -----------------------------------------------------------------
+                // Create data value
+                // -----------------------------------------------------------------
 
-                                if ( dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+                DataValue internalValue = new DataValue();
 
-                                    fr.setAssigned( true );
+                internalValue.setDataElement( dataElement );
+                internalValue.setPeriod( period );
+                internalValue.setSource( orgUnit );
+                internalValue.setCategoryOptionCombo( categoryOptionCombo );
+                internalValue.setAttributeOptionCombo( attrOptionCombo );
+                internalValue.setValue( trimToNull( dataValue.getValue() ) );
+                internalValue.setStoredBy( storedBy );
+                internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
+                internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
+                internalValue.setComment( trimToNull( dataValue.getComment() ) );
+                internalValue.setFollowup( dataValue.getFollowup() );
+                internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
-                        }
-                        else
-                        {
-                            boolean added = false;
+                chunkValues.add( internalValue );
 
-                            if ( !dryRun )
-                            {
-                                added = dataValueBatchHandler.addObject( internalValue );
-
-                                if ( added && dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+                if ( actualDataValue != null )
+                {
+                    fileDataValues.put( internalValue, actualDataValue );
+                }
+            }
 
-                                    fr.setAssigned( true );
+            // -----------------------------------------------------------------
+            // Look up existing data values of chunk with a single query
+            // -----------------------------------------------------------------
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
+            Map<DataValue, DataValue> existingValues = new HashMap<>();
 
-                            if ( dryRun || added )
-                            {
-                                importCount++;
-                            }
-                        }
-                    }
-                }
+            if ( !skipExistingCheck )
+            {
+                dataValueSetStore.getExistingDataValues( chunkValues ).forEach( dv -> existingValues.put( dv, dv ) );
             }
+
+            // -----------------------------------------------------------------
+            // Save, update or delete data values
+            // -----------------------------------------------------------------
+
+            writeDataValues( writers, executor, chunkValues, existingValues, fileDataValues );
         }
 
-        dataValueBatchHandler.flush();
+        runOnWriters( writers, executor, DataValueImportWriter::flush );
 
-        if ( !skipAudit )
+        if ( executor != null )
         {
-            auditBatchHandler.flush();
+            executor.shutdown();
         }
 
+        int importCount = writers.stream().mapToInt( DataValueImportWriter::getImportCount ).sum();
+        int updateCount = writers.stream().mapToInt( DataValueImportWriter::getUpdateCount ).sum();
+        int deleteCount = writers.stream().mapToInt( DataValueImportWriter::getDeleteCount ).sum();
+
         int ignores = totalCount - importCount - updateCount - deleteCount;
 
         summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
         summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
         summary.setDescription( "Import process completed successfully" );
+        summary.setValuesPerSecond( getValuesPerSecond( totalCount, clock.getTime() ) );
 
-        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
+        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount +
+            ", delete: " + deleteCount + ", values per second: " + summary.getValuesPerSecond() );
         notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
 
         dataValueSet.close();
@@ -1489,6 +1505,193 @@ public class DefaultDataValueSetService
         summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
     }
 
+    /**
+     * Reads the next chunk of data values from the given data value set. The
+     * data values are copied as streaming data values are only valid until the
+     * next data value is read.
+     *
+     * @param dataValueSet the data value set.
+     * @return a list of at most {@link #IMPORT_CHUNK_SIZE} data values, empty
+     *         if there are no more data values.
+     */
+    private List<org.hisp.dhis.dxf2.datavalue.DataValue> getNextChunk( DataValueSet dataValueSet )
+    {
+        List<org.hisp.dhis.dxf2.datavalue.DataValue> chunk = new ArrayList<>( IMPORT_CHUNK_SIZE );
+
+        while ( chunk.size() < IMPORT_CHUNK_SIZE && dataValueSet.hasNextDataValue() )
+        {
+            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
+            org.hisp.dhis.dxf2.datavalue.DataValue copy = new org.hisp.dhis.dxf2.datavalue.DataValue();
+
+            copy.setDataElement( dataValue.getDataElement() );
+            copy.setPeriod( dataValue.getPeriod() );
+            copy.setOrgUnit( dataValue.getOrgUnit() );
+            copy.setCategoryOptionCombo( dataValue.getCategoryOptionCombo() );
+            copy.setAttributeOptionCombo( dataValue.getAttributeOptionCombo() );
+            copy.setValue( dataValue.getValue() );
+            copy.setStoredBy( dataValue.getStoredBy() );
+            copy.setCreated( dataValue.getCreated() );
+            copy.setLastUpdated( dataValue.getLastUpdated() );
+            copy.setComment( dataValue.getComment() );
+            copy.setFollowup( dataValue.getFollowup() );
+            copy.setDeleted( dataValue.getDeleted() );
+
+            chunk.add( copy );
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Loads the meta-data objects referenced by the given chunk of data values
+     * which are not already present in the given map. Objects are first looked
+     * up in the shared {@link ImportMetadataCache}, the remaining objects are
+     * loaded with a single query. Only UID and code identifier schemes are
+     * supported, objects which are not found are left to be resolved
+     * individually.
+     *
+     * @param map the caching map of meta-data objects.
+     * @param clazz the meta-data class.
+     * @param idScheme the identifier scheme.
+     * @param chunk the chunk of data values.
+     * @param idMapper the function returning the identifier of a data value.
+     */
+    private <T extends IdentifiableObject> void preheatChunkMetaData( CachingMap<String, T> map, Class<T> clazz, IdScheme idScheme,
+        List<org.hisp.dhis.dxf2.datavalue.DataValue> chunk, Function<org.hisp.dhis.dxf2.datavalue.DataValue, String> idMapper )
+    {
+        if ( map.isCacheLoaded() || !( idScheme.is( IdentifiableProperty.UID ) || idScheme.is( IdentifiableProperty.CODE ) ) )
+        {
+            return;
+        }
+
+        Set<String> ids = chunk.stream()
+            .map( dv -> trimToNull( idMapper.apply( dv ) ) )
+            .filter( id -> id != null && !map.containsKey( id ) )
+            .collect( Collectors.toSet() );
+
+        Map<String, T> cachedObjects = importMetadataCache.getCachedObjects( clazz, idScheme, ids );
+
+        map.putAll( cachedObjects );
+        ids.removeAll( cachedObjects.keySet() );
+
+        if ( ids.isEmpty() )
+        {
+            return;
+        }
+
+        List<T> objects = identifiableObjectManager.getObjects( clazz, idScheme.getIdentifiableProperty(), ids );
+
+        for ( T object : objects )
+        {
+            map.put( object.getPropertyValue( idScheme ), object );
+        }
+
+        importMetadataCache.put( clazz, idScheme, objects );
+    }
+
+    private BatchHandler<DataValue> createDataValueBatchHandler( boolean copyEnabled )
+    {
+        return copyEnabled ?
+            batchHandlerFactory.createBatchHandler( DataValueCopyBatchHandler.class ).init() :
+            batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
+    }
+
+    /**
+     * Creates an executor for import writers. Idle threads time out so that
+     * threads are released also if the import fails.
+     *
+     * @param workers the number of writers.
+     */
+    private ExecutorService createWriterExecutor( int workers )
+    {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor( workers, workers, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>() );
+        executor.allowCoreThreadTimeOut( true );
+        return executor;
+    }
+
+    /**
+     * Writes the given data values. With several writers, the data values are
+     * sharded by organisation unit so that a data value key is always written
+     * by the same writer, which avoids lock contention and deadlocks on the
+     * data value unique key between the connections of the writers. File
+     * resources are updated in the calling thread after the data values are
+     * written.
+     *
+     * @param writers the import writers.
+     * @param executor the executor, null if there is a single writer.
+     * @param dataValues the validated data values.
+     * @param existingValues the existing data values, mapped by key.
+     * @param fileDataValues the existing file data values to delete, mapped by key.
+     */
+    private void writeDataValues( List<DataValueImportWriter> writers, ExecutorService executor, List<DataValue> dataValues,
+        Map<DataValue, DataValue> existingValues, Map<DataValue, DataValue> fileDataValues )
+    {
+        if ( writers.size() == 1 )
+        {
+            writers.get( 0 ).write( dataValues, existingValues, fileDataValues );
+        }
+        else
+        {
+            Map<Integer, List<DataValue>> shards = dataValues.stream()
+                .collect( Collectors.groupingBy( dv -> (int) ( dv.getSource().getId() % writers.size() ) ) );
+
+            List<Future<?>> futures = new ArrayList<>();
+
+            shards.forEach( ( shard, values ) -> futures.add( executor.submit(
+                () -> writers.get( shard ).write( values, existingValues, fileDataValues ) ) ) );
+
+            ConcurrentUtils.waitForCompletion( futures );
+        }
+
+        for ( DataValueImportWriter writer : writers )
+        {
+            for ( String fileResource : writer.pollAssignedFileResources() )
+            {
+                FileResource fr = fileResourceService.getFileResource( fileResource );
+
+                fr.setAssigned( true );
+
+                fileResourceService.updateFileResource( fr );
+            }
+
+            for ( String fileResource : writer.pollUpdatedFileResources() )
+            {
+                FileResource fr = fileResourceService.getFileResource( fileResource );
+
+                fileResourceService.updateFileResource( fr );
+            }
+        }
+    }
+
+    /**
+     * Runs the given action on each writer, concurrently if an executor is given.
+     *
+     * @param writers the import writers.
+     * @param executor the executor, null if there is a single writer.
+     * @param action the action.
+     */
+    private void runOnWriters( List<DataValueImportWriter> writers, ExecutorService executor, Consumer<DataValueImportWriter> action )
+    {
+        if ( executor == null )
+        {
+            writers.forEach( action );
+        }
+        else
+        {
+            List<Future<?>> futures = writers.stream()
+                .map( writer -> executor.submit( () -> action.accept( writer ) ) )
+                .collect( Collectors.toList() );
+
+            ConcurrentUtils.waitForCompletion( futures );
+        }
+    }
+
+    private long getValuesPerSecond( int totalCount, long millis )
+    {
+        return millis > 0 ? ( totalCount * 1000L ) / millis : totalCount;
+    }
+
     /**
      * Checks whether the given data set is locked.
      *
@@ -38,7 +38,12 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.IdScheme;
@@ -69,6 +74,12 @@ import lombok.extern.slf4j.Slf4j;
 public class SpringDataValueSetStore
     implements DataValueSetStore
 {
+    /**
+     * Columns of the data value key in keyset pagination order.
+     */
+    private static final String DATA_VALUE_KEY_COLUMNS = "dv.lastupdated, dv.dataelementid, dv.periodid, " +
+        "dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid";
+
     private CurrentUserService currentUserService;
 
     private final JdbcTemplate jdbcTemplate;
@@ -124,6 +135,16 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, params, completeDate, dataValueSet );
     }
 
+    @Override
+    public void writeDataValueSetBinary( DataExportParams params, Date completeDate, OutputStream out )
+    {
+        DataValueSet dataValueSet = new StreamingBinaryDataValueSet( out );
+
+        String sql = getDataValueSql( params );
+
+        writeDataValueSet( sql, params, completeDate, dataValueSet );
+    }
+
     @Override
     public void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes )
     {
@@ -147,6 +168,119 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
     }
 
+    @Override
+    public DataValueExportCursor getDataValueExportPageEnd( Date lastUpdated, int pageSize, DataValueExportCursor after )
+    {
+        Preconditions.checkArgument( pageSize > 0, "Page size must be greater than zero" );
+
+        // Seek the last key of the page in the key index
+
+        final String sql =
+            "select " + DATA_VALUE_KEY_COLUMNS + " " +
+            "from datavalue dv " +
+            "where dv.lastupdated >= '" + DateUtils.getLongDateString( lastUpdated ) + "' " +
+            getCursorSql( after, ">" ) +
+            "order by " + DATA_VALUE_KEY_COLUMNS + " " +
+            "limit 1 offset " + ( pageSize - 1 );
+
+        List<DataValueExportCursor> cursors = jdbcTemplate.query( sql, ( rs, rowNum ) -> new DataValueExportCursor(
+            rs.getTimestamp( "lastupdated" ), rs.getLong( "dataelementid" ), rs.getLong( "periodid" ),
+            rs.getLong( "sourceid" ), rs.getLong( "categoryoptioncomboid" ), rs.getLong( "attributeoptioncomboid" ) ) );
+
+        return cursors.isEmpty() ? null : cursors.get( 0 );
+    }
+
+    @Override
+    public void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes,
+        DataValueExportCursor after, DataValueExportCursor pageEnd )
+    {
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( outputStream );
+
+        final String sql = buildDataValueSql( lastUpdated, idSchemes ) +
+            getCursorSql( after, ">" ) +
+            getCursorSql( pageEnd, "<=" ) +
+            "order by " + DATA_VALUE_KEY_COLUMNS;
+
+        writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
+    }
+
+    @Override
+    public List<org.hisp.dhis.datavalue.DataValue> getExistingDataValues( Collection<org.hisp.dhis.datavalue.DataValue> dataValues )
+    {
+        final List<org.hisp.dhis.datavalue.DataValue> existingValues = new ArrayList<>();
+
+        if ( dataValues.isEmpty() )
+        {
+            return existingValues;
+        }
+
+        final Map<String, org.hisp.dhis.datavalue.DataValue> keyMap = new HashMap<>();
+
+        final List<String> keys = new ArrayList<>();
+
+        for ( org.hisp.dhis.datavalue.DataValue dataValue : dataValues )
+        {
+            long dataElement = dataValue.getDataElement().getId();
+            long period = dataValue.getPeriod().getId();
+            long orgUnit = dataValue.getSource().getId();
+            long categoryOptionCombo = dataValue.getCategoryOptionCombo().getId();
+            long attributeOptionCombo = dataValue.getAttributeOptionCombo().getId();
+
+            if ( keyMap.put( getDataValueKey( dataElement, period, orgUnit, categoryOptionCombo, attributeOptionCombo ), dataValue ) == null )
+            {
+                keys.add( "(" + dataElement + "," + period + "," + orgUnit + "," + categoryOptionCombo + "," + attributeOptionCombo + ")" );
+            }
+        }
+
+        // Join on the exact keys of the given data values
+
+        final String sql =
+            "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid, " +
+                "dv.value, dv.storedby, dv.comment, dv.followup, dv.deleted " +
+                "from datavalue dv " +
+                "inner join (values " + getCommaDelimitedString( keys ) + ") " +
+                "as k (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid) " +
+                "on dv.dataelementid = k.dataelementid " +
+                "and dv.periodid = k.periodid " +
+                "and dv.sourceid = k.sourceid " +
+                "and dv.categoryoptioncomboid = k.categoryoptioncomboid " +
+                "and dv.attributeoptioncomboid = k.attributeoptioncomboid";
+
+        jdbcTemplate.query( sql, rs -> {
+            org.hisp.dhis.datavalue.DataValue dataValue = keyMap.get( getDataValueKey( rs.getLong( "dataelementid" ),
+                rs.getLong( "periodid" ), rs.getLong( "sourceid" ), rs.getLong( "categoryoptioncomboid" ),
+                rs.getLong( "attributeoptioncomboid" ) ) );
+
+            if ( dataValue != null )
+            {
+                org.hisp.dhis.datavalue.DataValue existingValue = new org.hisp.dhis.datavalue.DataValue(
+                    dataValue.getDataElement(), dataValue.getPeriod(), dataValue.getSource(),
+                    dataValue.getCategoryOptionCombo(), dataValue.getAttributeOptionCombo() );
+
+                existingValue.setValue( rs.getString( "value" ) );
+                existingValue.setStoredBy( rs.getString( "storedby" ) );
+                existingValue.setComment( rs.getString( "comment" ) );
+                existingValue.setFollowup( rs.getBoolean( "followup" ) );
+                existingValue.setDeleted( rs.getBoolean( "deleted" ) );
+
+                existingValues.add( existingValue );
+            }
+        } );
+
+        log.debug( String.format( "Found %d existing data values out of %d", existingValues.size(), dataValues.size() ) );
+
+        return existingValues;
+    }
+
+    /**
+     * Returns a SQL clause which compares the data value key columns with the
+     * given cursor, or an empty string if the cursor is null.
+     */
+    private String getCursorSql( DataValueExportCursor cursor, String operator )
+    {
+        return cursor != null ? "and (" + DATA_VALUE_KEY_COLUMNS + ") " + operator + " " + cursor.toSqlRowValue() + " " : "";
+    }
+
     private String buildDataValueSql( Date lastUpdated, IdSchemes idSchemes )
     {
         String deScheme = idSchemes.getDataElementIdScheme().getIdentifiableString().toLowerCase();
@@ -222,6 +356,12 @@ public class SpringDataValueSetStore
     // Supportive methods
     //--------------------------------------------------------------------------
 
+    private String getDataValueKey( long dataElement, long period, long orgUnit, long categoryOptionCombo,
+        long attributeOptionCombo )
+    {
+        return dataElement + "-" + period + "-" + orgUnit + "-" + categoryOptionCombo + "-" + attributeOptionCombo;
+    }
+
     private String getDataValueSql( DataExportParams params )
     {
         Preconditions.checkArgument( !params.getAllDataElements().isEmpty() );
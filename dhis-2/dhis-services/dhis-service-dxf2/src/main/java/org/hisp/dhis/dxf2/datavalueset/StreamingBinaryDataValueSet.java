@@ -0,0 +1,584 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.datavalue.StreamingBinaryDataValue;
+
+/**
+ * Data value set in a compact, block columnar binary format. The stream
+ * starts with a magic number, a version and the data value set properties,
+ * followed by blocks of up to {@link #BLOCK_SIZE} data values and a
+ * terminating empty block. Each block contains the entries added to the
+ * dictionary by the block, followed by one column per data value property.
+ * <p>
+ * Identifiers, meaning data element, period, org unit, category option combo,
+ * attribute option combo and stored by, are dictionary encoded. The dictionary
+ * is shared by all blocks of the stream, so that each identifier is written
+ * only once. Integers are written as variable length integers, strings as
+ * UTF-8 prefixed by length. Followup and deleted are written as bit flags.
+ * <p>
+ * Input is validated while read, meaning block sizes, dictionary sizes,
+ * string lengths and dictionary references, so that malformed input fails
+ * the import with a clear error instead of exhausting memory.
+ */
+public class StreamingBinaryDataValueSet
+    extends DataValueSet
+{
+    public static final byte[] MAGIC = { 'D', 'V', 'S', 'B' };
+
+    public static final int VERSION = 1;
+
+    public static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Max length in bytes of a string.
+     */
+    public static final int MAX_STRING_LENGTH = 1024 * 1024;
+
+    /**
+     * Number of dictionary encoded columns, a block can add at most this
+     * number of dictionary entries per data value.
+     */
+    private static final int REFERENCE_COLUMNS = 6;
+
+    private static final int FLAG_FOLLOWUP_SET = 1;
+    private static final int FLAG_FOLLOWUP = 2;
+    private static final int FLAG_DELETED_SET = 4;
+    private static final int FLAG_DELETED = 8;
+
+    private DataOutputStream out;
+
+    private DataInputStream in;
+
+    private final List<DataValue> block = new ArrayList<>();
+
+    private final Map<String, Integer> writeDictionary = new HashMap<>();
+
+    private final List<String> readDictionary = new ArrayList<>();
+
+    private List<String> newDictionaryEntries = new ArrayList<>();
+
+    private boolean headerWritten = false;
+
+    private DataValue[] rows = new DataValue[0];
+
+    private int rowIndex = 0;
+
+    private boolean endOfStream = false;
+
+    public StreamingBinaryDataValueSet( OutputStream outputStream )
+    {
+        this.out = new DataOutputStream( new BufferedOutputStream( outputStream ) );
+    }
+
+    public StreamingBinaryDataValueSet( InputStream inputStream )
+    {
+        this.in = new DataInputStream( new BufferedInputStream( inputStream ) );
+
+        try
+        {
+            readHeader();
+        }
+        catch ( IOException ex )
+        {
+            throw new RuntimeException( "Failed to read binary data value set header: " + getMessage( ex ), ex );
+        }
+    }
+
+    //--------------------------------------------------------------------------
+    // Logic
+    //--------------------------------------------------------------------------
+
+    @Override
+    public boolean hasNextDataValue()
+    {
+        if ( rowIndex < rows.length )
+        {
+            return true;
+        }
+
+        if ( endOfStream )
+        {
+            return false;
+        }
+
+        try
+        {
+            readBlock();
+        }
+        catch ( IOException ex )
+        {
+            throw new RuntimeException( "Failed to read binary data value block: " + getMessage( ex ), ex );
+        }
+
+        return rowIndex < rows.length;
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        return rows[rowIndex++];
+    }
+
+    @Override
+    public DataValue getDataValueInstance()
+    {
+        return new StreamingBinaryDataValue( this::addDataValue );
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if ( out != null )
+            {
+                writeHeaderIfRequired();
+
+                if ( !block.isEmpty() )
+                {
+                    writeBlock();
+                }
+
+                writeVarInt( 0 );
+                out.close();
+            }
+
+            if ( in != null )
+            {
+                in.close();
+            }
+        }
+        catch ( IOException ex )
+        {
+            throw new RuntimeException( "Failed to close binary data value set", ex );
+        }
+    }
+
+    //--------------------------------------------------------------------------
+    // Writer
+    //--------------------------------------------------------------------------
+
+    private void addDataValue( DataValue dataValue )
+    {
+        block.add( dataValue );
+
+        if ( block.size() >= BLOCK_SIZE )
+        {
+            try
+            {
+                writeHeaderIfRequired();
+                writeBlock();
+            }
+            catch ( IOException ex )
+            {
+                throw new RuntimeException( "Failed to write binary data value block", ex );
+            }
+        }
+    }
+
+    private void writeHeaderIfRequired()
+        throws IOException
+    {
+        if ( headerWritten )
+        {
+            return;
+        }
+
+        out.write( MAGIC );
+        out.writeByte( VERSION );
+
+        for ( String property : getHeaderProperties() )
+        {
+            writeString( property );
+        }
+
+        out.writeByte( dryRun == null ? 0 : dryRun ? 2 : 1 );
+
+        headerWritten = true;
+    }
+
+    private void writeBlock()
+        throws IOException
+    {
+        int size = block.size();
+
+        int[][] references = new int[REFERENCE_COLUMNS][size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            DataValue dataValue = block.get( i );
+
+            references[0][i] = getReference( dataValue.getDataElement() );
+            references[1][i] = getReference( dataValue.getPeriod() );
+            references[2][i] = getReference( dataValue.getOrgUnit() );
+            references[3][i] = getReference( dataValue.getCategoryOptionCombo() );
+            references[4][i] = getReference( dataValue.getAttributeOptionCombo() );
+            references[5][i] = getReference( dataValue.getStoredBy() );
+        }
+
+        writeVarInt( size );
+        writeVarInt( newDictionaryEntries.size() );
+
+        for ( String entry : newDictionaryEntries )
+        {
+            writeString( entry );
+        }
+
+        for ( int[] column : references )
+        {
+            for ( int reference : column )
+            {
+                writeVarInt( reference );
+            }
+        }
+
+        block.forEach( dv -> writeUnchecked( dv.getValue() ) );
+        block.forEach( dv -> writeUnchecked( dv.getCreated() ) );
+        block.forEach( dv -> writeUnchecked( dv.getLastUpdated() ) );
+        block.forEach( dv -> writeUnchecked( dv.getComment() ) );
+
+        for ( DataValue dataValue : block )
+        {
+            out.writeByte( getFlags( dataValue ) );
+        }
+
+        newDictionaryEntries = new ArrayList<>();
+        block.clear();
+    }
+
+    /**
+     * Returns the dictionary reference of the given string, where 0 represents
+     * null. Strings not in the dictionary are added.
+     */
+    private int getReference( String string )
+    {
+        if ( string == null )
+        {
+            return 0;
+        }
+
+        Integer reference = writeDictionary.get( string );
+
+        if ( reference == null )
+        {
+            reference = writeDictionary.size() + 1;
+            writeDictionary.put( string, reference );
+            newDictionaryEntries.add( string );
+        }
+
+        return reference;
+    }
+
+    private int getFlags( DataValue dataValue )
+    {
+        int flags = 0;
+
+        if ( dataValue.getFollowup() != null )
+        {
+            flags |= FLAG_FOLLOWUP_SET | ( dataValue.getFollowup() ? FLAG_FOLLOWUP : 0 );
+        }
+
+        if ( dataValue.getDeleted() != null )
+        {
+            flags |= FLAG_DELETED_SET | ( dataValue.getDeleted() ? FLAG_DELETED : 0 );
+        }
+
+        return flags;
+    }
+
+    private void writeUnchecked( String string )
+    {
+        try
+        {
+            writeString( string );
+        }
+        catch ( IOException ex )
+        {
+            throw new RuntimeException( "Failed to write binary data value block", ex );
+        }
+    }
+
+    private void writeString( String string )
+        throws IOException
+    {
+        if ( string == null )
+        {
+            writeVarInt( 0 );
+            return;
+        }
+
+        byte[] bytes = string.getBytes( StandardCharsets.UTF_8 );
+
+        writeVarInt( bytes.length + 1 );
+        out.write( bytes );
+    }
+
+    private void writeVarInt( int value )
+        throws IOException
+    {
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            out.writeByte( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+
+        out.writeByte( value );
+    }
+
+    //--------------------------------------------------------------------------
+    // Reader
+    //--------------------------------------------------------------------------
+
+    private void readHeader()
+        throws IOException
+    {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully( magic );
+
+        if ( !Arrays.equals( MAGIC, magic ) )
+        {
+            throw new IOException( "Input is not a binary data value set" );
+        }
+
+        int version = in.readUnsignedByte();
+
+        if ( version != VERSION )
+        {
+            throw new IOException( "Unsupported binary data value set version: " + version );
+        }
+
+        idScheme = readString();
+        dataElementIdScheme = readString();
+        orgUnitIdScheme = readString();
+        categoryOptionComboIdScheme = readString();
+        dataSetIdScheme = readString();
+        strategy = readString();
+        dataSet = readString();
+        completeDate = readString();
+        period = readString();
+        orgUnit = readString();
+        attributeOptionCombo = readString();
+
+        int dryRunValue = in.readUnsignedByte();
+        dryRun = dryRunValue == 0 ? null : dryRunValue == 2;
+    }
+
+    private void readBlock()
+        throws IOException
+    {
+        int size = readVarInt();
+
+        if ( size < 0 || size > BLOCK_SIZE )
+        {
+            throw new IOException( "Invalid block size: " + size + ", max is: " + BLOCK_SIZE );
+        }
+
+        rowIndex = 0;
+
+        if ( size == 0 )
+        {
+            rows = new DataValue[0];
+            endOfStream = true;
+            return;
+        }
+
+        int entries = readVarInt();
+
+        if ( entries < 0 || entries > size * REFERENCE_COLUMNS )
+        {
+            throw new IOException( "Invalid number of dictionary entries: " + entries + " for block size: " + size );
+        }
+
+        for ( int i = 0; i < entries; i++ )
+        {
+            readDictionary.add( readString() );
+        }
+
+        rows = new DataValue[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            rows[i] = new DataValue();
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setDataElement( readReference() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setPeriod( readReference() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setOrgUnit( readReference() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setCategoryOptionCombo( readReference() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setAttributeOptionCombo( readReference() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setStoredBy( readReference() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setValue( readString() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setCreated( readString() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setLastUpdated( readString() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            dv.setComment( readString() );
+        }
+
+        for ( DataValue dv : rows )
+        {
+            int flags = in.readUnsignedByte();
+
+            if ( ( flags & FLAG_FOLLOWUP_SET ) != 0 )
+            {
+                dv.setFollowup( ( flags & FLAG_FOLLOWUP ) != 0 );
+            }
+
+            if ( ( flags & FLAG_DELETED_SET ) != 0 )
+            {
+                dv.setDeleted( ( flags & FLAG_DELETED ) != 0 );
+            }
+        }
+    }
+
+    private String readReference()
+        throws IOException
+    {
+        int reference = readVarInt();
+
+        if ( reference < 0 || reference > readDictionary.size() )
+        {
+            throw new IOException( "Invalid dictionary reference: " + reference + ", dictionary size is: " + readDictionary.size() );
+        }
+
+        return reference == 0 ? null : readDictionary.get( reference - 1 );
+    }
+
+    private String readString()
+        throws IOException
+    {
+        int length = readVarInt();
+
+        if ( length == 0 )
+        {
+            return null;
+        }
+
+        if ( length < 0 || length - 1 > MAX_STRING_LENGTH )
+        {
+            throw new IOException( "Invalid string length: " + ( length - 1 ) + ", max is: " + MAX_STRING_LENGTH );
+        }
+
+        byte[] bytes = new byte[length - 1];
+        in.readFully( bytes );
+
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private int readVarInt()
+        throws IOException
+    {
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do
+        {
+            b = in.readUnsignedByte();
+            value |= ( b & 0x7F ) << shift;
+            shift += 7;
+        }
+        while ( ( b & 0x80 ) != 0 && shift < 35 );
+
+        if ( ( b & 0x80 ) != 0 )
+        {
+            throw new IOException( "Invalid variable length integer" );
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the message of the given exception, describing a premature end
+     * of input as such.
+     */
+    private static String getMessage( IOException ex )
+    {
+        return ex instanceof EOFException ? "Unexpected end of input" : ex.getMessage();
+    }
+
+    private String[] getHeaderProperties()
+    {
+        return new String[] { idScheme, dataElementIdScheme, orgUnitIdScheme, categoryOptionComboIdScheme,
+            dataSetIdScheme, strategy, dataSet, completeDate, period, orgUnit, attributeOptionCombo };
+    }
+}
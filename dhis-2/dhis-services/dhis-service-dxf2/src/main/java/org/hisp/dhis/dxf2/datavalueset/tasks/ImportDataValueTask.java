@@ -49,6 +49,7 @@ public class ImportDataValueTask
     public static final String FORMAT_CSV = "csv";
     public static final String FORMAT_PDF = "pdf";
     public static final String FORMAT_ADX = "adx";
+    public static final String FORMAT_BINARY = "binary";
 
     private DataValueSetService dataValueSetService;
 
@@ -97,6 +98,10 @@ public class ImportDataValueTask
         {
             adxDataService.saveDataValueSet( inputStream, importOptions, jobId );
         }
+        else if ( FORMAT_BINARY.equals( format ) )
+        {
+            dataValueSetService.saveDataValueSetBinary( inputStream, importOptions, jobId );
+        }
         else // FORMAT_XML
         {
             dataValueSetService.saveDataValueSet( inputStream, importOptions, jobId );
@@ -29,6 +29,7 @@
 package org.hisp.dhis.dxf2.events.aggregates;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.hisp.dhis.dxf2.events.TrackedEntityInstanceParams;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams;
@@ -82,4 +83,9 @@ public class AggregateContext
      * The query parameters to filter teis
      */
     TrackedEntityInstanceQueryParams queryParams;
+
+    /**
+     * The executor of the asynchronous fetches of the request
+     */
+    Executor executor;
 }
@@ -29,7 +29,6 @@ package org.hisp.dhis.dxf2.events.aggregates;
  */
 
 import static java.util.concurrent.CompletableFuture.allOf;
-import static org.hisp.dhis.dxf2.events.aggregates.ThreadPoolManager.getPool;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -84,14 +83,14 @@ public class EnrollmentAggregate
             .collect( Collectors.toList() );
 
         final CompletableFuture<Multimap<String, Event>> eventAsync = conditionalAsyncFetch( ctx.getParams().isIncludeEvents(),
-            () -> eventAggregate.findByEnrollmentIds( enrollmentIds, ctx ), getPool() );
+            () -> eventAggregate.findByEnrollmentIds( enrollmentIds, ctx ), ctx.getExecutor() );
 
         final CompletableFuture<Multimap<String, Relationship>> relationshipAsync = conditionalAsyncFetch(
             ctx.getParams().isIncludeRelationships(),
-            () -> enrollmentStore.getRelationships( enrollmentIds ), getPool() );
+            () -> enrollmentStore.getRelationships( enrollmentIds ), ctx.getExecutor() );
 
         final CompletableFuture<Multimap<String, Note>> notesAsync = asyncFetch(
-            () -> enrollmentStore.getNotes( enrollmentIds ), getPool() );
+            () -> enrollmentStore.getNotes( enrollmentIds ), ctx.getExecutor() );
 
         return allOf( eventAsync, notesAsync, relationshipAsync ).thenApplyAsync( fn -> {
 
@@ -115,6 +114,6 @@ public class EnrollmentAggregate
 
             return enrollments;
 
-        }, getPool() ).join();
+        }, ctx.getExecutor() ).join();
     }
 }
@@ -30,7 +30,6 @@ package org.hisp.dhis.dxf2.events.aggregates;
 
 import static java.util.concurrent.CompletableFuture.allOf;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
-import static org.hisp.dhis.dxf2.events.aggregates.ThreadPoolManager.getPool;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -87,19 +86,19 @@ public class EventAggregate
          * Async fetch Relationships for the given Event ids (only if isIncludeRelationships = true)
          */
         final CompletableFuture<Multimap<String, Relationship>> relationshipAsync = conditionalAsyncFetch(
-            ctx.getParams().isIncludeRelationships(), () -> eventStore.getRelationships( eventIds ), getPool() );
+            ctx.getParams().isIncludeRelationships(), () -> eventStore.getRelationships( eventIds ), ctx.getExecutor() );
 
         /*
          * Async fetch Notes for the given Event ids
          */
         final CompletableFuture<Multimap<String, Note>> notesAsync = asyncFetch(
-            () -> eventStore.getNotes( eventIds ), getPool() );
+            () -> eventStore.getNotes( eventIds ), ctx.getExecutor() );
 
         /*
          * Async fetch DataValues for the given Event ids
          */
         final CompletableFuture<Map<String, List<DataValue>>> dataValuesAsync = supplyAsync(
-            () -> eventStore.getDataValues( eventIds ), getPool() );
+            () -> eventStore.getDataValues( eventIds ), ctx.getExecutor() );
 
         return allOf( dataValuesAsync, notesAsync, relationshipAsync ).thenApplyAsync( fn -> {
 
@@ -124,6 +123,6 @@ public class EventAggregate
 
             return events;
 
-        }, getPool() ).join();
+        }, ctx.getExecutor() ).join();
     }
 }
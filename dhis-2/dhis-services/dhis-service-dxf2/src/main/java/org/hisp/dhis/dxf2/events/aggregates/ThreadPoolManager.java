@@ -28,17 +28,45 @@ package org.hisp.dhis.dxf2.events.aggregates;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_AGGREGATE_QUEUE_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_AGGREGATE_REQUEST_CONCURRENCY;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_AGGREGATE_THREADS;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.stereotype.Component;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
- * Exposes a static method to fetch an Executor for the Aggregates operations
+ * Manages the thread pool for the Aggregates operations.
+ * <p>
+ * The pool has a fixed number of threads and a bounded queue. When the queue
+ * is full, tasks run in the submitting thread. Each request fetches through
+ * its own {@link Executor} from {@link #getRequestExecutor()}, which runs at
+ * most a configured number of the tasks of the request concurrently, so that a
+ * single large request cannot occupy all threads and database connections.
+ * <p>
+ * Tasks submitted from within a task of the pool run in the submitting thread.
+ * Such tasks are awaited by the enclosing task, and queueing them behind other
+ * tasks could exhaust the pool with threads waiting for queued tasks.
  *
  * @author Luciano Fiandesio
  */
+@Component
 public class ThreadPoolManager
 {
     // Thread factory that sets a user-defined thread name (useful for debugging purposes)
@@ -49,13 +77,198 @@ public class ThreadPoolManager
         .build();
 
     /**
-     * Cached thread pool: not bound to a size, but can reuse existing threads.
+     * Indicates whether the current thread is running a task of the pool.
+     */
+    private static final ThreadLocal<Boolean> IN_TASK = ThreadLocal.withInitial( () -> false );
+
+    private final ThreadPoolExecutor pool;
+
+    private final int requestConcurrency;
+
+    /**
+     * Number of tasks held back by the concurrency limit of their request.
+     */
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+
+    private final LongAdder waitTimeNanos = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    public ThreadPoolManager( DhisConfigurationProvider config )
+    {
+        checkNotNull( config );
+
+        int threads = Math.max( 1,
+            NumberUtils.toInt( config.getProperty( TRACKER_AGGREGATE_THREADS ), 20 ) );
+        int queueSize = Math.max( 1,
+            NumberUtils.toInt( config.getProperty( TRACKER_AGGREGATE_QUEUE_SIZE ), 1000 ) );
+
+        this.requestConcurrency = Math.max( 1,
+            NumberUtils.toInt( config.getProperty( TRACKER_AGGREGATE_REQUEST_CONCURRENCY ), 4 ) );
+
+        this.pool = new ThreadPoolExecutor( threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>( queueSize ), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy() );
+        this.pool.allowCoreThreadTimeOut( true );
+    }
+
+    /**
+     * Returns a new {@link Executor} for the fetches of a single request. The
+     * executor should not be shared between requests.
+     *
+     * @return an {@link Executor} limited to the request concurrency.
+     */
+    public Executor getRequestExecutor()
+    {
+        return new RequestExecutor( requestConcurrency );
+    }
+
+    /**
+     * Returns the number of tasks waiting in the queue of the pool.
+     */
+    public int getQueueSize()
+    {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Returns the number of tasks held back by the concurrency limit of their
+     * request.
+     */
+    public int getPendingTasks()
+    {
+        return pendingTasks.get();
+    }
+
+    /**
+     * Returns the approximate number of threads running tasks.
+     */
+    public int getActiveThreads()
+    {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * Returns the number of tasks which have been started by the pool.
+     */
+    public long getWaitCount()
+    {
+        return waitCount.sum();
+    }
+
+    /**
+     * Returns the total time in nanoseconds tasks waited in the queue before
+     * being started.
      */
-    private final static Executor AGGREGATE_THREAD_POOL = Executors.newCachedThreadPool( threadFactory );
+    public long getWaitTimeNanos()
+    {
+        return waitTimeNanos.sum();
+    }
 
-    static Executor getPool()
+    @PreDestroy
+    public void shutdown()
     {
-        return AGGREGATE_THREAD_POOL;
+        pool.shutdownNow();
     }
 
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Submits the given task of a request to the pool.
+     */
+    private void submit( Runnable task, RequestExecutor requestExecutor )
+    {
+        final long queued = System.nanoTime();
+
+        pool.execute( () -> {
+            waitTimeNanos.add( System.nanoTime() - queued );
+            waitCount.increment();
+
+            boolean inTask = IN_TASK.get();
+            IN_TASK.set( true );
+
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                IN_TASK.set( inTask );
+                requestExecutor.release();
+            }
+        } );
+    }
+
+    /**
+     * Executor which submits at most a given number of tasks of a request to
+     * the pool at a time, the remaining tasks are submitted in order as
+     * running tasks complete.
+     */
+    private class RequestExecutor
+        implements Executor
+    {
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final int concurrency;
+
+        RequestExecutor( int concurrency )
+        {
+            this.concurrency = concurrency;
+        }
+
+        @Override
+        public void execute( Runnable task )
+        {
+            if ( IN_TASK.get() )
+            {
+                task.run();
+                return;
+            }
+
+            pending.add( task );
+            pendingTasks.incrementAndGet();
+
+            dispatch();
+        }
+
+        void release()
+        {
+            running.decrementAndGet();
+
+            dispatch();
+        }
+
+        private void dispatch()
+        {
+            while ( !pending.isEmpty() )
+            {
+                int current = running.get();
+
+                if ( current >= concurrency )
+                {
+                    return;
+                }
+
+                if ( !running.compareAndSet( current, current + 1 ) )
+                {
+                    continue;
+                }
+
+                Runnable task = pending.poll();
+
+                if ( task == null )
+                {
+                    running.decrementAndGet();
+                    continue;
+                }
+
+                pendingTasks.decrementAndGet();
+
+                submit( task, this );
+            }
+        }
+    }
 }
@@ -30,7 +30,6 @@ package org.hisp.dhis.dxf2.events.aggregates;
 
 import static java.util.concurrent.CompletableFuture.allOf;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
-import static org.hisp.dhis.dxf2.events.aggregates.ThreadPoolManager.getPool;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -38,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -96,6 +96,9 @@ public class TrackedEntityInstanceAggregate
     @NonNull
     private final Environment env;
 
+    @NonNull
+    private final ThreadPoolManager threadPoolManager;
+
     private final Cache<String, Set<TrackedEntityAttribute>> teiAttributesCache = new Cache2kBuilder<String, Set<TrackedEntityAttribute>>(){}
         .name( "trackedEntityAttributeCache" + RandomStringUtils.randomAlphabetic( 5 ) )
         .expireAfterWrite( 10, TimeUnit.MINUTES )
@@ -149,6 +152,8 @@ public class TrackedEntityInstanceAggregate
     {
         final Long userId = currentUserService.getCurrentUser().getId();
 
+        final Executor executor = threadPoolManager.getRequestExecutor();
+
         /*
            Create a context with information which will be used to fetch the entities
          */
@@ -158,6 +163,7 @@ public class TrackedEntityInstanceAggregate
             .superUser( currentUserService.getCurrentUser().isSuper() )
             .params( params )
             .queryParams( queryParams )
+            .executor( executor )
             .build();
 
         /*
@@ -166,7 +172,7 @@ public class TrackedEntityInstanceAggregate
          */
         final CompletableFuture<Multimap<String, Relationship>> relationshipsAsync = conditionalAsyncFetch(
             ctx.getParams().isIncludeRelationships(), () -> trackedEntityInstanceStore.getRelationships( ids ),
-            getPool() );
+            executor );
 
         /*
          * Async fetch Enrollments for the given TrackedEntityInstance id (only if
@@ -174,32 +180,32 @@ public class TrackedEntityInstanceAggregate
          */
         final CompletableFuture<Multimap<String, Enrollment>> enrollmentsAsync = conditionalAsyncFetch(
             ctx.getParams().isIncludeEnrollments(),
-            () -> enrollmentAggregate.findByTrackedEntityInstanceIds( ids, ctx ), getPool() );
+            () -> enrollmentAggregate.findByTrackedEntityInstanceIds( ids, ctx ), executor );
 
         /*
          * Async fetch all ProgramOwner for the given TrackedEntityInstance id
          */
         final CompletableFuture<Multimap<String, ProgramOwner>> programOwnersAsync = conditionalAsyncFetch(
             ctx.getParams().isIncludeProgramOwners(), () -> trackedEntityInstanceStore.getProgramOwners( ids ),
-            getPool() );
+            executor );
 
         /*
          * Async Fetch TrackedEntityInstances by id
          */
         final CompletableFuture<Map<String, TrackedEntityInstance>> teisAsync = supplyAsync(
-            () -> trackedEntityInstanceStore.getTrackedEntityInstances( ids, ctx ), getPool() );
+            () -> trackedEntityInstanceStore.getTrackedEntityInstances( ids, ctx ), executor );
 
         /*
          * Async fetch TrackedEntityInstance Attributes by TrackedEntityInstance id
          */
         final CompletableFuture<Multimap<String, Attribute>> attributesAsync = supplyAsync(
-            () -> trackedEntityInstanceStore.getAttributes( ids ), getPool() );
+            () -> trackedEntityInstanceStore.getAttributes( ids ), executor );
 
         /*
          * Async fetch Owned Tei mapped to the provided program attributes by TrackedEntityInstance id
          */
         final CompletableFuture<Multimap<String, String>> ownedTeiAsync = supplyAsync(
-            () -> trackedEntityInstanceStore.getOwnedTeis( ids, ctx ), getPool() );
+            () -> trackedEntityInstanceStore.getOwnedTeis( ids, ctx ), executor );
 
         /*
          * Execute all queries and merge the results
@@ -234,7 +240,7 @@ public class TrackedEntityInstanceAggregate
                     return tei;
 
                 } ).collect( Collectors.toList() );
-            }, getPool() ).join();
+            }, executor ).join();
 
     }
     
@@ -319,17 +325,19 @@ public class TrackedEntityInstanceAggregate
      */
     private AggregateContext getSecurityContext( Long userId )
     {
+        final Executor executor = threadPoolManager.getRequestExecutor();
+
         final CompletableFuture<List<Long>> getTeiTypes = supplyAsync(
-            () -> aclStore.getAccessibleTrackedEntityInstanceTypes( userId ), getPool() );
+            () -> aclStore.getAccessibleTrackedEntityInstanceTypes( userId ), executor );
 
         final CompletableFuture<List<Long>> getPrograms = supplyAsync( () -> aclStore.getAccessiblePrograms( userId ),
-            getPool() );
+            executor );
 
         final CompletableFuture<List<Long>> getProgramStages = supplyAsync(
-            () -> aclStore.getAccessibleProgramStages( userId ), getPool() );
+            () -> aclStore.getAccessibleProgramStages( userId ), executor );
 
         final CompletableFuture<List<Long>> getRelationshipTypes = supplyAsync(
-            () -> aclStore.getAccessibleRelationshipTypes( userId ), getPool() );
+            () -> aclStore.getAccessibleRelationshipTypes( userId ), executor );
 
         return allOf( getTeiTypes, getPrograms, getProgramStages, getRelationshipTypes ).thenApplyAsync(
             fn -> AggregateContext.builder()
@@ -337,7 +345,7 @@ public class TrackedEntityInstanceAggregate
                 .programs( getPrograms.join() )
                 .programStages( getProgramStages.join() )
                 .relationshipTypes( getRelationshipTypes.join() )
-                .build(), getPool() )
+                .build(), executor )
             .join();
     }
 
@@ -9,7 +9,7 @@ import java.sql.Timestamp;
 import java.util.Date;
 
 @UtilityClass
-class JdbcEventSupport
+public class JdbcEventSupport
 {
     // Any chances we are duplicating this elsewhere ?
     Timestamp toTimestamp( Date date )
@@ -17,7 +17,7 @@ class JdbcEventSupport
         return date != null ? new Timestamp( date.getTime() ) : null;
     }
 
-    PGgeometry toGeometry( Geometry geometry ) throws SQLException
+    public PGgeometry toGeometry( Geometry geometry ) throws SQLException
     {
         return geometry != null ? new PGgeometry( geometry.toText() ) : null;
     }
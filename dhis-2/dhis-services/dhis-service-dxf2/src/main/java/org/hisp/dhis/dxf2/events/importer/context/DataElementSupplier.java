@@ -29,6 +29,7 @@ package org.hisp.dhis.dxf2.events.importer.context;
  */
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -40,6 +41,7 @@ import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.IdentifiableProperty;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.common.ImportMetadataCache;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.events.event.DataValue;
 import org.hisp.dhis.dxf2.events.event.Event;
@@ -56,10 +58,14 @@ public class DataElementSupplier extends AbstractSupplier<Map<String, DataElemen
 {
     private final IdentifiableObjectManager manager;
 
-    public DataElementSupplier( NamedParameterJdbcTemplate jdbcTemplate, IdentifiableObjectManager manager )
+    private final ImportMetadataCache importMetadataCache;
+
+    public DataElementSupplier( NamedParameterJdbcTemplate jdbcTemplate, IdentifiableObjectManager manager,
+        ImportMetadataCache importMetadataCache )
     {
         super( jdbcTemplate );
         this.manager = manager;
+        this.importMetadataCache = importMetadataCache;
     }
 
     @Override
@@ -75,14 +81,30 @@ public class DataElementSupplier extends AbstractSupplier<Map<String, DataElemen
 
         if ( dataElementIdScheme.isNull() || dataElementIdScheme.is( IdentifiableProperty.UID ) )
         {
-            dataElementsMap = manager.getObjects( DataElement.class, IdentifiableProperty.UID, allDataElements )
-                .stream().collect( Collectors.toMap( DataElement::getUid, d -> d ) );
+            // Data Elements already resolved by a previous import are loaded by id
+
+            Map<String, DataElement> uidMap = new HashMap<>(
+                importMetadataCache.getCachedObjects( DataElement.class, IdScheme.UID, allDataElements ) );
+
+            allDataElements.removeAll( uidMap.keySet() );
+
+            if ( !allDataElements.isEmpty() )
+            {
+                List<DataElement> dataElements = manager.getObjects( DataElement.class, IdentifiableProperty.UID,
+                    allDataElements );
+
+                importMetadataCache.put( DataElement.class, IdScheme.UID, dataElements );
+
+                dataElements.forEach( dataElement -> uidMap.put( dataElement.getUid(), dataElement ) );
+            }
+
+            dataElementsMap = uidMap;
         }
         else
         {
             // Slower, but shouldn't happen so often
             dataElementsMap = allDataElements.stream()
-                .map( deId -> manager.getObject( DataElement.class, dataElementIdScheme, deId ) )
+                .map( deId -> importMetadataCache.getObject( DataElement.class, dataElementIdScheme, deId ) )
                 .filter( Objects::nonNull ).collect( Collectors.toMap( dataElement -> IdentifiableObjectUtils
                     .getIdentifierBasedOnIdScheme( dataElement, dataElementIdScheme ), d -> d ) );
         }
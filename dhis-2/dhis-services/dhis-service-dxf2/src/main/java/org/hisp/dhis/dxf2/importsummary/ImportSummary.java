@@ -57,6 +57,8 @@ public class ImportSummary extends AbstractWebMessageResponse
 
     private String dataSetComplete;
 
+    private Long valuesPerSecond;
+
     private String reference;
 
     private String href;
@@ -204,6 +206,22 @@ public class ImportSummary extends AbstractWebMessageResponse
         return this;
     }
 
+    /**
+     * Import throughput in values per second, set for data value imports.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Long getValuesPerSecond()
+    {
+        return valuesPerSecond;
+    }
+
+    public ImportSummary setValuesPerSecond( Long valuesPerSecond )
+    {
+        this.valuesPerSecond = valuesPerSecond;
+        return this;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public String getReference()
@@ -30,9 +30,12 @@ package org.hisp.dhis.dxf2.sync;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.dxf2.datavalueset.DataValueExportCursor;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
@@ -57,6 +60,8 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
 
     private Date lastUpdatedAfter;
 
+    private DataValueExportCursor cursor;
+
     public DataValueSynchronization( DataValueService dataValueService, DataValueSetService dataValueSetService,
         SystemSettingManager systemSettingManager, RestTemplate restTemplate )
     {
@@ -128,17 +133,48 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
         }
     }
 
+    /**
+     * Synchronizes pages using keyset pagination, where each page starts after
+     * the last data value of the previous page, until the last page is
+     * synchronized.
+     */
+    @Override
+    protected void runSyncWithPaging( int pageSize )
+    {
+        syncResult = true;
+        cursor = null;
+        int page = 1;
+
+        do
+        {
+            synchronizePage( page++, pageSize );
+        }
+        while ( cursor != null );
+    }
+
     protected void synchronizePage( int page, int pageSize )
     {
         log.info( String.format( "Synchronizing page %d with page size %d", page, pageSize ) );
 
-        if ( !sendSyncRequest( pageSize, page ) )
+        // Page bounds are resolved up front so that retries send the same page
+
+        final DataValueExportCursor after = cursor;
+        final DataValueExportCursor pageEnd = dataValueSetService.getDataValueExportPageEnd( lastUpdatedAfter,
+            pageSize, after );
+
+        Clock pageClock = new Clock().startClock();
+
+        if ( !sendSyncRequest( after, pageEnd ) )
         {
             syncResult = false;
         }
+
+        log.debug( String.format( "Synchronized page %d in %d ms", page, pageClock.getTime() ) );
+
+        cursor = pageEnd;
     }
 
-    private boolean sendSyncRequest( int syncPageSize, int page )
+    private boolean sendSyncRequest( DataValueExportCursor after, DataValueExportCursor pageEnd )
     {
         final RequestCallback requestCallback = request ->
         {
@@ -146,8 +182,13 @@ public class DataValueSynchronization extends DataSynchronizationWithPaging
             request.getHeaders().add( SyncUtils.HEADER_AUTHORIZATION,
                 CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
 
-            dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, request.getBody(), new IdSchemes(),
-                syncPageSize, page );
+            // Compressed payload is detected and decompressed by the receiving instance
+
+            try ( GZIPOutputStream outputStream = new GZIPOutputStream( request.getBody() ) )
+            {
+                dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, outputStream, new IdSchemes(),
+                    after, pageEnd );
+            }
         };
 
         return SyncUtils.sendSyncRequest( systemSettingManager, restTemplate, requestCallback, instance, SyncEndpoint.DATA_VALUE_SETS );
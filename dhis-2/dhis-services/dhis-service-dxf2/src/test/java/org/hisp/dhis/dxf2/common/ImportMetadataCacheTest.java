@@ -0,0 +1,143 @@
+package org.hisp.dhis.dxf2.common;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class ImportMetadataCacheTest
+    extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private IdentifiableObjectManager manager;
+
+    private ImportMetadataCache cache;
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    @Before
+    public void setUp()
+    {
+        cache = new ImportMetadataCache( manager );
+
+        deA = createDataElement( 'A' );
+        deA.setId( 1L );
+        deB = createDataElement( 'B' );
+        deB.setId( 2L );
+    }
+
+    @Test
+    public void testGetObjectLoadsCachedObjectById()
+    {
+        when( manager.getObject( DataElement.class, IdScheme.CODE, deA.getCode() ) ).thenReturn( deA );
+        when( manager.get( DataElement.class, 1L ) ).thenReturn( deA );
+
+        assertEquals( deA, cache.getObject( DataElement.class, IdScheme.CODE, deA.getCode() ) );
+        assertEquals( deA, cache.getObject( DataElement.class, IdScheme.CODE, deA.getCode() ) );
+
+        verify( manager, times( 1 ) ).getObject( DataElement.class, IdScheme.CODE, deA.getCode() );
+        verify( manager, times( 1 ) ).get( DataElement.class, 1L );
+    }
+
+    @Test
+    public void testGetCachedObjects()
+    {
+        when( manager.get( DataElement.class, 1L ) ).thenReturn( deA );
+
+        cache.put( DataElement.class, IdScheme.UID, Lists.newArrayList( deA ) );
+
+        Map<String, DataElement> objects = cache.getCachedObjects( DataElement.class, IdScheme.UID,
+            Sets.newHashSet( deA.getUid(), deB.getUid() ) );
+
+        assertEquals( 1, objects.size() );
+        assertEquals( deA, objects.get( deA.getUid() ) );
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        when( manager.get( DataElement.class, 1L ) ).thenReturn( deA );
+
+        cache.put( DataElement.class, IdScheme.UID, Lists.newArrayList( deA ) );
+        cache.invalidate( DataElement.class );
+
+        assertTrue( cache.getCachedObjects( DataElement.class, IdScheme.UID,
+            Sets.newHashSet( deA.getUid() ) ).isEmpty() );
+    }
+
+    @Test
+    public void testStaleIdentifierIsNotReturned()
+    {
+        when( manager.get( DataElement.class, 1L ) ).thenReturn( deA );
+
+        cache.put( DataElement.class, IdScheme.CODE, Lists.newArrayList( deA ) );
+
+        String code = deA.getCode();
+        deA.setCode( "DataElementCodeX" );
+
+        assertNull( cache.getObject( DataElement.class, IdScheme.CODE, code ) );
+        verify( manager, times( 1 ) ).getObject( DataElement.class, IdScheme.CODE, code );
+    }
+
+    @Test
+    public void testNameIdSchemeIsNotCached()
+    {
+        when( manager.getObject( DataElement.class, IdScheme.NAME, deA.getName() ) ).thenReturn( deA );
+
+        cache.getObject( DataElement.class, IdScheme.NAME, deA.getName() );
+        cache.getObject( DataElement.class, IdScheme.NAME, deA.getName() );
+
+        verify( manager, times( 2 ) ).getObject( DataElement.class, IdScheme.NAME, deA.getName() );
+    }
+}
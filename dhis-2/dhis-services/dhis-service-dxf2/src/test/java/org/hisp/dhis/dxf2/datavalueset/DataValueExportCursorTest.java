@@ -0,0 +1,70 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Timestamp;
+
+import org.hisp.dhis.common.IllegalQueryException;
+import org.junit.Test;
+
+public class DataValueExportCursorTest
+{
+    @Test
+    public void testTokenRoundTrip()
+    {
+        Timestamp lastUpdated = new Timestamp( 1577880000123L );
+        lastUpdated.setNanos( 123456000 );
+
+        DataValueExportCursor cursor = new DataValueExportCursor( lastUpdated, 1L, 2L, 3L, 4L, 5L );
+
+        DataValueExportCursor decoded = DataValueExportCursor.fromToken( cursor.toToken() );
+
+        assertEquals( lastUpdated, decoded.getLastUpdated() );
+        assertEquals( 1L, decoded.getDataElement() );
+        assertEquals( 2L, decoded.getPeriod() );
+        assertEquals( 3L, decoded.getOrgUnit() );
+        assertEquals( 4L, decoded.getCategoryOptionCombo() );
+        assertEquals( 5L, decoded.getAttributeOptionCombo() );
+    }
+
+    @Test
+    public void testNullToken()
+    {
+        assertNull( DataValueExportCursor.fromToken( null ) );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testInvalidToken()
+    {
+        DataValueExportCursor.fromToken( "not-a-cursor" );
+    }
+}
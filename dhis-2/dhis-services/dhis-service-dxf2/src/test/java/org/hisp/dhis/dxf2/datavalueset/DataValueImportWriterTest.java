@@ -0,0 +1,167 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.importexport.ImportStrategy;
+import org.hisp.dhis.mock.batchhandler.MockBatchHandler;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class DataValueImportWriterTest
+    extends DhisConvenienceTest
+{
+    private MockBatchHandler<DataValue> dataValueBatchHandler;
+
+    private MockBatchHandler<DataValueAudit> auditBatchHandler;
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    private Period peA;
+
+    private OrganisationUnit ouA;
+
+    private CategoryOptionCombo cocA;
+
+    @Before
+    public void setUp()
+    {
+        dataValueBatchHandler = new MockBatchHandler<>();
+        auditBatchHandler = new MockBatchHandler<>();
+
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+        deB.setValueType( ValueType.FILE_RESOURCE );
+        peA = createPeriod( "201901" );
+        ouA = createOrganisationUnit( 'A' );
+        cocA = createCategoryOptionCombo( 'A' );
+    }
+
+    @Test
+    public void testWriteInsertsUpdatesAndAudits()
+    {
+        DataValue dvA = new DataValue( deA, peA, ouA, cocA, cocA, "10" );
+        DataValue dvB = new DataValue( deB, peA, ouA, cocA, cocA, "fileResourceUid" );
+        DataValue existingA = new DataValue( deA, peA, ouA, cocA, cocA, "5" );
+
+        Map<DataValue, DataValue> existingValues = new HashMap<>();
+        existingValues.put( existingA, existingA );
+
+        DataValueImportWriter writer = new DataValueImportWriter( dataValueBatchHandler, auditBatchHandler,
+            ImportStrategy.CREATE_AND_UPDATE, false, false );
+
+        writer.write( Lists.newArrayList( dvA, dvB ), existingValues, new HashMap<>() );
+
+        assertEquals( 1, writer.getImportCount() );
+        assertEquals( 1, writer.getUpdateCount() );
+        assertEquals( 0, writer.getDeleteCount() );
+        assertEquals( 1, dataValueBatchHandler.getInserts().size() );
+        assertEquals( 1, dataValueBatchHandler.getUpdates().size() );
+        assertEquals( 1, auditBatchHandler.getInserts().size() );
+        assertEquals( "5", auditBatchHandler.getInserts().get( 0 ).getValue() );
+        assertEquals( Lists.newArrayList( "fileResourceUid" ), writer.pollAssignedFileResources() );
+        assertTrue( writer.pollAssignedFileResources().isEmpty() );
+    }
+
+    @Test
+    public void testWriteQueuesAudits()
+    {
+        DataValue dvA = new DataValue( deA, peA, ouA, cocA, cocA, "10" );
+        DataValue existingA = new DataValue( deA, peA, ouA, cocA, cocA, "5" );
+
+        Map<DataValue, DataValue> existingValues = new HashMap<>();
+        existingValues.put( existingA, existingA );
+
+        List<DataValueAudit> auditQueue = new ArrayList<>();
+
+        DataValueImportWriter writer = new DataValueImportWriter( dataValueBatchHandler, null, auditQueue::add,
+            ImportStrategy.CREATE_AND_UPDATE, false, false );
+
+        writer.write( Lists.newArrayList( dvA ), existingValues, new HashMap<>() );
+
+        assertEquals( 1, writer.getUpdateCount() );
+        assertEquals( 1, auditQueue.size() );
+        assertEquals( "5", auditQueue.get( 0 ).getValue() );
+    }
+
+    @Test
+    public void testWriteDuplicateKeyAuditsPreviousWrite()
+    {
+        DataValue dvA1 = new DataValue( deA, peA, ouA, cocA, cocA, "10" );
+        DataValue dvA2 = new DataValue( deA, peA, ouA, cocA, cocA, "20" );
+        DataValue existingA = new DataValue( deA, peA, ouA, cocA, cocA, "5" );
+
+        Map<DataValue, DataValue> existingValues = new HashMap<>();
+        existingValues.put( existingA, existingA );
+
+        DataValueImportWriter writer = new DataValueImportWriter( dataValueBatchHandler, auditBatchHandler,
+            ImportStrategy.CREATE_AND_UPDATE, false, false );
+
+        writer.write( Lists.newArrayList( dvA1, dvA2 ), existingValues, new HashMap<>() );
+
+        assertEquals( 2, writer.getUpdateCount() );
+        assertEquals( 2, auditBatchHandler.getInserts().size() );
+        assertEquals( "5", auditBatchHandler.getInserts().get( 0 ).getValue() );
+        assertEquals( "10", auditBatchHandler.getInserts().get( 1 ).getValue() );
+    }
+
+    @Test
+    public void testWriteDryRunSkipsBatchHandlers()
+    {
+        DataValue dvA = new DataValue( deA, peA, ouA, cocA, cocA, "10" );
+
+        DataValueImportWriter writer = new DataValueImportWriter( dataValueBatchHandler, null,
+            ImportStrategy.CREATE_AND_UPDATE, true, false );
+
+        writer.write( Lists.newArrayList( dvA ), new HashMap<>(), new HashMap<>() );
+
+        assertEquals( 1, writer.getImportCount() );
+        assertTrue( dataValueBatchHandler.getInserts().isEmpty() );
+    }
+}
@@ -30,10 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.hisp.dhis.IntegrationTestBase;
 import org.hisp.dhis.attribute.Attribute;
@@ -458,6 +461,29 @@ public class DataValueSetServiceExportTest
         assertEquals( 14, dvs.getDataValues().size() );
     }
 
+    @Test
+    public void testExportLastUpdatedKeysetPages()
+        throws IOException
+    {
+        Date lastUpdated = getDate( 1970, 1, 1 );
+        Set<String> keys = new HashSet<>();
+
+        DataValueExportCursor pageEndA = dataValueSetService.getDataValueExportPageEnd( lastUpdated, 5, null );
+        assertNotNull( pageEndA );
+        assertEquals( 5, writeKeysetPage( lastUpdated, null, pageEndA, keys ) );
+
+        DataValueExportCursor after = DataValueExportCursor.fromToken( pageEndA.toToken() );
+        DataValueExportCursor pageEndB = dataValueSetService.getDataValueExportPageEnd( lastUpdated, 5, after );
+        assertNotNull( pageEndB );
+        assertEquals( 5, writeKeysetPage( lastUpdated, after, pageEndB, keys ) );
+
+        DataValueExportCursor pageEndC = dataValueSetService.getDataValueExportPageEnd( lastUpdated, 5, pageEndB );
+        assertNull( pageEndC );
+        assertEquals( 2, writeKeysetPage( lastUpdated, pageEndB, pageEndC, keys ) );
+
+        assertEquals( 12, keys.size() );
+    }
+
     @Test
     public void testMissingDataSetElementGroup()
     {
@@ -580,4 +606,26 @@ public class DataValueSetServiceExportTest
         dataValueSetService.writeDataValueSetJson( params, out );
     }
 
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int writeKeysetPage( Date lastUpdated, DataValueExportCursor after, DataValueExportCursor pageEnd,
+        Set<String> keys )
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        dataValueSetService.writeDataValueSetJson( lastUpdated, out, new IdSchemes(), after, pageEnd );
+
+        DataValueSet dvs = jsonMapper.readValue( out.toByteArray(), DataValueSet.class );
+
+        for ( org.hisp.dhis.dxf2.datavalue.DataValue dv : dvs.getDataValues() )
+        {
+            keys.add( dv.getDataElement() + dv.getPeriod() + dv.getOrgUnit() + dv.getCategoryOptionCombo() +
+                dv.getAttributeOptionCombo() );
+        }
+
+        return dvs.getDataValues().size();
+    }
 }
@@ -52,6 +52,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -118,6 +119,9 @@ public class DataValueSetServiceTest
     @Autowired
     private DataValueSetService dataValueSetService;
 
+    @Autowired
+    private DataValueService dataValueService;
+
     @Autowired
     private DataValueSetService dataValueSetServiceNoMocks;
 
@@ -963,7 +967,7 @@ public class DataValueSetServiceTest
     public void testImportDataValuesUpdatedAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addExistingDataValuesA();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -984,13 +988,14 @@ public class DataValueSetServiceTest
         assertEquals( "10003", ( ( List<DataValue> ) dataValues ).get( 2 ).getValue() );
 
         assertEquals( 3, auditValues.size() );
+        assertNotNull( summary.getValuesPerSecond() );
     }
 
     @Test
     public void testImportDataValuesUpdatedSkipAudit()
         throws Exception
     {
-        mockDataValueBatchHandler.withFindSelf( true );
+        addExistingDataValuesA();
 
         in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
 
@@ -1273,4 +1278,16 @@ public class DataValueSetServiceTest
 
         return createPeriod( PeriodType.getByNameIgnoreCase( MonthlyPeriodType.NAME ), monthStart, monthEnd );
     }
+
+    /**
+     * Persists data values with the keys of the data values in dataValueSetA.xml.
+     */
+    private void addExistingDataValuesA()
+    {
+        dataValueService.addDataValue( new DataValue( deA, peA, ouA, ocDef, ocDef, "10000" ) );
+        dataValueService.addDataValue( new DataValue( deA, peA, ouB, ocDef, ocDef, "10000" ) );
+        dataValueService.addDataValue( new DataValue( deA, peB, ouA, ocDef, ocDef, "10000" ) );
+
+        dbmsManager.flushSession();
+    }
 }
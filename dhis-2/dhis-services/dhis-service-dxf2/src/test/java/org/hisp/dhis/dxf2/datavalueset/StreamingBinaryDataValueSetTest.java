@@ -0,0 +1,248 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class StreamingBinaryDataValueSetTest
+{
+    private static final int ROWS = StreamingBinaryDataValueSet.BLOCK_SIZE * 2 + 100;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void testRoundTrip()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writeDataValues( new StreamingBinaryDataValueSet( out ) );
+
+        DataValueSet dataValueSet = new StreamingBinaryDataValueSet( new ByteArrayInputStream( out.toByteArray() ) );
+
+        assertEquals( "pBOMPrpg1QX", dataValueSet.getDataSet() );
+        assertEquals( "2020-01-15", dataValueSet.getCompleteDate() );
+        assertEquals( "CODE", dataValueSet.getOrgUnitIdScheme() );
+        assertTrue( dataValueSet.getDryRun() );
+        assertNull( dataValueSet.getPeriod() );
+
+        int count = 0;
+
+        while ( dataValueSet.hasNextDataValue() )
+        {
+            DataValue dataValue = dataValueSet.getNextDataValue();
+
+            assertEquals( "deabcdefgh" + ( count % 50 ), dataValue.getDataElement() );
+            assertEquals( "2020" + String.format( "%02d", count % 12 + 1 ), dataValue.getPeriod() );
+            assertEquals( "OU_" + ( count % 300 ), dataValue.getOrgUnit() );
+            assertEquals( "HllvX50cXC0", dataValue.getCategoryOptionCombo() );
+            assertNull( dataValue.getAttributeOptionCombo() );
+            assertEquals( String.valueOf( count ), dataValue.getValue() );
+            assertEquals( "admin", dataValue.getStoredBy() );
+            assertEquals( "2020-01-15T10:00:00.000", dataValue.getLastUpdated() );
+            assertEquals( count % 7 == 0 ? "Comment \u00e6\u00f8\u00e5" : null, dataValue.getComment() );
+            assertEquals( count % 2 == 0, dataValue.getFollowup() );
+            assertEquals( count % 5 == 0 ? Boolean.TRUE : null, dataValue.getDeleted() );
+
+            count++;
+        }
+
+        dataValueSet.close();
+
+        assertEquals( ROWS, count );
+    }
+
+    @Test
+    public void testEmptyDataValueSet()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new StreamingBinaryDataValueSet( out ).close();
+
+        DataValueSet dataValueSet = new StreamingBinaryDataValueSet( new ByteArrayInputStream( out.toByteArray() ) );
+
+        assertFalse( dataValueSet.hasNextDataValue() );
+        assertNull( dataValueSet.getDryRun() );
+    }
+
+    @Test( expected = RuntimeException.class )
+    public void testInvalidInput()
+    {
+        new StreamingBinaryDataValueSet( new ByteArrayInputStream( "{\"dataValues\":[]}".getBytes() ) );
+    }
+
+    @Test
+    public void testInvalidBlockSize()
+    {
+        thrown.expect( RuntimeException.class );
+        thrown.expectMessage( "Invalid block size: 4097" );
+
+        readAll( withBlock( StreamingBinaryDataValueSet.BLOCK_SIZE + 1 ) );
+    }
+
+    @Test
+    public void testInvalidDictionarySize()
+    {
+        thrown.expect( RuntimeException.class );
+        thrown.expectMessage( "Invalid number of dictionary entries: 7" );
+
+        readAll( withBlock( 1, 7 ) );
+    }
+
+    @Test
+    public void testInvalidReference()
+    {
+        thrown.expect( RuntimeException.class );
+        thrown.expectMessage( "Invalid dictionary reference: 2" );
+
+        readAll( withBlock( 1, 1, 2, 'A', 2 ) );
+    }
+
+    @Test
+    public void testInvalidStringLength()
+    {
+        thrown.expect( RuntimeException.class );
+        thrown.expectMessage( "Invalid string length" );
+
+        readAll( withBlock( 1, 1, StreamingBinaryDataValueSet.MAX_STRING_LENGTH + 2 ) );
+    }
+
+    @Test
+    public void testTruncatedInput()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writeDataValues( new StreamingBinaryDataValueSet( out ) );
+
+        thrown.expect( RuntimeException.class );
+        thrown.expectMessage( "Unexpected end of input" );
+
+        readAll( Arrays.copyOf( out.toByteArray(), out.size() / 2 ) );
+    }
+
+    @Test
+    public void testSmallerThanJson()
+    {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+
+        writeDataValues( new StreamingBinaryDataValueSet( binary ) );
+        writeDataValues( new StreamingJsonDataValueSet( json ) );
+
+        assertTrue( binary.size() * 3 < json.size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a binary data value set with a valid header followed by the
+     * given values as the first block, written as variable length integers.
+     */
+    private byte[] withBlock( int... block )
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new StreamingBinaryDataValueSet( out ).close();
+
+        byte[] empty = out.toByteArray();
+
+        out.reset();
+        out.write( empty, 0, empty.length - 1 );
+
+        for ( int value : block )
+        {
+            while ( ( value & ~0x7F ) != 0 )
+            {
+                out.write( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+
+            out.write( value );
+        }
+
+        return out.toByteArray();
+    }
+
+    private void readAll( byte[] input )
+    {
+        DataValueSet dataValueSet = new StreamingBinaryDataValueSet( new ByteArrayInputStream( input ) );
+
+        while ( dataValueSet.hasNextDataValue() )
+        {
+            dataValueSet.getNextDataValue();
+        }
+    }
+
+    private void writeDataValues( DataValueSet dataValueSet )
+    {
+        dataValueSet.setDataSet( "pBOMPrpg1QX" );
+        dataValueSet.setCompleteDate( "2020-01-15" );
+        dataValueSet.setOrgUnitIdScheme( "CODE" );
+        dataValueSet.setDryRun( true );
+
+        for ( int i = 0; i < ROWS; i++ )
+        {
+            DataValue dataValue = dataValueSet.getDataValueInstance();
+
+            dataValue.setDataElement( "deabcdefgh" + ( i % 50 ) );
+            dataValue.setPeriod( "2020" + String.format( "%02d", i % 12 + 1 ) );
+            dataValue.setOrgUnit( "OU_" + ( i % 300 ) );
+            dataValue.setCategoryOptionCombo( "HllvX50cXC0" );
+            dataValue.setValue( String.valueOf( i ) );
+            dataValue.setStoredBy( "admin" );
+            dataValue.setLastUpdated( "2020-01-15T10:00:00.000" );
+            dataValue.setComment( i % 7 == 0 ? "Comment \u00e6\u00f8\u00e5" : null );
+            dataValue.setFollowup( i % 2 == 0 );
+
+            if ( i % 5 == 0 )
+            {
+                dataValue.setDeleted( true );
+            }
+
+            dataValue.close();
+        }
+
+        dataValueSet.close();
+    }
+}
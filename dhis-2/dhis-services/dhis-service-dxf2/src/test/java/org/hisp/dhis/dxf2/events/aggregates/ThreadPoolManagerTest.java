@@ -0,0 +1,147 @@
+package org.hisp.dhis.dxf2.events.aggregates;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_AGGREGATE_QUEUE_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_AGGREGATE_REQUEST_CONCURRENCY;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_AGGREGATE_THREADS;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class ThreadPoolManagerTest
+{
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private ThreadPoolManager threadPoolManager;
+
+    @Before
+    public void setUp()
+    {
+        when( config.getProperty( TRACKER_AGGREGATE_THREADS ) ).thenReturn( "4" );
+        when( config.getProperty( TRACKER_AGGREGATE_QUEUE_SIZE ) ).thenReturn( "100" );
+        when( config.getProperty( TRACKER_AGGREGATE_REQUEST_CONCURRENCY ) ).thenReturn( "2" );
+
+        threadPoolManager = new ThreadPoolManager( config );
+    }
+
+    @After
+    public void tearDown()
+    {
+        threadPoolManager.shutdown();
+    }
+
+    @Test
+    public void verifyRequestConcurrencyIsLimited()
+        throws Exception
+    {
+        Executor executor = threadPoolManager.getRequestExecutor();
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> futures = IntStream.range( 0, 10 )
+            .mapToObj( i -> supplyAsync( () -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                sleep();
+                running.decrementAndGet();
+                return i;
+            }, executor ) )
+            .collect( Collectors.toList() );
+
+        allOf( futures.toArray( new CompletableFuture[0] ) ).get( 10, TimeUnit.SECONDS );
+
+        assertThat( maxRunning.get(), lessThanOrEqualTo( 2 ) );
+        assertThat( threadPoolManager.getPendingTasks(), is( 0 ) );
+        assertThat( threadPoolManager.getWaitCount(), is( 10L ) );
+    }
+
+    @Test
+    public void verifyNestedFetchesDoNotExhaustPool()
+        throws Exception
+    {
+        List<CompletableFuture<Integer>> requests = IntStream.range( 0, 8 )
+            .mapToObj( i -> {
+                Executor executor = threadPoolManager.getRequestExecutor();
+
+                return supplyAsync( () -> {
+                    CompletableFuture<Integer> nested = supplyAsync( () -> {
+                        sleep();
+                        return 1;
+                    }, executor );
+
+                    return nested.join() + 1;
+                }, executor );
+            } )
+            .collect( Collectors.toList() );
+
+        allOf( requests.toArray( new CompletableFuture[0] ) ).get( 10, TimeUnit.SECONDS );
+
+        for ( CompletableFuture<Integer> request : requests )
+        {
+            assertThat( request.get(), is( 2 ) );
+        }
+    }
+
+    private void sleep()
+    {
+        try
+        {
+            Thread.sleep( 20 );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -40,6 +40,7 @@ import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridWriter;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
 import org.hisp.dhis.period.Period;
@@ -102,6 +103,12 @@ public class MockAnalyticsService
         throw new NotImplementedException( "" );
     }
 
+    @Override
+    public void getRawDataValues( DataQueryParams params, GridWriter writer )
+    {
+        throw new NotImplementedException( "" );
+    }
+
     @Override
     public DataValueSet getAggregatedDataValueSet( DataQueryParams params )
     {
@@ -182,6 +182,8 @@ public class DefaultTrackerImportService
         List<TrackerBundle> trackerBundles = trackerBundleService.create( bundleParams );
 
         importReport.getTimings().setPreheat( preheatTimer.toString() );
+        trackerBundles.forEach( bundle -> importReport.getTimings().getPreheatTimings()
+            .putAll( bundle.getPreheat().getTimings() ) );
         return trackerBundles;
     }
 
@@ -279,6 +281,8 @@ public class DefaultTrackerImportService
             TrackerImportStrategy.CREATE_AND_UPDATE ) );
         params.setAtomicMode( getEnumWithDefault( AtomicMode.class, parameters, "atomicMode", AtomicMode.ALL ) );
         params.setFlushMode( getEnumWithDefault( FlushMode.class, parameters, "flushMode", FlushMode.AUTO ) );
+        params.setCommitMode(
+            getEnumWithDefault( CommitMode.class, parameters, "commitMode", CommitMode.HIBERNATE ) );
 
         return params;
     }
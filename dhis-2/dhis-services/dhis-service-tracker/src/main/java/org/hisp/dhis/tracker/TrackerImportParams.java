@@ -100,6 +100,13 @@ public class TrackerImportParams
     @Builder.Default
     private FlushMode flushMode = FlushMode.AUTO;
 
+    /**
+     * Persist objects through Hibernate or with JDBC batch statements.
+     */
+    @JsonProperty
+    @Builder.Default
+    private CommitMode commitMode = CommitMode.HIBERNATE;
+
     /**
      * Validation mode to use, defaults to fully validated objects.
      */
@@ -199,6 +206,7 @@ public class TrackerImportParams
             .identifiers( identifiers )
             .atomicMode( atomicMode )
             .flushMode( flushMode )
+            .commitMode( commitMode )
             .validationMode( validationMode )
             .reportMode( reportMode )
             .trackedEntities( trackedEntities )
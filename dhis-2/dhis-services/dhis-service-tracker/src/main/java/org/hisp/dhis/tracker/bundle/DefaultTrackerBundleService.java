@@ -32,13 +32,21 @@ import com.google.common.collect.ImmutableMap;
 import static com.google.api.client.util.Preconditions.checkNotNull;
 
 import java.text.ParseException;
+import java.time.LocalDateTime;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.hibernate.Cache;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hisp.dhis.artemis.audit.Audit;
+import org.hisp.dhis.artemis.audit.AuditManager;
+import org.hisp.dhis.artemis.audit.AuditableEntity;
+import org.hisp.dhis.audit.AuditScope;
+import org.hisp.dhis.audit.AuditType;
 import org.hisp.dhis.cache.HibernateCacheManager;
+import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataelement.DataElement;
@@ -54,6 +62,7 @@ import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentityattributevalue.TrackedEntityAttributeValue;
 import org.hisp.dhis.trackedentitycomment.TrackedEntityComment;
 import org.hisp.dhis.trackedentitycomment.TrackedEntityCommentService;
+import org.hisp.dhis.tracker.CommitMode;
 import org.hisp.dhis.tracker.FlushMode;
 import org.hisp.dhis.tracker.TrackerIdScheme;
 import org.hisp.dhis.tracker.TrackerObjectDeletionService;
@@ -119,6 +128,10 @@ public class DefaultTrackerBundleService
 
     private TrackerObjectDeletionService deletionService;
 
+    private final JdbcTrackerBundleStore jdbcStore;
+
+    private final AuditManager auditManager;
+
     private List<TrackerBundleHook> bundleHooks = new ArrayList<>();
 
     private List<SideEffectHandlerService> sideEffectHandlers = new ArrayList<>();
@@ -151,6 +164,14 @@ public class DefaultTrackerBundleService
         .put( TrackerType.RELATIONSHIP, this::handleRelationships )
         .build();
 
+    private final ImmutableMap<TrackerType, Function<TrackerBundle, TrackerTypeReport>> JDBC_COMMIT_MAPPER =
+        new ImmutableMap.Builder<TrackerType, Function<TrackerBundle, TrackerTypeReport>>()
+        .put( TrackerType.ENROLLMENT, this::handleEnrollmentsJdbc )
+        .put( TrackerType.EVENT, this::handleEventsJdbc )
+        .put( TrackerType.TRACKED_ENTITY, this::handleTrackedEntitiesJdbc )
+        .put( TrackerType.RELATIONSHIP, this::handleRelationshipsJdbc )
+        .build();
+
     public DefaultTrackerBundleService( TrackerPreheatService trackerPreheatService,
         TrackerConverterService<TrackedEntity, TrackedEntityInstance> trackedEntityTrackerConverterService,
         TrackerConverterService<Enrollment, ProgramInstance> enrollmentTrackerConverterService,
@@ -164,7 +185,9 @@ public class DefaultTrackerBundleService
         ReservedValueService reservedValueService,
         TrackerProgramRuleService trackerProgramRuleService,
         TrackedEntityCommentService trackedEntityCommentService,
-        TrackerObjectDeletionService deletionService )
+        TrackerObjectDeletionService deletionService,
+        JdbcTrackerBundleStore jdbcStore,
+        AuditManager auditManager )
 
     {
         this.trackerPreheatService = trackerPreheatService;
@@ -181,6 +204,8 @@ public class DefaultTrackerBundleService
         this.trackerProgramRuleService = trackerProgramRuleService;
         this.trackedEntityCommentService = trackedEntityCommentService;
         this.deletionService = deletionService;
+        this.jdbcStore = jdbcStore;
+        this.auditManager = auditManager;
     }
 
     @Override
@@ -237,9 +262,16 @@ public class DefaultTrackerBundleService
 
         bundleHooks.forEach( hook -> hook.preCommit( bundle ) );
 
-        Stream.of( TrackerType.values() )
-            .forEach( t -> bundleReport.getTypeReportMap().put( t, COMMIT_MAPPER.get( t )
-            .apply( session, bundle ) ) );
+        if ( CommitMode.JDBC == bundle.getCommitMode() )
+        {
+            commitJdbc( session, bundle, bundleReport );
+        }
+        else
+        {
+            Stream.of( TrackerType.values() )
+                .forEach( t -> bundleReport.getTypeReportMap().put( t, COMMIT_MAPPER.get( t )
+                .apply( session, bundle ) ) );
+        }
 
         bundleHooks.forEach( hook -> hook.postCommit( bundle ) );
 
@@ -249,6 +281,42 @@ public class DefaultTrackerBundleService
         return bundleReport;
     }
 
+    /**
+     * Writes the bundle with JDBC batch statements. Objects converted from the
+     * payload may be entities managed by the session, so the session is put in
+     * manual flush mode and cleared afterwards to make sure Hibernate does not
+     * write them a second time. As the Hibernate audit listeners and the second
+     * level cache are bypassed, audits are published by the JDBC handlers and
+     * the cache regions of the written entities are evicted here.
+     */
+    private void commitJdbc( Session session, TrackerBundle bundle, TrackerBundleReport bundleReport )
+    {
+        session.flush();
+
+        org.hibernate.FlushMode flushMode = session.getHibernateFlushMode();
+        session.setHibernateFlushMode( org.hibernate.FlushMode.MANUAL );
+
+        try
+        {
+            Stream.of( TrackerType.values() )
+                .forEach( t -> bundleReport.getTypeReportMap().put( t, JDBC_COMMIT_MAPPER.get( t )
+                .apply( bundle ) ) );
+        }
+        finally
+        {
+            session.clear();
+            session.setHibernateFlushMode( flushMode );
+
+            Cache cache = sessionFactory.getCache();
+            cache.evictEntityData( TrackedEntityInstance.class );
+            cache.evictEntityData( TrackedEntityAttributeValue.class );
+            cache.evictEntityData( ProgramInstance.class );
+            cache.evictEntityData( ProgramStageInstance.class );
+            cache.evictEntityData( org.hisp.dhis.relationship.Relationship.class );
+            cache.evictEntityData( FileResource.class );
+        }
+    }
+
     @Override
     @Transactional
     public TrackerBundleReport delete( TrackerBundle bundle )
@@ -363,19 +431,7 @@ public class DefaultTrackerBundleService
             // TODO: Implement support for update and delete and rollback/decrement create etc.
             typeReport.getStats().incCreated();
 
-            if ( !bundle.isSkipSideEffects() )
-            {
-                TrackerSideEffectDataBundle sideEffectDataBundle = TrackerSideEffectDataBundle.builder()
-                    .klass( ProgramInstance.class )
-                    .enrollmentRuleEffects( bundle.getEnrollmentRuleEffects() )
-                    .eventRuleEffects( bundle.getEventRuleEffects() )
-                    .object( programInstance )
-                    .importStrategy( bundle.getImportStrategy() )
-                    .accessedBy( bundle.getUsername() )
-                    .build();
-
-                sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
-            }
+            handleSideEffects( bundle, ProgramInstance.class, programInstance );
         }
 
         session.flush();
@@ -415,7 +471,9 @@ public class DefaultTrackerBundleService
                 programStageInstance.getUid(), idx );
             typeReport.addObjectReport( objectReport );
 
-            handleDataValues( session, bundle.getPreheat(), event.getDataValues(), programStageInstance );
+            PayloadChanges changes = new PayloadChanges();
+            handleDataValues( bundle.getPreheat(), event.getDataValues(), programStageInstance, changes );
+            applyChanges( session, bundle.getPreheat(), changes );
 
             session.persist( programStageInstance );
 
@@ -429,19 +487,7 @@ public class DefaultTrackerBundleService
             // TODO: Implement support for update and delete and rollback/decrement create etc.
             typeReport.getStats().incCreated();
 
-            if ( !bundle.isSkipSideEffects() )
-            {
-                TrackerSideEffectDataBundle sideEffectDataBundle = TrackerSideEffectDataBundle.builder()
-                    .klass( ProgramStageInstance.class )
-                    .enrollmentRuleEffects( bundle.getEnrollmentRuleEffects() )
-                    .eventRuleEffects( bundle.getEventRuleEffects() )
-                    .object( programStageInstance )
-                    .importStrategy( bundle.getImportStrategy() )
-                    .accessedBy( bundle.getUsername() )
-                    .build();
-
-                sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
-            }
+            handleSideEffects( bundle, ProgramStageInstance.class, programStageInstance );
         }
 
         session.flush();
@@ -465,11 +511,11 @@ public class DefaultTrackerBundleService
             relationship.setLastUpdated( now );
             relationship.setLastUpdatedBy( bundle.getUser() );
 
-            TrackerObjectReport objectReport = new TrackerObjectReport( TrackerType.EVENT, relationship.getUid(), idx );
+            TrackerObjectReport objectReport = new TrackerObjectReport( TrackerType.RELATIONSHIP,
+                relationship.getUid(), idx );
             typeReport.addObjectReport( objectReport );
 
             session.persist( relationship );
-            typeReport.getStats().incCreated();
 
             if ( FlushMode.OBJECT == bundle.getFlushMode() )
             {
@@ -486,12 +532,189 @@ public class DefaultTrackerBundleService
         return typeReport;
     }
 
+    private TrackerTypeReport handleTrackedEntitiesJdbc( TrackerBundle bundle )
+    {
+        List<TrackedEntity> trackedEntities = bundle.getTrackedEntities();
+        TrackerTypeReport typeReport = new TrackerTypeReport( TrackerType.TRACKED_ENTITY );
+
+        trackedEntities.forEach( o -> bundleHooks.forEach( hook -> hook.preCreate( TrackedEntity.class, o, bundle ) ) );
+
+        Date now = new Date();
+
+        List<TrackedEntityInstance> teis = teConverter.from( bundle.getPreheat(), trackedEntities );
+
+        List<AuditType> auditTypes = getAuditTypes( teis );
+
+        for ( int idx = 0; idx < teis.size(); idx++ )
+        {
+            TrackedEntityInstance tei = teis.get( idx );
+            tei.setLastUpdated( now );
+            tei.setLastUpdatedAtClient( now );
+            tei.setLastUpdatedBy( bundle.getUser() );
+
+            typeReport.addObjectReport( new TrackerObjectReport( TrackerType.TRACKED_ENTITY, tei.getUid(), idx ) );
+            typeReport.getStats().incCreated();
+        }
+
+        jdbcStore.saveTrackedEntityInstances( teis );
+
+        audit( teis, auditTypes );
+
+        bundle.getPreheat().putTrackedEntities( bundle.getIdentifier(), teis );
+
+        PayloadChanges changes = new PayloadChanges();
+
+        for ( int idx = 0; idx < teis.size(); idx++ )
+        {
+            handleTrackedEntityAttributeValues( bundle.getPreheat(), trackedEntities.get( idx ).getAttributes(),
+                teis.get( idx ), changes );
+        }
+
+        applyChanges( changes );
+
+        trackedEntities
+            .forEach( o -> bundleHooks.forEach( hook ->
+                hook.postCreate( TrackedEntity.class, o, bundle ) ) );
+
+        return typeReport;
+    }
+
+    private TrackerTypeReport handleEnrollmentsJdbc( TrackerBundle bundle )
+    {
+        List<Enrollment> enrollments = bundle.getEnrollments();
+        TrackerTypeReport typeReport = new TrackerTypeReport( TrackerType.ENROLLMENT );
+
+        enrollments.forEach( o -> bundleHooks.forEach( hook -> hook.preCreate( Enrollment.class, o, bundle ) ) );
+
+        Date now = new Date();
+
+        List<ProgramInstance> programInstances = enrollmentConverter.from( bundle.getPreheat(), enrollments );
+
+        List<AuditType> auditTypes = getAuditTypes( programInstances );
+
+        for ( int idx = 0; idx < programInstances.size(); idx++ )
+        {
+            ProgramInstance programInstance = programInstances.get( idx );
+            programInstance.setLastUpdated( now );
+            programInstance.setLastUpdatedAtClient( now );
+            programInstance.setLastUpdatedBy( bundle.getUser() );
+
+            typeReport.addObjectReport( new TrackerObjectReport( TrackerType.ENROLLMENT,
+                programInstance.getUid(), idx ) );
+            typeReport.getStats().incCreated();
+        }
+
+        jdbcStore.saveProgramInstances( programInstances );
+
+        audit( programInstances, auditTypes );
+
+        bundle.getPreheat().putEnrollments( bundle.getIdentifier(), programInstances );
+
+        PayloadChanges changes = new PayloadChanges();
+
+        for ( int idx = 0; idx < programInstances.size(); idx++ )
+        {
+            handleTrackedEntityAttributeValues( bundle.getPreheat(), enrollments.get( idx ).getAttributes(),
+                programInstances.get( idx ).getEntityInstance(), changes );
+        }
+
+        applyChanges( changes );
+
+        programInstances.forEach( pi -> handleSideEffects( bundle, ProgramInstance.class, pi ) );
+
+        enrollments.forEach( o -> bundleHooks.forEach( hook -> hook.postCreate( Enrollment.class, o, bundle ) ) );
+
+        return typeReport;
+    }
+
+    private TrackerTypeReport handleEventsJdbc( TrackerBundle bundle )
+    {
+        List<Event> events = bundle.getEvents();
+        TrackerTypeReport typeReport = new TrackerTypeReport( TrackerType.EVENT );
+
+        events.forEach( o -> bundleHooks.forEach( hook -> hook.preCreate( Event.class, o, bundle ) ) );
+
+        Date now = new Date();
+
+        List<ProgramStageInstance> programStageInstances = eventConverter.from( bundle.getPreheat(), events );
+
+        List<AuditType> auditTypes = getAuditTypes( programStageInstances );
+
+        PayloadChanges changes = new PayloadChanges();
+
+        for ( int idx = 0; idx < programStageInstances.size(); idx++ )
+        {
+            ProgramStageInstance programStageInstance = programStageInstances.get( idx );
+            programStageInstance.setLastUpdated( now );
+            programStageInstance.setLastUpdatedAtClient( now );
+            programStageInstance.setLastUpdatedBy( bundle.getUser() );
+
+            typeReport.addObjectReport( new TrackerObjectReport( TrackerType.EVENT,
+                programStageInstance.getUid(), idx ) );
+            typeReport.getStats().incCreated();
+
+            handleDataValues( bundle.getPreheat(), events.get( idx ).getDataValues(), programStageInstance, changes );
+        }
+
+        jdbcStore.saveProgramStageInstances( programStageInstances );
+
+        audit( programStageInstances, auditTypes );
+
+        bundle.getPreheat().putEvents( bundle.getIdentifier(), programStageInstances );
+
+        applyChanges( changes );
+
+        programStageInstances.forEach( psi -> handleSideEffects( bundle, ProgramStageInstance.class, psi ) );
+
+        events.forEach( o -> bundleHooks.forEach( hook -> hook.postCreate( Event.class, o, bundle ) ) );
+
+        return typeReport;
+    }
+
+    private TrackerTypeReport handleRelationshipsJdbc( TrackerBundle bundle )
+    {
+        List<Relationship> relationships = bundle.getRelationships();
+        TrackerTypeReport typeReport = new TrackerTypeReport( TrackerType.RELATIONSHIP );
+
+        relationships.forEach( o -> bundleHooks.forEach( hook -> hook.preCreate( Relationship.class, o, bundle ) ) );
+
+        Date now = new Date();
+
+        List<org.hisp.dhis.relationship.Relationship> toRelationships = relationshipConverter
+            .from( bundle.getPreheat(), relationships );
+
+        for ( int idx = 0; idx < toRelationships.size(); idx++ )
+        {
+            org.hisp.dhis.relationship.Relationship relationship = toRelationships.get( idx );
+            relationship.setLastUpdated( now );
+            relationship.setLastUpdatedBy( bundle.getUser() );
+
+            typeReport.addObjectReport( new TrackerObjectReport( TrackerType.RELATIONSHIP,
+                relationship.getUid(), idx ) );
+            typeReport.getStats().incCreated();
+        }
+
+        jdbcStore.saveRelationships( toRelationships );
+
+        relationships.forEach( o -> bundleHooks.forEach( hook -> hook.postCreate( Relationship.class, o, bundle ) ) );
+
+        return typeReport;
+    }
+
     // -----------------------------------------------------------------------------------
     // Utility Methods
     // -----------------------------------------------------------------------------------
 
     private void handleTrackedEntityAttributeValues( Session session, TrackerPreheat preheat,
         List<Attribute> payloadAttributes, TrackedEntityInstance trackedEntityInstance )
+    {
+        PayloadChanges changes = new PayloadChanges();
+        handleTrackedEntityAttributeValues( preheat, payloadAttributes, trackedEntityInstance, changes );
+        applyChanges( session, preheat, changes );
+    }
+
+    private void handleTrackedEntityAttributeValues( TrackerPreheat preheat, List<Attribute> payloadAttributes,
+        TrackedEntityInstance trackedEntityInstance, PayloadChanges changes )
     {
         Map<String, TrackedEntityAttributeValue> attributeValueDBMap = trackedEntityInstance
             .getTrackedEntityAttributeValues()
@@ -521,17 +744,22 @@ public class DefaultTrackerBundleService
             {
                 if ( attribute.getValueType() == ValueType.FILE_RESOURCE )
                 {
-                    unassignFileResource( session, preheat, attributeValueDBMap.get( at.getAttribute() ).getValue() );
+                    changes.unassignedFileResources.add( attributeValueDBMap.get( at.getAttribute() ).getValue() );
                 }
-                session.remove( attributeValue );
+                changes.removedAttributeValues.add( attributeValue );
             }
             else
             {
                 if ( attribute.getValueType() == ValueType.FILE_RESOURCE )
                 {
-                    assignFileResource( session, preheat, attributeValue.getValue() );
+                    changes.assignedFileResources.add( attributeValue.getValue() );
+                }
+                changes.savedAttributeValues.add( attributeValue );
+
+                if ( !attributeValueDBMap.containsKey( at.getAttribute() ) )
+                {
+                    changes.createdAttributeValues.add( attributeValue );
                 }
-                session.persist( attributeValue );
             }
 
             if ( attributeValue.getAttribute().isGenerated() && attributeValue.getAttribute().getTextPattern() != null )
@@ -542,8 +770,8 @@ public class DefaultTrackerBundleService
         }
     }
 
-    private void handleDataValues( Session session, TrackerPreheat preheat, Set<DataValue> payloadDataValues,
-        ProgramStageInstance psi )
+    private void handleDataValues( TrackerPreheat preheat, Set<DataValue> payloadDataValues,
+        ProgramStageInstance psi, PayloadChanges changes )
     {
         Map<String, EventDataValue> dataValueDBMap = psi
             .getEventDataValues()
@@ -579,7 +807,7 @@ public class DefaultTrackerBundleService
             {
                 if ( dateElement.isFileType() )
                 {
-                    unassignFileResource( session, preheat, dataValueDBMap.get( dv.getDataElement() ).getValue() );
+                    changes.unassignedFileResources.add( dataValueDBMap.get( dv.getDataElement() ).getValue() );
                 }
                 psi.getEventDataValues().remove( eventDataValue );
             }
@@ -587,13 +815,86 @@ public class DefaultTrackerBundleService
             {
                 if ( dateElement.isFileType() )
                 {
-                    assignFileResource( session, preheat, eventDataValue.getValue() );
+                    changes.assignedFileResources.add( eventDataValue.getValue() );
                 }
                 psi.getEventDataValues().add( eventDataValue );
             }
         }
     }
 
+    private void applyChanges( Session session, TrackerPreheat preheat, PayloadChanges changes )
+    {
+        changes.unassignedFileResources.forEach( fr -> unassignFileResource( session, preheat, fr ) );
+        changes.assignedFileResources.forEach( fr -> assignFileResource( session, preheat, fr ) );
+        changes.removedAttributeValues.forEach( session::remove );
+        changes.savedAttributeValues.forEach( session::persist );
+    }
+
+    private void applyChanges( PayloadChanges changes )
+    {
+        jdbcStore.updateFileResourceAssignments( changes.unassignedFileResources, false );
+        jdbcStore.updateFileResourceAssignments( changes.assignedFileResources, true );
+        jdbcStore.deleteTrackedEntityAttributeValues( changes.removedAttributeValues );
+        jdbcStore.saveTrackedEntityAttributeValues( changes.savedAttributeValues );
+
+        changes.removedAttributeValues.forEach( av -> audit( av, AuditType.DELETE ) );
+        changes.savedAttributeValues.forEach( av -> audit( av,
+            changes.createdAttributeValues.contains( av ) ? AuditType.CREATE : AuditType.UPDATE ) );
+    }
+
+    /**
+     * Objects without an id are not yet persisted and are audited as created,
+     * must be called before the objects are written by the JDBC store.
+     */
+    private List<AuditType> getAuditTypes( List<? extends BaseIdentifiableObject> objects )
+    {
+        return objects.stream()
+            .map( o -> o.getId() == 0 ? AuditType.CREATE : AuditType.UPDATE )
+            .collect( Collectors.toList() );
+    }
+
+    private void audit( List<?> objects, List<AuditType> auditTypes )
+    {
+        for ( int idx = 0; idx < objects.size(); idx++ )
+        {
+            audit( objects.get( idx ), auditTypes.get( idx ) );
+        }
+    }
+
+    /**
+     * Publishes the audit the Hibernate audit listeners would have published
+     * for the given tracker object.
+     */
+    private void audit( Object object, AuditType auditType )
+    {
+        auditManager.send( Audit.builder()
+            .auditType( auditType )
+            .auditScope( AuditScope.TRACKER )
+            .createdAt( LocalDateTime.now() )
+            .object( object )
+            .attributes( auditManager.collectAuditAttributes( object, object.getClass() ) )
+            .auditableEntity( new AuditableEntity( object.getClass(), object ) )
+            .build() );
+    }
+
+    private void handleSideEffects( TrackerBundle bundle, Class<? extends BaseIdentifiableObject> klass,
+        BaseIdentifiableObject object )
+    {
+        if ( !bundle.isSkipSideEffects() )
+        {
+            TrackerSideEffectDataBundle sideEffectDataBundle = TrackerSideEffectDataBundle.builder()
+                .klass( klass )
+                .enrollmentRuleEffects( bundle.getEnrollmentRuleEffects() )
+                .eventRuleEffects( bundle.getEventRuleEffects() )
+                .object( object )
+                .importStrategy( bundle.getImportStrategy() )
+                .accessedBy( bundle.getUsername() )
+                .build();
+
+            sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
+        }
+    }
+
     private void assignFileResource( Session session, TrackerPreheat preheat, String fr )
     {
         assignFileResource( session, preheat, fr, true );
@@ -637,4 +938,25 @@ public class DefaultTrackerBundleService
 
         return user;
     }
+
+    /**
+     * Attribute values and file resource assignments resolved from the
+     * payload, which are written either through the session or with JDBC.
+     */
+    private static class PayloadChanges
+    {
+        private final List<TrackedEntityAttributeValue> savedAttributeValues = new ArrayList<>();
+
+        private final List<TrackedEntityAttributeValue> removedAttributeValues = new ArrayList<>();
+
+        /**
+         * Saved attribute values which are new, by identity, as the value
+         * based equality of attribute values depends on the decrypted value.
+         */
+        private final Set<TrackedEntityAttributeValue> createdAttributeValues = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+        private final Set<String> assignedFileResources = new HashSet<>();
+
+        private final Set<String> unassignedFileResources = new HashSet<>();
+    }
 }
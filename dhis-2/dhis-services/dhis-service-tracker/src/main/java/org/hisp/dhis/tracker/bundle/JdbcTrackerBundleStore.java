@@ -0,0 +1,620 @@
+package org.hisp.dhis.tracker.bundle;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.dxf2.events.event.EventUtils.eventDataValuesToJson;
+import static org.hisp.dhis.dxf2.events.event.EventUtils.userInfoToJson;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.dxf2.events.event.JdbcEventSupport;
+import org.hisp.dhis.eventdatavalue.EventDataValue;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.relationship.Relationship;
+import org.hisp.dhis.relationship.RelationshipItem;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.trackedentityattributevalue.TrackedEntityAttributeValue;
+import org.hisp.dhis.trackedentitycomment.TrackedEntityComment;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.postgresql.util.PGobject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes converted tracker objects with JDBC batch statements, bypassing the
+ * Hibernate session. Objects with an id are updated, all other objects get an
+ * id from the database sequence of their table and are inserted. The assigned
+ * ids are set on the objects so that objects of dependent types can refer to
+ * them.
+ * <p>
+ * All statements participate in the transaction of the caller, which is
+ * responsible for clearing the Hibernate session and second-level cache
+ * afterwards.
+ */
+@Slf4j
+@Repository
+public class JdbcTrackerBundleStore
+{
+    private static final String INSERT_TEI_SQL = "insert into trackedentityinstance (" +
+        "trackedentityinstanceid, uid, code, created, lastupdated, lastupdatedby, createdatclient, " +
+        "lastupdatedatclient, storedby, inactive, deleted, lastsynchronized, geometry, organisationunitid, " +
+        "trackedentitytypeid) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_TEI_SQL = "update trackedentityinstance set " +
+        "code = ?, lastupdated = ?, lastupdatedby = ?, createdatclient = ?, lastupdatedatclient = ?, " +
+        "storedby = ?, inactive = ?, deleted = ?, lastsynchronized = ?, geometry = ?, organisationunitid = ?, " +
+        "trackedentitytypeid = ? where trackedentityinstanceid = ?";
+
+    private static final String UPSERT_TEAV_SQL = "insert into trackedentityattributevalue (" +
+        "trackedentityinstanceid, trackedentityattributeid, created, lastupdated, value, encryptedvalue, " +
+        "storedby) values (?, ?, ?, ?, ?, ?, ?) " +
+        "on conflict (trackedentityinstanceid, trackedentityattributeid) do update set " +
+        "lastupdated = excluded.lastupdated, value = excluded.value, " +
+        "encryptedvalue = excluded.encryptedvalue, storedby = excluded.storedby";
+
+    private static final String DELETE_TEAV_SQL = "delete from trackedentityattributevalue " +
+        "where trackedentityinstanceid = ? and trackedentityattributeid = ?";
+
+    private static final String INSERT_PI_SQL = "insert into programinstance (" +
+        "programinstanceid, uid, created, lastupdated, createdatclient, lastupdatedatclient, incidentdate, " +
+        "enrollmentdate, enddate, followup, completedby, geometry, deleted, storedby, status, " +
+        "trackedentityinstanceid, programid, organisationunitid) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PI_SQL = "update programinstance set " +
+        "lastupdated = ?, createdatclient = ?, lastupdatedatclient = ?, incidentdate = ?, enrollmentdate = ?, " +
+        "enddate = ?, followup = ?, completedby = ?, geometry = ?, deleted = ?, storedby = ?, status = ?, " +
+        "trackedentityinstanceid = ?, programid = ?, organisationunitid = ? where programinstanceid = ?";
+
+    private static final String INSERT_PSI_SQL = "insert into programstageinstance (" +
+        "programstageinstanceid, uid, code, created, lastupdated, createdatclient, lastupdatedatclient, " +
+        "programinstanceid, programstageid, attributeoptioncomboid, deleted, storedby, duedate, executiondate, " +
+        "organisationunitid, status, completedby, completeddate, geometry, assigneduserid, createdbyuserinfo, " +
+        "lastupdatedbyuserinfo, eventdatavalues) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_PSI_SQL = "update programstageinstance set " +
+        "code = ?, lastupdated = ?, createdatclient = ?, lastupdatedatclient = ?, programinstanceid = ?, " +
+        "programstageid = ?, attributeoptioncomboid = ?, deleted = ?, storedby = ?, duedate = ?, " +
+        "executiondate = ?, organisationunitid = ?, status = ?, completedby = ?, completeddate = ?, " +
+        "geometry = ?, assigneduserid = ?, lastupdatedbyuserinfo = ?, eventdatavalues = ? " +
+        "where programstageinstanceid = ?";
+
+    private static final String INSERT_COMMENT_SQL = "insert into trackedentitycomment (" +
+        "trackedentitycommentid, uid, code, created, lastupdated, lastupdatedby, commenttext, creator) " +
+        "values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_COMMENT_LINK_SQL = "insert into %s (%s, sort_order, trackedentitycommentid) " +
+        "values (?, ?, ?)";
+
+    private static final String INSERT_RELATIONSHIP_SQL = "insert into relationship (" +
+        "relationshipid, uid, code, created, lastupdated, lastupdatedby, relationshiptypeid) " +
+        "values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String DETACH_RELATIONSHIP_SQL = "update relationship set " +
+        "lastupdated = ?, lastupdatedby = ?, relationshiptypeid = ?, from_relationshipitemid = null, " +
+        "to_relationshipitemid = null where relationshipid = ?";
+
+    private static final String DELETE_RELATIONSHIP_ITEMS_SQL = "delete from relationshipitem " +
+        "where relationshipid = ?";
+
+    private static final String INSERT_RELATIONSHIP_ITEM_SQL = "insert into relationshipitem (" +
+        "relationshipitemid, relationshipid, trackedentityinstanceid, programinstanceid, programstageinstanceid) " +
+        "values (?, ?, ?, ?, ?)";
+
+    private static final String ATTACH_RELATIONSHIP_SQL = "update relationship set " +
+        "from_relationshipitemid = ?, to_relationshipitemid = ? where relationshipid = ?";
+
+    private static final String UPDATE_FILE_RESOURCE_SQL = "update fileresource set isassigned = ? where uid = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper jsonMapper;
+
+    private final PBEStringEncryptor encryptor;
+
+    public JdbcTrackerBundleStore( JdbcTemplate jdbcTemplate,
+        @Qualifier( "dataValueJsonMapper" ) ObjectMapper jsonMapper,
+        @Qualifier( "aes128StringEncryptor" ) PBEStringEncryptor encryptor )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( jsonMapper );
+        checkNotNull( encryptor );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+        this.encryptor = encryptor;
+    }
+
+    // -------------------------------------------------------------------------
+    // Tracked entity instances
+    // -------------------------------------------------------------------------
+
+    /**
+     * Inserts new and updates existing tracked entity instances. New instances
+     * get their id assigned.
+     *
+     * @param trackedEntityInstances the tracked entity instances.
+     */
+    public void saveTrackedEntityInstances( List<TrackedEntityInstance> trackedEntityInstances )
+    {
+        List<TrackedEntityInstance> created = filter( trackedEntityInstances, this::isNew );
+        List<TrackedEntityInstance> updated = filter( trackedEntityInstances, o -> !isNew( o ) );
+
+        assignIds( created, "trackedentityinstance_sequence" );
+
+        batchUpdate( INSERT_TEI_SQL, created, ( ps, tei ) -> {
+            ps.setLong( 1, tei.getId() );
+            ps.setString( 2, tei.getUid() );
+            ps.setString( 3, tei.getCode() );
+            ps.setTimestamp( 4, toTimestamp( tei.getCreated() ) );
+            ps.setTimestamp( 5, toTimestamp( tei.getLastUpdated() ) );
+            setId( ps, 6, tei.getLastUpdatedBy() );
+            ps.setTimestamp( 7, toTimestamp( tei.getCreatedAtClient() ) );
+            ps.setTimestamp( 8, toTimestamp( tei.getLastUpdatedAtClient() ) );
+            ps.setString( 9, tei.getStoredBy() );
+            ps.setBoolean( 10, Boolean.TRUE.equals( tei.isInactive() ) );
+            ps.setBoolean( 11, tei.isDeleted() );
+            ps.setTimestamp( 12, toTimestamp( tei.getLastSynchronized() ) );
+            ps.setObject( 13, JdbcEventSupport.toGeometry( tei.getGeometry() ) );
+            ps.setLong( 14, tei.getOrganisationUnit().getId() );
+            setId( ps, 15, tei.getTrackedEntityType() );
+        } );
+
+        batchUpdate( UPDATE_TEI_SQL, updated, ( ps, tei ) -> {
+            ps.setString( 1, tei.getCode() );
+            ps.setTimestamp( 2, toTimestamp( tei.getLastUpdated() ) );
+            setId( ps, 3, tei.getLastUpdatedBy() );
+            ps.setTimestamp( 4, toTimestamp( tei.getCreatedAtClient() ) );
+            ps.setTimestamp( 5, toTimestamp( tei.getLastUpdatedAtClient() ) );
+            ps.setString( 6, tei.getStoredBy() );
+            ps.setBoolean( 7, Boolean.TRUE.equals( tei.isInactive() ) );
+            ps.setBoolean( 8, tei.isDeleted() );
+            ps.setTimestamp( 9, toTimestamp( tei.getLastSynchronized() ) );
+            ps.setObject( 10, JdbcEventSupport.toGeometry( tei.getGeometry() ) );
+            ps.setLong( 11, tei.getOrganisationUnit().getId() );
+            setId( ps, 12, tei.getTrackedEntityType() );
+            ps.setLong( 13, tei.getId() );
+        } );
+
+        log.debug( "Inserted {} and updated {} tracked entity instances", created.size(), updated.size() );
+    }
+
+    /**
+     * Inserts or updates the given attribute values. Values of confidential
+     * attributes are encrypted the same way as through Hibernate.
+     *
+     * @param attributeValues the attribute values.
+     */
+    public void saveTrackedEntityAttributeValues( List<TrackedEntityAttributeValue> attributeValues )
+    {
+        Date now = new Date();
+
+        batchUpdate( UPSERT_TEAV_SQL, attributeValues, ( ps, av ) -> {
+            String encryptedValue = av.getEncryptedValue();
+
+            ps.setLong( 1, av.getEntityInstance().getId() );
+            ps.setLong( 2, av.getAttribute().getId() );
+            ps.setTimestamp( 3, toTimestamp( av.getCreated() != null ? av.getCreated() : now ) );
+            ps.setTimestamp( 4, toTimestamp( now ) );
+            ps.setString( 5, av.getPlainValue() );
+            ps.setString( 6, encryptedValue != null ? encryptor.encrypt( encryptedValue ) : null );
+            ps.setString( 7, av.getStoredBy() );
+        } );
+    }
+
+    /**
+     * Deletes the given attribute values.
+     *
+     * @param attributeValues the attribute values.
+     */
+    public void deleteTrackedEntityAttributeValues( List<TrackedEntityAttributeValue> attributeValues )
+    {
+        batchUpdate( DELETE_TEAV_SQL, attributeValues, ( ps, av ) -> {
+            ps.setLong( 1, av.getEntityInstance().getId() );
+            ps.setLong( 2, av.getAttribute().getId() );
+        } );
+    }
+
+    // -------------------------------------------------------------------------
+    // Enrollments
+    // -------------------------------------------------------------------------
+
+    /**
+     * Inserts new and updates existing program instances, including new
+     * comments. New instances get their id assigned.
+     *
+     * @param programInstances the program instances.
+     */
+    public void saveProgramInstances( List<ProgramInstance> programInstances )
+    {
+        List<ProgramInstance> created = filter( programInstances, this::isNew );
+        List<ProgramInstance> updated = filter( programInstances, o -> !isNew( o ) );
+
+        assignIds( created, "programinstance_sequence" );
+
+        batchUpdate( INSERT_PI_SQL, created, ( ps, pi ) -> {
+            ps.setLong( 1, pi.getId() );
+            ps.setString( 2, pi.getUid() );
+            ps.setTimestamp( 3, toTimestamp( pi.getCreated() ) );
+            ps.setTimestamp( 4, toTimestamp( pi.getLastUpdated() ) );
+            ps.setTimestamp( 5, toTimestamp( pi.getCreatedAtClient() ) );
+            ps.setTimestamp( 6, toTimestamp( pi.getLastUpdatedAtClient() ) );
+            ps.setTimestamp( 7, toTimestamp( pi.getIncidentDate() ) );
+            ps.setTimestamp( 8, toTimestamp( pi.getEnrollmentDate() ) );
+            ps.setTimestamp( 9, toTimestamp( pi.getEndDate() ) );
+            ps.setBoolean( 10, Boolean.TRUE.equals( pi.getFollowup() ) );
+            ps.setString( 11, pi.getCompletedBy() );
+            ps.setObject( 12, JdbcEventSupport.toGeometry( pi.getGeometry() ) );
+            ps.setBoolean( 13, pi.isDeleted() );
+            ps.setString( 14, pi.getStoredBy() );
+            ps.setString( 15, pi.getStatus() != null ? pi.getStatus().name() : null );
+            setId( ps, 16, pi.getEntityInstance() );
+            ps.setLong( 17, pi.getProgram().getId() );
+            setId( ps, 18, pi.getOrganisationUnit() );
+        } );
+
+        batchUpdate( UPDATE_PI_SQL, updated, ( ps, pi ) -> {
+            ps.setTimestamp( 1, toTimestamp( pi.getLastUpdated() ) );
+            ps.setTimestamp( 2, toTimestamp( pi.getCreatedAtClient() ) );
+            ps.setTimestamp( 3, toTimestamp( pi.getLastUpdatedAtClient() ) );
+            ps.setTimestamp( 4, toTimestamp( pi.getIncidentDate() ) );
+            ps.setTimestamp( 5, toTimestamp( pi.getEnrollmentDate() ) );
+            ps.setTimestamp( 6, toTimestamp( pi.getEndDate() ) );
+            ps.setBoolean( 7, Boolean.TRUE.equals( pi.getFollowup() ) );
+            ps.setString( 8, pi.getCompletedBy() );
+            ps.setObject( 9, JdbcEventSupport.toGeometry( pi.getGeometry() ) );
+            ps.setBoolean( 10, pi.isDeleted() );
+            ps.setString( 11, pi.getStoredBy() );
+            ps.setString( 12, pi.getStatus() != null ? pi.getStatus().name() : null );
+            setId( ps, 13, pi.getEntityInstance() );
+            ps.setLong( 14, pi.getProgram().getId() );
+            setId( ps, 15, pi.getOrganisationUnit() );
+            ps.setLong( 16, pi.getId() );
+        } );
+
+        List<CommentLink> commentLinks = new ArrayList<>();
+        programInstances.forEach( pi -> addCommentLinks( commentLinks, pi.getId(), pi.getComments() ) );
+        saveComments( commentLinks, "programinstancecomments", "programinstanceid" );
+
+        log.debug( "Inserted {} and updated {} program instances", created.size(), updated.size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Events
+    // -------------------------------------------------------------------------
+
+    /**
+     * Inserts new and updates existing program stage instances, including
+     * data values and new comments. New instances get their id assigned.
+     *
+     * @param programStageInstances the program stage instances.
+     */
+    public void saveProgramStageInstances( List<ProgramStageInstance> programStageInstances )
+    {
+        List<ProgramStageInstance> created = filter( programStageInstances, this::isNew );
+        List<ProgramStageInstance> updated = filter( programStageInstances, o -> !isNew( o ) );
+
+        assignIds( created, "programstageinstance_sequence" );
+
+        batchUpdate( INSERT_PSI_SQL, created, ( ps, psi ) -> {
+            ps.setLong( 1, psi.getId() );
+            ps.setString( 2, psi.getUid() );
+            ps.setString( 3, psi.getCode() );
+            ps.setTimestamp( 4, toTimestamp( psi.getCreated() ) );
+            ps.setTimestamp( 5, toTimestamp( psi.getLastUpdated() ) );
+            ps.setTimestamp( 6, toTimestamp( psi.getCreatedAtClient() ) );
+            ps.setTimestamp( 7, toTimestamp( psi.getLastUpdatedAtClient() ) );
+            ps.setLong( 8, psi.getProgramInstance().getId() );
+            ps.setLong( 9, psi.getProgramStage().getId() );
+            setId( ps, 10, psi.getAttributeOptionCombo() );
+            ps.setBoolean( 11, psi.isDeleted() );
+            ps.setString( 12, psi.getStoredBy() );
+            ps.setTimestamp( 13, toTimestamp( psi.getDueDate() ) );
+            ps.setTimestamp( 14, toTimestamp( psi.getExecutionDate() ) );
+            setId( ps, 15, psi.getOrganisationUnit() );
+            ps.setString( 16, psi.getStatus() != null ? psi.getStatus().toString() : null );
+            ps.setString( 17, psi.getCompletedBy() );
+            ps.setTimestamp( 18, toTimestamp( psi.getCompletedDate() ) );
+            ps.setObject( 19, JdbcEventSupport.toGeometry( psi.getGeometry() ) );
+            setId( ps, 20, psi.getAssignedUser() );
+            ps.setObject( 21, userInfoToJson( psi.getCreatedByUserInfo(), jsonMapper ) );
+            ps.setObject( 22, userInfoToJson( psi.getLastUpdatedByUserInfo(), jsonMapper ) );
+            ps.setObject( 23, toJson( psi.getEventDataValues() ) );
+        } );
+
+        batchUpdate( UPDATE_PSI_SQL, updated, ( ps, psi ) -> {
+            ps.setString( 1, psi.getCode() );
+            ps.setTimestamp( 2, toTimestamp( psi.getLastUpdated() ) );
+            ps.setTimestamp( 3, toTimestamp( psi.getCreatedAtClient() ) );
+            ps.setTimestamp( 4, toTimestamp( psi.getLastUpdatedAtClient() ) );
+            ps.setLong( 5, psi.getProgramInstance().getId() );
+            ps.setLong( 6, psi.getProgramStage().getId() );
+            setId( ps, 7, psi.getAttributeOptionCombo() );
+            ps.setBoolean( 8, psi.isDeleted() );
+            ps.setString( 9, psi.getStoredBy() );
+            ps.setTimestamp( 10, toTimestamp( psi.getDueDate() ) );
+            ps.setTimestamp( 11, toTimestamp( psi.getExecutionDate() ) );
+            setId( ps, 12, psi.getOrganisationUnit() );
+            ps.setString( 13, psi.getStatus() != null ? psi.getStatus().toString() : null );
+            ps.setString( 14, psi.getCompletedBy() );
+            ps.setTimestamp( 15, toTimestamp( psi.getCompletedDate() ) );
+            ps.setObject( 16, JdbcEventSupport.toGeometry( psi.getGeometry() ) );
+            setId( ps, 17, psi.getAssignedUser() );
+            ps.setObject( 18, userInfoToJson( psi.getLastUpdatedByUserInfo(), jsonMapper ) );
+            ps.setObject( 19, toJson( psi.getEventDataValues() ) );
+            ps.setLong( 20, psi.getId() );
+        } );
+
+        List<CommentLink> commentLinks = new ArrayList<>();
+        programStageInstances.forEach( psi -> addCommentLinks( commentLinks, psi.getId(), psi.getComments() ) );
+        saveComments( commentLinks, "programstageinstancecomments", "programstageinstanceid" );
+
+        log.debug( "Inserted {} and updated {} program stage instances", created.size(), updated.size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Relationships
+    // -------------------------------------------------------------------------
+
+    /**
+     * Inserts new and updates existing relationships. The items of existing
+     * relationships are replaced by the given items, which mirrors the
+     * delete-orphan cascade of the Hibernate mapping.
+     *
+     * @param relationships the relationships.
+     */
+    public void saveRelationships( List<Relationship> relationships )
+    {
+        List<Relationship> created = filter( relationships, this::isNew );
+        List<Relationship> updated = filter( relationships, o -> !isNew( o ) );
+
+        assignIds( created, "hibernate_sequence" );
+
+        batchUpdate( INSERT_RELATIONSHIP_SQL, created, ( ps, r ) -> {
+            ps.setLong( 1, r.getId() );
+            ps.setString( 2, r.getUid() );
+            ps.setString( 3, r.getCode() );
+            ps.setTimestamp( 4, toTimestamp( r.getCreated() ) );
+            ps.setTimestamp( 5, toTimestamp( r.getLastUpdated() ) );
+            setId( ps, 6, r.getLastUpdatedBy() );
+            ps.setLong( 7, r.getRelationshipType().getId() );
+        } );
+
+        batchUpdate( DETACH_RELATIONSHIP_SQL, updated, ( ps, r ) -> {
+            ps.setTimestamp( 1, toTimestamp( r.getLastUpdated() ) );
+            setId( ps, 2, r.getLastUpdatedBy() );
+            ps.setLong( 3, r.getRelationshipType().getId() );
+            ps.setLong( 4, r.getId() );
+        } );
+
+        batchUpdate( DELETE_RELATIONSHIP_ITEMS_SQL, updated, ( ps, r ) -> ps.setLong( 1, r.getId() ) );
+
+        List<RelationshipItem> items = new ArrayList<>();
+
+        for ( Relationship relationship : relationships )
+        {
+            relationship.getFrom().setRelationship( relationship );
+            relationship.getTo().setRelationship( relationship );
+            items.add( relationship.getFrom() );
+            items.add( relationship.getTo() );
+        }
+
+        Iterator<Long> itemIds = nextIds( "hibernate_sequence", items.size() ).iterator();
+        items.forEach( item -> item.setId( itemIds.next().intValue() ) );
+
+        batchUpdate( INSERT_RELATIONSHIP_ITEM_SQL, items, ( ps, item ) -> {
+            ps.setLong( 1, item.getId() );
+            ps.setLong( 2, item.getRelationship().getId() );
+            setId( ps, 3, item.getTrackedEntityInstance() );
+            setId( ps, 4, item.getProgramInstance() );
+            setId( ps, 5, item.getProgramStageInstance() );
+        } );
+
+        batchUpdate( ATTACH_RELATIONSHIP_SQL, relationships, ( ps, r ) -> {
+            ps.setLong( 1, r.getFrom().getId() );
+            ps.setLong( 2, r.getTo().getId() );
+            ps.setLong( 3, r.getId() );
+        } );
+
+        log.debug( "Inserted {} and updated {} relationships", created.size(), updated.size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // File resources
+    // -------------------------------------------------------------------------
+
+    /**
+     * Sets the assigned flag of the file resources with the given identifiers.
+     *
+     * @param uids the file resource identifiers.
+     * @param assigned whether the file resources are assigned.
+     */
+    public void updateFileResourceAssignments( Collection<String> uids, boolean assigned )
+    {
+        List<String> fileResources = new ArrayList<>( uids );
+
+        batchUpdate( UPDATE_FILE_RESOURCE_SQL, fileResources, ( ps, uid ) -> {
+            ps.setBoolean( 1, assigned );
+            ps.setString( 2, uid );
+        } );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void addCommentLinks( List<CommentLink> commentLinks, long ownerId, List<TrackedEntityComment> comments )
+    {
+        for ( int i = 0; i < comments.size(); i++ )
+        {
+            if ( isNew( comments.get( i ) ) )
+            {
+                commentLinks.add( new CommentLink( ownerId, i + 1, comments.get( i ) ) );
+            }
+        }
+    }
+
+    private void saveComments( List<CommentLink> commentLinks, String linkTable, String ownerColumn )
+    {
+        if ( commentLinks.isEmpty() )
+        {
+            return;
+        }
+
+        assignIds( commentLinks.stream().map( l -> l.comment ).collect( Collectors.toList() ),
+            "hibernate_sequence" );
+
+        batchUpdate( INSERT_COMMENT_SQL, commentLinks, ( ps, link ) -> {
+            TrackedEntityComment comment = link.comment;
+
+            ps.setLong( 1, comment.getId() );
+            ps.setString( 2, comment.getUid() );
+            ps.setString( 3, comment.getCode() );
+            ps.setTimestamp( 4, toTimestamp( comment.getCreated() ) );
+            ps.setTimestamp( 5, toTimestamp( comment.getLastUpdated() ) );
+            setId( ps, 6, comment.getLastUpdatedBy() );
+            ps.setString( 7, comment.getCommentText() );
+            ps.setString( 8, comment.getCreator() );
+        } );
+
+        batchUpdate( String.format( INSERT_COMMENT_LINK_SQL, linkTable, ownerColumn ), commentLinks, ( ps, link ) -> {
+            ps.setLong( 1, link.ownerId );
+            ps.setInt( 2, link.sortOrder );
+            ps.setLong( 3, link.comment.getId() );
+        } );
+    }
+
+    private <T> void batchUpdate( String sql, List<T> objects, ParameterizedPreparedStatementSetter<T> setter )
+    {
+        if ( !objects.isEmpty() )
+        {
+            jdbcTemplate.batchUpdate( sql, objects, objects.size(), setter );
+        }
+    }
+
+    private boolean isNew( BaseIdentifiableObject object )
+    {
+        return object.getId() == 0;
+    }
+
+    private <T> List<T> filter( List<T> objects, Predicate<T> predicate )
+    {
+        return objects.stream().filter( predicate ).collect( Collectors.toList() );
+    }
+
+    private void assignIds( List<? extends BaseIdentifiableObject> objects, String sequence )
+    {
+        Iterator<Long> ids = nextIds( sequence, objects.size() ).iterator();
+        objects.forEach( object -> object.setId( ids.next() ) );
+    }
+
+    /**
+     * Fetches the given number of values from the given sequence in a single
+     * round trip.
+     */
+    List<Long> nextIds( String sequence, int count )
+    {
+        if ( count == 0 )
+        {
+            return new ArrayList<>();
+        }
+
+        return jdbcTemplate.queryForList( "select nextval('" + sequence + "') from generate_series(1, ?)",
+            Long.class, count );
+    }
+
+    private static Timestamp toTimestamp( Date date )
+    {
+        return date != null ? new Timestamp( date.getTime() ) : null;
+    }
+
+    private static void setId( PreparedStatement ps, int index, BaseIdentifiableObject object )
+        throws SQLException
+    {
+        if ( object != null )
+        {
+            ps.setLong( index, object.getId() );
+        }
+        else
+        {
+            ps.setNull( index, Types.BIGINT );
+        }
+    }
+
+    private PGobject toJson( Set<EventDataValue> dataValues )
+        throws SQLException
+    {
+        try
+        {
+            return eventDataValuesToJson( dataValues, jsonMapper );
+        }
+        catch ( JsonProcessingException e )
+        {
+            throw new SQLException( "Failed to serialize event data values", e );
+        }
+    }
+
+    private static class CommentLink
+    {
+        private final long ownerId;
+
+        private final int sortOrder;
+
+        private final TrackedEntityComment comment;
+
+        CommentLink( long ownerId, int sortOrder, TrackedEntityComment comment )
+        {
+            this.ownerId = ownerId;
+            this.sortOrder = sortOrder;
+            this.comment = comment;
+        }
+    }
+}
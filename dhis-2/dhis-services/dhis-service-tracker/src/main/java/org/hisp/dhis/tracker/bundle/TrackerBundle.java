@@ -35,6 +35,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hisp.dhis.rules.models.RuleEffect;
 import org.hisp.dhis.tracker.AtomicMode;
+import org.hisp.dhis.tracker.CommitMode;
 import org.hisp.dhis.tracker.FlushMode;
 import org.hisp.dhis.tracker.TrackerBundleReportMode;
 import org.hisp.dhis.tracker.TrackerIdScheme;
@@ -109,6 +110,12 @@ public class TrackerBundle
     @Builder.Default
     private FlushMode flushMode = FlushMode.AUTO;
 
+    /**
+     * Persist objects through Hibernate or with JDBC batch statements.
+     */
+    @Builder.Default
+    private CommitMode commitMode = CommitMode.HIBERNATE;
+
     /**
      * Validation mode to use, defaults to fully validated objects.
      */
@@ -35,6 +35,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hisp.dhis.tracker.AtomicMode;
+import org.hisp.dhis.tracker.CommitMode;
 import org.hisp.dhis.tracker.FlushMode;
 import org.hisp.dhis.tracker.TrackerBundleReportMode;
 import org.hisp.dhis.tracker.TrackerIdentifierParams;
@@ -122,6 +123,13 @@ public class TrackerBundleParams
     @Builder.Default
     private FlushMode flushMode = FlushMode.AUTO;
 
+    /**
+     * Persist objects through Hibernate or with JDBC batch statements.
+     */
+    @JsonProperty
+    @Builder.Default
+    private CommitMode commitMode = CommitMode.HIBERNATE;
+
     /**
      * Validation mode to use, defaults to fully validated objects.
      */
@@ -179,6 +187,7 @@ public class TrackerBundleParams
             .skipTextPatternValidation( skipTextPatternValidation )
             .skipSideEffects( skipSideEffects )
             .flushMode( flushMode )
+            .commitMode( commitMode )
             .validationMode( validationMode )
             .reportMode( reportMode )
             .trackedEntities( trackedEntities )
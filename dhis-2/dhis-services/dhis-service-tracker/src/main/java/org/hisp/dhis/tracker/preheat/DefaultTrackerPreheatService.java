@@ -30,15 +30,19 @@ package org.hisp.dhis.tracker.preheat;
 
 import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.commons.timer.SystemTimer;
 import org.hisp.dhis.commons.timer.Timer;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.common.ImportMetadataCache;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.fieldfilter.Defaults;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.PeriodStore;
@@ -57,6 +61,7 @@ import org.hisp.dhis.relationship.RelationshipStore;
 import org.hisp.dhis.relationship.RelationshipType;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
@@ -74,12 +79,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.google.api.client.util.Preconditions.checkNotNull;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_IMPORT_PREHEAT_CHUNK_SIZE;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -90,7 +97,7 @@ public class DefaultTrackerPreheatService
     implements TrackerPreheatService
 {
 
-    public static final int SPLIT_LIST_PARTITION_SIZE = 20_000;
+    public static final int SPLIT_LIST_PARTITION_SIZE = 1_000;
 
     private final SchemaService schemaService;
 
@@ -110,6 +117,17 @@ public class DefaultTrackerPreheatService
 
     private final RelationshipStore relationshipStore;
 
+    private final ImportMetadataCache importMetadataCache;
+
+    private final AclService aclService;
+
+    private final JdbcTrackerPreheatStore preheatStore;
+
+    /**
+     * Max number of identifiers per preheat query.
+     */
+    private final int chunkSize;
+
     private List<TrackerPreheatHook> preheatHooks = new ArrayList<>();
 
     @Autowired( required = false )
@@ -127,8 +145,15 @@ public class DefaultTrackerPreheatService
         TrackedEntityInstanceStore trackedEntityInstanceStore,
         ProgramInstanceStore programInstanceStore,
         ProgramStageInstanceStore programStageInstanceStore,
-        RelationshipStore relationshipStore )
+        RelationshipStore relationshipStore,
+        ImportMetadataCache importMetadataCache,
+        AclService aclService,
+        JdbcTrackerPreheatStore preheatStore,
+        DhisConfigurationProvider config )
     {
+        checkNotNull( preheatStore );
+        checkNotNull( config );
+
         this.schemaService = schemaService;
         this.queryService = queryService;
         this.manager = manager;
@@ -138,6 +163,11 @@ public class DefaultTrackerPreheatService
         this.programInstanceStore = programInstanceStore;
         this.programStageInstanceStore = programStageInstanceStore;
         this.relationshipStore = relationshipStore;
+        this.importMetadataCache = importMetadataCache;
+        this.aclService = aclService;
+        this.preheatStore = preheatStore;
+        this.chunkSize = Math.max( 1, NumberUtils.toInt(
+            config.getProperty( TRACKER_IMPORT_PREHEAT_CHUNK_SIZE ), SPLIT_LIST_PARTITION_SIZE ) );
     }
 
     @Override
@@ -159,13 +189,15 @@ public class DefaultTrackerPreheatService
 
         for ( Class<?> klass : identifierMap.keySet() )
         {
+            Timer klassTimer = new SystemTimer().start();
+
             Set<String> identifiers = identifierMap.get( klass );
 
-            List<List<String>> splitList = Lists.partition( new ArrayList<>( identifiers ), SPLIT_LIST_PARTITION_SIZE );
+            List<List<String>> splitList = Lists.partition( new ArrayList<>( identifiers ), chunkSize );
 
             if ( klass.isAssignableFrom( TrackedEntity.class ) )
             {
-                for ( List<String> ids : splitList )
+                for ( List<String> ids : getExistingUids( "trackedentityinstance", identifiers ) )
                 {
                     List<TrackedEntityInstance> trackedEntityInstances =
                         trackedEntityInstanceStore.getByUid( ids, preheat.getUser() );
@@ -174,7 +206,7 @@ public class DefaultTrackerPreheatService
             }
             else if ( klass.isAssignableFrom( Enrollment.class ) )
             {
-                for ( List<String> ids : splitList )
+                for ( List<String> ids : getExistingUids( "programinstance", identifiers ) )
                 {
                     List<ProgramInstance> programInstances = programInstanceStore.getByUid( ids, preheat.getUser() );
                     preheat.putEnrollments( TrackerIdScheme.UID, programInstances );
@@ -182,7 +214,7 @@ public class DefaultTrackerPreheatService
             }
             else if ( klass.isAssignableFrom( Event.class ) )
             {
-                for ( List<String> ids : splitList )
+                for ( List<String> ids : getExistingUids( "programstageinstance", identifiers ) )
                 {
                     List<ProgramStageInstance> programStageInstances = programStageInstanceStore
                         .getByUid( ids, preheat.getUser() );
@@ -233,7 +265,7 @@ public class DefaultTrackerPreheatService
             }
             else if ( klass.isAssignableFrom( Relationship.class ) )
             {
-                for ( List<String> ids : splitList )
+                for ( List<String> ids : getExistingUids( "relationship", identifiers ) )
                 {
                     List<org.hisp.dhis.relationship.Relationship> relationships = relationshipStore
                         .getByUid( ids, preheat.getUser() );
@@ -246,8 +278,12 @@ public class DefaultTrackerPreheatService
 
                 queryForIdentifiableObjects( preheat, schema, TrackerIdentifier.UID, splitList );
             }
+
+            preheat.getTimings().put( klass.getSimpleName(), klassTimer.toString() );
         }
 
+        Timer preloadTimer = new SystemTimer().start();
+
         // since TrackedEntityTypes are not really required by incoming payload, and they are small in size/count, we preload them all here
         preheat.put( TrackerIdentifier.UID, manager.getAll( TrackedEntityType.class ) );
 
@@ -269,8 +305,14 @@ public class DefaultTrackerPreheatService
 
         preheat.put( TrackerIdentifier.UID, manager.getByUid( User.class, userUids ) );
 
+        preheat.getTimings().put( "preload", preloadTimer.toString() );
+
+        Timer hooksTimer = new SystemTimer().start();
+
         preheatHooks.forEach( hook -> hook.preheat( params, preheat ) );
 
+        preheat.getTimings().put( "hooks", hooksTimer.toString() );
+
         log.info( "(" + preheat.getUsername() + ") Import:TrackerPreheat took " + timer.toString() );
 
         return preheat;
@@ -282,6 +324,21 @@ public class DefaultTrackerPreheatService
         //TODO: Implement validation
     }
 
+    /**
+     * Returns the given UIDs which exist in the given table, split into chunks.
+     * Only existing objects are loaded as entities, which avoids entity
+     * queries for objects created by the import.
+     */
+    private List<List<String>> getExistingUids( String table, Collection<String> uids )
+    {
+        if ( uids.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        return Lists.partition( preheatStore.getExistingUids( table, uids ), chunkSize );
+    }
+
     private Restriction generateRestrictionFromIdentifiers( TrackerIdScheme idScheme, List<String> ids )
     {
         if ( TrackerIdScheme.CODE.equals( idScheme ) )
@@ -294,15 +351,56 @@ public class DefaultTrackerPreheatService
         }
     }
 
+    private IdScheme getCacheIdScheme( TrackerIdScheme idScheme )
+    {
+        if ( TrackerIdScheme.UID.equals( idScheme ) )
+        {
+            return IdScheme.UID;
+        }
+        else if ( TrackerIdScheme.CODE.equals( idScheme ) )
+        {
+            return IdScheme.CODE;
+        }
+
+        return null;
+    }
+
     @SuppressWarnings( "unchecked" )
     private void queryForIdentifiableObjects( TrackerPreheat preheat, Schema schema, TrackerIdentifier identifier,
         List<List<String>> splitList )
     {
         TrackerIdScheme idScheme = identifier.getIdScheme();
-        for ( List<String> ids : splitList )
+        IdScheme cacheIdScheme = getCacheIdScheme( idScheme );
+        Class<IdentifiableObject> klass = (Class<IdentifiableObject>) schema.getKlass();
+
+        for ( List<String> splitIds : splitList )
         {
+            List<String> ids = splitIds;
             List<? extends IdentifiableObject> objects;
 
+            // Objects already resolved by a previous import are loaded by id
+
+            if ( cacheIdScheme != null )
+            {
+                Map<String, IdentifiableObject> cachedObjects = importMetadataCache
+                    .getCachedObjects( klass, cacheIdScheme, ids );
+
+                List<IdentifiableObject> readableObjects = cachedObjects.values().stream()
+                    .filter( object -> aclService.canRead( preheat.getUser(), object ) )
+                    .collect( Collectors.toList() );
+
+                preheat.put( identifier, readableObjects );
+
+                ids = ids.stream()
+                    .filter( id -> !cachedObjects.containsKey( id ) )
+                    .collect( Collectors.toList() );
+
+                if ( ids.isEmpty() )
+                {
+                    continue;
+                }
+            }
+
             if ( TrackerIdScheme.ATTRIBUTE.equals( idScheme ) )
             {
                 Attribute attribute = new Attribute();
@@ -317,6 +415,11 @@ public class DefaultTrackerPreheatService
                 query.add( generateRestrictionFromIdentifiers( idScheme, ids ) );
                 query.setDefaults( Defaults.INCLUDE );
                 objects = queryService.query( query );
+
+                if ( cacheIdScheme != null )
+                {
+                    importMetadataCache.put( klass, cacheIdScheme, (List<IdentifiableObject>) objects );
+                }
             }
 
             preheat.put( identifier, objects );
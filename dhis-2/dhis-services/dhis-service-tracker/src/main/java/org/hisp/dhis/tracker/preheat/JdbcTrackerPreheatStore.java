@@ -0,0 +1,79 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Lightweight lookups used by the preheat to avoid loading full Hibernate
+ * entities for identifiers which do not exist in the database, which is the
+ * common case for payloads creating new objects.
+ * <p>
+ * Identifiers are passed as a single array parameter instead of an
+ * {@code IN} list, so that the statement and its plan do not depend on the
+ * number of identifiers.
+ */
+@Repository
+public class JdbcTrackerPreheatStore
+{
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcTrackerPreheatStore( JdbcTemplate jdbcTemplate )
+    {
+        checkNotNull( jdbcTemplate );
+
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the given UIDs which exist in the given table, including UIDs of
+     * soft deleted rows.
+     *
+     * @param table the name of a table with a uid column.
+     * @param uids the UIDs to look up.
+     * @return the UIDs which exist in the table.
+     */
+    public List<String> getExistingUids( String table, Collection<String> uids )
+    {
+        final String sql = "select uid from " + table + " where uid = any (?)";
+
+        return jdbcTemplate.query( connection -> {
+            PreparedStatement ps = connection.prepareStatement( sql );
+            ps.setArray( 1, connection.createArrayOf( "varchar", uids.toArray() ) );
+            return ps;
+        }, ( rs, rowNum ) -> rs.getString( 1 ) );
+    }
+}
@@ -53,6 +53,7 @@ import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -147,6 +148,11 @@ public class TrackerPreheat
      */
     private TrackerIdentifierParams identifiers = new TrackerIdentifierParams();
 
+    /**
+     * Time spent on loading each type of object, in order of loading.
+     */
+    private Map<String, String> timings = new LinkedHashMap<>();
+
     public TrackerPreheat()
     {
     }
@@ -643,6 +649,11 @@ public class TrackerPreheat
         this.identifiers = identifiers;
     }
 
+    public Map<String, String> getTimings()
+    {
+        return timings;
+    }
+
     public Map<String, List<ProgramInstance>> getProgramInstances()
     {
         return programInstances;
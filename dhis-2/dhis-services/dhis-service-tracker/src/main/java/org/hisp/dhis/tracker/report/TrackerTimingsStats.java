@@ -33,6 +33,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * @author Morten Svanæs <msvanaes@dhis2.org>
  */
@@ -53,6 +56,12 @@ public class TrackerTimingsStats
     @JsonProperty
     private String preheat;
 
+    /**
+     * Time spent on preheating each type of object.
+     */
+    @JsonProperty
+    private Map<String, String> preheatTimings = new LinkedHashMap<>();
+
     @JsonProperty
     private String programrule;
 
@@ -48,4 +48,10 @@ public class TrackerValidationHookTimerReport
     @JsonProperty
     public String name;
 
+    /**
+     * Indicates whether the hook validated the DTOs concurrently.
+     */
+    @JsonProperty
+    public boolean parallel;
+
 }
@@ -29,7 +29,9 @@ package org.hisp.dhis.tracker.validation;
  */
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.tracker.ValidationMode;
 import org.hisp.dhis.tracker.bundle.TrackerBundle;
 import org.hisp.dhis.tracker.report.TrackerErrorReport;
@@ -39,8 +41,14 @@ import org.hisp.dhis.user.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_IMPORT_VALIDATION_PARALLEL;
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_IMPORT_VALIDATION_THREADS;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -52,6 +60,28 @@ public class DefaultTrackerValidationService
 {
     private List<TrackerValidationHook> validationHooks = new ArrayList<>();
 
+    /**
+     * Pool for parallel validation, null if parallel validation is disabled.
+     */
+    private final ForkJoinPool validationPool;
+
+    public DefaultTrackerValidationService( DhisConfigurationProvider config )
+    {
+        checkNotNull( config );
+
+        if ( config.isEnabled( TRACKER_IMPORT_VALIDATION_PARALLEL ) )
+        {
+            int threads = NumberUtils.toInt( config.getProperty( TRACKER_IMPORT_VALIDATION_THREADS ), 0 );
+
+            this.validationPool = new ForkJoinPool(
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors() );
+        }
+        else
+        {
+            this.validationPool = null;
+        }
+    }
+
     @Autowired( required = false )
     public void setValidationHooks( List<TrackerValidationHook> validationHooks )
     {
@@ -77,6 +107,12 @@ public class DefaultTrackerValidationService
 
         TrackerImportValidationContext context = new TrackerImportValidationContext( bundle );
 
+        // Fail fast aborts on the first error, which requires serial validation
+        if ( ValidationMode.FAIL_FAST != bundle.getValidationMode() )
+        {
+            context.setValidationPool( validationPool );
+        }
+
         try
         {
             for ( TrackerValidationHook hook : validationHooks )
@@ -89,7 +125,8 @@ public class DefaultTrackerValidationService
 
                     validationReport.add( TrackerValidationHookTimerReport.builder()
                         .name( hook.getClass().getName() )
-                        .totalTime( hookTimer.toString() ).build() );
+                        .totalTime( hookTimer.toString() )
+                        .parallel( context.getValidationPool() != null && hook.isParallelizable() ).build() );
                 }
             }
         }
@@ -100,4 +137,13 @@ public class DefaultTrackerValidationService
 
         return validationReport;
     }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if ( validationPool != null )
+        {
+            validationPool.shutdown();
+        }
+    }
 }
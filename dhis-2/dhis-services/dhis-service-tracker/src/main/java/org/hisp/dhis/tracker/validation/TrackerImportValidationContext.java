@@ -53,6 +53,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author Morten Svanæs <msvanaes@dhis2.org>
@@ -69,6 +70,12 @@ public class TrackerImportValidationContext
 
     private TrackerBundle bundle;
 
+    /**
+     * Pool used by parallelizable hooks to validate the DTOs of the bundle
+     * concurrently, null if the DTOs are validated serially.
+     */
+    private ForkJoinPool validationPool;
+
     public TrackerImportValidationContext( TrackerBundle bundle )
     {
         this.bundle = bundle;
@@ -44,6 +44,21 @@ public interface TrackerValidationHook extends Ordered
         return true;
     }
 
+    /**
+     * Indicates whether the DTOs of a bundle can be validated concurrently by
+     * this hook. Only hooks which read the DTOs and preheated objects, and
+     * neither access the database nor write to the validation context, should
+     * return true. The validation runs on fork-join threads without a
+     * Hibernate session, so such hooks must not navigate lazy associations of
+     * preheated objects either.
+     *
+     * @return true if this hook supports parallel validation.
+     */
+    default boolean isParallelizable()
+    {
+        return false;
+    }
+
     ValidationErrorReporter validate( TrackerImportValidationContext bundle );
 
     void setOrder( int order );
@@ -52,6 +52,9 @@ import org.springframework.core.Ordered;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.google.api.client.util.Preconditions.checkNotNull;
 import static org.hisp.dhis.tracker.report.ValidationErrorReporter.newReport;
@@ -224,6 +227,15 @@ public abstract class AbstractTrackerDtoValidationHook
     private List<TrackerDto> validateTrackerDTOs( ValidationErrorReporter reporter,
         Pair<ValidationFunction<TrackerDto>, List<? extends TrackerDto>> pair )
     {
+        ForkJoinPool pool = reporter.getValidationContext().getValidationPool();
+
+        if ( pool != null && !this.removeOnError && isParallelizable() )
+        {
+            validateTrackerDTOsParallel( reporter, pair, pool );
+
+            return Lists.newArrayList();
+        }
+
         List<TrackerDto> dtoWithErrors = Lists.newArrayList();
 
         Iterator<? extends TrackerDto> iterator = pair.getRight().iterator();
@@ -252,6 +264,27 @@ public abstract class AbstractTrackerDtoValidationHook
         return dtoWithErrors;
     }
 
+    /**
+     * Validates the DTOs concurrently in the given pool. The reports are forked
+     * and merged in the order of the DTOs, so that the list index and order of
+     * the errors are the same as for serial validation.
+     */
+    private void validateTrackerDTOsParallel( ValidationErrorReporter reporter,
+        Pair<ValidationFunction<TrackerDto>, List<? extends TrackerDto>> pair, ForkJoinPool pool )
+    {
+        List<? extends TrackerDto> dtos = pair.getRight();
+
+        List<ValidationErrorReporter> reportForks = dtos.stream()
+            .map( reporter::fork )
+            .collect( Collectors.toList() );
+
+        pool.submit( () -> IntStream.range( 0, dtos.size() ).parallel()
+            .forEach( i -> pair.getLeft().validateTrackerDto( dtos.get( i ), reportForks.get( i ) ) ) )
+            .join();
+
+        reportForks.forEach( reporter::merge );
+    }
+
     protected void validateAttrValueType( ValidationErrorReporter errorReporter, Attribute attr,
         TrackedEntityAttribute teAttr )
     {
@@ -57,6 +57,12 @@ public class EnrollmentDateValidationHook
         super( Enrollment.class, TrackerImportStrategy.CREATE_AND_UPDATE, teAttrService );
     }
 
+    @Override
+    public boolean isParallelizable()
+    {
+        return true;
+    }
+
     @Override
     public void validateEnrollment( ValidationErrorReporter reporter, Enrollment enrollment )
     {
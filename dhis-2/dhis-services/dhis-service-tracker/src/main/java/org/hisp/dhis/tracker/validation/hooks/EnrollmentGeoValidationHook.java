@@ -50,6 +50,12 @@ public class EnrollmentGeoValidationHook
         super( Enrollment.class, TrackerImportStrategy.CREATE_AND_UPDATE, teAttrService );
     }
 
+    @Override
+    public boolean isParallelizable()
+    {
+        return true;
+    }
+
     @Override
     public void validateEnrollment( ValidationErrorReporter reporter, Enrollment enrollment )
     {
@@ -0,0 +1,169 @@
+package org.hisp.dhis.tracker.bundle;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.relationship.Relationship;
+import org.hisp.dhis.relationship.RelationshipItem;
+import org.hisp.dhis.relationship.RelationshipType;
+import org.hisp.dhis.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.trackedentitycomment.TrackedEntityComment;
+import org.jasypt.encryption.pbe.PBEStringEncryptor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JdbcTrackerBundleStoreTest
+{
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcTrackerBundleStore store;
+
+    @Before
+    public void setUp()
+    {
+        jdbcTemplate = mock( JdbcTemplate.class );
+        store = spy( new JdbcTrackerBundleStore( jdbcTemplate, new ObjectMapper(),
+            mock( PBEStringEncryptor.class ) ) );
+    }
+
+    @Test
+    public void testSaveTrackedEntityInstancesAssignsIdsToNewInstances()
+    {
+        doReturn( Arrays.asList( 10L, 11L ) ).when( store ).nextIds( "trackedentityinstance_sequence", 2 );
+
+        TrackedEntityInstance teiA = new TrackedEntityInstance();
+        TrackedEntityInstance teiB = new TrackedEntityInstance();
+        TrackedEntityInstance teiC = new TrackedEntityInstance();
+        teiC.setId( 5L );
+
+        store.saveTrackedEntityInstances( Arrays.asList( teiA, teiB, teiC ) );
+
+        assertEquals( 10L, teiA.getId() );
+        assertEquals( 11L, teiB.getId() );
+        assertEquals( 5L, teiC.getId() );
+
+        verify( jdbcTemplate ).batchUpdate( startsWith( "insert into trackedentityinstance" ),
+            eq( Arrays.asList( teiA, teiB ) ), eq( 2 ), any( ParameterizedPreparedStatementSetter.class ) );
+        verify( jdbcTemplate ).batchUpdate( startsWith( "update trackedentityinstance" ),
+            eq( Collections.singletonList( teiC ) ), eq( 1 ), any( ParameterizedPreparedStatementSetter.class ) );
+    }
+
+    @Test
+    public void testSaveTrackedEntityInstancesWithoutNewInstancesSkipsInsert()
+    {
+        TrackedEntityInstance tei = new TrackedEntityInstance();
+        tei.setId( 5L );
+
+        store.saveTrackedEntityInstances( Collections.singletonList( tei ) );
+
+        verify( jdbcTemplate, never() ).queryForList( anyString(), eq( Long.class ), any() );
+        verify( jdbcTemplate, never() ).batchUpdate( startsWith( "insert into" ), anyList(), anyInt(),
+            any( ParameterizedPreparedStatementSetter.class ) );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testSaveProgramStageInstancesLinksOnlyNewComments()
+    {
+        doReturn( Collections.singletonList( 20L ) ).when( store ).nextIds( "hibernate_sequence", 1 );
+
+        TrackedEntityComment existing = new TrackedEntityComment( "Existing", "admin" );
+        existing.setId( 1L );
+        TrackedEntityComment added = new TrackedEntityComment( "Added", "admin" );
+
+        ProgramStageInstance psi = new ProgramStageInstance();
+        psi.setId( 7L );
+        psi.setComments( Arrays.asList( existing, added ) );
+
+        store.saveProgramStageInstances( Collections.singletonList( psi ) );
+
+        assertEquals( 20L, added.getId() );
+
+        ArgumentCaptor<List<Object>> links = ArgumentCaptor.forClass( List.class );
+        verify( jdbcTemplate ).batchUpdate( startsWith( "insert into programstageinstancecomments" ),
+            links.capture(), eq( 1 ), any( ParameterizedPreparedStatementSetter.class ) );
+        assertEquals( 1, links.getValue().size() );
+    }
+
+    @Test
+    public void testSaveRelationshipsReplacesItemsOfExistingRelationships()
+    {
+        doReturn( Collections.singletonList( 30L ) ).when( store ).nextIds( "hibernate_sequence", 1 );
+        doReturn( Arrays.asList( 31L, 32L, 33L, 34L ) ).when( store ).nextIds( "hibernate_sequence", 4 );
+
+        Relationship created = createRelationship( 0L );
+        Relationship updated = createRelationship( 8L );
+
+        store.saveRelationships( Arrays.asList( created, updated ) );
+
+        assertEquals( 30L, created.getId() );
+        assertEquals( 31, created.getFrom().getId() );
+        assertEquals( 32, created.getTo().getId() );
+        assertEquals( 33, updated.getFrom().getId() );
+        assertEquals( 34, updated.getTo().getId() );
+        assertEquals( updated, updated.getTo().getRelationship() );
+
+        verify( jdbcTemplate ).batchUpdate( startsWith( "delete from relationshipitem" ),
+            eq( Collections.singletonList( updated ) ), eq( 1 ), any( ParameterizedPreparedStatementSetter.class ) );
+        verify( jdbcTemplate ).batchUpdate( startsWith( "insert into relationshipitem" ), anyList(), eq( 4 ),
+            any( ParameterizedPreparedStatementSetter.class ) );
+    }
+
+    private Relationship createRelationship( long id )
+    {
+        Relationship relationship = new Relationship();
+        relationship.setId( id );
+        relationship.setRelationshipType( new RelationshipType() );
+        relationship.setFrom( new RelationshipItem() );
+        relationship.setTo( new RelationshipItem() );
+        return relationship;
+    }
+}
@@ -0,0 +1,177 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.TRACKER_IMPORT_PREHEAT_CHUNK_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dxf2.common.ImportMetadataCache;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.period.PeriodStore;
+import org.hisp.dhis.program.ProgramInstanceStore;
+import org.hisp.dhis.program.ProgramStageInstanceStore;
+import org.hisp.dhis.query.QueryService;
+import org.hisp.dhis.relationship.RelationshipStore;
+import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.security.acl.AclService;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
+import org.hisp.dhis.tracker.domain.TrackedEntity;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultTrackerPreheatServiceTest
+{
+    @Mock
+    private SchemaService schemaService;
+
+    @Mock
+    private QueryService queryService;
+
+    @Mock
+    private IdentifiableObjectManager manager;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private PeriodStore periodStore;
+
+    @Mock
+    private TrackedEntityInstanceStore trackedEntityInstanceStore;
+
+    @Mock
+    private ProgramInstanceStore programInstanceStore;
+
+    @Mock
+    private ProgramStageInstanceStore programStageInstanceStore;
+
+    @Mock
+    private RelationshipStore relationshipStore;
+
+    @Mock
+    private ImportMetadataCache importMetadataCache;
+
+    @Mock
+    private AclService aclService;
+
+    @Mock
+    private JdbcTrackerPreheatStore preheatStore;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        user = new User();
+        user.setUid( "user0000001" );
+
+        when( manager.get( User.class, user.getUid() ) ).thenReturn( user );
+    }
+
+    @Test
+    public void testSkipEntityLoadForNewTrackedEntities()
+    {
+        when( preheatStore.getExistingUids( eq( "trackedentityinstance" ), anyCollection() ) )
+            .thenReturn( new ArrayList<>() );
+
+        TrackerPreheat preheat = createService().preheat( createParams( "te000000001", "te000000002" ) );
+
+        verify( preheatStore ).getExistingUids( "trackedentityinstance",
+            new HashSet<>( Arrays.asList( "te000000001", "te000000002" ) ) );
+        verify( trackedEntityInstanceStore, never() ).getByUid( anyList(), any( User.class ) );
+        assertEquals( user, preheat.getUser() );
+    }
+
+    @Test
+    public void testLoadExistingTrackedEntitiesInChunks()
+    {
+        when( config.getProperty( TRACKER_IMPORT_PREHEAT_CHUNK_SIZE ) ).thenReturn( "2" );
+
+        List<String> uids = Arrays.asList( "te000000001", "te000000002", "te000000003", "te000000004",
+            "te000000005" );
+
+        when( preheatStore.getExistingUids( eq( "trackedentityinstance" ), anyCollection() ) )
+            .thenReturn( uids.subList( 0, 3 ) );
+
+        createService().preheat( createParams( uids.toArray( new String[0] ) ) );
+
+        ArgumentCaptor<List<String>> chunks = ArgumentCaptor.forClass( List.class );
+        verify( trackedEntityInstanceStore, times( 2 ) ).getByUid( chunks.capture(), eq( user ) );
+
+        assertEquals( Arrays.asList( 2, 1 ), chunks.getAllValues().stream()
+            .map( List::size ).collect( Collectors.toList() ) );
+        assertEquals( new HashSet<>( uids.subList( 0, 3 ) ), chunks.getAllValues().stream()
+            .flatMap( List::stream ).collect( Collectors.toSet() ) );
+    }
+
+    private DefaultTrackerPreheatService createService()
+    {
+        return new DefaultTrackerPreheatService( schemaService, queryService, manager, currentUserService,
+            periodStore, trackedEntityInstanceStore, programInstanceStore, programStageInstanceStore,
+            relationshipStore, importMetadataCache, aclService, preheatStore, config );
+    }
+
+    private TrackerPreheatParams createParams( String... trackedEntities )
+    {
+        return TrackerPreheatParams.builder()
+            .user( user )
+            .trackedEntities( Arrays.stream( trackedEntities )
+                .map( uid -> TrackedEntity.builder().trackedEntity( uid ).build() )
+                .collect( Collectors.toList() ) )
+            .build();
+    }
+}
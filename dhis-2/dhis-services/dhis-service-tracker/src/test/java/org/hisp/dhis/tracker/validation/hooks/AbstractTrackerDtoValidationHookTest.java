@@ -0,0 +1,157 @@
+package org.hisp.dhis.tracker.validation.hooks;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hisp.dhis.tracker.report.ValidationErrorReporter.newReport;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hisp.dhis.trackedentity.TrackedEntityAttributeService;
+import org.hisp.dhis.tracker.TrackerImportStrategy;
+import org.hisp.dhis.tracker.bundle.TrackerBundle;
+import org.hisp.dhis.tracker.domain.Event;
+import org.hisp.dhis.tracker.report.TrackerErrorCode;
+import org.hisp.dhis.tracker.report.TrackerErrorReport;
+import org.hisp.dhis.tracker.report.ValidationErrorReporter;
+import org.hisp.dhis.tracker.validation.TrackerImportValidationContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class AbstractTrackerDtoValidationHookTest
+{
+    @Mock
+    private TrackedEntityAttributeService teAttrService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private ForkJoinPool pool;
+
+    private TrackerBundle bundle;
+
+    @Before
+    public void setUp()
+    {
+        pool = new ForkJoinPool( 4 );
+
+        List<Event> events = IntStream.range( 0, 500 ).mapToObj( i -> {
+            Event event = new Event();
+            event.setEvent( "event" + i );
+            return event;
+        } ).collect( Collectors.toList() );
+
+        bundle = TrackerBundle.builder().events( events ).build();
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void verifyParallelValidationReportsErrorsInDtoOrder()
+    {
+        List<TrackerErrorReport> serial = validate( new EvenEventValidationHook( teAttrService, true ), null );
+        List<TrackerErrorReport> parallel = validate( new EvenEventValidationHook( teAttrService, true ), pool );
+
+        assertThat( parallel, hasSize( 250 ) );
+        assertThat( errorKeys( parallel ), is( errorKeys( serial ) ) );
+    }
+
+    @Test
+    public void verifyNonParallelizableHookValidatesSerially()
+    {
+        EvenEventValidationHook hook = new EvenEventValidationHook( teAttrService, false );
+
+        List<TrackerErrorReport> errors = validate( hook, pool );
+
+        assertThat( errors, hasSize( 250 ) );
+        assertThat( hook.threads.size(), is( 1 ) );
+    }
+
+    private List<TrackerErrorReport> validate( AbstractTrackerDtoValidationHook hook, ForkJoinPool validationPool )
+    {
+        TrackerImportValidationContext context = new TrackerImportValidationContext( bundle );
+        context.setValidationPool( validationPool );
+
+        return hook.validate( context ).getReportList();
+    }
+
+    private List<String> errorKeys( List<TrackerErrorReport> errors )
+    {
+        return errors.stream()
+            .map( e -> e.getLineNumber() + ":" + e.getMainId() + ":" + e.getErrorMessage() )
+            .collect( Collectors.toList() );
+    }
+
+    private static class EvenEventValidationHook
+        extends AbstractTrackerDtoValidationHook
+    {
+        private final boolean parallelizable;
+
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        EvenEventValidationHook( TrackedEntityAttributeService teAttrService, boolean parallelizable )
+        {
+            super( Event.class, TrackerImportStrategy.CREATE_AND_UPDATE, teAttrService );
+            this.parallelizable = parallelizable;
+        }
+
+        @Override
+        public boolean isParallelizable()
+        {
+            return parallelizable;
+        }
+
+        @Override
+        public void validateEvent( ValidationErrorReporter reporter, Event event )
+        {
+            threads.add( Thread.currentThread() );
+
+            if ( Integer.parseInt( event.getEvent().substring( 5 ) ) % 2 == 0 )
+            {
+                reporter.addError( newReport( TrackerErrorCode.E1031 ).addArg( event.getEvent() ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+-- Change log of data value keys which were inserted, updated or deleted,
+-- used for incremental update of the aggregate analytics table
+
+create table if not exists datavaluechangelog (
+    changelogid bigserial not null,
+    dataelementid bigint not null,
+    periodid bigint not null,
+    sourceid bigint not null,
+    created timestamp not null default now(),
+    constraint datavaluechangelog_pkey primary key (changelogid)
+);
+
+create index if not exists "in_datavaluechangelog_created"
+    on datavaluechangelog (created);
+
+create or replace function datavaluechangelog_capture() returns trigger as $$
+    begin
+        if (tg_op = 'INSERT') then
+            insert into datavaluechangelog (dataelementid, periodid, sourceid)
+            values (new.dataelementid, new.periodid, new.sourceid);
+            return new;
+        elsif (tg_op = 'UPDATE') then
+            if (new.value is distinct from old.value
+                or new.deleted is distinct from old.deleted
+                or new.categoryoptioncomboid is distinct from old.categoryoptioncomboid
+                or new.attributeoptioncomboid is distinct from old.attributeoptioncomboid
+                or new.dataelementid is distinct from old.dataelementid
+                or new.periodid is distinct from old.periodid
+                or new.sourceid is distinct from old.sourceid) then
+                insert into datavaluechangelog (dataelementid, periodid, sourceid)
+                values (new.dataelementid, new.periodid, new.sourceid);
+
+                if (new.dataelementid is distinct from old.dataelementid
+                    or new.periodid is distinct from old.periodid
+                    or new.sourceid is distinct from old.sourceid) then
+                    insert into datavaluechangelog (dataelementid, periodid, sourceid)
+                    values (old.dataelementid, old.periodid, old.sourceid);
+                end if;
+            end if;
+            return new;
+        elsif (tg_op = 'DELETE') then
+            insert into datavaluechangelog (dataelementid, periodid, sourceid)
+            values (old.dataelementid, old.periodid, old.sourceid);
+            return old;
+        end if;
+        return null;
+    end;
+$$ language plpgsql;
+
+drop trigger if exists datavalue_changelog_trigger on datavalue;
+
+create trigger datavalue_changelog_trigger
+    after insert or update or delete on datavalue
+    for each row execute procedure datavaluechangelog_capture();
+
+-- The trigger is enabled by the first full analytics table update of a
+-- continuous analytics job with incremental update enabled
+
+alter table datavalue disable trigger datavalue_changelog_trigger;
@@ -0,0 +1,11 @@
+-- Start time of the last successful incremental update of the event and
+-- enrollment analytics tables per program and analytics table type
+
+create table if not exists analyticsprogramupdate (
+    programid bigint not null,
+    tabletype character varying(50) not null,
+    lastupdated timestamp not null,
+    constraint analyticsprogramupdate_pkey primary key (programid, tabletype),
+    constraint fk_analyticsprogramupdate_programid foreign key (programid)
+        references program (programid) on delete cascade
+);
@@ -0,0 +1,5 @@
+-- Index on last updated and data value key, used for keyset paginated
+-- export of data values ordered by last updated
+
+create index if not exists "in_datavalue_lastupdated_key"
+    on datavalue (lastupdated, dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid);
@@ -0,0 +1,11 @@
+-- Trigram extension, used for indexed search of tracked entity attribute
+-- values, creating the extension requires sufficient privileges and is
+-- skipped otherwise as trigram search is optional
+
+do $$
+begin
+    create extension if not exists pg_trgm;
+exception when others then
+    raise notice 'Extension pg_trgm could not be created: %', sqlerrm;
+end;
+$$ language plpgsql;
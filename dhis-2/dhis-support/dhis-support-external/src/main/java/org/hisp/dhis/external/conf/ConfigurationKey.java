@@ -87,6 +87,27 @@ public enum ConfigurationKey
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    ANALYTICS_CACHE_WARMUP_ENABLED( "analytics.cache.warmup.enabled", Constants.OFF, false ),
+    ANALYTICS_CACHE_WARMUP_QUERIES( "analytics.cache.warmup.queries", "100", false ),
+    ANALYTICS_CACHE_WARMUP_THREADS( "analytics.cache.warmup.threads", "2", false ),
+    ANALYTICS_CACHE_WARMUP_TIMEOUT( "analytics.cache.warmup.timeout", "900", false ),
+    ANALYTICS_TABLE_EVENT_SINGLE_PASS( "analytics.table.event.single-pass", Constants.OFF, false ),
+    ANALYTICS_TABLE_POPULATE_CHUNKS( "analytics.table.populate-chunks", "1", false ),
+    ANALYTICS_TABLE_ROLLUPS( "analytics.table.rollups", "", false ),
+    ANALYTICS_QUERY_ADMISSION_ENABLED( "analytics.query.admission.enabled", Constants.OFF, false ),
+    ANALYTICS_QUERY_ADMISSION_TIMEOUT( "analytics.query.admission.timeout", "30", false ),
+    ANALYTICS_QUERY_COST_BUDGET( "analytics.query.cost.budget", "1000000000", false ),
+    ANALYTICS_QUERY_COST_MAX( "analytics.query.cost.max", "0", false ),
+    ANALYTICS_QUERY_COLUMNAR_GRID( "analytics.query.columnar-grid", Constants.OFF, false ),
+    DATAVALUE_IMPORT_COPY( "datavalue.import.copy", Constants.OFF, false ),
+    DATAVALUE_IMPORT_WORKERS( "datavalue.import.workers", "1", false ),
+    TRACKER_IMPORT_VALIDATION_PARALLEL( "tracker.import.validation.parallel", Constants.OFF, false ),
+    TRACKER_IMPORT_VALIDATION_THREADS( "tracker.import.validation.threads", "0", false ),
+    TRACKER_IMPORT_PREHEAT_CHUNK_SIZE( "tracker.import.preheat.chunk-size", "1000", false ),
+    TRACKER_AGGREGATE_THREADS( "tracker.aggregate.threads", "20", false ),
+    TRACKER_AGGREGATE_QUEUE_SIZE( "tracker.aggregate.queue-size", "1000", false ),
+    TRACKER_AGGREGATE_REQUEST_CONCURRENCY( "tracker.aggregate.request-concurrency", "4", false ),
+    TRACKER_SEARCH_TRIGRAM( "tracker.search.trigram", Constants.OFF, false ),
     ARTEMIS_MODE( "artemis.mode", "EMBEDDED" ),
     ARTEMIS_HOST( "artemis.host", "127.0.0.1" ),
     ARTEMIS_PORT( "artemis.port", "25672" ),
@@ -105,6 +126,9 @@ public enum ConfigurationKey
     MONITORING_HIBERNATE_ENABLED( "monitoring.hibernate.enabled", Constants.OFF, false ),
     MONITORING_UPTIME_ENABLED( "monitoring.uptime.enabled", Constants.OFF, false ),
     MONITORING_CPU_ENABLED( "monitoring.cpu.enabled", Constants.OFF, false ),
+    MONITORING_ANALYTICS_CACHE_ENABLED( "monitoring.analytics.cache.enabled", Constants.OFF, false ),
+    MONITORING_ANALYTICS_QUERY_ENABLED( "monitoring.analytics.query.enabled", Constants.OFF, false ),
+    MONITORING_TRACKER_AGGREGATE_ENABLED( "monitoring.tracker.aggregate.enabled", Constants.OFF, false ),
     MONITORING_LOG_REQUESTID_ENABLED( "monitoring.requestidlog.enabled", Constants.OFF, false ),
     MONITORING_LOG_REQUESTID_HASHALGO( "monitoring.requestidlog.hash", "SHA-256", false ),
     MONITORING_LOG_REQUESTID_MAXSIZE( "monitoring.requestidlog.maxsize", "-1", false ),
@@ -112,6 +136,9 @@ public enum ConfigurationKey
     APPHUB_API_URL( "apphub.api.url", "https://apps.dhis2.org/api", false ),
     CHANGELOG_AGGREGATE( "changelog.aggregate", Constants.ON ),
     CHANGELOG_TRACKER( "changelog.tracker", Constants.ON ),
+    CHANGELOG_AGGREGATE_ASYNC( "changelog.aggregate.async", Constants.OFF ),
+    CHANGELOG_AGGREGATE_ASYNC_CAPACITY( "changelog.aggregate.async.capacity", "100000" ),
+    CHANGELOG_AGGREGATE_ASYNC_BATCH_SIZE( "changelog.aggregate.async.batch-size", "5000" ),
     AUDIT_USE_INMEMORY_QUEUE_ENABLED( "audit.inmemory-queue.enabled", Constants.OFF ),
     AUDIT_LOGGER( "audit.logger", Constants.OFF, false ),
     AUDIT_DATABASE( "audit.database", Constants.ON, false ),
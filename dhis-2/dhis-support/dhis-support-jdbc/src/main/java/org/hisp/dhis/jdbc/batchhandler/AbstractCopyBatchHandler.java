@@ -0,0 +1,316 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.batchhandler.AbstractBatchHandler;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+/**
+ * {@link BatchHandler} which adds objects through the PostgreSQL
+ * <code>COPY FROM STDIN</code> protocol instead of multi-row insert
+ * statements. Rows are encoded as CSV and streamed to the server as the
+ * buffer fills up, and the copy operation is completed on {@link #flush()}.
+ * <p>
+ * The table, columns and values are defined by the wrapped
+ * {@link AbstractBatchHandler}, which also serves all single-row operations
+ * such as find, update and delete. Added objects are not visible to these
+ * operations before the batch handler is flushed, which is identical to the
+ * behavior of the insert based batch handler.
+ *
+ * @param <T> the object type.
+ */
+public abstract class AbstractCopyBatchHandler<T>
+    implements BatchHandler<T>
+{
+    private static final int MAX_LENGTH = 200000;
+
+    private static final String NULL = "";
+    private static final String SEPARATOR = ",";
+    private static final String QUOTE = "\"";
+    private static final String QUOTE_ESCAPED = "\"\"";
+    private static final String NEWLINE = "\n";
+
+    private final AbstractBatchHandler<T> batchHandler;
+
+    private final Set<String> uniqueObjects = new HashSet<>();
+
+    private Connection connection;
+
+    private CopyIn copyIn;
+
+    private StringBuilder copyBuffer;
+
+    // -------------------------------------------------------------------------
+    // Constructor
+    // -------------------------------------------------------------------------
+
+    protected AbstractCopyBatchHandler( AbstractBatchHandler<T> batchHandler )
+    {
+        checkNotNull( batchHandler );
+
+        this.batchHandler = batchHandler;
+    }
+
+    // -------------------------------------------------------------------------
+    // BatchHandler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public BatchHandler<T> init()
+    {
+        batchHandler.init();
+
+        JdbcConfiguration config = batchHandler.getConfiguration();
+
+        try
+        {
+            Class.forName( config.getDriverClass() );
+
+            connection = DriverManager.getConnection(
+                config.getConnectionUrl(), config.getUsername(), config.getPassword() );
+
+            CopyManager copyManager = new CopyManager( connection.unwrap( BaseConnection.class ) );
+
+            copyIn = copyManager.copyIn( getCopySql() );
+            copyBuffer = new StringBuilder( MAX_LENGTH );
+            uniqueObjects.clear();
+        }
+        catch ( Exception ex )
+        {
+            close();
+
+            throw new RuntimeException( "Failed to start copy operation", ex );
+        }
+
+        return this;
+    }
+
+    @Override
+    public JdbcConfiguration getConfiguration()
+    {
+        return batchHandler.getConfiguration();
+    }
+
+    @Override
+    public boolean addObject( T object )
+    {
+        List<Object> uniqueValues = batchHandler.getUniqueValues( object );
+
+        if ( uniqueValues != null && !uniqueValues.isEmpty() &&
+            !uniqueObjects.add( StringUtils.join( uniqueValues, SEPARATOR ) ) )
+        {
+            return false;
+        }
+
+        copyBuffer.append( getCopyRow( batchHandler.getValues( object ) ) );
+
+        if ( copyBuffer.length() > MAX_LENGTH )
+        {
+            writeBuffer();
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean insertObject( T object )
+    {
+        return batchHandler.insertObject( object );
+    }
+
+    @Override
+    public T findObject( T object )
+    {
+        return batchHandler.findObject( object );
+    }
+
+    @Override
+    public void updateObject( T object )
+    {
+        batchHandler.updateObject( object );
+    }
+
+    @Override
+    public void deleteObject( T object )
+    {
+        batchHandler.deleteObject( object );
+    }
+
+    @Override
+    public boolean objectExists( T object )
+    {
+        return batchHandler.objectExists( object );
+    }
+
+    @Override
+    public void flush()
+    {
+        try
+        {
+            writeBuffer();
+
+            copyIn.endCopy();
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( "Failed to complete copy operation", ex );
+        }
+        finally
+        {
+            close();
+
+            batchHandler.flush();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the copy statement for the table and columns of the wrapped
+     * batch handler.
+     */
+    String getCopySql()
+    {
+        return "copy " + batchHandler.getTableName() + " (" +
+            StringUtils.join( batchHandler.getColumns(), SEPARATOR ) + ") from stdin with (format csv)";
+    }
+
+    /**
+     * Encodes the given values as a CSV row terminated by a newline. Null
+     * values are left unquoted, which the copy operation reads as null, while
+     * all other values are quoted with embedded quotes doubled.
+     *
+     * @param values the list of values.
+     * @return a CSV encoded row.
+     */
+    static String getCopyRow( List<Object> values )
+    {
+        StringBuilder row = new StringBuilder();
+
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            Object value = values.get( i );
+
+            if ( i > 0 )
+            {
+                row.append( SEPARATOR );
+            }
+
+            if ( value == null )
+            {
+                row.append( NULL );
+            }
+            else
+            {
+                row.append( QUOTE )
+                    .append( value.toString().replace( QUOTE, QUOTE_ESCAPED ) )
+                    .append( QUOTE );
+            }
+        }
+
+        return row.append( NEWLINE ).toString();
+    }
+
+    /**
+     * Writes the buffered rows to the copy stream and resets the buffer.
+     */
+    private void writeBuffer()
+    {
+        if ( copyBuffer.length() == 0 )
+        {
+            return;
+        }
+
+        byte[] bytes = copyBuffer.toString().getBytes( StandardCharsets.UTF_8 );
+
+        try
+        {
+            copyIn.writeToCopy( bytes, 0, bytes.length );
+
+            copyBuffer.setLength( 0 );
+        }
+        catch ( SQLException ex )
+        {
+            close();
+
+            throw new RuntimeException( "Failed to write objects to copy stream", ex );
+        }
+    }
+
+    /**
+     * Cancels any active copy operation and closes the connection.
+     */
+    private void close()
+    {
+        try
+        {
+            if ( copyIn != null && copyIn.isActive() )
+            {
+                copyIn.cancelCopy();
+            }
+        }
+        catch ( SQLException ignored )
+        {
+        }
+
+        try
+        {
+            if ( connection != null )
+            {
+                connection.close();
+            }
+        }
+        catch ( SQLException ignored )
+        {
+        }
+        finally
+        {
+            copyIn = null;
+            connection = null;
+        }
+    }
+}
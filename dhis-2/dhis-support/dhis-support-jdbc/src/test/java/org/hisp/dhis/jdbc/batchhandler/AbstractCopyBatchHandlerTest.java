@@ -0,0 +1,73 @@
+package org.hisp.dhis.jdbc.batchhandler;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.hisp.quick.JdbcConfiguration;
+import org.hisp.quick.StatementDialect;
+import org.junit.Test;
+
+public class AbstractCopyBatchHandlerTest
+{
+    @Test
+    public void testGetCopyRow()
+    {
+        assertEquals( "\"12\",\"Text\",\"true\"\n",
+            AbstractCopyBatchHandler.getCopyRow( Arrays.asList( 12, "Text", true ) ) );
+    }
+
+    @Test
+    public void testGetCopyRowNullAndEmpty()
+    {
+        assertEquals( "\"1\",,\"\"\n",
+            AbstractCopyBatchHandler.getCopyRow( Arrays.asList( 1, null, "" ) ) );
+    }
+
+    @Test
+    public void testGetCopyRowEscapesQuotes()
+    {
+        assertEquals( "\"A \"\"quoted\"\", comma\nvalue\"\n",
+            AbstractCopyBatchHandler.getCopyRow( Arrays.asList( "A \"quoted\", comma\nvalue" ) ) );
+    }
+
+    @Test
+    public void testGetCopySql()
+    {
+        DataValueCopyBatchHandler batchHandler = new DataValueCopyBatchHandler(
+            new JdbcConfiguration( StatementDialect.POSTGRESQL, null, null, null, null ) );
+
+        assertEquals( "copy datavalue (dataelementid,periodid,sourceid,categoryoptioncomboid,attributeoptioncomboid," +
+            "value,storedby,created,lastupdated,comment,followup,deleted) from stdin with (format csv)",
+            batchHandler.getCopySql() );
+    }
+}
@@ -0,0 +1,199 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.hisp.dhis.common.Grid;
+
+import com.google.common.collect.Iterables;
+
+/**
+ * {@link Grid} which stores values column by column instead of row by row.
+ * Columns with only {@link Double}, {@link Integer} or {@link String} values
+ * are stored as primitive arrays, where text values are dictionary encoded,
+ * which avoids an object per cell for large grids. Columns are promoted to
+ * plain object columns when values of other types are added.
+ * <p>
+ * Rows returned by this grid are views on the columns. Values can be set on
+ * any row, but can only be inserted into the last row. Rows can be
+ * inserted at any index. Columns are added and removed through the grid.
+ * <p>
+ * Aggregate analytics use this grid when the
+ * {@code analytics.query.columnar-grid} configuration property is enabled.
+ */
+public class ColumnarGrid
+    extends ListGrid
+{
+    private final ColumnarRowList rows;
+
+    /**
+     * Default constructor.
+     */
+    public ColumnarGrid()
+    {
+        this( new ColumnarRowList() );
+    }
+
+    private ColumnarGrid( ColumnarRowList rows )
+    {
+        super( rows );
+        this.rows = rows;
+    }
+
+    // -------------------------------------------------------------------------
+    // Grid implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int getWidth()
+    {
+        return rows.getWidth();
+    }
+
+    @Override
+    public List<Object> getColumn( int columnIndex )
+    {
+        return rows.getColumn( columnIndex );
+    }
+
+    @Override
+    public Grid addColumn( List<Object> columnValues )
+    {
+        return addColumn( getWidth(), columnValues );
+    }
+
+    @Override
+    public Grid addColumn( int columnIndex, List<Object> columnValues )
+    {
+        if ( getHeight() != columnValues.size() )
+        {
+            throw new IllegalStateException( "Number of column values (" + columnValues.size() + ") is not equal to number of rows (" + getHeight() + ")" );
+        }
+
+        if ( getHeight() > 0 )
+        {
+            rows.addColumn( columnIndex, columnValues );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addAndPopulateColumnsBefore( int referenceColumnIndex, Map<Object, List<?>> valueMap, int newColumns )
+    {
+        Validate.inclusiveBetween( 0, getWidth() - 1, referenceColumnIndex );
+        Validate.notNull( valueMap );
+
+        List<Object> referenceColumn = getColumn( referenceColumnIndex );
+
+        for ( int i = 0; i < newColumns; i++ )
+        {
+            List<Object> columnValues = new ArrayList<>( referenceColumn.size() );
+
+            for ( Object refVal : referenceColumn )
+            {
+                List<?> list = valueMap.get( refVal );
+
+                columnValues.add( list == null ? null : Iterables.get( list, i, null ) );
+            }
+
+            rows.addColumn( referenceColumnIndex + i, columnValues );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid removeColumn( int columnIndex )
+    {
+        if ( getHeaders().size() > 0 )
+        {
+            getHeaders().remove( columnIndex );
+        }
+
+        rows.removeColumn( columnIndex );
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    public Grid limitGrid( int limit )
+    {
+        if ( limit < 0 )
+        {
+            throw new IllegalStateException( "Illegal limit: " + limit );
+        }
+
+        if ( limit > 0 && limit <= getHeight() )
+        {
+            rows.retain( 0, limit );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid limitGrid( int startPos, int endPos )
+    {
+        if ( startPos < 0 || endPos < startPos || endPos > getHeight() )
+        {
+            throw new IllegalStateException( "Illegal start / end pos: " + startPos + ", " + endPos + ", " + getHeight() );
+        }
+
+        rows.retain( startPos, endPos );
+
+        return this;
+    }
+
+    @Override
+    public Grid sortGrid( int columnIndex, int order )
+    {
+        if ( order == 0 )
+        {
+            return this; // No sorting
+        }
+
+        columnIndex--;
+
+        if ( columnIndex < 0 || columnIndex >= getWidth() )
+        {
+            throw new IllegalArgumentException( "Column index out of bounds: " + columnIndex );
+        }
+
+        rows.sort( columnIndex, order );
+
+        return this;
+    }
+}
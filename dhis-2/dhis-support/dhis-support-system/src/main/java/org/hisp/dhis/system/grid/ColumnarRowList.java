@@ -0,0 +1,470 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List of grid rows backed by a list of {@link GridColumn}. Rows are views
+ * on the columns and are created on access. Rows can be inserted at any
+ * index, where inserting before the last row moves column values, values
+ * can only be inserted into the last row, and rows shorter than the widest
+ * row are padded with null values when the next row is appended.
+ */
+class ColumnarRowList
+    extends AbstractList<List<Object>>
+    implements RandomAccess, Serializable
+{
+    private final List<GridColumn> columns = new ArrayList<>();
+
+    private int height = 0;
+
+    /**
+     * The number of values in the last row. All other rows have a value for
+     * every column.
+     */
+    private int lastRowWidth = 0;
+
+    // -------------------------------------------------------------------------
+    // List implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int size()
+    {
+        return height;
+    }
+
+    @Override
+    public List<Object> get( int index )
+    {
+        checkRowIndex( index );
+
+        return new Row( index );
+    }
+
+    @Override
+    public List<Object> set( int index, List<Object> row )
+    {
+        checkRowIndex( index );
+
+        List<Object> previous = new ArrayList<>( get( index ) );
+        List<Object> values = new ArrayList<>( row );
+
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            setValue( index, i, values.get( i ) );
+        }
+
+        return previous;
+    }
+
+    @Override
+    public void add( int index, List<Object> row )
+    {
+        if ( index < 0 || index > height )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + height );
+        }
+
+        List<Object> values = new ArrayList<>( row );
+
+        appendRow();
+
+        values.forEach( this::appendValue );
+
+        if ( index < height - 1 )
+        {
+            moveLastRow( index );
+        }
+    }
+
+    @Override
+    public List<Object> remove( int index )
+    {
+        checkRowIndex( index );
+
+        List<Object> previous = new ArrayList<>( get( index ) );
+
+        for ( GridColumn column : columns )
+        {
+            if ( column.size() > index )
+            {
+                column.remove( index );
+            }
+        }
+
+        height--;
+        modCount++;
+
+        if ( index == height )
+        {
+            lastRowWidth = height > 0 ? columns.size() : 0;
+        }
+
+        return previous;
+    }
+
+    @Override
+    public void sort( Comparator<? super List<Object>> comparator )
+    {
+        padLastRow();
+
+        Integer[] order = getRowIndexes();
+
+        Arrays.sort( order, ( row1, row2 ) -> comparator.compare( get( row1 ), get( row2 ) ) );
+
+        permute( order );
+    }
+
+    // -------------------------------------------------------------------------
+    // Column operations
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the width of the rows.
+     *
+     * @return the width of the rows.
+     * @throws IllegalStateException if the rows are not of the same width.
+     */
+    int getWidth()
+    {
+        if ( height > 1 && lastRowWidth != columns.size() )
+        {
+            throw new IllegalStateException( "Grid rows do not have the same number of cells, previous: " +
+                columns.size() + ", this: " + lastRowWidth + ", at row: " + ( height - 1 ) );
+        }
+
+        return height > 0 ? lastRowWidth : 0;
+    }
+
+    /**
+     * Returns the values of the given column.
+     *
+     * @param columnIndex the column index.
+     * @return a list of values.
+     */
+    List<Object> getColumn( int columnIndex )
+    {
+        GridColumn column = columns.get( columnIndex );
+
+        if ( column.size() < height )
+        {
+            throw new IndexOutOfBoundsException( "Column index: " + columnIndex + " out of bounds for last row" );
+        }
+
+        List<Object> values = new ArrayList<>( height );
+
+        for ( int i = 0; i < height; i++ )
+        {
+            values.add( column.get( i ) );
+        }
+
+        return values;
+    }
+
+    /**
+     * Inserts a column with the given values at the given column index.
+     *
+     * @param columnIndex the column index.
+     * @param values the column values, one for each row.
+     */
+    void addColumn( int columnIndex, List<Object> values )
+    {
+        padLastRow();
+
+        GridColumn column = new GridColumn.NullColumn();
+
+        for ( Object value : values )
+        {
+            if ( !column.accepts( value ) )
+            {
+                column = column.promote( value );
+            }
+
+            column.add( value );
+        }
+
+        columns.add( columnIndex, column );
+
+        lastRowWidth = height > 0 ? columns.size() : 0;
+    }
+
+    /**
+     * Removes the column at the given column index.
+     *
+     * @param columnIndex the column index.
+     */
+    void removeColumn( int columnIndex )
+    {
+        columns.remove( columnIndex );
+
+        if ( columnIndex < lastRowWidth )
+        {
+            lastRowWidth--;
+        }
+    }
+
+    /**
+     * Retains only the rows between the given row indexes.
+     *
+     * @param fromRow the start row index, inclusive.
+     * @param toRow the end row index, exclusive.
+     */
+    void retain( int fromRow, int toRow )
+    {
+        padLastRow();
+
+        columns.forEach( column -> column.retain( fromRow, toRow ) );
+
+        height = toRow - fromRow;
+        lastRowWidth = height > 0 ? columns.size() : 0;
+        modCount++;
+    }
+
+    /**
+     * Sorts the rows on the values of the given column, in the same order
+     * as {@link ListGrid.GridRowComparator}.
+     *
+     * @param columnIndex the column index.
+     * @param order the sort order, positive for descending order and
+     *        negative for ascending order.
+     */
+    void sort( int columnIndex, int order )
+    {
+        padLastRow();
+
+        GridColumn column = columns.get( columnIndex );
+
+        Integer[] rowOrder = getRowIndexes();
+
+        Arrays.sort( rowOrder, ( row1, row2 ) -> column.compare( row1, row2, order ) );
+
+        permute( rowOrder );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void appendRow()
+    {
+        padLastRow();
+
+        height++;
+        lastRowWidth = 0;
+        modCount++;
+    }
+
+    private void appendValue( Object value )
+    {
+        if ( lastRowWidth == columns.size() )
+        {
+            columns.add( new GridColumn.NullColumn( height - 1 ) );
+        }
+
+        accepting( lastRowWidth, value ).add( value );
+
+        lastRowWidth++;
+    }
+
+    private void setValue( int rowIndex, int columnIndex, Object value )
+    {
+        accepting( columnIndex, value ).set( rowIndex, value );
+    }
+
+    /**
+     * Returns the column at the given index, promoted if necessary so that it
+     * accepts the given value.
+     */
+    private GridColumn accepting( int columnIndex, Object value )
+    {
+        GridColumn column = columns.get( columnIndex );
+
+        if ( !column.accepts( value ) )
+        {
+            column = column.promote( value );
+            columns.set( columnIndex, column );
+        }
+
+        return column;
+    }
+
+    private void padLastRow()
+    {
+        while ( height > 0 && lastRowWidth < columns.size() )
+        {
+            appendValue( null );
+        }
+    }
+
+    /**
+     * Moves the last row to the given row index, shifting the rows at and
+     * after the index down by one. The last row is padded first, as only the
+     * last row can be shorter than the other rows.
+     */
+    private void moveLastRow( int index )
+    {
+        padLastRow();
+
+        Integer[] order = new Integer[height];
+
+        for ( int i = 0; i < height; i++ )
+        {
+            order[i] = i < index ? i : i == index ? height - 1 : i - 1;
+        }
+
+        permute( order );
+    }
+
+    private Integer[] getRowIndexes()
+    {
+        Integer[] indexes = new Integer[height];
+
+        for ( int i = 0; i < height; i++ )
+        {
+            indexes[i] = i;
+        }
+
+        return indexes;
+    }
+
+    private void permute( Integer[] order )
+    {
+        int[] rowOrder = Arrays.stream( order ).mapToInt( Integer::intValue ).toArray();
+
+        columns.forEach( column -> column.permute( rowOrder ) );
+
+        modCount++;
+    }
+
+    private int getRowWidth( int rowIndex )
+    {
+        return rowIndex == height - 1 ? lastRowWidth : columns.size();
+    }
+
+    private void checkRowIndex( int index )
+    {
+        if ( index < 0 || index >= height )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + height );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Row
+    // -------------------------------------------------------------------------
+
+    /**
+     * View of a single row.
+     */
+    private class Row
+        extends AbstractList<Object>
+        implements RandomAccess
+    {
+        private final int rowIndex;
+
+        Row( int rowIndex )
+        {
+            this.rowIndex = rowIndex;
+        }
+
+        @Override
+        public int size()
+        {
+            return getRowWidth( rowIndex );
+        }
+
+        @Override
+        public Object get( int index )
+        {
+            checkColumnIndex( index );
+
+            return columns.get( index ).get( rowIndex );
+        }
+
+        @Override
+        public Object set( int index, Object value )
+        {
+            checkColumnIndex( index );
+
+            Object previous = get( index );
+
+            setValue( rowIndex, index, value );
+
+            return previous;
+        }
+
+        /**
+         * Inserts the value at the given index, shifting the values at and
+         * after the index one column to the right. Only supported for the last
+         * row, as all other rows have a value for every column and would
+         * become wider than the rest of the grid. Columns are inserted into
+         * all rows through {@link ColumnarRowList#addColumn(int, List)}.
+         */
+        @Override
+        public void add( int index, Object value )
+        {
+            if ( rowIndex != height - 1 )
+            {
+                throw new UnsupportedOperationException( "Values can only be inserted into the last row of a columnar grid" );
+            }
+
+            if ( index < 0 || index > lastRowWidth )
+            {
+                throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + lastRowWidth );
+            }
+
+            appendValue( value );
+
+            for ( int i = lastRowWidth - 1; i > index; i-- )
+            {
+                setValue( rowIndex, i, columns.get( i - 1 ).get( rowIndex ) );
+            }
+
+            setValue( rowIndex, index, value );
+
+            modCount++;
+        }
+
+        private void checkColumnIndex( int index )
+        {
+            if ( index < 0 || index >= size() )
+            {
+                throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size() );
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridWriter;
+
+import com.csvreader.CsvWriter;
+
+/**
+ * {@link GridWriter} which writes CSV in the same format as
+ * {@link GridUtils#toCsv}. Meta data is not part of the CSV format and is
+ * ignored.
+ */
+public class CsvGridWriter
+    implements GridWriter
+{
+    private final CsvWriter csvWriter;
+
+    private long rowCount = 0;
+
+    public CsvGridWriter( Writer writer )
+    {
+        checkNotNull( writer );
+
+        this.csvWriter = new CsvWriter( writer, GridUtils.CSV_DELIMITER );
+    }
+
+    // -------------------------------------------------------------------------
+    // GridWriter implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public GridWriter writeHeaders( List<GridHeader> headers )
+    {
+        try
+        {
+            if ( !headers.isEmpty() )
+            {
+                for ( GridHeader header : headers )
+                {
+                    csvWriter.write( header.getColumn() );
+                }
+
+                csvWriter.endRecord();
+            }
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+
+        return this;
+    }
+
+    @Override
+    public GridWriter writeRow( List<Object> row )
+    {
+        try
+        {
+            for ( Object value : row )
+            {
+                csvWriter.write( value != null ? String.valueOf( value ) : StringUtils.EMPTY );
+            }
+
+            csvWriter.endRecord();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+
+        rowCount++;
+        return this;
+    }
+
+    @Override
+    public GridWriter writeMetaData( Map<String, Object> metaData )
+    {
+        return this;
+    }
+
+    @Override
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            csvWriter.flush();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+}
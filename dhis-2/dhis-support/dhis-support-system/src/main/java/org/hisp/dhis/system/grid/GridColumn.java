@@ -0,0 +1,640 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column of values in a {@link ColumnarGrid}. Numeric and text values are
+ * stored in typed primitive arrays, other values are stored as objects.
+ * A column holding a value it cannot store is promoted to a column which
+ * can, see {@link #promote(Object)}.
+ */
+abstract class GridColumn
+    implements Serializable
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The number of values in this column.
+     */
+    protected int size;
+
+    /**
+     * Returns an empty column which can store the given value.
+     *
+     * @param value the value.
+     * @return a {@link GridColumn}.
+     */
+    static GridColumn forValue( Object value )
+    {
+        if ( value == null )
+        {
+            return new NullColumn();
+        }
+        else if ( value instanceof Double )
+        {
+            return new DoubleColumn();
+        }
+        else if ( value instanceof Integer )
+        {
+            return new IntColumn();
+        }
+        else if ( value instanceof String )
+        {
+            return new StringColumn();
+        }
+
+        return new ObjectColumn();
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Appends the given value. The value must be accepted by this column.
+     *
+     * @param value the value.
+     */
+    void add( Object value )
+    {
+        ensureCapacity( size + 1 );
+        size++;
+        set( size - 1, value );
+    }
+
+    /**
+     * Returns a column which holds the values of this column and can store
+     * the given value.
+     *
+     * @param value the value.
+     * @return a {@link GridColumn}.
+     */
+    GridColumn promote( Object value )
+    {
+        return copyTo( new ObjectColumn() );
+    }
+
+    /**
+     * Compares the values at the given rows in the same way as
+     * {@link ListGrid.GridRowComparator}.
+     *
+     * @param row1 the first row.
+     * @param row2 the second row.
+     * @param order the sort order, positive for descending order and
+     *        negative for ascending order.
+     * @return the comparison result.
+     */
+    int compare( int row1, int row2, int order )
+    {
+        boolean invalid1 = !isComparable( row1 );
+        boolean invalid2 = !isComparable( row2 );
+
+        if ( invalid1 && invalid2 )
+        {
+            return 0;
+        }
+        else if ( invalid1 )
+        {
+            return order > 0 ? 1 : -1;
+        }
+        else if ( invalid2 )
+        {
+            return order > 0 ? -1 : 1;
+        }
+
+        return order > 0 ? compareValues( row2, row1 ) : compareValues( row1, row2 );
+    }
+
+    protected GridColumn copyTo( GridColumn column )
+    {
+        column.ensureCapacity( size );
+
+        for ( int i = 0; i < size; i++ )
+        {
+            column.add( get( i ) );
+        }
+
+        return column;
+    }
+
+    protected static int newCapacity( int length, int capacity )
+    {
+        return Math.max( capacity, Math.max( INITIAL_CAPACITY, length + ( length >> 1 ) ) );
+    }
+
+    protected static BitSet permute( BitSet bits, int[] order )
+    {
+        BitSet permuted = new BitSet( order.length );
+
+        for ( int i = 0; i < order.length; i++ )
+        {
+            permuted.set( i, bits.get( order[i] ) );
+        }
+
+        return permuted;
+    }
+
+    protected static void remove( BitSet bits, int index, int size )
+    {
+        for ( int i = index; i < size - 1; i++ )
+        {
+            bits.set( i, bits.get( i + 1 ) );
+        }
+
+        bits.clear( size - 1 );
+    }
+
+    /**
+     * Returns the value at the given row.
+     *
+     * @param row the row index.
+     * @return the value.
+     */
+    abstract Object get( int row );
+
+    /**
+     * Indicates whether the given value can be stored in this column.
+     *
+     * @param value the value.
+     * @return true if the value can be stored.
+     */
+    abstract boolean accepts( Object value );
+
+    /**
+     * Sets the value at the given row. The value must be accepted by this
+     * column.
+     *
+     * @param row the row index.
+     * @param value the value.
+     */
+    abstract void set( int row, Object value );
+
+    /**
+     * Removes the value at the given row, shifting subsequent values.
+     *
+     * @param row the row index.
+     */
+    abstract void remove( int row );
+
+    /**
+     * Retains only the values between the given row indexes.
+     *
+     * @param fromRow the start row index, inclusive.
+     * @param toRow the end row index, exclusive.
+     */
+    abstract void retain( int fromRow, int toRow );
+
+    /**
+     * Reorders the values so that the value at row {@code i} becomes the
+     * value which was at row {@code order[i]}.
+     *
+     * @param order the new order of rows.
+     */
+    abstract void permute( int[] order );
+
+    protected abstract void ensureCapacity( int capacity );
+
+    protected abstract boolean isComparable( int row );
+
+    protected abstract int compareValues( int row1, int row2 );
+
+    // -------------------------------------------------------------------------
+    // Implementations
+    // -------------------------------------------------------------------------
+
+    /**
+     * Column with null values only.
+     */
+    static class NullColumn
+        extends GridColumn
+    {
+        NullColumn()
+        {
+        }
+
+        NullColumn( int size )
+        {
+            this.size = size;
+        }
+
+        @Override
+        GridColumn promote( Object value )
+        {
+            return copyTo( forValue( value ) );
+        }
+
+        @Override
+        Object get( int row )
+        {
+            return null;
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null;
+        }
+
+        @Override
+        void set( int row, Object value )
+        {
+        }
+
+        @Override
+        void remove( int row )
+        {
+            size--;
+        }
+
+        @Override
+        void retain( int fromRow, int toRow )
+        {
+            size = toRow - fromRow;
+        }
+
+        @Override
+        void permute( int[] order )
+        {
+        }
+
+        @Override
+        protected void ensureCapacity( int capacity )
+        {
+        }
+
+        @Override
+        protected boolean isComparable( int row )
+        {
+            return false;
+        }
+
+        @Override
+        protected int compareValues( int row1, int row2 )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Column with {@link Double} values stored as primitives.
+     */
+    static class DoubleColumn
+        extends GridColumn
+    {
+        private double[] values = new double[0];
+
+        private BitSet nulls = new BitSet();
+
+        @Override
+        Object get( int row )
+        {
+            return nulls.get( row ) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null || value instanceof Double;
+        }
+
+        @Override
+        void set( int row, Object value )
+        {
+            nulls.set( row, value == null );
+            values[row] = value != null ? (Double) value : 0d;
+        }
+
+        @Override
+        void remove( int row )
+        {
+            System.arraycopy( values, row + 1, values, row, size - row - 1 );
+            remove( nulls, row, size );
+            size--;
+        }
+
+        @Override
+        void retain( int fromRow, int toRow )
+        {
+            values = Arrays.copyOfRange( values, fromRow, toRow );
+            nulls = nulls.get( fromRow, toRow );
+            size = toRow - fromRow;
+        }
+
+        @Override
+        void permute( int[] order )
+        {
+            double[] permuted = new double[values.length];
+
+            for ( int i = 0; i < order.length; i++ )
+            {
+                permuted[i] = values[order[i]];
+            }
+
+            values = permuted;
+            nulls = permute( nulls, order );
+        }
+
+        @Override
+        protected void ensureCapacity( int capacity )
+        {
+            if ( capacity > values.length )
+            {
+                values = Arrays.copyOf( values, newCapacity( values.length, capacity ) );
+            }
+        }
+
+        @Override
+        protected boolean isComparable( int row )
+        {
+            return !nulls.get( row );
+        }
+
+        @Override
+        protected int compareValues( int row1, int row2 )
+        {
+            return Double.compare( values[row1], values[row2] );
+        }
+    }
+
+    /**
+     * Column with {@link Integer} values stored as primitives.
+     */
+    static class IntColumn
+        extends GridColumn
+    {
+        private int[] values = new int[0];
+
+        private BitSet nulls = new BitSet();
+
+        @Override
+        Object get( int row )
+        {
+            return nulls.get( row ) ? null : values[row];
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null || value instanceof Integer;
+        }
+
+        @Override
+        void set( int row, Object value )
+        {
+            nulls.set( row, value == null );
+            values[row] = value != null ? (Integer) value : 0;
+        }
+
+        @Override
+        void remove( int row )
+        {
+            System.arraycopy( values, row + 1, values, row, size - row - 1 );
+            remove( nulls, row, size );
+            size--;
+        }
+
+        @Override
+        void retain( int fromRow, int toRow )
+        {
+            values = Arrays.copyOfRange( values, fromRow, toRow );
+            nulls = nulls.get( fromRow, toRow );
+            size = toRow - fromRow;
+        }
+
+        @Override
+        void permute( int[] order )
+        {
+            int[] permuted = new int[values.length];
+
+            for ( int i = 0; i < order.length; i++ )
+            {
+                permuted[i] = values[order[i]];
+            }
+
+            values = permuted;
+            nulls = permute( nulls, order );
+        }
+
+        @Override
+        protected void ensureCapacity( int capacity )
+        {
+            if ( capacity > values.length )
+            {
+                values = Arrays.copyOf( values, newCapacity( values.length, capacity ) );
+            }
+        }
+
+        @Override
+        protected boolean isComparable( int row )
+        {
+            return !nulls.get( row );
+        }
+
+        @Override
+        protected int compareValues( int row1, int row2 )
+        {
+            return Integer.compare( values[row1], values[row2] );
+        }
+    }
+
+    /**
+     * Column with {@link String} values stored as codes into a dictionary of
+     * distinct values. Null values are stored as code -1.
+     */
+    static class StringColumn
+        extends GridColumn
+    {
+        private static final int NULL_CODE = -1;
+
+        private int[] codes = new int[0];
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+        @Override
+        Object get( int row )
+        {
+            int code = codes[row];
+
+            return code != NULL_CODE ? dictionary.get( code ) : null;
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return value == null || value instanceof String;
+        }
+
+        @Override
+        void set( int row, Object value )
+        {
+            codes[row] = value != null ? dictionaryIndex.computeIfAbsent( (String) value, this::addToDictionary ) : NULL_CODE;
+        }
+
+        @Override
+        void remove( int row )
+        {
+            System.arraycopy( codes, row + 1, codes, row, size - row - 1 );
+            size--;
+        }
+
+        @Override
+        void retain( int fromRow, int toRow )
+        {
+            codes = Arrays.copyOfRange( codes, fromRow, toRow );
+            size = toRow - fromRow;
+        }
+
+        @Override
+        void permute( int[] order )
+        {
+            int[] permuted = new int[codes.length];
+
+            for ( int i = 0; i < order.length; i++ )
+            {
+                permuted[i] = codes[order[i]];
+            }
+
+            codes = permuted;
+        }
+
+        @Override
+        protected void ensureCapacity( int capacity )
+        {
+            if ( capacity > codes.length )
+            {
+                codes = Arrays.copyOf( codes, newCapacity( codes.length, capacity ) );
+            }
+        }
+
+        @Override
+        protected boolean isComparable( int row )
+        {
+            return codes[row] != NULL_CODE;
+        }
+
+        @Override
+        protected int compareValues( int row1, int row2 )
+        {
+            return codes[row1] == codes[row2] ? 0 : dictionary.get( codes[row1] ).compareTo( dictionary.get( codes[row2] ) );
+        }
+
+        private Integer addToDictionary( String value )
+        {
+            dictionary.add( value );
+            return dictionary.size() - 1;
+        }
+    }
+
+    /**
+     * Column with values of any type stored as objects.
+     */
+    static class ObjectColumn
+        extends GridColumn
+    {
+        private Object[] values = new Object[0];
+
+        @Override
+        Object get( int row )
+        {
+            return values[row];
+        }
+
+        @Override
+        boolean accepts( Object value )
+        {
+            return true;
+        }
+
+        @Override
+        void set( int row, Object value )
+        {
+            values[row] = value;
+        }
+
+        @Override
+        void remove( int row )
+        {
+            System.arraycopy( values, row + 1, values, row, size - row - 1 );
+            values[--size] = null;
+        }
+
+        @Override
+        void retain( int fromRow, int toRow )
+        {
+            values = Arrays.copyOfRange( values, fromRow, toRow );
+            size = toRow - fromRow;
+        }
+
+        @Override
+        void permute( int[] order )
+        {
+            Object[] permuted = new Object[values.length];
+
+            for ( int i = 0; i < order.length; i++ )
+            {
+                permuted[i] = values[order[i]];
+            }
+
+            values = permuted;
+        }
+
+        @Override
+        protected void ensureCapacity( int capacity )
+        {
+            if ( capacity > values.length )
+            {
+                values = Arrays.copyOf( values, newCapacity( values.length, capacity ) );
+            }
+        }
+
+        @Override
+        protected boolean isComparable( int row )
+        {
+            return values[row] instanceof Comparable<?>;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        protected int compareValues( int row1, int row2 )
+        {
+            return ( (Comparable<Object>) values[row1] ).compareTo( values[row2] );
+        }
+    }
+}
@@ -81,7 +81,7 @@ import static org.hisp.dhis.system.util.PDFUtils.*;
 public class GridUtils
 {
     private static final String EMPTY = "";
-    private static final char CSV_DELIMITER = ',';
+    static final char CSV_DELIMITER = ',';
     private static final String XLS_SHEET_PREFIX = "Sheet ";
     private static final int JXL_MAX_COLS = 256;
     private static final String FONT_ARIAL = "Arial";
@@ -0,0 +1,173 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridWriter;
+import org.hisp.dhis.commons.config.JacksonObjectMapperConfig;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link GridWriter} which writes JSON with the same structure as the JSON
+ * representation of {@link ListGrid}. Meta data, height and width are written
+ * after the rows.
+ */
+public class JsonGridWriter
+    implements GridWriter
+{
+    private final ObjectMapper mapper = JacksonObjectMapperConfig.staticJsonMapper();
+
+    private final JsonGenerator generator;
+
+    private Map<String, Object> metaData;
+
+    private int headerWidth = 0;
+
+    private int width = 0;
+
+    private long rowCount = 0;
+
+    private boolean started = false;
+
+    public JsonGridWriter( OutputStream out )
+    {
+        checkNotNull( out );
+
+        try
+        {
+            this.generator = mapper.getFactory().createGenerator( out );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // GridWriter implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public GridWriter writeHeaders( List<GridHeader> headers )
+    {
+        try
+        {
+            generator.writeStartObject();
+            generator.writeFieldName( "headers" );
+            mapper.writeValue( generator, headers );
+            generator.writeArrayFieldStart( "rows" );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+
+        headerWidth = headers.size();
+        started = true;
+        return this;
+    }
+
+    @Override
+    public GridWriter writeRow( List<Object> row )
+    {
+        try
+        {
+            generator.writeStartArray();
+
+            for ( Object value : row )
+            {
+                generator.writeObject( value );
+            }
+
+            generator.writeEndArray();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+
+        width = row.size();
+        rowCount++;
+        return this;
+    }
+
+    @Override
+    public GridWriter writeMetaData( Map<String, Object> metaData )
+    {
+        this.metaData = metaData;
+        return this;
+    }
+
+    @Override
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if ( !started )
+            {
+                writeHeaders( Collections.emptyList() );
+            }
+
+            generator.writeEndArray();
+
+            if ( metaData != null )
+            {
+                generator.writeFieldName( "metaData" );
+                mapper.writeValue( generator, metaData );
+            }
+
+            generator.writeNumberField( "headerWidth", headerWidth );
+            generator.writeNumberField( "width", width );
+            generator.writeNumberField( "height", rowCount );
+            generator.writeEndObject();
+            generator.flush();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+}
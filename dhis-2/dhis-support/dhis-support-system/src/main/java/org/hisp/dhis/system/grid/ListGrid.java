@@ -132,6 +132,19 @@ public class ListGrid
         this.grid = new ArrayList<>();
     }
 
+    /**
+     * Constructor for sub classes which provide their own row storage.
+     *
+     * @param rows the list to use for storing rows.
+     */
+    protected ListGrid( List<List<Object>> rows )
+    {
+        this.headers = new ArrayList<>();
+        this.metaData = new HashMap<>();
+        this.internalMetaData = new HashMap<>();
+        this.grid = rows;
+    }
+
     /**
      * @param metaData meta data.
      * @param internalMetaData internal meta data.
@@ -1102,7 +1115,7 @@ public class ListGrid
      * Updates the mapping between header columns and grid indexes. This method
      * should be invoked whenever the columns are manipulated.
      */
-    private void updateColumnIndexMap()
+    protected void updateColumnIndexMap()
     {
         columnIndexMap.clear();
 
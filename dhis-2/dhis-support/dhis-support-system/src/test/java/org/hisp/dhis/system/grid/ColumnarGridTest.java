@@ -0,0 +1,200 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.common.Grid;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Runs the {@link GridTest} tests against {@link ColumnarGrid}, in addition
+ * to tests of the columnar storage.
+ */
+public class ColumnarGridTest
+    extends GridTest
+{
+    @Override
+    protected Grid newGrid()
+    {
+        return new ColumnarGrid();
+    }
+
+    @Test
+    public void testTypedColumns()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "A", 1, 1.5 )
+            .addRow().addValuesVar( "B", null, 2.5 )
+            .addRow().addValuesVar( "A", 3, null );
+
+        assertEquals( 3, grid.getHeight() );
+        assertEquals( 3, grid.getWidth() );
+        assertEquals( Lists.newArrayList( "A", "B", "A" ), grid.getColumn( 0 ) );
+        assertEquals( Lists.newArrayList( 1, null, 3 ), grid.getColumn( 1 ) );
+        assertEquals( Lists.newArrayList( 1.5, 2.5, null ), grid.getColumn( 2 ) );
+    }
+
+    @Test
+    public void testPromoteColumn()
+    {
+        Date date = new Date();
+
+        Grid grid = newGrid()
+            .addRow().addValuesVar( null, 1 )
+            .addRow().addValuesVar( "B", 2.5 )
+            .addRow().addValuesVar( date, "C" );
+
+        assertEquals( Lists.newArrayList( null, "B", date ), grid.getColumn( 0 ) );
+        assertEquals( Lists.newArrayList( 1, 2.5, "C" ), grid.getColumn( 1 ) );
+
+        grid.getRow( 0 ).set( 0, 4L );
+
+        assertEquals( 4L, grid.getValue( 0, 0 ) );
+    }
+
+    @Test
+    public void testSetValue()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "A", 1.0 )
+            .addRow().addValuesVar( "B", 2.0 );
+
+        grid.getRow( 1 ).set( 0, "A" );
+        grid.getRow( 1 ).set( 1, null );
+
+        assertEquals( "A", grid.getValue( 1, 0 ) );
+        assertNull( grid.getValue( 1, 1 ) );
+        assertEquals( 1.0, grid.getValue( 0, 1 ) );
+    }
+
+    @Test
+    public void testSortWithNulls()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "b", 2.0 )
+            .addRow().addValuesVar( null, 3.0 )
+            .addRow().addValuesVar( "a", null )
+            .addRow().addValuesVar( "c", 1.0 );
+
+        grid.sortGrid( 1, -1 );
+
+        assertEquals( Lists.newArrayList( null, "a", "b", "c" ), grid.getColumn( 0 ) );
+        assertEquals( Lists.newArrayList( 3.0, null, 2.0, 1.0 ), grid.getColumn( 1 ) );
+
+        grid.sortGrid( 2, 1 );
+
+        assertEquals( Lists.newArrayList( 3.0, 2.0, 1.0, null ), grid.getColumn( 1 ) );
+        assertEquals( Lists.newArrayList( null, "b", "c", "a" ), grid.getColumn( 0 ) );
+    }
+
+    @Test
+    public void testInsertRow()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "A", 1.0 )
+            .addRow().addValuesVar( "C", 3.0 );
+
+        grid.getRows().add( 1, Lists.newArrayList( "B", 2.0 ) );
+        grid.getRows().add( 0, Lists.newArrayList( "O" ) );
+
+        assertEquals( 4, grid.getHeight() );
+        assertEquals( Lists.newArrayList( "O", "A", "B", "C" ), grid.getColumn( 0 ) );
+        assertEquals( Lists.newArrayList( null, 1.0, 2.0, 3.0 ), grid.getColumn( 1 ) );
+        assertEquals( 2, grid.getWidth() );
+    }
+
+    @Test
+    public void testInsertValueIntoLastRow()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "A", "B", "C" )
+            .addRow().addValuesVar( "D", "F" );
+
+        grid.getRow( 1 ).add( 1, "E" );
+
+        assertEquals( 3, grid.getWidth() );
+        assertEquals( Lists.newArrayList( "D", "E", "F" ), grid.getRow( 1 ) );
+
+        grid.getRow( 1 ).add( 0, "X" );
+
+        assertEquals( 4, grid.getWidth() );
+        assertEquals( Lists.newArrayList( "X", "D", "E", "F" ), grid.getRow( 1 ) );
+        assertEquals( Lists.newArrayList( "A", "B", "C", null ), grid.getRow( 0 ) );
+    }
+
+    @Test( expected = UnsupportedOperationException.class )
+    public void testInsertValueIntoFullRow()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "A", 1.0 )
+            .addRow().addValuesVar( "B", 2.0 );
+
+        grid.getRow( 0 ).add( 1, 3.0 );
+    }
+
+    @Test
+    public void testPadShortRow()
+    {
+        Grid grid = newGrid()
+            .addRow().addValuesVar( "A", 1.0 )
+            .addRow().addValuesVar( "B" )
+            .addRow().addValuesVar( "C", 3.0 );
+
+        assertEquals( 2, grid.getWidth() );
+        assertNull( grid.getValue( 1, 1 ) );
+    }
+
+    @Test
+    public void testLargeGrid()
+    {
+        Grid grid = newGrid();
+
+        for ( int i = 0; i < 200_000; i++ )
+        {
+            grid.addRow().addValuesVar( "de" + ( i % 100 ), "ou" + ( i % 1000 ), (double) i );
+        }
+
+        grid.sortGrid( 3, 1 );
+
+        List<Object> values = grid.getColumn( 2 );
+
+        assertEquals( 200_000, values.size() );
+        assertEquals( 199_999d, values.get( 0 ) );
+        assertEquals( 0d, values.get( 199_999 ) );
+        assertTrue( grid.getRow( 0 ).contains( "de99" ) );
+    }
+}
@@ -64,8 +64,8 @@ public class GridTest
     @Before
     public void setUp()
     {
-        gridA = new ListGrid();
-        gridB = new ListGrid();
+        gridA = newGrid();
+        gridB = newGrid();
 
         headerA = new GridHeader( "ColA", "colA", ValueType.TEXT, String.class.getName(), false, true );
         headerB = new GridHeader( "ColB", "colB", ValueType.TEXT, String.class.getName(), false, true );
@@ -112,7 +112,7 @@ public class GridTest
     @Test
     public void testAddHeaders()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         GridHeader headerA = new GridHeader( "DataElementA", "Data element A" );
         GridHeader headerB = new GridHeader( "DataElementB", "Data element B" );
@@ -136,7 +136,7 @@ public class GridTest
     @Test
     public void testColumnIsEmpty()
     {
-        Grid grid = new ListGrid()
+        Grid grid = newGrid()
             .addRow().addValuesVar( "A1", null, "A3", null )
             .addRow().addValuesVar( "B1", null, "B3", null )
             .addRow().addValuesVar( null, null, "C3", null )
@@ -151,7 +151,7 @@ public class GridTest
     @Test
     public void testRemoveEmptyColumns()
     {
-        Grid grid = new ListGrid()
+        Grid grid = newGrid()
             .addHeader( new GridHeader( "H1" ) )
             .addHeader( new GridHeader( "H2" ) )
             .addHeader( new GridHeader( "H3" ) )
@@ -172,7 +172,7 @@ public class GridTest
     @Test
     public void testRemoveEmptyColumnsWithoutHeaders()
     {
-        Grid grid = new ListGrid()
+        Grid grid = newGrid()
             .addRow().addValuesVar( "A1", null, "A3", null )
             .addRow().addValuesVar( "B1", null, "B3", null )
             .addRow().addValuesVar( null, null, "C3", null )
@@ -188,7 +188,7 @@ public class GridTest
     @Test
     public void testAddHeaderList()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         GridHeader headerA = new GridHeader( "DataElementA", "Data element A" );
         GridHeader headerB = new GridHeader( "DataElementB", "Data element B" );
@@ -599,7 +599,7 @@ public class GridTest
     @Test
     public void testSortA()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValue( 1 ).addValue( "a" );
         grid.addRow().addValue( 2 ).addValue( "b" );
@@ -620,7 +620,7 @@ public class GridTest
     @Test
     public void testSortB()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValue( 3 ).addValue( "a" );
         grid.addRow().addValue( 2 ).addValue( "b" );
@@ -641,7 +641,7 @@ public class GridTest
     @Test
     public void testSortC()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValue( 1 ).addValue( "c" );
         grid.addRow().addValue( 3 ).addValue( "a" );
@@ -662,7 +662,7 @@ public class GridTest
     @Test
     public void testSortD()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValue( "a" ).addValue( "a" ).addValue( 5.2 );
         grid.addRow().addValue( "b" ).addValue( "b" ).addValue( 0.0 );
@@ -695,7 +695,7 @@ public class GridTest
     @Test
     public void testSortE()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValue( "two" ).addValue( 2 );
         grid.addRow().addValue( "null" ).addValue( null );
@@ -716,7 +716,7 @@ public class GridTest
     @Test
     public void testSortF()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValue( "two" ).addValue( 2 );
         grid.addRow().addValue( "null" ).addValue( null );
@@ -756,7 +756,7 @@ public class GridTest
     @Test
     public void testAddRegressionColumn()
     {
-        gridA = new ListGrid();
+        gridA = newGrid();
 
         gridA.addRow();
         gridA.addValue( 10.0 );
@@ -781,7 +781,7 @@ public class GridTest
     @Test
     public void testAddCumulativeColumn()
     {
-        gridA = new ListGrid();
+        gridA = newGrid();
 
         gridA.addRow();
         gridA.addValue( 10.0 );
@@ -871,7 +871,7 @@ public class GridTest
     @Test
     public void testAddValuesAsList()
     {
-        Grid grid = new ListGrid();
+        Grid grid = newGrid();
 
         grid.addRow().addValuesAsList( Lists.newArrayList( "colA1", "colB1", "colC1" ) );
         grid.addRow().addValuesAsList( Lists.newArrayList( "colA2", "colB2", "colC2" ) );
@@ -886,6 +886,11 @@ public class GridTest
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    protected Grid newGrid()
+    {
+        return new ListGrid();
+    }
+
     private static List<Object> getList( Object... items )
     {
         List<Object> list = new ArrayList<>();
@@ -0,0 +1,169 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridWriter;
+import org.hisp.dhis.common.ValueType;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+public class GridWriterTest
+{
+    private static final int ROW_COUNT = 2000;
+
+    private final List<GridHeader> headers = Lists.newArrayList(
+        new GridHeader( "dx", "Data", ValueType.TEXT, String.class.getName(), false, true ),
+        new GridHeader( "ou", "Org unit", ValueType.TEXT, String.class.getName(), false, true ),
+        new GridHeader( "value", "Value", ValueType.NUMBER, Double.class.getName(), false, false ) );
+
+    @Test
+    public void testWriteJson()
+        throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Map<String, Object> metaData = new HashMap<>();
+        metaData.put( "dimensions", Lists.newArrayList( "dx", "ou" ) );
+
+        GridWriter writer = new JsonGridWriter( out )
+            .writeHeaders( headers )
+            .writeRow( Lists.newArrayList( "deabcdefghA", "ouabcdefghA", 3.0 ) )
+            .writeRow( Lists.newArrayList( "deabcdefghB", "ouabcdefghB", null ) )
+            .writeMetaData( metaData );
+
+        writer.close();
+
+        JsonNode json = new ObjectMapper().readTree( out.toByteArray() );
+
+        assertEquals( 3, json.get( "headers" ).size() );
+        assertEquals( "dx", json.get( "headers" ).get( 0 ).get( "name" ).asText() );
+        assertEquals( 2, json.get( "rows" ).size() );
+        assertEquals( "ouabcdefghA", json.get( "rows" ).get( 0 ).get( 1 ).asText() );
+        assertEquals( 3.0, json.get( "rows" ).get( 0 ).get( 2 ).asDouble(), 0.01 );
+        assertTrue( json.get( "rows" ).get( 1 ).get( 2 ).isNull() );
+        assertEquals( "ou", json.get( "metaData" ).get( "dimensions" ).get( 1 ).asText() );
+        assertEquals( 3, json.get( "headerWidth" ).asInt() );
+        assertEquals( 3, json.get( "width" ).asInt() );
+        assertEquals( 2, json.get( "height" ).asInt() );
+        assertEquals( 2, writer.getRowCount() );
+    }
+
+    @Test
+    public void testWriteJsonWithoutHeaders()
+        throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new JsonGridWriter( out ).close();
+
+        JsonNode json = new ObjectMapper().readTree( out.toByteArray() );
+
+        assertEquals( 0, json.get( "headers" ).size() );
+        assertEquals( 0, json.get( "rows" ).size() );
+        assertEquals( 0, json.get( "height" ).asInt() );
+    }
+
+    @Test
+    public void testWriteCsv()
+    {
+        StringWriter out = new StringWriter();
+
+        GridWriter writer = new CsvGridWriter( out )
+            .writeHeaders( headers )
+            .writeRow( Lists.newArrayList( "deabcdefghA", "ouabcdefghA", 3.0 ) )
+            .writeRow( Lists.newArrayList( "deabcdefghB", "ouabcdefghB", null ) );
+
+        writer.close();
+
+        String[] lines = out.toString().split( "\\r?\\n" );
+
+        assertEquals( 3, lines.length );
+        assertEquals( "Data,Org unit,Value", lines[0] );
+        assertEquals( "deabcdefghA,ouabcdefghA,3.0", lines[1] );
+        assertEquals( "deabcdefghB,ouabcdefghB,", lines[2] );
+        assertEquals( 2, writer.getRowCount() );
+    }
+
+    /**
+     * Streams rows from a supplier, which mirrors a database cursor feeding
+     * the writer, and verifies that rows reach the output stream while rows
+     * are still being written rather than being buffered until close.
+     */
+    @Test
+    public void testWriteJsonStreamsRows()
+        throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Iterator<List<Object>> rows = IntStream.range( 0, ROW_COUNT )
+            .mapToObj( i -> (List<Object>) Lists.<Object>newArrayList( "deabcdefghA", "ouabcdefghA", (double) i ) )
+            .iterator();
+
+        GridWriter writer = new JsonGridWriter( out ).writeHeaders( headers );
+
+        int sizeAtHalf = 0;
+
+        while ( rows.hasNext() )
+        {
+            writer.writeRow( rows.next() );
+
+            if ( writer.getRowCount() == ROW_COUNT / 2 )
+            {
+                sizeAtHalf = out.size();
+            }
+        }
+
+        writer.close();
+
+        assertTrue( sizeAtHalf > 0 );
+        assertTrue( sizeAtHalf < out.size() );
+
+        JsonNode json = new ObjectMapper().readTree( out.toByteArray() );
+
+        assertEquals( ROW_COUNT, json.get( "rows" ).size() );
+        assertEquals( ROW_COUNT - 1, json.get( "rows" ).get( ROW_COUNT - 1 ).get( 2 ).asDouble(), 0.01 );
+        assertEquals( ROW_COUNT, json.get( "height" ).asInt() );
+        assertEquals( ROW_COUNT, writer.getRowCount() );
+    }
+}
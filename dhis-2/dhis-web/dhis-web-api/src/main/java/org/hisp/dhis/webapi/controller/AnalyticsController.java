@@ -40,7 +40,9 @@ import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.system.grid.CsvGridWriter;
 import org.hisp.dhis.system.grid.GridUtils;
+import org.hisp.dhis.system.grid.JsonGridWriter;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.stereotype.Controller;
@@ -518,7 +520,7 @@ public class AnalyticsController
     // -------------------------------------------------------------------------
 
     @RequestMapping( value = RESOURCE_PATH + RAW_DATA_PATH + ".json", method = RequestMethod.GET )
-    public @ResponseBody Grid getRawDataJson(
+    public void getRawDataJson(
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Date startDate,
         @RequestParam( required = false ) Date endDate,
@@ -545,7 +547,7 @@ public class AnalyticsController
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        return analyticsService.getRawDataValues( params );
+        analyticsService.getRawDataValues( params, new JsonGridWriter( response.getOutputStream() ) );
     }
 
     @RequestMapping( value = RESOURCE_PATH + RAW_DATA_PATH + ".csv", method = RequestMethod.GET )
@@ -577,8 +579,7 @@ public class AnalyticsController
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_CSV,
             CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        Grid grid = analyticsService.getRawDataValues( params );
-        GridUtils.toCsv( grid, response.getWriter() );
+        analyticsService.getRawDataValues( params, new CsvGridWriter( response.getWriter() ) );
     }
 
     // -------------------------------------------------------------------------
@@ -35,10 +35,12 @@ import org.hibernate.SessionFactory;
 import org.hisp.dhis.common.Compression;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.common.IdSchemes;
+import org.hisp.dhis.common.IllegalQueryException;
 import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.dxf2.adx.AdxDataService;
 import org.hisp.dhis.dxf2.adx.AdxException;
 import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalueset.DataValueExportCursor;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
 import org.hisp.dhis.dxf2.datavalueset.tasks.ImportDataValueTask;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -81,6 +83,8 @@ public class DataValueSetController
 {
     public static final String RESOURCE_PATH = "/dataValueSets";
 
+    public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+
     @Autowired
     private DataValueSetService dataValueSetService;
 
@@ -228,6 +232,75 @@ public class DataValueSetController
         dataValueSetService.writeDataValueSetCsv( params, printWriter );
     }
 
+    @RequestMapping( method = RequestMethod.GET, produces = CONTENT_TYPE_DATAVALUESET_BINARY )
+    public void getDataValueSetBinary(
+        @RequestParam( required = false ) Set<String> dataSet,
+        @RequestParam( required = false ) Set<String> dataElementGroup,
+        @RequestParam( required = false ) Set<String> period,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false ) Set<String> orgUnit,
+        @RequestParam( required = false ) boolean children,
+        @RequestParam( required = false ) Set<String> orgUnitGroup,
+        @RequestParam( required = false ) Set<String> attributeOptionCombo,
+        @RequestParam( required = false ) boolean includeDeleted,
+        @RequestParam( required = false ) Date lastUpdated,
+        @RequestParam( required = false ) String lastUpdatedDuration,
+        @RequestParam( required = false ) Integer limit,
+        @RequestParam( required = false ) String attachment,
+        @RequestParam( required = false ) String compression,
+        IdSchemes idSchemes,
+        HttpServletResponse response ) throws IOException
+    {
+        response.setContentType( CONTENT_TYPE_DATAVALUESET_BINARY );
+        setNoStore( response );
+
+        DataExportParams params = dataValueSetService.getFromUrl( dataSet, dataElementGroup,
+            period, startDate, endDate, orgUnit, children, orgUnitGroup, attributeOptionCombo,
+            includeDeleted, lastUpdated, lastUpdatedDuration, limit, idSchemes );
+
+        OutputStream outputStream = compress( response, attachment, Compression.fromValue( compression ), "dvsb" );
+
+        dataValueSetService.writeDataValueSetBinary( params, outputStream );
+    }
+
+    /**
+     * Exports data values last updated on or after the given date as pages
+     * ordered by last updated timestamp and data value key. The continuation
+     * token for the next page is returned in the {@code X-Next-Cursor} header,
+     * and is absent for the last page.
+     */
+    @RequestMapping( value = "/changes", method = RequestMethod.GET, produces = CONTENT_TYPE_JSON )
+    @PreAuthorize( "hasRole('ALL')" )
+    public void getDataValueSetChangesJson(
+        @RequestParam Date lastUpdated,
+        @RequestParam( required = false, defaultValue = "10000" ) int pageSize,
+        @RequestParam( required = false ) String cursor,
+        @RequestParam( required = false ) String attachment,
+        @RequestParam( required = false ) String compression,
+        IdSchemes idSchemes, HttpServletResponse response ) throws IOException
+    {
+        if ( pageSize < 1 )
+        {
+            throw new IllegalQueryException( "Page size must be greater than zero" );
+        }
+
+        response.setContentType( CONTENT_TYPE_JSON );
+        setNoStore( response );
+
+        DataValueExportCursor after = DataValueExportCursor.fromToken( cursor );
+        DataValueExportCursor pageEnd = dataValueSetService.getDataValueExportPageEnd( lastUpdated, pageSize, after );
+
+        if ( pageEnd != null )
+        {
+            response.setHeader( HEADER_NEXT_CURSOR, pageEnd.toToken() );
+        }
+
+        OutputStream outputStream = compress( response, attachment, Compression.fromValue( compression ), "json" );
+
+        dataValueSetService.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, after, pageEnd );
+    }
+
     // -------------------------------------------------------------------------
     // Post
     // -------------------------------------------------------------------------
@@ -337,6 +410,25 @@ public class DataValueSetController
         }
     }
 
+    @RequestMapping( method = RequestMethod.POST, consumes = CONTENT_TYPE_DATAVALUESET_BINARY )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_DATAVALUE_ADD')" )
+    public void postBinaryDataValueSet( ImportOptions importOptions,
+        HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        if ( importOptions.isAsync() )
+        {
+            startAsyncImport( importOptions, ImportDataValueTask.FORMAT_BINARY, request, response );
+        }
+        else
+        {
+            ImportSummary summary = dataValueSetService.saveDataValueSetBinary( request.getInputStream(), importOptions );
+            summary.setImportOptions( importOptions );
+
+            response.setContentType( CONTENT_TYPE_JSON );
+            renderService.toJson( response.getOutputStream(), summary );
+        }
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
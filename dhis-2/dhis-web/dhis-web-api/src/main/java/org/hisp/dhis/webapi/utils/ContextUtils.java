@@ -78,6 +78,7 @@ public class ContextUtils
     public static final String CONTENT_TYPE_XML = "application/xml; charset=UTF-8";
     public static final String CONTENT_TYPE_XML_ADX = "application/adx+xml; charset=UTF-8";
     public static final String CONTENT_TYPE_CSV = "application/csv; charset=UTF-8";
+    public static final String CONTENT_TYPE_DATAVALUESET_BINARY = "application/vnd.dhis2.datavalueset+binary";
     public static final String CONTENT_TYPE_PNG = "image/png";
     public static final String CONTENT_TYPE_JPG = "image/jpeg";
     public static final String CONTENT_TYPE_EXCEL = "application/vnd.ms-excel";